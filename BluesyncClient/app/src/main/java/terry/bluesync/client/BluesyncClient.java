@@ -1,5 +1,11 @@
 package terry.bluesync.client;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import io.reactivex.Single;
+import terry.bluesync.client.util.StreamSink;
+
 public abstract class BluesyncClient {
     public enum STATE {
         CONNECTING,
@@ -28,6 +34,46 @@ public abstract class BluesyncClient {
         void onError(String message);
     }
 
+    /**
+     * Pushed data as a read-only buffer, without a String conversion.
+     * */
+    public interface DataListener {
+        void onReceivePushData(ByteBuffer data);
+    }
+
+    /**
+     * Response data as a read-only buffer, without a String conversion.
+     * */
+    public interface DataResponseCallback {
+        void onSuccess(ByteBuffer data);
+        void onError(String message);
+    }
+
+    /**
+     * Progress of a stream being sent.
+     * */
+    public interface StreamCallback {
+        /**
+         * @param offset bytes the peer confirmed so far
+         * */
+        void onProgress(long offset, long length);
+        void onSuccess();
+        void onError(String message);
+    }
+
+    /**
+     * Streams the peer sends, stored chunk by chunk as they arrive.
+     * */
+    public interface StreamListener {
+        /**
+         * @return where to store the stream, null refuses it. A sink still holding part of the
+         *         stream makes the peer resume after those bytes.
+         * */
+        StreamSink onStreamOpen(int streamId, long length);
+        void onStreamComplete(int streamId);
+        void onStreamError(int streamId, String message);
+    }
+
     abstract public STATE getState();
 
     public boolean isConnected() {
@@ -40,13 +86,41 @@ public abstract class BluesyncClient {
 
     abstract public void removeListener(Listener listener);
 
+    abstract public void addDataListener(DataListener listener);
+
+    abstract public void removeDataListener(DataListener listener);
+
+    abstract public void setStreamListener(StreamListener listener);
+
     abstract public void connect(String address, ConnectionCallback callback);
     abstract public void disconnect(DisconnectionCallback callback);
 
     abstract public void pushData(String data) throws BluesyncException;
+    abstract public void pushData(byte[] data) throws BluesyncException;
+    /** Sends the remaining bytes of data, its position is left as it is. */
+    abstract public void pushData(ByteBuffer data) throws BluesyncException;
 
     abstract public void sendRequest(String data, ResponseCallback callback) throws BluesyncException;
     abstract public void sendRequest(String data, ResponseCallback callback, int timeout) throws BluesyncException;
+    abstract public void sendRequest(byte[] data, DataResponseCallback callback) throws BluesyncException;
+    abstract public void sendRequest(byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException;
+
+    /**
+     * Request sent once subscribed, any number may wait for their response at the same time.
+     * Disposing it stops waiting, it fails with BluesyncException.
+     * */
+    abstract public Single<byte[]> sendRequestAsync(byte[] data);
+    abstract public Single<byte[]> sendRequestAsync(byte[] data, int timeout);
 
     abstract void sendResponse(int seqId, String data) throws BluesyncException;
+    abstract void sendResponse(int seqId, byte[] data) throws BluesyncException;
+    abstract void sendResponse(int seqId, ByteBuffer data) throws BluesyncException;
+
+    /**
+     * Send length bytes of source in chunks, for data beyond the frame limit of pushData. Sending
+     * the same streamId again after a reconnect resumes where the peer stopped, source starts
+     * from the beginning again and is skipped up to there. source is read on a thread of its own,
+     * a slow file or network source does not hold up the invoker thread.
+     * */
+    abstract public void sendStream(int streamId, InputStream source, long length, StreamCallback callback) throws BluesyncException;
 }
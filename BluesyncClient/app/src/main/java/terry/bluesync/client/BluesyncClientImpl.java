@@ -2,13 +2,18 @@ package terry.bluesync.client;
 
 import android.content.Context;
 import android.util.Log;
-import android.util.SparseArray;
 
-import java.util.ArrayList;
+import com.google.protobuf.ByteString;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.functions.Cancellable;
 
 import terry.bluesync.client.ble.AbstractChannelHandlerContext;
 import terry.bluesync.client.ble.BleClient;
@@ -18,9 +23,13 @@ import terry.bluesync.client.ble.ChannelHandlerAdapter;
 import terry.bluesync.client.ble.ChannelPipeline;
 import terry.bluesync.client.handler.BluesyncMessageCoder;
 import terry.bluesync.client.handler.LengthFieldFrameDecoder;
+import terry.bluesync.client.handler.RequestHandler;
+import terry.bluesync.client.handler.StreamHandler;
 import terry.bluesync.client.protocol.BluesyncMessage;
 import terry.bluesync.client.protocol.BluesyncProto;
 import terry.bluesync.client.protocol.BluesyncProtoUtil;
+import terry.bluesync.client.util.HashedWheelTimer;
+import terry.bluesync.client.util.StreamSink;
 
 import static terry.bluesync.client.protocol.BluesyncProto.*;
 
@@ -37,10 +46,14 @@ public class BluesyncClientImpl extends BluesyncClient {
     private BleClient mBleClient;
     private Channel mChannel;
     private List<Listener> mListeners;
+    private List<DataListener> mDataListeners;
 
     private ConnectionCallback mConnectionCallback;
     private DisconnectionCallback mDisconnectionCallback;
-    private SparseArray<ResponseHolder> mResponseHolderMap;
+    private volatile RequestHandler mRequestHandler;
+    private volatile StreamHandler mStreamHandler;
+    private volatile StreamListener mStreamListener;
+    private HashedWheelTimer mTimeoutTimer;
 
     public BluesyncClientImpl(Context context) {
         mContext = context;
@@ -48,7 +61,8 @@ public class BluesyncClientImpl extends BluesyncClient {
 
         mBleClient = new BleClient(mContext);
         mListeners = new LinkedList<>();
-        mResponseHolderMap = new SparseArray<>();
+        mDataListeners = new LinkedList<>();
+        mTimeoutTimer = new HashedWheelTimer("bluesync-timeout");
     }
 
     @Override
@@ -65,6 +79,17 @@ public class BluesyncClientImpl extends BluesyncClient {
         mListeners.remove(listener);
     }
 
+    @Override
+    public void addDataListener(DataListener listener) {
+        assert (listener != null);
+        mDataListeners.add(listener);
+    }
+
+    @Override
+    public void removeDataListener(DataListener listener) {
+        mDataListeners.remove(listener);
+    }
+
     @Override
     public void connect(String address, ConnectionCallback callback) {
         if (callback == null) {
@@ -102,7 +127,8 @@ public class BluesyncClientImpl extends BluesyncClient {
 
         setState(STATE.DISCONNECTING);
 
-        clearResponseHolder();
+        failRequests();
+        mTimeoutTimer.stop();
         mBleClient.disconnect();
     }
 
@@ -111,18 +137,37 @@ public class BluesyncClientImpl extends BluesyncClient {
         if (data == null) {
             throw new BluesyncException("push data fail, data can not be null");
         }
+        writePushData(ByteString.copyFromUtf8(data));
+    }
+
+    @Override
+    public void pushData(byte[] data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("push data fail, data can not be null");
+        }
+        writePushData(ByteString.copyFrom(data));
+    }
+
+    @Override
+    public void pushData(ByteBuffer data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("push data fail, data can not be null");
+        }
+        writePushData(ByteString.copyFrom(data.duplicate()));
+    }
 
+    private void writePushData(ByteString data) throws BluesyncException {
         if (getState() != STATE.CONNECTED) {
             throw new BluesyncException("send request fail, bluesync is already disconnected.");
         }
 
-        BluesyncMessage dataPack = BluesyncProtoUtil.getRecvDataPush(data.getBytes());
-        mChannel.write(dataPack);
+        BluesyncMessage request = BluesyncProtoUtil.getRecvDataPush(data);
+        mChannel.write(request);
     }
 
     @Override
     public void sendRequest(String data, ResponseCallback callback) throws BluesyncException {
-        this.sendRequest(data, callback, DEFAULT_TIMEOUT);
+        sendRequest(data, callback, DEFAULT_TIMEOUT);
     }
 
     @Override
@@ -135,13 +180,94 @@ public class BluesyncClientImpl extends BluesyncClient {
             throw new BluesyncException("send request fail, data can not be null");
         }
 
-        if (getState() != STATE.CONNECTED) {
+        final ResponseCallback responseCallback = callback;
+        writeRequest(ByteString.copyFromUtf8(data), timeout, new RequestHandler.Callback() {
+            @Override
+            public void onResponse(ByteString data) {
+                responseCallback.onSuccess(data.toStringUtf8());
+            }
+
+            @Override
+            public void onError(String message) {
+                responseCallback.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public void sendRequest(byte[] data, DataResponseCallback callback) throws BluesyncException {
+        sendRequest(data, callback, DEFAULT_TIMEOUT);
+    }
+
+    @Override
+    public void sendRequest(byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException {
+        if (callback == null ) {
+            throw new BluesyncException("send request fail, callback can not be null");
+        }
+
+        if (data == null) {
+            throw new BluesyncException("send request fail, data can not be null");
+        }
+
+        final DataResponseCallback responseCallback = callback;
+        writeRequest(ByteString.copyFrom(data), timeout, new RequestHandler.Callback() {
+            @Override
+            public void onResponse(ByteString data) {
+                responseCallback.onSuccess(data.asReadOnlyByteBuffer());
+            }
+
+            @Override
+            public void onError(String message) {
+                responseCallback.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public Single<byte[]> sendRequestAsync(byte[] data) {
+        return sendRequestAsync(data, DEFAULT_TIMEOUT);
+    }
+
+    @Override
+    public Single<byte[]> sendRequestAsync(final byte[] data, final int timeout) {
+        return Single.create(new SingleOnSubscribe<byte[]>() {
+            @Override
+            public void subscribe(final SingleEmitter<byte[]> emitter) throws Exception {
+                if (data == null) {
+                    throw new BluesyncException("send request fail, data can not be null");
+                }
+
+                final RequestHandler.Request request = writeRequest(ByteString.copyFrom(data), timeout, new RequestHandler.Callback() {
+                    @Override
+                    public void onResponse(ByteString data) {
+                        emitter.onSuccess(data.toByteArray());
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        if (!emitter.isDisposed()) {
+                            emitter.onError(new BluesyncException(message));
+                        }
+                    }
+                });
+
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        request.cancel();
+                    }
+                });
+            }
+        });
+    }
+
+    private RequestHandler.Request writeRequest(ByteString data, int timeout, RequestHandler.Callback callback) throws BluesyncException {
+        RequestHandler requestHandler = mRequestHandler;
+        if (getState() != STATE.CONNECTED || requestHandler == null) {
             throw new BluesyncException("send request fail, bluesync is already disconnected.");
         }
 
-        BluesyncMessage dataPack = BluesyncProtoUtil.getSendDataRequest(data.getBytes());
-        addResponseHolder(dataPack.getSeqId(), callback, timeout);
-        mChannel.write(dataPack);
+        return requestHandler.sendRequest(data, timeout, callback);
     }
 
     @Override
@@ -149,13 +275,70 @@ public class BluesyncClientImpl extends BluesyncClient {
         if (data == null) {
             throw new BluesyncException("send response fail, data can not be null");
         }
+        writeResponse(seqId, ByteString.copyFromUtf8(data));
+    }
+
+    @Override
+    public void sendResponse(int seqId, byte[] data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("send response fail, data can not be null");
+        }
+        writeResponse(seqId, ByteString.copyFrom(data));
+    }
+
+    @Override
+    public void sendResponse(int seqId, ByteBuffer data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("send response fail, data can not be null");
+        }
+        writeResponse(seqId, ByteString.copyFrom(data.duplicate()));
+    }
 
-        if (!isConnected()) {
+    private void writeResponse(int seqId, ByteString data) throws BluesyncException {
+        if (getState() != STATE.CONNECTED) {
             throw new BluesyncException("send response fail, bluesync has already disconnected.");
         }
 
-        BluesyncMessage dataPack = BluesyncProtoUtil.getSendDataResponse(seqId, data.getBytes());
-        mChannel.write(dataPack);
+        BluesyncMessage response = BluesyncProtoUtil.getSendDataResponse(seqId, data);
+        mChannel.write(response);
+    }
+
+    @Override
+    public void setStreamListener(StreamListener listener) {
+        mStreamListener = listener;
+    }
+
+    @Override
+    public void sendStream(int streamId, InputStream source, long length, final StreamCallback callback) throws BluesyncException {
+        if (callback == null) {
+            throw new BluesyncException("send stream fail, callback can not be null");
+        }
+
+        if (source == null || length < 0) {
+            throw new BluesyncException("send stream fail, source can not be null, length=" + length);
+        }
+
+        StreamHandler streamHandler = mStreamHandler;
+        if (getState() != STATE.CONNECTED || streamHandler == null) {
+            throw new BluesyncException("send stream fail, bluesync is already disconnected.");
+        }
+
+        streamHandler.sendStream(streamId, source, length, new StreamHandler.Callback() {
+            @Override
+            public void onProgress(int streamId, long offset, long length) {
+                callback.onProgress(offset, length);
+            }
+
+            @Override
+            public void onComplete(int streamId) {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(int streamId, String message) {
+                callback.onError(message);
+            }
+        });
     }
 
     @Override
@@ -193,9 +376,13 @@ public class BluesyncClientImpl extends BluesyncClient {
             }
 
             mChannel = channel;
+            mRequestHandler = new RequestHandler(mTimeoutTimer);
+            mStreamHandler = new StreamHandler(mTimeoutTimer, mStreamHandlerListener);
             ChannelPipeline pipeline = mChannel.channelPipeline();
             pipeline.addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_DATA_LENGTH))
                     .addLast("messageCoder", new BluesyncMessageCoder(MAX_DATA_LENGTH,false, new LoginCallback()))
+                    .addLast("requestHandler", mRequestHandler)
+                    .addLast("streamHandler", mStreamHandler)
                     .addLast("messageHandler", new BluesycnMessageHandler());
         }
 
@@ -241,7 +428,6 @@ public class BluesyncClientImpl extends BluesyncClient {
         @Override
         public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
             BluesyncMessage protobufData = (BluesyncMessage) msg;
-            String dataStr;
 
             switch (protobufData.getCmdId()) {
                 case ECI_error:
@@ -251,21 +437,25 @@ public class BluesyncClientImpl extends BluesyncClient {
                     break;
                 case ECI_req_sendData:
                     SendDataRequest sendRequest = (SendDataRequest) protobufData.getProtobufData();
-                    dataStr = new String(sendRequest.getData().toByteArray());
-                    BluesyncRequest bluesyncRequest = new BluesyncRequest(BluesyncClientImpl.this, protobufData.getSeqId(), dataStr);
+                    BluesyncRequest bluesyncRequest = new BluesyncRequest(BluesyncClientImpl.this, protobufData.getSeqId(), sendRequest.getData());
 
                     for (Listener listener : mListeners) {
                         listener.onReceiveSendData(bluesyncRequest);
                     }
                     break;
                 case ECI_resp_sendData:
-                    consumeResponseHolder(protobufData);
+                    printLog("no request waiting for response, seqId=" + protobufData.getSeqId());
                     break;
                 case ECI_push_recvData:
-                    RecvDataPush dataPush = (RecvDataPush) protobufData.getProtobufData();
-                    for (Listener listener : mListeners) {
-                        dataStr = new String(dataPush.getData().toByteArray());
-                        listener.onReceivePushData(dataStr);
+                    ByteString pushData = ((RecvDataPush) protobufData.getProtobufData()).getData();
+                    if (!mListeners.isEmpty()) {
+                        String dataStr = pushData.toStringUtf8();
+                        for (Listener listener : mListeners) {
+                            listener.onReceivePushData(dataStr);
+                        }
+                    }
+                    for (DataListener listener : mDataListeners) {
+                        listener.onReceivePushData(pushData.asReadOnlyByteBuffer());
                     }
                     break;
             }
@@ -298,83 +488,44 @@ public class BluesyncClientImpl extends BluesyncClient {
         }
     }
 
-    private synchronized void addResponseHolder(int seqId, ResponseCallback callback, int timeout) {
-        ResponseHolder holder = new ResponseHolder(seqId, callback, timeout);
-        mResponseHolderMap.put(seqId, holder);
-    }
-
-    private synchronized void clearResponseHolder() {
-        List<ResponseHolder> holderList = new ArrayList();
-        for(int i = 0; i < mResponseHolderMap.size(); i++){
-            int key = mResponseHolderMap.keyAt(i);
-            ResponseHolder holder = mResponseHolderMap.get(key);
-            holderList.add(holder);
+    private void failRequests() {
+        RequestHandler requestHandler = mRequestHandler;
+        if (requestHandler != null) {
+            requestHandler.failAll("bluesync disconnected");
         }
-        mResponseHolderMap.clear();
-
-        for (ResponseHolder response: holderList) {
-            response.discard();
-        }
-    }
-
-    private synchronized void removeResponseCallback(int seqId) {
-        mResponseHolderMap.delete(seqId);
-    }
 
-    private synchronized boolean consumeResponseHolder(BluesyncMessage protobufData) {
-        int seqId = protobufData.getSeqId();
-        ResponseHolder holder = mResponseHolderMap.get(seqId);
-        if (holder != null) {
-            mResponseHolderMap.delete(seqId);
-            holder.handleResponse(protobufData);
-            return true;
-        } else {
-            return false;
+        StreamHandler streamHandler = mStreamHandler;
+        if (streamHandler != null) {
+            streamHandler.failAll("bluesync disconnected");
         }
     }
 
-    private class ResponseHolder {
-        private int seqId;
-        private ResponseCallback callback;
-        private Timer timer;
+    /**
+     * The stream handler of every channel reports to the listener set at the time.
+     * */
+    private StreamHandler.Listener mStreamHandlerListener = new StreamHandler.Listener() {
 
-        ResponseHolder(int seqId, ResponseCallback callback, int timeout) {
-            this.seqId = seqId;
-            this.callback = callback;
-
-            timer = new Timer();
-            timer.schedule(new TimeoutTask(), timeout);
+        @Override
+        public StreamSink onStreamOpen(int streamId, long length) {
+            StreamListener listener = mStreamListener;
+            return listener != null ? listener.onStreamOpen(streamId, length) : null;
         }
 
-        private class TimeoutTask extends TimerTask {
-
-            @Override
-            public void run() {
-                printLog("response timeout, seqId=" + seqId);
-                removeResponseCallback(seqId);
-
-                callback.onError("response timeout");
+        @Override
+        public void onStreamComplete(int streamId) {
+            StreamListener listener = mStreamListener;
+            if (listener != null) {
+                listener.onStreamComplete(streamId);
             }
         }
 
-        public void handleResponse(BluesyncMessage protobufData) {
-            timer.cancel();
-
-            SendDataResponse response = (SendDataResponse) protobufData.getProtobufData();
-            EmCmdId cmdId = protobufData.getCmdId();
-
-            if (cmdId != EmCmdId.ECI_error) {
-                String dataStr = new String(response.getData().toByteArray());
-                callback.onSuccess(dataStr);
-            } else {
-                callback.onError(protobufData.toString());
+        @Override
+        public void onStreamError(int streamId, String message) {
+            StreamListener listener = mStreamListener;
+            if (listener != null) {
+                listener.onStreamError(streamId, message);
             }
         }
-
-        public void discard() {
-            timer.cancel();
-            callback.onError("bluesync disconnected");
-        }
-    }
+    };
 
 }
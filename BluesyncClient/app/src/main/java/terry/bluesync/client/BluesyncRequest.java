@@ -1,12 +1,20 @@
 package terry.bluesync.client;
 
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+
 public class BluesyncRequest {
 
     private BluesyncClient client;
     private int seqId;
-    private String data;
+    private ByteString data;
 
     public BluesyncRequest(BluesyncClient client, int seqId, String data) {
+        this(client, seqId, ByteString.copyFromUtf8(data));
+    }
+
+    public BluesyncRequest(BluesyncClient client, int seqId, ByteString data) {
         this.client = client;
         this.seqId = seqId;
         this.data = data;
@@ -16,16 +24,34 @@ public class BluesyncRequest {
         return seqId;
     }
 
+    /**
+     * Data decoded as UTF-8, decoded again on every call.
+     * */
     public String getData() {
-        return data;
+        return data.toStringUtf8();
+    }
+
+    /**
+     * Data as a read-only buffer, nothing is copied.
+     * */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyByteBuffer();
     }
 
     public void sendResponse(String data) throws BluesyncException {
         client.sendResponse(this.seqId, data);
     }
 
+    public void sendResponse(byte[] data) throws BluesyncException {
+        client.sendResponse(this.seqId, data);
+    }
+
+    public void sendResponse(ByteBuffer data) throws BluesyncException {
+        client.sendResponse(this.seqId, data);
+    }
+
     @Override
     public String toString() {
-        return "seqId=" + seqId + ", data=" + data;
+        return "seqId=" + seqId + ", data=" + getData();
     }
 }
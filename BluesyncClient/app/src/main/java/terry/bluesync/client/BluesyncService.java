@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.os.Binder;
 import android.os.IBinder;
 
+import terry.bluesync.client.util.ByteBufPool;
 
 public class BluesyncService extends Service {
 
@@ -13,6 +14,7 @@ public class BluesyncService extends Service {
 
     @Override
     public void onCreate() {
+        ByteBufPool.DEFAULT.setLeakDetection(BuildConfig.DEBUG);
         mBinder = new BluesyncService.LocalBinder();
         mBluesyncAdapter = new BluesyncAdapter(this);
     }
@@ -1,22 +1,41 @@
 package terry.bluesync.client.ble;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import terry.bluesync.client.util.LogUtil;
 
 public abstract class AbstractChannelHandlerContext {
     private static final String TAG = AbstractChannelHandlerContext.class.getSimpleName();
 
-    private static final int MASK_EXCEPTION_CAUGHT = 1 ;
-    private static final int MASK_ACTIVE = 1 << 1;
-    private static final int MASK_INACTIVE = 1 << 2;
-    private static final int MASK_READ = 1 << 3;
-    private static final int MASK_WRITE = 1 << 4;
+    private static final int EVENT_EXCEPTION_CAUGHT = 0;
+    private static final int EVENT_ACTIVE = 1;
+    private static final int EVENT_INACTIVE = 2;
+    private static final int EVENT_READ = 3;
+    private static final int EVENT_WRITE = 4;
+    private static final int EVENT_COUNT = 5;
+
+    private static final int MASK_EXCEPTION_CAUGHT = 1 << EVENT_EXCEPTION_CAUGHT;
+    private static final int MASK_ACTIVE = 1 << EVENT_ACTIVE;
+    private static final int MASK_INACTIVE = 1 << EVENT_INACTIVE;
+    private static final int MASK_READ = 1 << EVENT_READ;
+    private static final int MASK_WRITE = 1 << EVENT_WRITE;
 
-    private static final int MASKGROUP_INBOUND = MASK_EXCEPTION_CAUGHT | MASK_READ | MASK_ACTIVE | MASK_INACTIVE;
     private static final int MASKGROUP_OUTBOUND = MASK_WRITE;
 
+    /** Skip flags of every handler class met so far, the reflection runs once per class. */
+    static final Map<Class<? extends ChannelHandler>, Integer> SKIP_FLAGS_CACHE =
+            new ConcurrentHashMap<Class<? extends ChannelHandler>, Integer>();
+
     public static int skipFlags(ChannelHandler handler) {
-        return skipFlags0(handler.getClass());
+        Class<? extends ChannelHandler> handlerType = handler.getClass();
+        Integer flags = SKIP_FLAGS_CACHE.get(handlerType);
+        if (flags == null) {
+            /** two threads may both look a new class up, they put the same flags */
+            flags = skipFlags0(handlerType);
+            SKIP_FLAGS_CACHE.put(handlerType, flags);
+        }
+        return flags;
     }
 
     protected static int skipFlags0(Class<? extends ChannelHandler> handlerType) {
@@ -65,8 +84,8 @@ public abstract class AbstractChannelHandlerContext {
     private ChannelHandlerInvoker invoker = null;
     private final int skipFlags;
 
-    volatile AbstractChannelHandlerContext next;
-    volatile AbstractChannelHandlerContext prev;
+    /** Written by the pipeline under its lock, see {@link #link(AbstractChannelHandlerContext[])} */
+    private Successors successors;
 
     abstract public ChannelHandler handler();
 
@@ -94,44 +113,78 @@ public abstract class AbstractChannelHandlerContext {
     }
 
     public void fireActive() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = successors.contexts[EVENT_ACTIVE];
         next.invoker.invokeActive(next);
     }
 
     public void fireInactive() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = successors.contexts[EVENT_INACTIVE];
         next.invoker.invokeInactive(next);
     }
 
     public void fireRead(Object msg) {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = successors.contexts[EVENT_READ];
         next.invoker().invokeRead(next, msg);
     }
 
     public void fireWrite(Object msg) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = successors.contexts[EVENT_WRITE];
         next.invoker().invokeWrite(next, msg);
     }
 
     public AbstractChannelHandlerContext fireExceptionCaught(Throwable cause) {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = successors.contexts[EVENT_EXCEPTION_CAUGHT];
         next.invoker().invokeExceptionCaught(next, cause);
         return this;
     }
 
-    private AbstractChannelHandlerContext findContextInbound() {
-        AbstractChannelHandlerContext ctx = this;
-        do {
-            ctx = ctx.next;
-        } while ((ctx.skipFlags & MASKGROUP_INBOUND) == MASKGROUP_INBOUND);
-        return ctx;
+    /**
+     * Give every context of a pipeline, head first and tail last, the context each event goes to
+     * from it: the nearest one toward tail for inbound events, toward head for outbound events,
+     * whose handler does not skip it. Tail and head take what nobody else handles.
+     *
+     * A context keeps its old table until the new one is written, an event already on its way
+     * goes on along the pipeline it started in. A context taken out of the pipeline keeps its
+     * table for good.
+     * */
+    static void link(AbstractChannelHandlerContext[] contexts) {
+        int last = contexts.length - 1;
+        AbstractChannelHandlerContext[][] tables = new AbstractChannelHandlerContext[contexts.length][EVENT_COUNT];
+
+        for (int event = 0; event < EVENT_COUNT; event++) {
+            int mask = 1 << event;
+            AbstractChannelHandlerContext target = null;
+            if ((mask & MASKGROUP_OUTBOUND) != 0) {
+                for (int i = 0; i <= last; i++) {
+                    tables[i][event] = target;
+                    if (i == 0 || (contexts[i].skipFlags & mask) == 0) {
+                        target = contexts[i];
+                    }
+                }
+            } else {
+                for (int i = last; i >= 0; i--) {
+                    tables[i][event] = target;
+                    if (i == last || (contexts[i].skipFlags & mask) == 0) {
+                        target = contexts[i];
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i <= last; i++) {
+            contexts[i].successors = new Successors(tables[i]);
+        }
     }
 
-    private AbstractChannelHandlerContext findContextOutbound() {
-        AbstractChannelHandlerContext ctx = this;
-        do {
-            ctx = ctx.prev;
-        } while ((ctx.skipFlags & MASKGROUP_OUTBOUND) == MASKGROUP_OUTBOUND);
-        return ctx;
+    /**
+     * Never changed once built. The final field lets an event thread read a table written
+     * without a lock, it sees either the old one or the whole new one.
+     * */
+    private static final class Successors {
+        final AbstractChannelHandlerContext[] contexts;
+
+        Successors(AbstractChannelHandlerContext[] contexts) {
+            this.contexts = contexts;
+        }
     }
 }
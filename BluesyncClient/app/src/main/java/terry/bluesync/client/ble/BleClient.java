@@ -11,6 +11,7 @@ import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
 
 import terry.bluesync.client.BluesyncGattAttributes;
 import terry.bluesync.client.util.ByteUtil;
@@ -19,12 +20,18 @@ import terry.bluesync.client.util.LogUtil;
 public class BleClient {
     private static final String TAG = BleClient.class.getSimpleName();
     private static final boolean DEBUG = true;
+    /** 247 lets one ATT packet fill a whole LE data length extension PDU(251 bytes). */
+    private static final int REQUEST_MTU = 247;
+    private static final int REQUEST_MTU_TIMEOUT = 1 * 1000;
+    private static final byte[] ENABLE_INDICATION_AND_NOTIFICATION = {0x03, 0x00};
 
     private BluetoothAdapter mBluetoothAdapter;
     private Context mContext;
     private Handler mHandler;
     private BluetoothGatt mGatt;
     private Channel mChannel;
+    private GattTransport mTransport;
+    private boolean mIsMtuRequesting = false;
 
     private ChannelInitializer mChannelInitializer;
 
@@ -39,7 +46,8 @@ public class BleClient {
 
     public BleClient(Context context) {
         mContext = context;
-        mHandler = new Handler();
+        /** GATT callbacks come on binder threads, connection state is kept on the main thread */
+        mHandler = new Handler(Looper.getMainLooper());
         BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         mBluetoothAdapter = bluetoothManager.getAdapter();
     }
@@ -70,7 +78,7 @@ public class BleClient {
         }
 
         if (mChannel != null) {
-            mChannel.gatt().disconnect();
+            mTransport.disconnect();
         }
     }
 
@@ -90,8 +98,11 @@ public class BleClient {
                     } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
                         printLog("Disconnected from GATT server.");
 
+                        mIsMtuRequesting = false;
+                        mHandler.removeCallbacks(mRequestMtuTimeoutRunnable);
+
                         if (mChannel != null) {
-                            mChannel.gatt().close();
+                            mTransport.close();
                             mChannel.inactive();
                             mChannel.destroy();
                             mChannel = null;
@@ -110,20 +121,31 @@ public class BleClient {
             mHandler.post(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        mChannel = initChannel(status);
-                        mChannelInitializer.initChannel(mChannel, true, "success");
+                    /* Channel is set up in onMtuChanged if mtu request is sent */
+                    if (status == BluetoothGatt.GATT_SUCCESS && requestMtu()) {
+                        return;
+                    }
 
-                        mChannel.active();
+                    setupChannel(status, Channel.DEFAULT_MTU);
+                }
+            });
+        }
 
-                        printLog("initChannel success");
-                    } catch (BleConnectionException e) {
-                        mChannel = null;
-                        mGatt.close();
-                        mGatt.close();
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, final int mtu, final int status) {
+            printLog("onMtuChanged, mtu=" + mtu + ", status=" + status);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    int newMtu = (status == BluetoothGatt.GATT_SUCCESS) ? mtu : Channel.DEFAULT_MTU;
+
+                    if (mIsMtuRequesting) {
+                        mIsMtuRequesting = false;
+                        mHandler.removeCallbacks(mRequestMtuTimeoutRunnable);
 
-                        mChannelInitializer.initChannel(mChannel, false, e.getMessage());
-                        LogUtil.e(TAG, "initChannel error, gatt close because " + e.getMessage());
+                        setupChannel(BluetoothGatt.GATT_SUCCESS, newMtu);
+                    } else if (mChannel != null && status == BluetoothGatt.GATT_SUCCESS) {
+                        mChannel.setMtu(newMtu);
                     }
                 }
             });
@@ -137,7 +159,7 @@ public class BleClient {
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
-            if (characteristic != mChannel.indicateCharacteristic()) {
+            if (characteristic != mTransport.indicateCharacteristic()) {
                 printLog("Indicate characteristic error");
                 return;
             }
@@ -149,6 +171,48 @@ public class BleClient {
         }
     };
 
+    private boolean requestMtu() {
+        mIsMtuRequesting = mGatt.requestMtu(REQUEST_MTU);
+        if (mIsMtuRequesting) {
+            mHandler.postDelayed(mRequestMtuTimeoutRunnable, REQUEST_MTU_TIMEOUT);
+        } else {
+            printLog("request mtu fail, use default mtu");
+        }
+
+        return mIsMtuRequesting;
+    }
+
+    private final Runnable mRequestMtuTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mIsMtuRequesting) {
+                printLog("request mtu timeout, use default mtu");
+                mIsMtuRequesting = false;
+
+                setupChannel(BluetoothGatt.GATT_SUCCESS, Channel.DEFAULT_MTU);
+            }
+        }
+    };
+
+    private void setupChannel(int status, int mtu) {
+        try {
+            mChannel = initChannel(status);
+            mChannel.setMtu(mtu);
+            mChannelInitializer.initChannel(mChannel, true, "success");
+
+            mChannel.active();
+
+            printLog("initChannel success, mtu=" + mtu);
+        } catch (BleConnectionException e) {
+            mChannel = null;
+            mGatt.close();
+            mGatt.close();
+
+            mChannelInitializer.initChannel(mChannel, false, e.getMessage());
+            LogUtil.e(TAG, "initChannel error, gatt close because " + e.getMessage());
+        }
+    }
+
     private Channel initChannel(int status) throws BleConnectionException {
         if (status != BluetoothGatt.GATT_SUCCESS) {
             throw new BleConnectionException("gatt discover failure");
@@ -183,9 +247,11 @@ public class BleClient {
         if (writeCharacteristic == null) {
             throw new BleConnectionException("can not found write characteristic");
         }
-        mChannel = new Channel(mGatt, indicateCharacteristic, readCharacteristic, writeCharacteristic);
+        mTransport = new GattTransport(mGatt, indicateCharacteristic, readCharacteristic, writeCharacteristic);
+        mChannel = new Channel(mTransport);
 
-        descriptor.setValue(BluetoothGattDescriptor.ENABLE_INDICATION_VALUE);
+        /** notifications as well, the server notifies once the channel writes without response */
+        descriptor.setValue(ENABLE_INDICATION_AND_NOTIFICATION);
         mGatt.writeDescriptor(descriptor);
         mGatt.setCharacteristicNotification(indicateCharacteristic, true);
 
@@ -1,32 +1,48 @@
 package terry.bluesync.client.ble;
 
-
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCharacteristic;
+import terry.bluesync.client.util.ByteBufPool;
 
 public class Channel {
-    private BluetoothGatt gatt;
+    /** ATT_MTU every connection starts with, before any MTU exchange. */
+    public static final int DEFAULT_MTU = 23;
+    /** Largest ATT_MTU android will negotiate. */
+    public static final int MAX_MTU = 517;
+
+    private static final int ATT_HEADER_LEN = 3;
+    private static final int MAX_ATTRIBUTE_LEN = 512;
+
+    private Transport transport;
     private ChannelPipeline channelPipeline;
-    private BluetoothGattCharacteristic indicateCharacteristic;
-    private BluetoothGattCharacteristic readCharacteristic;
-    private BluetoothGattCharacteristic writeCharacteristic;
+    private final ByteBufPool alloc;
 
     private boolean isActive = false;
+    private volatile int mtu = DEFAULT_MTU;
+
+    public Channel(Transport transport) {
+        this(transport, new ChannelHandlerInvoker());
+    }
 
-    public Channel(BluetoothGatt gatt, BluetoothGattCharacteristic indicate,
-                   BluetoothGattCharacteristic read, BluetoothGattCharacteristic write) {
-        this.gatt = gatt;
-        this.indicateCharacteristic = indicate;
-        this.readCharacteristic = read;
-        this.writeCharacteristic = write;
+    public Channel(Transport transport, ChannelHandlerInvoker invoker) {
+        this(transport, invoker, ByteBufPool.DEFAULT);
+    }
+
+    public Channel(Transport transport, ChannelHandlerInvoker invoker, ByteBufPool alloc) {
+        this.transport = transport;
+        this.alloc = alloc;
 
-        channelPipeline = new ChannelPipeline(this);
+        channelPipeline = new ChannelPipeline(this, invoker);
+        transport.bind(this);
     }
 
     public void destroy() {
         channelPipeline.destroy();
     }
 
+    @Override
+    public String toString() {
+        return String.valueOf(transport);
+    }
+
     public ChannelPipeline channelPipeline() {
         return channelPipeline;
     }
@@ -44,24 +60,76 @@ public class Channel {
         return isActive;
     }
 
-    public void exceptionCaught(Throwable throwable) {
-        channelPipeline().exceptionCaught(throwable);
+    /**
+     * Pool the handlers of this channel allocate outbound frames from.
+     * */
+    public ByteBufPool alloc() {
+        return alloc;
     }
 
-    protected BluetoothGatt gatt() {
-        return gatt;
+    public int mtu() {
+        return mtu;
     }
 
-    protected BluetoothGattCharacteristic indicateCharacteristic() {
-        return indicateCharacteristic;
+    /**
+     * Max bytes one characteristic write can carry, it is ATT_MTU - 3.
+     * */
+    public int payloadSize() {
+        return Math.min(mtu - ATT_HEADER_LEN, MAX_ATTRIBUTE_LEN);
     }
 
-    protected BluetoothGattCharacteristic readCharacteristic() {
-        return readCharacteristic;
+    /**
+     * Whether a write would be queued, writing while it is false drops the message.
+     * */
+    public boolean isWritable() {
+        return channelPipeline().isWritable();
     }
 
-    protected BluetoothGattCharacteristic writeCharacteristic() {
-        return writeCharacteristic;
+    /**
+     * Write without response once the peer grants credits. The peer must turn it on as well,
+     * window is the frames it may have in flight toward this side. 0, the default, waits for the
+     * peer to confirm every chunk.
+     * */
+    public void setFastWriteWindow(int window) {
+        channelPipeline().setFastWriteWindow(window);
+    }
+
+    /**
+     * Pack small frames queued behind each other into one chunk, the peer's frame decoder splits
+     * them again. An idle channel holds a frame up to maxDelayMillis for more to come, unless
+     * flushBytes are queued, 0 for a full chunk. With no delay only the frames queued while a
+     * chunk is in flight are packed. Off by default.
+     * */
+    public void setWriteBatching(boolean enable, int maxDelayMillis, int flushBytes) {
+        channelPipeline().setWriteBatching(enable, maxDelayMillis, flushBytes);
+    }
+
+    /**Notes: user should not call this function*/
+    public void updateWriteCredits(int consumedFrames, int window) {
+        channelPipeline().updateWriteCredits(consumedFrames, window);
+    }
+
+    /**Notes: user should not call this function*/
+    public void frameConsumed() {
+        channelPipeline().frameConsumed();
+    }
+
+    public void exceptionCaught(Throwable throwable) {
+        channelPipeline().exceptionCaught(throwable);
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    /**
+     * Update ATT_MTU after exchange, an invalid value falls back to {@link #DEFAULT_MTU}.
+     * */
+    protected void setMtu(int mtu) {
+        if (mtu < DEFAULT_MTU || mtu > MAX_MTU) {
+            mtu = DEFAULT_MTU;
+        }
+        this.mtu = mtu;
     }
 
     protected void active() {
@@ -78,9 +146,8 @@ public class Channel {
         channelPipeline().read(msg);
     }
 
-    protected void writeChannel(byte[] value) {
-        writeCharacteristic().setValue(value);
-        gatt().writeCharacteristic(writeCharacteristic());
+    protected void writeChannel(byte[] value, int offset, int length) {
+        transport.write(value, offset, length);
     }
 
     protected void writeNext() {
@@ -1,8 +1,11 @@
 package terry.bluesync.client.ble;
 
 
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import terry.bluesync.client.util.LogUtil;
@@ -11,17 +14,71 @@ public class ChannelHandlerInvoker {
     private static final String TAG = ChannelHandlerInvoker.class.getSimpleName();
     private static final boolean DEBUG = false;
 
-    private ThreadPoolExecutor executor;
+    private ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private volatile Thread thread;
+    private volatile boolean destroyed = false;
 
     public ChannelHandlerInvoker() {
-        this.executor = new ThreadPoolExecutor(1, 1,
-                0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<Runnable>());
+        this(newScheduledExecutor("invoker"));
+    }
+
+    /**
+     * Timeouts wait on executor itself if it is a {@link ScheduledExecutorService}, else on a
+     * timer thread shared by every invoker.
+     * */
+    public ChannelHandlerInvoker(ExecutorService executor) {
+        this(executor, executor instanceof ScheduledExecutorService ? (ScheduledExecutorService) executor : null);
+    }
+
+    /**
+     * Handlers run on the executor, it must be single threaded to keep events in order.
+     * A null executor runs every event on the caller thread.
+     *
+     * @param scheduler where timeouts wait until they are due, they then run as events. A null
+     *                  scheduler uses a timer thread shared by every invoker, a virtual time one
+     *                  lets tests run timeouts when they like.
+     * */
+    public ChannelHandlerInvoker(ExecutorService executor, ScheduledExecutorService scheduler) {
+        this.executor = executor;
+        this.scheduler = scheduler != null ? scheduler : SharedTimer.INSTANCE;
+
+        if (executor != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    thread = Thread.currentThread();
+                }
+            });
+        }
+    }
+
+    /**
+     * Events raised on the invoker thread run inline instead of being queued, so a handler can
+     * pass a view of its buffer to the next one and reuse the buffer once fireXxx returns.
+     * */
+    public boolean inEventLoop() {
+        return executor == null || Thread.currentThread() == thread;
+    }
+
+    /**
+     * Run task as an event after delay, handlers schedule their timeouts here so a timeout never
+     * races with the events of its channel.
+     *
+     * @return cancel it on the event thread and task is sure not to run
+     * */
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        ScheduledTask scheduledTask = new ScheduledTask(task);
+        scheduledTask.mFuture = scheduler.schedule(scheduledTask, delay, unit);
+        return scheduledTask;
     }
 
     public void destroy() {
-        executor.shutdown();
-        executor = null;
+        destroyed = true;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
     }
 
     public void invokeRunnable(Runnable runnable) {
@@ -33,7 +90,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeActive(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeActiveNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -56,7 +113,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeInactive(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeInactiveNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -84,7 +141,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("msg");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeReadNow(ctx, msg);
         } else {
             executor.execute(new Runnable() {
@@ -98,7 +155,9 @@ public class ChannelHandlerInvoker {
 
     private void invokeReadNow(final AbstractChannelHandlerContext ctx, final Object msg) {
         try {
-            logPrintObject(ctx, "read()" + ", msg=" + String.valueOf(msg));
+            if (DEBUG) {
+                logPrintObject(ctx, "read()" + ", msg=" + String.valueOf(msg));
+            }
 
             ctx.handler().read(ctx, msg);
         } catch (Throwable t) {
@@ -111,7 +170,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("msg");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeWriteNow(ctx, msg);
         } else {
             executor.execute(new Runnable() {
@@ -138,7 +197,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("cause");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeExceptionCaughtNow(ctx, cause);
         } else {
             try {
@@ -187,7 +246,9 @@ public class ChannelHandlerInvoker {
 
     public void invokeExceptionCaughtNow(final AbstractChannelHandlerContext ctx, final Throwable cause) {
         try {
-            logPrintObject(ctx, "exceptionCaught()" + ", cause=" + cause.toString());
+            if (DEBUG) {
+                logPrintObject(ctx, "exceptionCaught()" + ", cause=" + cause.toString());
+            }
 
             ctx.handler().exceptionCaught(ctx, cause);
         } catch (Throwable t) {
@@ -197,7 +258,11 @@ public class ChannelHandlerInvoker {
     }
 
     private void logPrintObject(AbstractChannelHandlerContext ctx, String msg) {
-        LogPrint("[" +  ctx.channel().gatt().getDevice() + "] " + ctx.handler().getClass().getSimpleName() + "." + msg);
+        if (!DEBUG) {
+            return;
+        }
+
+        LogPrint("[" +  ctx.channel() + "] " + ctx.handler().getClass().getSimpleName() + "." + msg);
     }
 
     private void LogPrint(String msg) {
@@ -205,4 +270,68 @@ public class ChannelHandlerInvoker {
             LogUtil.d(TAG, msg);
         }
     }
+
+    private static ScheduledExecutorService newScheduledExecutor(final String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private static final class SharedTimer {
+        static final ScheduledExecutorService INSTANCE = newScheduledExecutor("invoker-timer");
+    }
+
+    /**
+     * A task waiting in the scheduler, it hops to the executor once due unless the scheduler is
+     * the executor.
+     * */
+    public final class ScheduledTask implements Runnable {
+        private final Runnable mTask;
+        private volatile Future<?> mFuture;
+        private volatile boolean mIsCancelled = false;
+
+        ScheduledTask(Runnable task) {
+            mTask = task;
+        }
+
+        public void cancel() {
+            mIsCancelled = true;
+            Future<?> future = mFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        @Override
+        public void run() {
+            if (mIsCancelled || destroyed) {
+                return;
+            }
+
+            if (inEventLoop()) {
+                mTask.run();
+            } else {
+                invokeRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mIsCancelled) {
+                            mTask.run();
+                        }
+                    }
+                });
+            }
+        }
+    }
 }
@@ -1,39 +1,39 @@
 package terry.bluesync.client.ble;
 
-import android.os.Handler;
-
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import terry.bluesync.client.util.ByteUtil;
-import terry.bluesync.client.util.DataSplitUtil;
+import terry.bluesync.client.util.ByteBuf;
 import terry.bluesync.client.util.LogUtil;
+import terry.bluesync.client.util.OutboundBuffer;
 
 public class ChannelPipeline {
     private static final String TAG = ChannelPipeline.class.getSimpleName();
-    private static final boolean DEBUG = true;
+    private static final boolean DEBUG = false;
 
     private Channel channel;
     final HeadContext head;
     final TailContext tail;
 
     private ChannelHandlerInvoker invoker;
+    /** head first and tail last, replaced as a whole under the lock and never changed in place */
+    private AbstractChannelHandlerContext[] contexts;
     private final Map<String, AbstractChannelHandlerContext> name2ctx =
             new HashMap<String, AbstractChannelHandlerContext>(4);
 
-    public ChannelPipeline(Channel channel) {
+    public ChannelPipeline(Channel channel, ChannelHandlerInvoker invoker) {
         if (channel == null) {
             throw new NullPointerException("channel");
         }
         this.channel = channel;
 
-        invoker = new ChannelHandlerInvoker();
+        this.invoker = invoker;
         tail = new TailContext(this, invoker);
         head = new HeadContext(this, invoker);
 
-        head.next = tail;
-        tail.prev = head;
+        contexts = new AbstractChannelHandlerContext[] {head, tail};
+        AbstractChannelHandlerContext.link(contexts);
     }
 
     public void destroy() {
@@ -44,6 +44,11 @@ public class ChannelPipeline {
         return channel;
     }
 
+    /**
+     * Handlers may be added and removed while events go through the pipeline. Every change
+     * builds the routing table of each context anew, an event then goes straight to the next
+     * handler which does not skip it.
+     * */
     public ChannelPipeline addLast(String name, ChannelHandler handler) {
         synchronized (this) {
             addLast0(name, new DefaultChannelHandlerContext(name, this, invoker, handler));
@@ -53,27 +58,34 @@ public class ChannelPipeline {
     }
 
     private void addLast0(final String name, AbstractChannelHandlerContext newCtx) {
-        AbstractChannelHandlerContext prev = tail.prev;
-        newCtx.prev = prev;
-        newCtx.next = tail;
-        prev.next = newCtx;
-        tail.prev = newCtx;
+        AbstractChannelHandlerContext[] newContexts = new AbstractChannelHandlerContext[contexts.length + 1];
+        System.arraycopy(contexts, 0, newContexts, 0, contexts.length - 1);
+        newContexts[contexts.length - 1] = newCtx;
+        newContexts[contexts.length] = tail;
 
+        AbstractChannelHandlerContext.link(newContexts);
+        contexts = newContexts;
         name2ctx.put(name, newCtx);
     }
 
     public void remove(String name) {
-        AbstractChannelHandlerContext node = name2ctx.get(name);
-        if (node == null) {
-            return;
-        }
+        synchronized (this) {
+            AbstractChannelHandlerContext node = name2ctx.remove(name);
+            if (node == null) {
+                return;
+            }
 
-        node.prev.next = node.next;
-        node.next.prev = node.prev;
-        node.prev = null;
-        node.next = null;
+            AbstractChannelHandlerContext[] newContexts = new AbstractChannelHandlerContext[contexts.length - 1];
+            int index = 0;
+            for (AbstractChannelHandlerContext ctx : contexts) {
+                if (ctx != node) {
+                    newContexts[index++] = ctx;
+                }
+            }
 
-        name2ctx.remove(name);
+            AbstractChannelHandlerContext.link(newContexts);
+            contexts = newContexts;
+        }
     }
 
     public void active() {
@@ -107,6 +119,32 @@ public class ChannelPipeline {
         head.fireExceptionCaught(throwable);
     }
 
+    /**
+     * False while the outbound buffer is full, a write then fails with
+     * {@link WriteBufferFullException} until chunks are confirmed.
+     * */
+    public boolean isWritable() {
+        return head.isWritable();
+    }
+
+    public void setFastWriteWindow(int window) {
+        head.setFastWriteWindow(window);
+    }
+
+    public void setWriteBatching(boolean enable, int maxDelayMillis, int flushBytes) {
+        head.setWriteBatching(enable, maxDelayMillis, flushBytes);
+    }
+
+    /**Notes: user should not call this function*/
+    public void updateWriteCredits(int consumedFrames, int window) {
+        head.updateWriteCredits(consumedFrames, window);
+    }
+
+    /**Notes: user should not call this function*/
+    public void frameConsumed() {
+        head.frameConsumed();
+    }
+
     static final class TailContext extends AbstractChannelHandlerContext implements ChannelHandler {
         private static final String TAIL_NAME = TailContext.class.getName();
         private static final int SKIP_FLAGS = skipFlags0(TailContext.class);
@@ -151,24 +189,42 @@ public class ChannelPipeline {
     static final class HeadContext extends AbstractChannelHandlerContext implements ChannelHandler {
         private static final String HEAD_NAME = HeadContext.class.getName();
         private static final int SKIP_FLAGS = skipFlags0(HeadContext.class);
-        private static final int DATA_CHUNK = 20;
         private static final int MAX_WRITE_DATA_LENGTH = 4 * 1024;
+        private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+        private static final int MAX_PENDING_FRAMES = 32;
         private static final int WRITE_TIMEOUT = 1 * 1000;
+        /** Credits of a peer which did not grant any, frames are sent one ATT round trip per chunk. */
+        private static final int NO_CREDIT_LIMIT = -1;
 
         private Channel mChannel;
-        private DataSplitUtil mSpliteUtil;
-        private final LinkedList<byte[]> mListDataToSending;
+        private final OutboundBuffer mOutboundBuffer;
         private volatile boolean mIsDataSending = false;
-        private Handler mHandler;
+        private ChannelHandlerInvoker.ScheduledTask mWriteTimeout;
+        private boolean mIsWriteProgress = false;
+
+        private volatile int mFastWriteWindow = 0;
+        private int mCredits = NO_CREDIT_LIMIT;
+        /** frames started toward the peer and the count of them it last reported consumed, compared modulo 2^16 */
+        private int mStartedFrames = 0;
+        private int mPeerConsumedFrames = 0;
+        private boolean mIsCreditGranted = false;
+        /** frames of the peer consumed since connect and the count last reported to it */
+        private int mConsumedFrames = 0;
+        private int mReportedFrames = 0;
+        private boolean mIsReportPending = false;
+        private final byte[] mCreditFrame = new byte[CreditFrame.LENGTH];
+
+        private volatile boolean mIsBatching = false;
+        private volatile int mBatchDelay = 0;
+        private volatile int mBatchFlushBytes = 0;
+        private boolean mIsFlushPending = false;
 
         public HeadContext(ChannelPipeline pipeline, ChannelHandlerInvoker invoker) {
             super(HEAD_NAME, pipeline, invoker, SKIP_FLAGS);
 
             mChannel = pipeline.channel;
-            mSpliteUtil = new DataSplitUtil(DATA_CHUNK);
-            mListDataToSending = new LinkedList<>();
+            mOutboundBuffer = new OutboundBuffer(MAX_PENDING_FRAMES, WRITE_BUFFER_SIZE);
             mIsDataSending = false;
-            mHandler = new Handler();
         }
 
         @Override
@@ -176,17 +232,41 @@ public class ChannelPipeline {
             return this;
         }
 
+        /**
+         * Takes over a ByteBuf and releases it once its last chunk is written, a byte array is
+         * sent as a whole frame. A frame the outbound buffer has no room for is dropped with
+         * {@link WriteBufferFullException}, see {@link Channel#isWritable()}.
+         * */
         @Override
-        public synchronized void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
-            byte[] bytes = (byte[]) msg;
-            if (bytes.length > MAX_WRITE_DATA_LENGTH) {
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ByteBuf frame = msg instanceof ByteBuf ? (ByteBuf) msg : new ByteBuf((byte[]) msg);
+            if (frame.length() > MAX_WRITE_DATA_LENGTH) {
+                frame.release();
                 throw new RuntimeException("write data length exceed " + MAX_WRITE_DATA_LENGTH);
             }
 
-            mListDataToSending.add(bytes);
+            if (DEBUG) {
+                printLog("write size=" + frame.length() + ", bytes=" + frame.toHexString());
+            }
+
+            if (!mOutboundBuffer.add(frame)) {
+                frame.release();
+                throw new WriteBufferFullException("write buffer full, queued bytes=" + mOutboundBuffer.queuedBytes());
+            }
+
+            if (mIsBatching && mBatchDelay > 0 && !mIsDataSending && mOutboundBuffer.queuedBytes() < flushBytes()) {
+                /** idle, wait a little for more frames to fill the chunk */
+                if (!mIsFlushPending) {
+                    mIsFlushPending = true;
+                    invoker().schedule(mFlushRunnable, mBatchDelay, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
             writeAsync();
+        }
 
-            printLog("write size=" + bytes.length + ", bytes=" + ByteUtil.byte2HexString(bytes));
+        public boolean isWritable() {
+            return mOutboundBuffer.isWritable();
         }
 
         public void writeAsync() {
@@ -195,50 +275,214 @@ public class ChannelPipeline {
             }
         }
 
+        /**
+         * Called for the first chunk and then once per chunk the transport confirms. Credits
+         * are granted and spent between frames, a frame once started is sent to its end.
+         * */
         public void writeNext() {
             mIsDataSending = true;
-            if (writeChannelChunk()) {
-                return;
-            }
+            mOutboundBuffer.ack();
 
-            if (!mListDataToSending.isEmpty()) {
-                mSpliteUtil.setData(mListDataToSending.pop());
-                if (writeChannelChunk()) {
+            if (mOutboundBuffer.atFrameStart()) {
+                if (mIsReportPending) {
+                    writeCreditFrame();
                     return;
                 }
+
+                if (mCredits == 0) {
+                    mIsDataSending = false;
+                    waitForCredits();
+                    return;
+                }
+            }
+
+            boolean isFrameStart = mOutboundBuffer.atFrameStart();
+            int length;
+            if (mIsBatching) {
+                int maxFrames = mCredits == NO_CREDIT_LIMIT ? Integer.MAX_VALUE : mCredits - (isFrameStart ? 1 : 0);
+                length = mOutboundBuffer.nextChunk(mChannel.payloadSize(), maxFrames);
+            } else {
+                length = mOutboundBuffer.nextChunk(mChannel.payloadSize());
+            }
+            if (length > 0) {
+                int frames = (isFrameStart ? 1 : 0) + mOutboundBuffer.chunkBatchFrames();
+                mStartedFrames += frames;
+                if (mCredits > 0) {
+                    mCredits -= frames;
+                }
+                writeTransport(mOutboundBuffer.chunkArray(), mOutboundBuffer.chunkOffset(), length);
+                return;
             }
 
             mIsDataSending = false;
-            mHandler.removeCallbacks(mWriteTimeoutRunnable);
         }
 
-        private boolean writeChannelChunk() {
-            byte[] chuck = mSpliteUtil.getDataChunk();
-            if (chuck != null) {
-                mChannel.writeChannel(chuck);
+        private void writeCreditFrame() {
+            mIsReportPending = false;
+            mReportedFrames = mConsumedFrames;
+            CreditFrame.write(mCreditFrame, mConsumedFrames, mFastWriteWindow);
+            writeTransport(mCreditFrame, 0, CreditFrame.LENGTH);
+        }
+
+        /**
+         * Out of credits with frames queued. A frame lost on the way is never reported consumed
+         * and a lost credit frame may be the last one, so the write timeout is armed here as well.
+         * */
+        private void waitForCredits() {
+            if (mOutboundBuffer.isEmpty()) {
+                return;
+            }
 
-                mHandler.removeCallbacks(mWriteTimeoutRunnable);
-                mHandler.postDelayed(mWriteTimeoutRunnable, WRITE_TIMEOUT);
-                return true;
+            if (mWriteTimeout == null) {
+                mIsWriteProgress = false;
+                mWriteTimeout = invoker().schedule(mWriteTimeoutRunnable, WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
             }
+        }
+
+        private void writeTransport(byte[] data, int offset, int length) {
+            mChannel.writeChannel(data, offset, length);
 
-            return false;
+            if (mWriteTimeout == null) {
+                mIsWriteProgress = false;
+                mWriteTimeout = invoker().schedule(mWriteTimeoutRunnable, WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
+            } else {
+                mIsWriteProgress = true;
+            }
         }
 
+        /**
+         * Let the peer write without response once it granted credits, window is how many
+         * frames this side lets the peer have in flight toward it. 0 turns it off.
+         * */
+        public void setFastWriteWindow(int window) {
+            if (window < 0 || window > CreditFrame.MAX_WINDOW) {
+                throw new IllegalArgumentException("window=" + window);
+            }
+            mFastWriteWindow = window;
+        }
+
+        /**
+         * Pack whole frames queued behind each other into one chunk. While a chunk is in flight
+         * frames queue up anyway, an idle channel holds a frame up to maxDelayMillis for more to
+         * come unless flushBytes are queued. 0 delay sends at once, flushBytes 0 means a full
+         * chunk. Off by default.
+         * */
+        public void setWriteBatching(boolean enable, int maxDelayMillis, int flushBytes) {
+            if (maxDelayMillis < 0 || flushBytes < 0) {
+                throw new IllegalArgumentException("maxDelayMillis=" + maxDelayMillis + ", flushBytes=" + flushBytes);
+            }
+            mBatchDelay = maxDelayMillis;
+            mBatchFlushBytes = flushBytes;
+            mIsBatching = enable;
+        }
+
+        private int flushBytes() {
+            int flushBytes = mBatchFlushBytes;
+            return flushBytes > 0 ? flushBytes : mChannel.payloadSize();
+        }
+
+        /**
+         * The peer reported how many of our frames it consumed and its window, the credits are
+         * the window less the frames still on the way. The first credits switch the transport
+         * to write without response. Ignored unless fast write is on.
+         * */
+        public void updateWriteCredits(int consumedFrames, int window) {
+            if (mFastWriteWindow == 0) {
+                return;
+            }
+
+            mPeerConsumedFrames = consumedFrames;
+            int inFlight = (short) (mStartedFrames - consumedFrames);
+            int credits = Math.max(0, window - Math.max(inFlight, 0));
+            if (mCredits == NO_CREDIT_LIMIT) {
+                if (credits == 0) {
+                    return;
+                }
+                mChannel.transport().setWriteWithoutResponse(true);
+            }
+            mCredits = credits;
+            writeAsync();
+        }
+
+        /**
+         * A frame of the peer went through the pipeline. The count of them goes back to the peer
+         * in batches of half a window, the first frame brings the whole window. The count is
+         * cumulative, a report lost on the way is made up by the next one.
+         * */
+        public void frameConsumed() {
+            mConsumedFrames++;
+            int window = mFastWriteWindow;
+            if (window == 0) {
+                return;
+            }
+
+            if (mIsCreditGranted && mConsumedFrames - mReportedFrames < Math.max(window / 2, 1)) {
+                return;
+            }
+            mIsCreditGranted = true;
+            mIsReportPending = true;
+            writeAsync();
+        }
+
+        /**
+         * Fall back to one ATT round trip per chunk until the peer reports again. Frames it has
+         * not reported consumed yet are taken as lost, they would otherwise hold their credits
+         * forever. One it consumed after its last report leaves the window that much wider
+         * until the next fall back, never by more than half a window.
+         * */
+        private void resetCredits() {
+            if (mCredits != NO_CREDIT_LIMIT) {
+                mCredits = NO_CREDIT_LIMIT;
+                mStartedFrames = mPeerConsumedFrames;
+                mChannel.transport().setWriteWithoutResponse(false);
+            }
+        }
+
+        private Runnable mFlushRunnable = new Runnable() {
+
+            @Override
+            public void run() {
+                mIsFlushPending = false;
+                writeAsync();
+            }
+        };
+
+        /**
+         * Armed once while chunks are being sent rather than once per chunk, a chunk not
+         * confirmed for a whole period, between one and two WRITE_TIMEOUT, drops what is queued.
+         * A channel waiting that long for credits falls back to confirmed writes instead.
+         * */
         private Runnable mWriteTimeoutRunnable = new Runnable() {
 
             @Override
             public void run() {
+                boolean isWaitingForCredits = !mIsDataSending && mCredits == 0 && !mOutboundBuffer.isEmpty();
+                if (!mIsDataSending && !isWaitingForCredits) {
+                    mWriteTimeout = null;
+                    return;
+                }
+
+                if (mIsWriteProgress) {
+                    mIsWriteProgress = false;
+                    mWriteTimeout = invoker().schedule(this, WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                mWriteTimeout = null;
+                if (isWaitingForCredits) {
+                    LogUtil.e(TAG, "no write credits, fall back to confirmed writes");
+                    resetCredits();
+                    writeAsync();
+                    return;
+                }
+
                 String logMsg = "write channel timeout, maybe channel already closed.";
 
                 printLog(logMsg);
                 LogUtil.e(TAG, logMsg);
-
-                synchronized (HeadContext.this) {
-                    mIsDataSending = false;
-                    mSpliteUtil.setData(null);
-                    mListDataToSending.clear();
-                }
+                mIsDataSending = false;
+                mOutboundBuffer.clear();
+                resetCredits();
             }
         };
 
@@ -254,9 +498,14 @@ public class ChannelPipeline {
         @Override
         public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {}
 
-        @Skip
+        /**
+         * Errors of write(), a full write buffer among them, are caught on this context and go on
+         * to the handlers, so it is not skipped.
+         * */
         @Override
-        public void exceptionCaught(AbstractChannelHandlerContext ctx, Throwable cause) throws Exception {}
+        public void exceptionCaught(AbstractChannelHandlerContext ctx, Throwable cause) throws Exception {
+            ctx.fireExceptionCaught(cause);
+        }
     }
 
     private static void printLog(String message) {
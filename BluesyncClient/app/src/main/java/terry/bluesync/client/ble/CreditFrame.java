@@ -0,0 +1,45 @@
+package terry.bluesync.client.ble;
+
+import terry.bluesync.client.util.ByteBuf;
+
+/**
+ * Frame layer message reporting to the peer how many of its frames were consumed since connect
+ * and how many it may have in flight, the credits it holds are that window less the frames it
+ * started and is not told of yet. The count is cumulative, a report lost on the way is made up
+ * by the next one. It is a bare 8 bytes header carrying {@link #CMD_ID} and the count in the
+ * seqId field, followed by the window, so it fits in one chunk at any ATT_MTU. The frame
+ * decoder consumes it, it never reaches the message coder.
+ */
+public final class CreditFrame {
+    public static final int CMD_ID = 2;
+    public static final int LENGTH = 10;
+    /** counts wrap at 2^16, a window must stay below half of that */
+    public static final int MAX_WINDOW = 0x7FFF;
+
+    private CreditFrame() {}
+
+    public static boolean isCreditFrame(ByteBuf frame) {
+        return frame.length() == LENGTH && frame.getUnsignedShort(4) == CMD_ID;
+    }
+
+    public static int consumedFrames(ByteBuf frame) {
+        return frame.getUnsignedShort(6);
+    }
+
+    public static int window(ByteBuf frame) {
+        return frame.getUnsignedShort(8);
+    }
+
+    static void write(byte[] bArr, int consumedFrames, int window) {
+        bArr[0] = (byte) -2;
+        bArr[1] = (byte) 1;
+        bArr[2] = 0;
+        bArr[3] = (byte) LENGTH;
+        bArr[4] = 0;
+        bArr[5] = (byte) CMD_ID;
+        bArr[6] = (byte) ((consumedFrames >> 8) & 255);
+        bArr[7] = (byte) (consumedFrames & 255);
+        bArr[8] = (byte) ((window >> 8) & 255);
+        bArr[9] = (byte) (window & 255);
+    }
+}
@@ -0,0 +1,87 @@
+package terry.bluesync.client.ble;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+public class GattTransport implements Transport {
+    private BluetoothGatt gatt;
+    private BluetoothGattCharacteristic indicateCharacteristic;
+    private BluetoothGattCharacteristic readCharacteristic;
+    private BluetoothGattCharacteristic writeCharacteristic;
+    private byte[] chunkBuf;
+
+    public GattTransport(BluetoothGatt gatt, BluetoothGattCharacteristic indicate,
+                         BluetoothGattCharacteristic read, BluetoothGattCharacteristic write) {
+        this.gatt = gatt;
+        this.indicateCharacteristic = indicate;
+        this.readCharacteristic = read;
+        this.writeCharacteristic = write;
+    }
+
+    @Override
+    public void bind(Channel channel) {
+        // gatt callbacks are dispatched to channel by BleClient
+    }
+
+    @Override
+    public void write(byte[] value, int offset, int length) {
+        writeCharacteristic.setValue(chunkOf(value, offset, length));
+        gatt.writeCharacteristic(writeCharacteristic);
+    }
+
+    /**
+     * The characteristic value is a whole array. The largest chunk array is kept for the next
+     * writes, the stack has copied the value by the time the write call returns.
+     * */
+    private byte[] chunkOf(byte[] value, int offset, int length) {
+        if (offset == 0 && length == value.length) {
+            return value;
+        }
+
+        byte[] chunk = chunkBuf;
+        if (chunk == null || chunk.length != length) {
+            chunk = new byte[length];
+            if (chunkBuf == null || chunkBuf.length < length) {
+                chunkBuf = chunk;
+            }
+        }
+        System.arraycopy(value, offset, chunk, 0, length);
+        return chunk;
+    }
+
+    @Override
+    public void setWriteWithoutResponse(boolean enable) {
+        writeCharacteristic.setWriteType(enable ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE
+                : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+    }
+
+    @Override
+    public void disconnect() {
+        gatt.disconnect();
+    }
+
+    public void close() {
+        gatt.close();
+    }
+
+    protected BluetoothGatt gatt() {
+        return gatt;
+    }
+
+    protected BluetoothGattCharacteristic indicateCharacteristic() {
+        return indicateCharacteristic;
+    }
+
+    protected BluetoothGattCharacteristic readCharacteristic() {
+        return readCharacteristic;
+    }
+
+    protected BluetoothGattCharacteristic writeCharacteristic() {
+        return writeCharacteristic;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(gatt.getDevice());
+    }
+}
@@ -0,0 +1,199 @@
+package terry.bluesync.client.ble;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory link to run pipelines on a plain JVM, for tests and benchmarks.
+ *
+ * Every chunk reaches the peer after the configured latency, then the channel is told the
+ * write completed. Written without response the channel is told right away, the chunk still
+ * takes the latency to arrive. A lost chunk is reported as written but never reaches the peer, the same
+ * as a packet dropped over the air. The ATT_MTU is applied to the channel when bound.
+ */
+public class LoopbackTransport implements Transport {
+
+    /**
+     * Receiving end of a loopback link, usually the transport of another channel.
+     * */
+    public interface Peer {
+        void receive(byte[] value);
+        void disconnected();
+    }
+
+    private final int mMtu;
+    private final int mLatencyMillis;
+    private volatile float mLossRate;
+    private final Random mRandom;
+    private final ScheduledExecutorService mExecutor;
+
+    private Channel mChannel;
+    private volatile Peer mPeer;
+    private volatile boolean mIsConnected = false;
+    private volatile boolean mWriteWithoutResponse = false;
+
+    private final AtomicLong mWriteCount = new AtomicLong();
+    private final AtomicLong mLostCount = new AtomicLong();
+
+    public LoopbackTransport() {
+        this(Channel.DEFAULT_MTU, 0, 0f);
+    }
+
+    public LoopbackTransport(int mtu, int latencyMillis, float lossRate) {
+        this(mtu, latencyMillis, lossRate, new Random());
+    }
+
+    public LoopbackTransport(int mtu, int latencyMillis, float lossRate, Random random) {
+        mMtu = mtu;
+        mLatencyMillis = latencyMillis;
+        mLossRate = lossRate;
+        mRandom = random;
+        mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loopback");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Link two transports with each other and active both channels.
+     * */
+    public static void connect(final LoopbackTransport first, final LoopbackTransport second) {
+        first.connect(second.asPeer());
+        second.connect(first.asPeer());
+    }
+
+    public Peer asPeer() {
+        return new Peer() {
+            @Override
+            public void receive(byte[] value) {
+                LoopbackTransport.this.receive(value);
+            }
+
+            @Override
+            public void disconnected() {
+                LoopbackTransport.this.close();
+            }
+        };
+    }
+
+    /**
+     * Link to peer and active the bound channel, handlers should be added before.
+     * */
+    public void connect(Peer peer) {
+        mPeer = peer;
+        mIsConnected = true;
+        mChannel.active();
+    }
+
+    /**
+     * Loss rate of the chunks written from now on.
+     * */
+    public void setLossRate(float lossRate) {
+        mLossRate = lossRate;
+    }
+
+    public boolean isConnected() {
+        return mIsConnected;
+    }
+
+    public long writeCount() {
+        return mWriteCount.get();
+    }
+
+    public long lostCount() {
+        return mLostCount.get();
+    }
+
+    @Override
+    public void bind(Channel channel) {
+        mChannel = channel;
+        mChannel.setMtu(mMtu);
+    }
+
+    @Override
+    public void write(byte[] value, int offset, int length) {
+        if (length > mChannel.payloadSize()) {
+            throw new IllegalArgumentException("chunk length " + length
+                    + " exceed payload size " + mChannel.payloadSize());
+        }
+
+        final byte[] chunk = new byte[length];
+        System.arraycopy(value, offset, chunk, 0, length);
+        final boolean isLost = mLossRate > 0 && mRandom.nextFloat() < mLossRate;
+        final boolean isConfirmed = !mWriteWithoutResponse;
+        mWriteCount.incrementAndGet();
+
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!mIsConnected) {
+                    return;
+                }
+
+                if (isLost) {
+                    mLostCount.incrementAndGet();
+                } else {
+                    mPeer.receive(chunk);
+                }
+
+                if (isConfirmed) {
+                    mChannel.writeNext();
+                }
+            }
+        }, mLatencyMillis, TimeUnit.MILLISECONDS);
+
+        if (!isConfirmed) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mIsConnected) {
+                        mChannel.writeNext();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void setWriteWithoutResponse(boolean enable) {
+        mWriteWithoutResponse = enable;
+    }
+
+    @Override
+    public void disconnect() {
+        Peer peer = mPeer;
+        if (close() && peer != null) {
+            peer.disconnected();
+        }
+    }
+
+    private void receive(byte[] value) {
+        if (mIsConnected) {
+            mChannel.read(value);
+        }
+    }
+
+    private synchronized boolean close() {
+        if (!mIsConnected) {
+            return false;
+        }
+
+        mIsConnected = false;
+        mExecutor.shutdown();
+        mChannel.inactive();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "loopback@" + Integer.toHexString(hashCode());
+    }
+}
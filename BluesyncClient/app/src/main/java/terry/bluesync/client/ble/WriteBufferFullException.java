@@ -0,0 +1,15 @@
+package terry.bluesync.client.ble;
+
+/**
+ * A frame was written while the outbound buffer of the channel was full, it was dropped.
+ */
+public class WriteBufferFullException extends Exception {
+    private static final long serialVersionUID = 4721558917630548725L;
+
+    /**
+     * Creates a new instance.
+     */
+    public WriteBufferFullException(String message) {
+        super(message);
+    }
+}
@@ -3,8 +3,12 @@ package terry.bluesync.client.handler;
 import android.os.Build;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.GeneratedMessageV3;
 
+import java.io.IOException;
+
 import terry.bluesync.client.ble.AbstractChannelHandlerContext;
 import terry.bluesync.client.ble.ChannelHandlerAdapter;
 import terry.bluesync.client.protocol.BluesyncMessage;
@@ -12,17 +16,23 @@ import terry.bluesync.client.protocol.BluesyncProto;
 import terry.bluesync.client.protocol.BluesyncProtoUtil;
 import terry.bluesync.client.util.AesCoder;
 import terry.bluesync.client.util.AesCoderException;
-import terry.bluesync.client.util.ByteUtil;
+import terry.bluesync.client.util.AesCtrSession;
+import terry.bluesync.client.util.AesSession;
+import terry.bluesync.client.util.ByteBuf;
+import terry.bluesync.client.util.ByteBufPool;
 import terry.bluesync.client.util.LogUtil;
+import terry.bluesync.client.util.SessionCipher;
 
 public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     private static final String TAG = BluesyncMessageCoder.class.getSimpleName();
-    private static final boolean DEBUG = true;
+    private static final boolean DEBUG = false;
     private static final int FIXED_HEAD_LEN = 8;
 
     private int mSendDataLen;
     private boolean mIsEncrypt;
     private byte[] mSessionKey;
+    private SessionCipher mSessionCipher;
+    private byte[] mPlainBuf;
 
     enum STEP {
         AUTH,
@@ -50,22 +60,34 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
 
     @Override
     public void read(AbstractChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = toFrame(msg);
         switch (getStep()) {
             case AUTH:
-                handleAuthenRequest(ctx, (byte[]) msg);
+                handleAuthenRequest(ctx, frame);
                 break;
             case INIT:
-                handleInitRequest(ctx, (byte[]) msg);
+                handleInitRequest(ctx, frame);
                 break;
             case READY:
-                handleMessage(ctx, (byte[]) msg);
+                handleMessage(ctx, frame);
                 break;
         }
     }
 
-    private void handleAuthenRequest(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    /**
+     * Frames from LengthFieldFrameDecoder are views of its receive buffer, a plain byte array
+     * is accepted as a whole frame.
+     * */
+    private ByteBuf toFrame(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return (ByteBuf) msg;
+        }
+        return new ByteBuf((byte[]) msg);
+    }
+
+    private void handleAuthenRequest(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parsePlainData(bArr);
+            BluesyncMessage message = parsePlainData(frame);
             byte[] aesSessionKey = null;
 
             /** check cmd id */
@@ -76,7 +98,8 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
             BluesyncProto.AuthRequest authRequest = (BluesyncProto.AuthRequest) message.getProtobufData();
             printLog("handleInitRequest, data=" + message);
 
-            mIsEncrypt = authRequest.getIsEncrypt();
+            int encryptMode = selectEncryptMode(authRequest.getIsEncrypt());
+            mIsEncrypt = encryptMode != BluesyncProto.EmEncryptMode.EEM_none_VALUE;
             if (mIsEncrypt) {
                 byte[] aesSign = authRequest.getAesSign().toByteArray();
                 byte[] sn = authRequest.getSerialNo().getBytes();
@@ -86,10 +109,11 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
                 }
 
                 mSessionKey = AesCoder.genSessionKey();
+                mSessionCipher = newSessionCipher(encryptMode);
                 aesSessionKey = AesCoder.encodeAesSessionKey(mSessionKey);
             }
 
-            sendAuthResponse(message.getSeqId(), ctx, aesSessionKey);
+            sendAuthResponse(message.getSeqId(), ctx, aesSessionKey, encryptMode);
 
             setStep(STEP.INIT);
         } catch (BluesyncMessageCoderException e) {
@@ -108,9 +132,27 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         return cmdId == BluesyncProto.EmCmdId.ECI_req_auth;
     }
 
-    private void sendAuthResponse(int seqId, AbstractChannelHandlerContext ctx, byte[] aesSessionKey) throws BluesyncMessageCoderException {
+    /**
+     * Server offers the highest mode it supports, old servers send 1 for cbc.
+     * */
+    private int selectEncryptMode(int requestMode) {
+        if (requestMode >= BluesyncProto.EmEncryptMode.EEM_aes_ctr_VALUE) {
+            return BluesyncProto.EmEncryptMode.EEM_aes_ctr_VALUE;
+        }
+        return requestMode;
+    }
+
+    private SessionCipher newSessionCipher(int encryptMode) throws AesCoderException {
+        if (encryptMode == BluesyncProto.EmEncryptMode.EEM_aes_ctr_VALUE) {
+            return new AesCtrSession(mSessionKey, false);
+        }
+        return new AesSession(mSessionKey, mSessionKey);
+    }
+
+    private void sendAuthResponse(int seqId, AbstractChannelHandlerContext ctx, byte[] aesSessionKey, int encryptMode) throws BluesyncMessageCoderException {
         BluesyncProto.AuthResponse.Builder builder = BluesyncProto.AuthResponse.newBuilder();
-        builder.setBaseResponse(BluesyncProtoUtil.getBaseResponseMessage(BluesyncProto.EmErrorCode.EEC_success_VALUE, null));
+        builder.setBaseResponse(BluesyncProtoUtil.getBaseResponseMessage(BluesyncProto.EmErrorCode.EEC_success_VALUE, null))
+                .setEncryptMode(encryptMode);
 
         if (aesSessionKey != null) {
             builder.setAesSessionKey(ByteString.copyFrom(aesSessionKey));
@@ -119,13 +161,14 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         BluesyncMessage response = new BluesyncMessage(seqId, BluesyncProto.EmCmdId.ECI_resp_auth, builder.build());
         printLog("send auth response=" + response);
 
-        byte[] bArr = packageData(response);
-        ctx.fireWrite(bArr);
+        /** server reads the session key from this response, so it can not be encrypted yet */
+        ByteBuf frame = packagePlainData(ctx.channel().alloc(), response);
+        ctx.fireWrite(frame);
     }
 
-    private void handleInitRequest(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    private void handleInitRequest(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parseData(bArr);
+            BluesyncMessage message = parseData(ctx.channel().alloc(), frame);
 
             if (!isInitCmdId(message.getCmdId())) {
                 throw new BluesyncMessageCoderException(message.getSeqId(), BluesyncProto.EmErrorCode.EEC_needAuth_VALUE, "it's not init request command");
@@ -160,14 +203,16 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         BluesyncMessage response = new BluesyncMessage(seqId, BluesyncProto.EmCmdId.ECI_resp_init, builder.build());
         printLog("send init response=" + response);
 
-        byte[] bArr = packageData(response);
-        ctx.fireWrite(bArr);
+        ByteBuf frame = packageData(ctx.channel().alloc(), response);
+        ctx.fireWrite(frame);
     }
 
-    private void handleMessage(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    private void handleMessage(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parseData(bArr);
-            printLog("receive data=" + message);
+            BluesyncMessage message = parseData(ctx.channel().alloc(), frame);
+            if (DEBUG) {
+                printLog("receive data=" + message);
+            }
 
             ctx.fireRead(message);
         } catch (BluesyncMessageCoderException exception) {
@@ -175,74 +220,71 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         }
     }
 
-    private BluesyncMessage parseData(byte[] bArr) throws BluesyncMessageCoderException {
+    private BluesyncMessage parseData(ByteBufPool pool, ByteBuf frame) throws BluesyncMessageCoderException {
         if (mIsEncrypt) {
-            return parseEncryptedData(bArr);
+            return parseEncryptedData(pool, frame);
         } else {
-            return parsePlainData(bArr);
+            return parsePlainData(frame);
         }
     }
 
-    private BluesyncMessage parsePlainData(byte[] bArr) throws BluesyncMessageCoderException {
-        int seqId = getSeqId(bArr);
-        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, bArr);
+    private BluesyncMessage parsePlainData(ByteBuf frame) throws BluesyncMessageCoderException {
+        int seqId = getSeqId(frame);
+        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, frame);
 
-        byte[] protobuf = getProtobufByteArray(bArr);
 
-        GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, protobuf);
+        GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId,
+                frame.array(), frame.offset() + FIXED_HEAD_LEN, frame.length() - FIXED_HEAD_LEN);
         return new BluesyncMessage(seqId, cmdId, protobufObject);
     }
 
-    private BluesyncMessage parseEncryptedData(byte[] bArr) throws BluesyncMessageCoderException {
-        int seqId = getSeqId(bArr);
-        try {
-            BluesyncProto.EmCmdId cmdId = getCmdId(seqId, bArr);
+    /**
+     * The payload is decrypted into a buffer of pool, protobuf copies what it keeps so the
+     * buffer is released before returning.
+     * */
+    private BluesyncMessage parseEncryptedData(ByteBufPool pool, ByteBuf frame) throws BluesyncMessageCoderException {
+        int seqId = getSeqId(frame);
+        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, frame);
 
-            byte[] encryptedProtobuf = getProtobufByteArray(bArr);
-            byte[] protobufData = AesCoder.decrypt(mSessionKey, mSessionKey, encryptedProtobuf);
+        int encryptedLength = frame.length() - FIXED_HEAD_LEN;
+        ByteBuf plain = pool.allocate(mSessionCipher.decryptOutputSize(encryptedLength));
+        try {
+            int plainLength = mSessionCipher.decrypt(frame.array(), frame.offset() + FIXED_HEAD_LEN, encryptedLength,
+                    plain.array(), plain.offset());
 
-            GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, protobufData);
+            GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, plain.array(), plain.offset(), plainLength);
             return new BluesyncMessage(seqId, cmdId, protobufObject);
         } catch (AesCoderException e) {
             throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "aes decode error");
+        } finally {
+            plain.release();
         }
     }
 
-    private BluesyncProto.EmCmdId getCmdId(int seqId, byte[] bArr) throws BluesyncMessageCoderException {
+    private BluesyncProto.EmCmdId getCmdId(int seqId, ByteBuf frame) throws BluesyncMessageCoderException {
         try {
-            int cmdInt = ((bArr[4] & 0xFF) << 8) | (bArr[5] & 0xFF);
+            int cmdInt = frame.getUnsignedShort(4);
             return BluesyncProto.EmCmdId.forNumber(cmdInt);
         } catch (NullPointerException exception) {
-            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + frame.toHexString());
         } catch (IndexOutOfBoundsException exception) {
-            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + frame.toHexString());
         }
     }
 
-    private int getSeqId(byte[] bArr) throws BluesyncMessageCoderException {
+    private int getSeqId(ByteBuf frame) throws BluesyncMessageCoderException {
         try {
-            return ((bArr[6] & 0xFF) << 8) | (bArr[7] & 0xFF);
+            return frame.getUnsignedShort(6);
         } catch (NullPointerException exception) {
-            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + frame.toHexString());
         } catch (IndexOutOfBoundsException exception) {
-            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + ByteUtil.byte2HexString(bArr));
-        }
-    }
-
-    private byte[] getProtobufByteArray(byte[] bArr) {
-        int length = bArr.length - FIXED_HEAD_LEN;
-        if (length == 0) {
-            return null;
+            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + frame.toHexString());
         }
-
-        byte[] protobuf = new byte[length];
-        System.arraycopy(bArr, FIXED_HEAD_LEN, protobuf, 0, length);
-
-        return protobuf;
     }
 
-    private GeneratedMessageV3 getProtobufObject(int seqId, BluesyncProto.EmCmdId cmdId, byte[] protobuf) throws BluesyncMessageCoderException {
+    private GeneratedMessageV3 getProtobufObject(int seqId, BluesyncProto.EmCmdId cmdId, byte[] bArr, int offset, int length) throws BluesyncMessageCoderException {
         try {
+            CodedInputStream protobuf = CodedInputStream.newInstance(bArr, offset, length);
             GeneratedMessageV3 retObject = null;
             switch (cmdId) {
                 case ECI_error:
@@ -269,6 +311,18 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
                 case ECI_push_recvData:
                     retObject = BluesyncProto.RecvDataPush.parseFrom(protobuf);
                     break;
+                case ECI_req_streamOpen:
+                    retObject = BluesyncProto.StreamOpenRequest.parseFrom(protobuf);
+                    break;
+                case ECI_resp_streamOpen:
+                    retObject = BluesyncProto.StreamOpenResponse.parseFrom(protobuf);
+                    break;
+                case ECI_push_streamData:
+                    retObject = BluesyncProto.StreamDataPush.parseFrom(protobuf);
+                    break;
+                case ECI_push_streamAck:
+                    retObject = BluesyncProto.StreamAckPush.parseFrom(protobuf);
+                    break;
                 default:
                     printError("parse protobuf fail for unexpected command id.");
                     throw new Exception();
@@ -299,77 +353,107 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         }
 
         try {
-            printLog("write data=" + msg);
+            if (DEBUG) {
+                printLog("write data=" + msg);
+            }
 
-            byte[] bArr = packageData((BluesyncMessage) msg);
-            ctx.fireWrite(bArr);
+            ByteBuf frame = packageData(ctx.channel().alloc(), (BluesyncMessage) msg);
+            ctx.fireWrite(frame);
         } catch (Exception e) {
             LogUtil.e(TAG, e.toString());
         }
     }
 
-    private byte[] packageData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    /**
+     * @return a frame allocated from pool, released by the pipeline head once it is sent
+     * */
+    private ByteBuf packageData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         if (mIsEncrypt) {
-            return packageEncryptData(bluesyncMessage);
+            return packageEncryptData(pool, bluesyncMessage);
         } else {
-            return packagePlainData(bluesyncMessage);
+            return packagePlainData(pool, bluesyncMessage);
         }
     }
 
-    private byte[] packageEncryptData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    private ByteBuf packageEncryptData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         int seqId = bluesyncMessage.getSeqId();
         try {
             BluesyncProto.EmCmdId cmdId = bluesyncMessage.getCmdId();
 
-            byte[] protoData = bluesyncMessage.getProtobufData().toByteArray();
-            byte[] encryptedProtoData = AesCoder.encrypt(mSessionKey, mSessionKey, protoData);
-
-            byte[] packData = addFixedHeadBuf(seqId, cmdId.getNumber(), encryptedProtoData);
-            if (packData.length > mSendDataLen) {
+            GeneratedMessageV3 protobuf = bluesyncMessage.getProtobufData();
+            int protoLength = protobuf.getSerializedSize();
+            int totalLength = FIXED_HEAD_LEN + mSessionCipher.encryptOutputSize(protoLength);
+            if (totalLength > mSendDataLen) {
                 throw new BluesyncMessageCoderException(seqId, 0, "send data length exceed " + mSendDataLen);
             }
 
-            return packData;
+            /** plain data is only needed until it is encrypted, it is serialized into a reused buffer */
+            if (mPlainBuf == null) {
+                mPlainBuf = new byte[mSendDataLen];
+            }
+            writeProtobuf(protobuf, mPlainBuf, 0, protoLength);
+
+            ByteBuf frame = pool.allocate(totalLength);
+            try {
+                int encryptedLength = mSessionCipher.encrypt(mPlainBuf, 0, protoLength, frame.array(), frame.offset() + FIXED_HEAD_LEN);
+                frame.setLength(FIXED_HEAD_LEN + encryptedLength);
+            } catch (Exception e) {
+                frame.release();
+                throw e;
+            }
+            writeFixedHead(frame, seqId, cmdId.getNumber());
+
+            return frame;
         } catch (Exception e) {
             e.printStackTrace();
             throw new BluesyncMessageCoderException(seqId, 0, "encryptAndPackageData error" + e);
         }
     }
 
-    private byte[] packagePlainData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    /**
+     * Header and protobuf are written into one buffer of the exact frame length.
+     * */
+    private ByteBuf packagePlainData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         BluesyncProto.EmCmdId cmdId = bluesyncMessage.getCmdId();
         int seqId = bluesyncMessage.getSeqId();
-        byte[] protoData = bluesyncMessage.getProtobufData().toByteArray();
+        GeneratedMessageV3 protobuf = bluesyncMessage.getProtobufData();
 
-        byte[] packData = addFixedHeadBuf(seqId, cmdId.getNumber(), protoData);
-        if (packData.length > mSendDataLen) {
+        int protoLength = protobuf.getSerializedSize();
+        int totalLength = FIXED_HEAD_LEN + protoLength;
+        if (totalLength > mSendDataLen) {
             throw new BluesyncMessageCoderException(seqId, 0, "send data length exceed " + mSendDataLen);
         }
 
-        return packData;
+        ByteBuf frame = pool.allocate(totalLength);
+        writeFixedHead(frame, seqId, cmdId.getNumber());
+        try {
+            writeProtobuf(protobuf, frame.array(), frame.offset() + FIXED_HEAD_LEN, protoLength);
+        } catch (IOException e) {
+            frame.release();
+            throw new BluesyncMessageCoderException(seqId, 0, "packagePlainData error" + e);
+        }
+
+        return frame;
     }
 
-    private byte[] addFixedHeadBuf(int seqId, int cmdId, byte[] protobuf) {
-        int totalLength = FIXED_HEAD_LEN;
-        if (protobuf != null && protobuf.length > 0) {
-            totalLength = protobuf.length + FIXED_HEAD_LEN;
-        }
-        byte[] bArr = new byte[totalLength];
-
-        bArr[0] = (byte) -2;
-        bArr[1] = (byte) 1;
-        bArr[2] = (byte) ((totalLength >> 8) & 255);
-        bArr[3] = (byte) (totalLength & 255);
-        bArr[4] = (byte) ((cmdId >> 8) & 255);
-        bArr[5] = (byte) (cmdId & 255);
-        bArr[6] = (byte) ((seqId >> 8) & 255);
-        bArr[7] = (byte) (seqId & 255);
-
-        if (totalLength > FIXED_HEAD_LEN) {
-            System.arraycopy(protobuf, 0, bArr, 8, protobuf.length);
-        }
+    private static void writeProtobuf(GeneratedMessageV3 protobuf, byte[] bArr, int offset, int length) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(bArr, offset, length);
+        protobuf.writeTo(output);
+        output.checkNoSpaceLeft();
+    }
 
-        return bArr;
+    private void writeFixedHead(ByteBuf frame, int seqId, int cmdId) {
+        byte[] bArr = frame.array();
+        int offset = frame.offset();
+        int totalLength = frame.length();
+        bArr[offset] = (byte) -2;
+        bArr[offset + 1] = (byte) 1;
+        bArr[offset + 2] = (byte) ((totalLength >> 8) & 255);
+        bArr[offset + 3] = (byte) (totalLength & 255);
+        bArr[offset + 4] = (byte) ((cmdId >> 8) & 255);
+        bArr[offset + 5] = (byte) (cmdId & 255);
+        bArr[offset + 6] = (byte) ((seqId >> 8) & 255);
+        bArr[offset + 7] = (byte) (seqId & 255);
     }
 
 
@@ -0,0 +1,571 @@
+package terry.bluesync.client.handler;
+
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import terry.bluesync.client.ble.AbstractChannelHandlerContext;
+import terry.bluesync.client.ble.Channel;
+import terry.bluesync.client.ble.ChannelHandlerAdapter;
+import terry.bluesync.client.protocol.BluesyncMessage;
+import terry.bluesync.client.protocol.BluesyncProto;
+import terry.bluesync.client.protocol.BluesyncProtoUtil;
+import terry.bluesync.client.util.ConcurrentIntObjectMap;
+import terry.bluesync.client.util.HashedWheelTimer;
+import terry.bluesync.client.util.LogUtil;
+import terry.bluesync.client.util.StreamSink;
+
+/**
+ * Payloads of any length, sent as a stream of chunks that each fit in one frame. The sender keeps
+ * up to a window of chunks ahead of the acks and the receiver acks once per half window, so the
+ * link stays busy without the whole payload ever being held in memory on either side.
+ *
+ * A stream is opened first, the receiver answers with the bytes its sink already stored and the
+ * sender starts from there. Opening a stream again with the same id after a reconnect resumes it.
+ *
+ * Goes after the message coder, stream messages are consumed here and every other message is
+ * passed on.
+ */
+public class StreamHandler extends ChannelHandlerAdapter {
+    private static final String TAG = StreamHandler.class.getSimpleName();
+    private static final boolean DEBUG = false;
+
+    public static final int DEFAULT_CHUNK_SIZE = 2 * 1024;
+    /** Chunks in flight, kept well below what the outbound buffer of the pipeline head holds. */
+    public static final int DEFAULT_WINDOW = 4;
+    /** Milliseconds a sender waits for the open response or the next ack. */
+    public static final int DEFAULT_TIMEOUT = 10 * 1000;
+
+    /**
+     * Progress of a stream being sent.
+     * */
+    public interface Callback {
+        /**
+         * @param offset bytes the receiver confirmed so far
+         * */
+        void onProgress(int streamId, long offset, long length);
+        void onComplete(int streamId);
+        void onError(int streamId, String message);
+    }
+
+    /**
+     * Streams opened by the peer.
+     * */
+    public interface Listener {
+        /**
+         * @return where to store the stream, null refuses it
+         * */
+        StreamSink onStreamOpen(int streamId, long length);
+        void onStreamComplete(int streamId);
+        void onStreamError(int streamId, String message);
+    }
+
+    private final HashedWheelTimer mTimer;
+    private final Listener mListener;
+    private final int mChunkSize;
+    private final int mWindow;
+    private final ConcurrentIntObjectMap<Sender> mSenders;
+    private final ConcurrentIntObjectMap<Receiver> mReceivers;
+    private volatile Channel mChannel;
+
+    public StreamHandler(HashedWheelTimer timer, Listener listener) {
+        this(timer, listener, DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param listener receives the streams the peer opens, null refuses them all
+     * @param chunkSize data bytes per frame, the frame must stay within the coder's limit
+     * @param window chunks written ahead of the acks
+     * */
+    public StreamHandler(HashedWheelTimer timer, Listener listener, int chunkSize, int window) {
+        if (chunkSize <= 0 || window <= 0) {
+            throw new IllegalArgumentException("chunkSize=" + chunkSize + ", window=" + window);
+        }
+
+        mTimer = timer;
+        mListener = listener;
+        mChunkSize = chunkSize;
+        mWindow = window;
+        mSenders = new ConcurrentIntObjectMap<>(64);
+        mReceivers = new ConcurrentIntObjectMap<>(64);
+    }
+
+    /**
+     * Send length bytes of source as stream streamId. Chunks are read from source as the window
+     * opens, and skipped up to the offset the receiver already stored. Reads run on a thread of
+     * their own, not on the event loop, so a slow source only holds up its own stream.
+     *
+     * @return the stream, cancel it to stop sending
+     * */
+    public Sender sendStream(int streamId, InputStream source, long length, Callback callback) {
+        Sender sender = new Sender(streamId, source, length, callback);
+
+        Channel channel = mChannel;
+        if (channel == null) {
+            callback.onError(streamId, "bluesync disconnected");
+            return sender;
+        }
+
+        if (mSenders.putIfAbsent(streamId, sender) != null) {
+            callback.onError(streamId, "stream " + streamId + " is already sending");
+            return sender;
+        }
+        sender.startTimeout();
+
+        channel.write(BluesyncProtoUtil.getStreamOpenRequest(streamId, length, mWindow));
+        return sender;
+    }
+
+    public int sendingStreams() {
+        return mSenders.size();
+    }
+
+    public int receivingStreams() {
+        return mReceivers.size();
+    }
+
+    @Override
+    public void active(AbstractChannelHandlerContext ctx) throws Exception {
+        mChannel = ctx.channel();
+        ctx.fireActive();
+    }
+
+    /**
+     * Fail every stream being sent or received, what the receivers stored is kept.
+     * */
+    public void failAll(String message) {
+        List<Sender> senders = new ArrayList<>();
+        mSenders.drainTo(senders);
+        for (Sender sender : senders) {
+            sender.fail(message);
+        }
+
+        List<Receiver> receivers = new ArrayList<>();
+        mReceivers.drainTo(receivers);
+        for (Receiver receiver : receivers) {
+            notifyError(receiver.mStreamId, message);
+        }
+    }
+
+    @Override
+    public void inactive(AbstractChannelHandlerContext ctx) throws Exception {
+        mChannel = null;
+        failAll("bluesync disconnected");
+        ctx.fireInactive();
+    }
+
+    @Override
+    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof BluesyncMessage) {
+            BluesyncMessage message = (BluesyncMessage) msg;
+            switch (message.getCmdId()) {
+                case ECI_req_streamOpen:
+                    handleOpen(ctx, message.getSeqId(), (BluesyncProto.StreamOpenRequest) message.getProtobufData());
+                    return;
+                case ECI_resp_streamOpen:
+                    BluesyncProto.StreamOpenResponse response = (BluesyncProto.StreamOpenResponse) message.getProtobufData();
+                    Sender opened = mSenders.get(response.getStreamId());
+                    if (opened != null) {
+                        opened.open(response);
+                    }
+                    return;
+                case ECI_push_streamData:
+                    handleData(ctx, (BluesyncProto.StreamDataPush) message.getProtobufData());
+                    return;
+                case ECI_push_streamAck:
+                    BluesyncProto.StreamAckPush ack = (BluesyncProto.StreamAckPush) message.getProtobufData();
+                    Sender acked = mSenders.get(ack.getStreamId());
+                    if (acked != null) {
+                        acked.ack(ack);
+                    }
+                    return;
+            }
+        }
+
+        ctx.fireRead(msg);
+    }
+
+    private void handleOpen(AbstractChannelHandlerContext ctx, int seqId, BluesyncProto.StreamOpenRequest request) {
+        int streamId = request.getStreamId();
+        long length = request.getLength();
+
+        if (mReceivers.remove(streamId) != null) {
+            notifyError(streamId, "stream reopened");
+        }
+
+        StreamSink sink = mListener != null ? mListener.onStreamOpen(streamId, length) : null;
+        if (sink == null) {
+            printLog("stream refused, streamId=" + streamId);
+            ctx.fireWrite(BluesyncProtoUtil.getStreamOpenResponse(seqId, streamId, BluesyncProto.EmErrorCode.EEC_system_VALUE, 0));
+            return;
+        }
+
+        long offset;
+        try {
+            offset = sink.position();
+            if (offset > length) {
+                throw new IOException("sink holds " + offset + " bytes of a " + length + " bytes stream");
+            }
+            if (offset == length) {
+                sink.complete();
+            }
+        } catch (IOException e) {
+            LogUtil.e(TAG, "open stream fail, streamId=" + streamId, e);
+            ctx.fireWrite(BluesyncProtoUtil.getStreamOpenResponse(seqId, streamId, BluesyncProto.EmErrorCode.EEC_system_VALUE, 0));
+            notifyError(streamId, e.toString());
+            return;
+        }
+
+        printLog("stream open, streamId=" + streamId + ", offset=" + offset + ", length=" + length);
+        if (offset < length) {
+            int ackInterval = Math.max(request.getWindow() / 2, 1);
+            mReceivers.putIfAbsent(streamId, new Receiver(streamId, length, offset, ackInterval, sink));
+        }
+        ctx.fireWrite(BluesyncProtoUtil.getStreamOpenResponse(seqId, streamId, BluesyncProto.EmErrorCode.EEC_success_VALUE, offset));
+
+        if (offset == length) {
+            mListener.onStreamComplete(streamId);
+        }
+    }
+
+    private void handleData(AbstractChannelHandlerContext ctx, BluesyncProto.StreamDataPush push) {
+        int streamId = push.getStreamId();
+        Receiver receiver = mReceivers.get(streamId);
+        if (receiver == null) {
+            printLog("no stream receiving, streamId=" + streamId);
+            ctx.fireWrite(BluesyncProtoUtil.getStreamAckPush(streamId, 0, BluesyncProto.EmErrorCode.EEC_system_VALUE));
+            return;
+        }
+
+        try {
+            if (push.getOffset() != receiver.mOffset) {
+                throw new IOException("chunk at " + push.getOffset() + ", expected " + receiver.mOffset);
+            }
+
+            receiver.mSink.write(push.getData().asReadOnlyByteBuffer());
+            receiver.mOffset += push.getData().size();
+            receiver.mUnacked++;
+
+            if (push.getFinal() || receiver.mOffset >= receiver.mLength) {
+                if (!push.getFinal() || receiver.mOffset != receiver.mLength) {
+                    throw new IOException("stream ended at " + receiver.mOffset + " of " + receiver.mLength);
+                }
+                receiver.mSink.complete();
+            }
+        } catch (IOException e) {
+            LogUtil.e(TAG, "receive stream fail, streamId=" + streamId, e);
+            mReceivers.remove(streamId, receiver);
+            ctx.fireWrite(BluesyncProtoUtil.getStreamAckPush(streamId, receiver.mOffset, BluesyncProto.EmErrorCode.EEC_system_VALUE));
+            notifyError(streamId, e.toString());
+            return;
+        }
+
+        if (receiver.mOffset == receiver.mLength) {
+            mReceivers.remove(streamId, receiver);
+            ctx.fireWrite(BluesyncProtoUtil.getStreamAckPush(streamId, receiver.mOffset, BluesyncProto.EmErrorCode.EEC_success_VALUE));
+            printLog("stream complete, streamId=" + streamId);
+            mListener.onStreamComplete(streamId);
+        } else if (receiver.mUnacked >= receiver.mAckInterval) {
+            receiver.mUnacked = 0;
+            ctx.fireWrite(BluesyncProtoUtil.getStreamAckPush(streamId, receiver.mOffset, BluesyncProto.EmErrorCode.EEC_success_VALUE));
+        }
+    }
+
+    private void notifyError(int streamId, String message) {
+        if (mListener != null) {
+            mListener.onStreamError(streamId, message);
+        }
+    }
+
+    /**
+     * A stream being sent, it runs as its own timeout task while it waits for the receiver.
+     * */
+    public final class Sender implements Runnable {
+        private final int mStreamId;
+        private final InputStream mSource;
+        private final long mLength;
+        private final Callback mCallback;
+        /** written to the channel, guarded by the sender */
+        private long mSent;
+        private long mAcked;
+        private boolean mIsReading = false;
+        /** read or skipped from source, only touched by the task reading it */
+        private long mPosition;
+        private HashedWheelTimer.Timeout mTimeout;
+        private final Runnable mReadTask = new Runnable() {
+            @Override
+            public void run() {
+                readChunks();
+            }
+        };
+
+        Sender(int streamId, InputStream source, long length, Callback callback) {
+            mStreamId = streamId;
+            mSource = source;
+            mLength = length;
+            mCallback = callback;
+        }
+
+        public int streamId() {
+            return mStreamId;
+        }
+
+        /**
+         * Stop sending, the callback is not called afterwards. The receiver keeps what it stored
+         * and a later stream with the same id resumes from there.
+         *
+         * @return false if the stream already completed or failed
+         * */
+        public boolean cancel() {
+            if (!mSenders.remove(mStreamId, this)) {
+                return false;
+            }
+
+            cancelTimeout();
+            printLog("stream cancelled, streamId=" + mStreamId);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (mSenders.remove(mStreamId, this)) {
+                printLog("stream timeout, streamId=" + mStreamId);
+                mCallback.onError(mStreamId, "stream timeout");
+            }
+        }
+
+        synchronized void open(BluesyncProto.StreamOpenResponse response) {
+            int error = response.getBaseResponse().getErrCode();
+            if (error != BluesyncProto.EmErrorCode.EEC_success_VALUE) {
+                finish("stream refused, errCode=" + error);
+                return;
+            }
+
+            long offset = response.getOffset();
+            if (offset > mLength) {
+                finish("receiver holds " + offset + " bytes of a " + mLength + " bytes stream");
+                return;
+            }
+
+            printLog("stream open, streamId=" + mStreamId + ", offset=" + offset);
+            mSent = offset;
+            mAcked = offset;
+            if (mAcked == mLength) {
+                finish(null);
+                return;
+            }
+
+            startTimeout();
+            startReading();
+        }
+
+        synchronized void ack(BluesyncProto.StreamAckPush ack) {
+            if (ack.getErrCode() != BluesyncProto.EmErrorCode.EEC_success_VALUE) {
+                finish("stream aborted by receiver at " + ack.getOffset() + ", errCode=" + ack.getErrCode());
+                return;
+            }
+
+            mAcked = Math.max(mAcked, ack.getOffset());
+            mCallback.onProgress(mStreamId, mAcked, mLength);
+            if (mAcked == mLength) {
+                finish(null);
+                return;
+            }
+
+            startTimeout();
+            startReading();
+        }
+
+        void fail(String message) {
+            cancelTimeout();
+            mCallback.onError(mStreamId, message);
+        }
+
+        /**
+         * Hand the source to a reader thread while the window has room, one read task at a time.
+         * */
+        private void startReading() {
+            if (mIsReading || !hasRoom()) {
+                return;
+            }
+
+            mIsReading = true;
+            SourceReader.INSTANCE.execute(mReadTask);
+        }
+
+        private boolean hasRoom() {
+            return mSent < mLength && mSent - mAcked < (long) mWindow * mChunkSize;
+        }
+
+        private boolean isSending() {
+            return mSenders.get(mStreamId) == this;
+        }
+
+        /**
+         * Fill the window, each chunk is read into an array of its own that the message wraps.
+         * The source is read outside the lock, acks keep coming in meanwhile.
+         * */
+        private void readChunks() {
+            while (true) {
+                long offset;
+                int chunkLength;
+                synchronized (this) {
+                    if (!isSending() || mChannel == null || !hasRoom()) {
+                        mIsReading = false;
+                        return;
+                    }
+                    offset = mSent;
+                    chunkLength = (int) Math.min(mChunkSize, mLength - mSent);
+                }
+
+                byte[] chunk = new byte[chunkLength];
+                String error = null;
+                if (mPosition < offset) {
+                    try {
+                        skipFully(mSource, offset - mPosition);
+                        mPosition = offset;
+                    } catch (IOException e) {
+                        error = "skip source fail, " + e;
+                    }
+                }
+                if (error == null) {
+                    try {
+                        readFully(mSource, chunk);
+                        mPosition += chunkLength;
+                    } catch (IOException e) {
+                        error = "read source fail at " + offset + ", " + e;
+                    }
+                }
+
+                synchronized (this) {
+                    if (error != null) {
+                        mIsReading = false;
+                        finish(error);
+                        return;
+                    }
+
+                    Channel channel = mChannel;
+                    if (!isSending() || channel == null) {
+                        mIsReading = false;
+                        return;
+                    }
+
+                    boolean isFinal = offset + chunkLength == mLength;
+                    channel.write(BluesyncProtoUtil.getStreamDataPush(mStreamId, offset,
+                            UnsafeByteOperations.unsafeWrap(ByteBuffer.wrap(chunk)), isFinal));
+                    mSent = offset + chunkLength;
+                }
+            }
+        }
+
+        /**
+         * @param message null once the receiver stored everything
+         * */
+        private void finish(String message) {
+            if (!mSenders.remove(mStreamId, this)) {
+                return;
+            }
+
+            cancelTimeout();
+            if (message == null) {
+                printLog("stream complete, streamId=" + mStreamId);
+                mCallback.onComplete(mStreamId);
+            } else {
+                printLog("stream fail, streamId=" + mStreamId + ", " + message);
+                mCallback.onError(mStreamId, message);
+            }
+        }
+
+        /**
+         * The timeout restarts with every ack, the stream fails once the receiver goes quiet.
+         * */
+        private synchronized void startTimeout() {
+            cancelTimeout();
+            mTimeout = mTimer.newTimeout(this, DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void cancelTimeout() {
+            if (mTimeout != null) {
+                mTimeout.cancel();
+            }
+        }
+    }
+
+    private static final class Receiver {
+        final int mStreamId;
+        final long mLength;
+        final int mAckInterval;
+        final StreamSink mSink;
+        long mOffset;
+        int mUnacked;
+
+        Receiver(int streamId, long length, long offset, int ackInterval, StreamSink sink) {
+            mStreamId = streamId;
+            mLength = length;
+            mOffset = offset;
+            mAckInterval = ackInterval;
+            mSink = sink;
+        }
+    }
+
+    /**
+     * Threads the sources of every stream are read on, started as streams need them and gone
+     * once idle for a minute.
+     * */
+    private static final class SourceReader {
+        static final ExecutorService INSTANCE = newReader("bluesync-stream");
+
+        private static ExecutorService newReader(final String name) {
+            final AtomicInteger count = new AtomicInteger();
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+
+    private static void readFully(InputStream source, byte[] chunk) throws IOException {
+        int offset = 0;
+        while (offset < chunk.length) {
+            int count = source.read(chunk, offset, chunk.length - offset);
+            if (count < 0) {
+                throw new IOException("source ended early");
+            }
+            offset += count;
+        }
+    }
+
+    private static void skipFully(InputStream source, long count) throws IOException {
+        while (count > 0) {
+            long skipped = source.skip(count);
+            if (skipped <= 0) {
+                if (source.read() < 0) {
+                    throw new IOException("source ended early");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private void printLog(String message) {
+        if (DEBUG) {
+            LogUtil.d(TAG, message);
+        }
+    }
+}
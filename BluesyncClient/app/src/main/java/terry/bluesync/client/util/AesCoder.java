@@ -57,13 +57,9 @@ public class AesCoder {
     }
 
     public static byte[] encrypt(byte[] key, byte[] iv, byte[] data) throws AesCoderException {
-        Key secretKey = toKey(key);
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
+        Cipher cipher = newCipher(Cipher.ENCRYPT_MODE, key, iv);
 
         try {
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM, "BC");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
-
             return cipher.doFinal(data);
         } catch (Exception e) {
             throw new AesCoderException(e);
@@ -72,19 +68,29 @@ public class AesCoder {
 
 
     public static byte[] decrypt(byte[] key, byte[] iv,byte[] data) throws AesCoderException {
-        Key secretKey = toKey(key);
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
+        Cipher cipher = newCipher(Cipher.DECRYPT_MODE, key, iv);
 
         try {
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM, "BC");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
-
             return cipher.doFinal(data);
         } catch (Exception e) {
             throw new AesCoderException(e);
         }
     }
 
+    /**
+     * Create an initialized cipher, the provider lookup is the expensive part so callers
+     * encrypting many messages with one key should keep it, see {@link AesSession}.
+     * */
+    static Cipher newCipher(int mode, byte[] key, byte[] iv) throws AesCoderException {
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM, "BC");
+            cipher.init(mode, toKey(key), new IvParameterSpec(iv));
+            return cipher;
+        } catch (Exception e) {
+            throw new AesCoderException(e);
+        }
+    }
+
     private static Key toKey(byte[] key) {
         return new SecretKeySpec(key, KEY_ALGORITHM);
     }
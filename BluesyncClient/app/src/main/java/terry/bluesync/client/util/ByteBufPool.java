@@ -0,0 +1,243 @@
+package terry.bluesync.client.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Arrays for outbound frames and decrypted payloads, cached per power of two size class so a
+ * steady stream of messages does not allocate. A buffer from {@link #allocate(int)} must be
+ * released exactly once by whoever consumes it last, see {@link ByteBuf#release()}.
+ *
+ * Lengths above the largest size class are allocated unpooled. The array of an allocated buffer
+ * is not cleared.
+ */
+public class ByteBufPool {
+    private static final String TAG = ByteBufPool.class.getSimpleName();
+
+    private static final int MIN_SIZE_SHIFT = 6;
+    public static final int DEFAULT_MAX_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_CACHED_PER_CLASS = 8;
+
+    public static final ByteBufPool DEFAULT = new ByteBufPool();
+
+    private final int mMaxSize;
+    private final int mMaxCachedPerClass;
+    private final byte[][][] mCaches;
+    private final int[] mCachedCount;
+
+    private long mAllocations;
+    private long mHits;
+    private long mMisses;
+    private long mUnpooled;
+    private long mReleases;
+    private long mLeaks;
+    private int mCachedBytes;
+
+    private volatile boolean mLeakDetection = false;
+    private final ReferenceQueue<ByteBuf> mLeakQueue = new ReferenceQueue<ByteBuf>();
+    private final Set<LeakRecord> mLeakRecords = new HashSet<LeakRecord>();
+
+    public ByteBufPool() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_CACHED_PER_CLASS);
+    }
+
+    /**
+     * @param maxSize largest pooled length, rounded up to a power of two
+     * @param maxCachedPerClass arrays kept per size class once released
+     * */
+    public ByteBufPool(int maxSize, int maxCachedPerClass) {
+        if (maxSize <= 0 || maxCachedPerClass < 0) {
+            throw new IllegalArgumentException("maxSize=" + maxSize + ", maxCachedPerClass=" + maxCachedPerClass);
+        }
+
+        int classes = sizeClass(maxSize) + 1;
+        mMaxSize = classSize(classes - 1);
+        mMaxCachedPerClass = maxCachedPerClass;
+        mCaches = new byte[classes][maxCachedPerClass][];
+        mCachedCount = new int[classes];
+    }
+
+    /**
+     * Track allocated buffers and log the ones collected without being released, each with
+     * the stack of its allocation. It costs a stack trace per allocation, meant for debug builds.
+     * */
+    public void setLeakDetection(boolean enable) {
+        mLeakDetection = enable;
+    }
+
+    public ByteBuf allocate(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length=" + length);
+        }
+
+        ByteBuf buf;
+        synchronized (this) {
+            mAllocations++;
+            if (length > mMaxSize) {
+                mUnpooled++;
+                buf = new ByteBuf(new byte[length], 0, length, this);
+            } else {
+                int sizeClass = sizeClass(length);
+                byte[] array;
+                if (mCachedCount[sizeClass] > 0) {
+                    int index = --mCachedCount[sizeClass];
+                    array = mCaches[sizeClass][index];
+                    mCaches[sizeClass][index] = null;
+                    mCachedBytes -= array.length;
+                    mHits++;
+                } else {
+                    array = new byte[classSize(sizeClass)];
+                    mMisses++;
+                }
+                buf = new ByteBuf(array, 0, length, this);
+            }
+        }
+
+        if (mLeakDetection) {
+            reportLeaks();
+            track(buf);
+        }
+        return buf;
+    }
+
+    synchronized void recycle(ByteBuf buf) {
+        mReleases++;
+        if (buf.mLeak != null) {
+            mLeakRecords.remove(buf.mLeak);
+            buf.mLeak.clear();
+            buf.mLeak = null;
+        }
+
+        byte[] array = buf.array();
+        if (array.length > mMaxSize) {
+            return;
+        }
+
+        int sizeClass = sizeClass(array.length);
+        if (classSize(sizeClass) != array.length || mCachedCount[sizeClass] >= mMaxCachedPerClass) {
+            return;
+        }
+
+        mCaches[sizeClass][mCachedCount[sizeClass]++] = array;
+        mCachedBytes += array.length;
+    }
+
+    private synchronized void track(ByteBuf buf) {
+        LeakRecord record = new LeakRecord(buf, mLeakQueue,
+                new Throwable("ByteBuf allocated here, length=" + buf.length()));
+        buf.mLeak = record;
+        mLeakRecords.add(record);
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) mLeakQueue.poll()) != null) {
+            synchronized (this) {
+                if (!mLeakRecords.remove(record)) {
+                    continue;
+                }
+                mLeaks++;
+            }
+            LogUtil.e(TAG, "LEAK: ByteBuf was garbage collected without release()", record.mAllocation);
+        }
+    }
+
+    public Stats stats() {
+        if (mLeakDetection) {
+            reportLeaks();
+        }
+
+        synchronized (this) {
+            return new Stats(mAllocations, mHits, mMisses, mUnpooled, mReleases, mLeaks, mCachedBytes);
+        }
+    }
+
+    private static int sizeClass(int length) {
+        if (length <= (1 << MIN_SIZE_SHIFT)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SIZE_SHIFT;
+    }
+
+    private static int classSize(int sizeClass) {
+        return 1 << (sizeClass + MIN_SIZE_SHIFT);
+    }
+
+    static final class LeakRecord extends WeakReference<ByteBuf> {
+        private final Throwable mAllocation;
+
+        LeakRecord(ByteBuf referent, ReferenceQueue<ByteBuf> queue, Throwable allocation) {
+            super(referent, queue);
+            mAllocation = allocation;
+        }
+    }
+
+    /**
+     * Snapshot of the pool counters.
+     * */
+    public static final class Stats {
+        private final long mAllocations;
+        private final long mHits;
+        private final long mMisses;
+        private final long mUnpooled;
+        private final long mReleases;
+        private final long mLeaks;
+        private final int mCachedBytes;
+
+        Stats(long allocations, long hits, long misses, long unpooled, long releases, long leaks, int cachedBytes) {
+            mAllocations = allocations;
+            mHits = hits;
+            mMisses = misses;
+            mUnpooled = unpooled;
+            mReleases = releases;
+            mLeaks = leaks;
+            mCachedBytes = cachedBytes;
+        }
+
+        public long allocations() {
+            return mAllocations;
+        }
+
+        /** Allocations served from a cached array. */
+        public long hits() {
+            return mHits;
+        }
+
+        /** Allocations of a new array within a size class. */
+        public long misses() {
+            return mMisses;
+        }
+
+        /** Allocations above the largest size class. */
+        public long unpooled() {
+            return mUnpooled;
+        }
+
+        public long releases() {
+            return mReleases;
+        }
+
+        /** Buffers allocated but not released yet. */
+        public long inUse() {
+            return mAllocations - mReleases - mLeaks;
+        }
+
+        /** Buffers collected without release, counted only with leak detection on. */
+        public long leaks() {
+            return mLeaks;
+        }
+
+        public int cachedBytes() {
+            return mCachedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats(allocations=" + mAllocations + ", hits=" + mHits + ", misses=" + mMisses
+                    + ", unpooled=" + mUnpooled + ", releases=" + mReleases + ", inUse=" + inUse()
+                    + ", leaks=" + mLeaks + ", cachedBytes=" + mCachedBytes + ")";
+        }
+    }
+}
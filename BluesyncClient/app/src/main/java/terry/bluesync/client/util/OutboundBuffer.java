@@ -0,0 +1,212 @@
+package terry.bluesync.client.util;
+
+/**
+ * Bounded ring of outbound frames, handed out as chunks that stay in the frame arrays.
+ *
+ * One chunk is in flight at a time, {@link #ack()} confirms it and releases its frame once the
+ * last chunk of that frame is confirmed. Queued bytes count every byte not confirmed yet, so a
+ * full buffer turns writes away until the peer catches up.
+ *
+ * A chunk may also pack whole frames queued behind the end of the head frame, they are copied
+ * into one batch array and confirmed together.
+ */
+public class OutboundBuffer {
+    private final ByteBuf[] mFrames;
+    private final int mMask;
+    private final int mMaxQueuedBytes;
+
+    private int mHead = 0;
+    private int mSize = 0;
+    private int mPosition = 0;
+    private int mInFlight = 0;
+    private int mInFlightHead = 0;
+    private int mBatchFrames = 0;
+    private byte[] mBatch;
+    private volatile int mQueuedBytes = 0;
+
+    /**
+     * @param maxFrames frames the ring holds, rounded up to a power of two
+     * @param maxQueuedBytes bytes queued and not confirmed the buffer accepts
+     * */
+    public OutboundBuffer(int maxFrames, int maxQueuedBytes) {
+        if (maxFrames <= 0 || maxQueuedBytes <= 0) {
+            throw new IllegalArgumentException("maxFrames=" + maxFrames + ", maxQueuedBytes=" + maxQueuedBytes);
+        }
+
+        int capacity = Integer.highestOneBit(maxFrames);
+        if (capacity < maxFrames) {
+            capacity <<= 1;
+        }
+        mFrames = new ByteBuf[capacity];
+        mMask = capacity - 1;
+        mMaxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Queue frame behind the others, the buffer owns it from now on.
+     *
+     * @return false if the ring or the byte limit is full, frame is left to the caller then
+     * */
+    public boolean add(ByteBuf frame) {
+        if (mSize == mFrames.length || mQueuedBytes + frame.length() > mMaxQueuedBytes) {
+            return false;
+        }
+
+        mFrames[(mHead + mSize) & mMask] = frame;
+        mSize++;
+        mQueuedBytes += frame.length();
+        return true;
+    }
+
+    /**
+     * Take the next chunk of at most chunkSize bytes, it is read through {@link #chunkArray()}
+     * and {@link #chunkOffset()} until it is acknowledged.
+     *
+     * @return length of the chunk, 0 when nothing is queued
+     * */
+    public int nextChunk(int chunkSize) {
+        if (mInFlight > 0) {
+            throw new IllegalStateException("chunk of " + mInFlight + " bytes is not acknowledged");
+        }
+
+        while (mSize > 0 && mPosition == mFrames[mHead].length()) {
+            removeHead();
+        }
+        if (mSize == 0) {
+            return 0;
+        }
+
+        mInFlightHead = Math.min(mFrames[mHead].length() - mPosition, chunkSize);
+        mInFlight = mInFlightHead;
+        mBatchFrames = 0;
+        return mInFlight;
+    }
+
+    /**
+     * Like {@link #nextChunk(int)}, then pack up to maxFrames whole frames queued behind the head
+     * frame in the room left, if the chunk reaches the end of the head frame.
+     *
+     * @return length of the chunk, 0 when nothing is queued
+     * */
+    public int nextChunk(int chunkSize, int maxFrames) {
+        int length = nextChunk(chunkSize);
+        if (length == 0 || mPosition + length < mFrames[mHead].length()) {
+            return length;
+        }
+
+        int frames = 0;
+        while (frames < maxFrames && frames + 1 < mSize) {
+            int frameLength = mFrames[(mHead + frames + 1) & mMask].length();
+            if (length + frameLength > chunkSize) {
+                break;
+            }
+            length += frameLength;
+            frames++;
+        }
+        if (frames == 0) {
+            return mInFlight;
+        }
+
+        if (mBatch == null || mBatch.length < chunkSize) {
+            mBatch = new byte[chunkSize];
+        }
+        ByteBuf head = mFrames[mHead];
+        System.arraycopy(head.array(), head.offset() + mPosition, mBatch, 0, mInFlightHead);
+        int offset = mInFlightHead;
+        for (int i = 1; i <= frames; i++) {
+            ByteBuf frame = mFrames[(mHead + i) & mMask];
+            System.arraycopy(frame.array(), frame.offset(), mBatch, offset, frame.length());
+            offset += frame.length();
+        }
+
+        mBatchFrames = frames;
+        mInFlight = length;
+        return mInFlight;
+    }
+
+    /**
+     * Frames packed behind the head frame in the chunk in flight, each of them starts in it.
+     * */
+    public int chunkBatchFrames() {
+        return mBatchFrames;
+    }
+
+    public byte[] chunkArray() {
+        return mBatchFrames > 0 ? mBatch : mFrames[mHead].array();
+    }
+
+    public int chunkOffset() {
+        return mBatchFrames > 0 ? 0 : mFrames[mHead].offset() + mPosition;
+    }
+
+    /**
+     * Confirm the chunk in flight, a no-op if there is none.
+     * */
+    public void ack() {
+        if (mInFlight == 0) {
+            return;
+        }
+
+        int batchFrames = mBatchFrames;
+        mPosition += mInFlightHead;
+        mQueuedBytes -= mInFlightHead;
+        mInFlight = 0;
+        mInFlightHead = 0;
+        mBatchFrames = 0;
+        if (mPosition == mFrames[mHead].length()) {
+            removeHead();
+        }
+        for (int i = 0; i < batchFrames; i++) {
+            removeHead();
+        }
+    }
+
+    /**
+     * Release every frame, the chunk in flight included.
+     * */
+    public void clear() {
+        while (mSize > 0) {
+            removeHead();
+        }
+        mInFlight = 0;
+        mInFlightHead = 0;
+        mBatchFrames = 0;
+        mQueuedBytes = 0;
+    }
+
+    /**
+     * True when the next chunk starts a frame, nothing of the head frame has been handed out.
+     * */
+    public boolean atFrameStart() {
+        return mInFlight == 0 && mPosition == 0;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Frames waiting, the one being sent included.
+     * */
+    public int size() {
+        return mSize;
+    }
+
+    public int queuedBytes() {
+        return mQueuedBytes;
+    }
+
+    public boolean isWritable() {
+        return mQueuedBytes < mMaxQueuedBytes;
+    }
+
+    private void removeHead() {
+        ByteBuf frame = mFrames[mHead];
+        mFrames[mHead] = null;
+        mHead = (mHead + 1) & mMask;
+        mSize--;
+        mQueuedBytes -= frame.length() - mPosition;
+        mPosition = 0;
+        frame.release();
+    }
+}
@@ -0,0 +1,31 @@
+package terry.bluesync.client.util;
+
+/**
+ * Cipher for message bodies of an established session, the implementation is chosen by the
+ * encrypt mode both sides negotiated during authentication.
+ */
+public interface SessionCipher {
+
+    /**
+     * Bytes {@link #encrypt(byte[], int, int, byte[], int)} writes for len bytes of input.
+     * */
+    int encryptOutputSize(int len);
+
+    /**
+     * @return the number of bytes written
+     * */
+    int encrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException;
+
+    byte[] decrypt(byte[] input, int inOff, int len) throws AesCoderException;
+
+    /**
+     * Upper bound of the bytes {@link #decrypt(byte[], int, int, byte[], int)} writes for len
+     * bytes of input.
+     * */
+    int decryptOutputSize(int len);
+
+    /**
+     * @return the number of bytes written
+     * */
+    int decrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException;
+}
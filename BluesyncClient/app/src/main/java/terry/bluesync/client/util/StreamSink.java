@@ -0,0 +1,89 @@
+package terry.bluesync.client.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Where a received stream is stored, chunk by chunk as it arrives. The bytes stored so far tell
+ * the sender where to resume after a reconnect, so keep the sink, or one over the same file, for
+ * a stream that did not complete.
+ */
+public abstract class StreamSink {
+
+    /**
+     * Bytes already stored, the sender starts right after them.
+     * */
+    public abstract long position() throws IOException;
+
+    /**
+     * Store the remaining bytes of data after the ones already stored.
+     * */
+    public abstract void write(ByteBuffer data) throws IOException;
+
+    /**
+     * Called once the last chunk is stored.
+     * */
+    public void complete() throws IOException {
+    }
+
+    public static StreamSink wrap(OutputStream out) {
+        return wrap(out, 0);
+    }
+
+    /**
+     * @param position bytes out already holds, e.g. the length of a file opened for append
+     * */
+    public static StreamSink wrap(final OutputStream out, final long position) {
+        return new StreamSink() {
+            private final WritableByteChannel mChannel = Channels.newChannel(out);
+            private long mPosition = position;
+
+            @Override
+            public long position() {
+                return mPosition;
+            }
+
+            @Override
+            public void write(ByteBuffer data) throws IOException {
+                while (data.hasRemaining()) {
+                    mPosition += mChannel.write(data);
+                }
+            }
+
+            @Override
+            public void complete() throws IOException {
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * Appends to the end of channel, what the file already holds counts as stored.
+     * */
+    public static StreamSink wrap(final FileChannel channel) {
+        return new StreamSink() {
+
+            @Override
+            public long position() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public void write(ByteBuffer data) throws IOException {
+                long position = channel.size();
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+            }
+
+            @Override
+            public void complete() throws IOException {
+                channel.force(false);
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package terry.bluesync.client.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check how many GATT writes HeadContext needs for one message, the fake transport
+ * acknowledges every chunk the same way onCharacteristicWrite does.
+ */
+public class ChannelPipelineTest {
+    private static final int MESSAGE_LENGTH = 4 * 1024;
+
+    @Test
+    public void writeAtDefaultMtu() throws Exception {
+        List<byte[]> chunks = writeMessage(Channel.DEFAULT_MTU);
+
+        assertEquals(205, chunks.size());
+        assertEquals(20, chunks.get(0).length);
+    }
+
+    @Test
+    public void writeAtNegotiatedMtu() throws Exception {
+        List<byte[]> chunks = writeMessage(247);
+
+        assertEquals(17, chunks.size());
+        assertEquals(244, chunks.get(0).length);
+    }
+
+    @Test
+    public void writeAtMaxMtu() throws Exception {
+        List<byte[]> chunks = writeMessage(Channel.MAX_MTU);
+
+        assertEquals(8, chunks.size());
+        assertEquals(512, chunks.get(0).length);
+    }
+
+    @Test
+    public void invalidMtuFallbackToDefault() {
+        Channel channel = new Channel(new FakeTransport(0));
+
+        channel.setMtu(0);
+        assertEquals(20, channel.payloadSize());
+
+        channel.setMtu(Channel.MAX_MTU + 1);
+        assertEquals(20, channel.payloadSize());
+
+        channel.destroy();
+    }
+
+    private List<byte[]> writeMessage(int mtu) throws InterruptedException {
+        FakeTransport transport = new FakeTransport(MESSAGE_LENGTH);
+        Channel channel = new Channel(transport);
+        channel.setMtu(mtu);
+
+        byte[] message = new byte[MESSAGE_LENGTH];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+        channel.write(message);
+
+        assertTrue("write timeout", transport.await());
+        channel.destroy();
+
+        int offset = 0;
+        for (byte[] chunk : transport.chunks) {
+            for (byte b : chunk) {
+                assertEquals(message[offset++], b);
+            }
+        }
+        assertEquals(MESSAGE_LENGTH, offset);
+
+        return transport.chunks;
+    }
+
+    private static class FakeTransport implements Transport {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final int expectLength;
+        private int writeLength = 0;
+        private Channel channel;
+
+        FakeTransport(int expectLength) {
+            this.expectLength = expectLength;
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void bind(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(byte[] value, int offset, int length) {
+            chunks.add(Arrays.copyOfRange(value, offset, offset + length));
+            writeLength += length;
+            if (writeLength == expectLength) {
+                latch.countDown();
+            }
+
+            channel.writeNext();
+        }
+
+        @Override
+        public void setWriteWithoutResponse(boolean enable) {}
+
+        @Override
+        public void disconnect() {}
+    }
+}
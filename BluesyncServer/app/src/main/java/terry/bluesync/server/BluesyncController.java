@@ -1,7 +1,13 @@
 package terry.bluesync.server;
 
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import io.reactivex.Single;
 import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.util.StreamSink;
 
 public interface BluesyncController {
     enum STATE {
@@ -21,22 +27,169 @@ public interface BluesyncController {
         void onError(String message);
     }
 
+    /**
+     * Pushed data as a read-only buffer, without a String conversion.
+     * */
+    interface DataListener {
+        void onReceivePushData(ByteBuffer data);
+    }
+
+    /**
+     * Response data as a read-only buffer, without a String conversion.
+     * */
+    interface DataResponseCallback {
+        void onSuccess(ByteBuffer data);
+        void onError(String message);
+    }
+
+    /**
+     * Progress of a stream being sent.
+     * */
+    interface StreamCallback {
+        /**
+         * @param offset bytes the peer confirmed so far
+         * */
+        void onProgress(long offset, long length);
+        void onSuccess();
+        void onError(String message);
+    }
+
+    /**
+     * Streams the peers send, stored chunk by chunk as they arrive. Stream ids are chosen by each
+     * central on its own, a stream is told apart by its session and id.
+     * */
+    interface StreamListener {
+        /**
+         * @return where to store the stream, null refuses it. A sink still holding part of the
+         *         stream makes the peer resume after those bytes, it should only be handed out
+         *         again to the same central.
+         * */
+        StreamSink onStreamOpen(Session session, int streamId, long length);
+        void onStreamComplete(Session session, int streamId);
+        void onStreamError(Session session, int streamId, String message);
+    }
+
+    /**
+     * One connected central with its own pending requests and streams. Requests it sends come
+     * with {@link BluesyncRequest#getSession()}, responses go back through it.
+     * */
+    interface Session {
+        /**
+         * Address of the central.
+         * */
+        String getId();
+        boolean isConnected();
+        void disconnect();
+
+        void pushData(String data) throws BluesyncException;
+        void pushData(byte[] data) throws BluesyncException;
+        void pushData(ByteBuffer data) throws BluesyncException;
+
+        void sendRequest(String data, ResponseCallback callback, int timeout) throws BluesyncException;
+        void sendRequest(byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException;
+        Single<byte[]> sendRequestAsync(byte[] data, int timeout);
+
+        void sendResponse(int seqId, String data) throws BluesyncException;
+        void sendResponse(int seqId, byte[] data) throws BluesyncException;
+        void sendResponse(int seqId, ByteBuffer data) throws BluesyncException;
+
+        void sendStream(int streamId, InputStream source, long length, StreamCallback callback) throws BluesyncException;
+    }
+
+    /**
+     * Sessions coming and going, and the data each of them pushes.
+     * */
+    interface SessionListener {
+        void onSessionActive(Session session);
+        void onSessionInactive(Session session);
+        void onReceivePushData(Session session, ByteBuffer data);
+    }
+
     void start();
 
     void stop();
 
+    /**
+     * Stop and free the threads of the controller, it can not be started again.
+     * */
+    void release();
+
     void addListener(Listener listener);
 
     void removeListener(Listener listener);
 
+    void addDataListener(DataListener listener);
+
+    void removeDataListener(DataListener listener);
+
+    void setStreamListener(StreamListener listener);
+
+    void addSessionListener(SessionListener listener);
+
+    void removeSessionListener(SessionListener listener);
+
+    /**
+     * Serve every central that connects at once, each in its own session. Off by default, a new
+     * central then disconnects the one before. The methods without a session id go to the
+     * central that connected last.
+     * */
+    void setMultiSession(boolean enable);
+
+    List<Session> getSessions();
+
+    /**
+     * @return the connected session, null if there is none with that id
+     * */
+    Session getSession(String sessionId);
+
     STATE getState();
 
     boolean isConnected();
 
     void pushData(String data) throws BluesyncException;
+    void pushData(byte[] data) throws BluesyncException;
+    /** Sends the remaining bytes of data, its position is left as it is. */
+    void pushData(ByteBuffer data) throws BluesyncException;
+
+    /**
+     * Push to one session, see {@link #getSession(String)}.
+     * */
+    void pushData(String sessionId, byte[] data) throws BluesyncException;
+
+    /**
+     * Push the same data to every connected session. Its frame is packaged once for all of them,
+     * only an encrypted session still encrypts it on its own.
+     *
+     * @return the sessions it was written to
+     * */
+    int broadcastPush(byte[] data) throws BluesyncException;
 
     void sendRequest(String data, ResponseCallback callback) throws BluesyncException;
     void sendRequest(String data, ResponseCallback callback, int timeout) throws BluesyncException;
+    void sendRequest(byte[] data, DataResponseCallback callback) throws BluesyncException;
+    void sendRequest(byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException;
+
+    /**
+     * Request to one session, see {@link #getSession(String)}.
+     * */
+    void sendRequest(String sessionId, byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException;
+
+    /**
+     * Request sent once subscribed, any number may wait for their response at the same time.
+     * Disposing it stops waiting, it fails with BluesyncException.
+     * */
+    Single<byte[]> sendRequestAsync(byte[] data);
+    Single<byte[]> sendRequestAsync(byte[] data, int timeout);
 
     void sendResponse(int seqId, String data) throws BluesyncException;
+    void sendResponse(int seqId, byte[] data) throws BluesyncException;
+    void sendResponse(int seqId, ByteBuffer data) throws BluesyncException;
+
+    /**
+     * Send length bytes of source in chunks, for data beyond the frame limit of pushData. Sending
+     * the same streamId again after a reconnect resumes where the peer stopped, source starts
+     * from the beginning again and is skipped up to there. source is read on a thread of its own,
+     * a slow file or network source does not hold up the event loop.
+     * */
+    void sendStream(int streamId, InputStream source, long length, StreamCallback callback) throws BluesyncException;
 }
@@ -6,15 +6,19 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.util.Log;
-import android.util.SparseArray;
 
 import com.google.protobuf.ByteString;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
 
 import terry.bluesync.server.ble.AbstractChannelHandlerContext;
 import terry.bluesync.server.ble.BleController;
@@ -23,9 +27,11 @@ import terry.bluesync.server.ble.ChannelHandlerAdapter;
 import terry.bluesync.server.ble.ChannelPipeline;
 import terry.bluesync.server.handler.BluesyncMessageCoder;
 import terry.bluesync.server.handler.LengthFieldFrameDecoder;
+import terry.bluesync.server.handler.RequestHandler;
+import terry.bluesync.server.handler.StreamHandler;
 import terry.bluesync.server.protocol.BluesyncMessage;
-import terry.bluesync.server.protocol.BluesyncProto;
-import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.HashedWheelTimer;
+import terry.bluesync.server.util.StreamSink;
 
 import static terry.bluesync.server.protocol.BluesyncProto.*;
 
@@ -36,12 +42,18 @@ public class BluesyncControllerImpl implements BluesyncController {
     private static final int DEFAULT_TIMEOUT = 5 * 1000;
 
     private Context mContext;
-    private STATE mState;
+    private volatile STATE mState;
+    /** state changes and the listeners told of them, one at a time */
+    private final Object mStateLock = new Object();
 
     private BleController mBleController;
-    private Channel mActiveChannel;
+    private final SessionTable mSessions;
+    private volatile boolean mIsMultiSession = false;
     private List<Listener> mListeners;
-    private SparseArray<ResponseHolder> mResponseHolderMap;
+    private List<DataListener> mDataListeners;
+    private final List<SessionListener> mSessionListeners;
+    private volatile StreamListener mStreamListener;
+    private HashedWheelTimer mTimeoutTimer;
 
     public BluesyncControllerImpl(Context context) {
         mContext = context;
@@ -51,7 +63,10 @@ public class BluesyncControllerImpl implements BluesyncController {
         mBleController.registerChannelInitializer(mChannelInitializer);
 
         mListeners = new LinkedList<>();
-        mResponseHolderMap = new SparseArray<>();
+        mDataListeners = new LinkedList<>();
+        mSessionListeners = new CopyOnWriteArrayList<>();
+        mSessions = new SessionTable(mSessionListeners);
+        mTimeoutTimer = new HashedWheelTimer("bluesync-timeout");
     }
 
     @Override
@@ -75,15 +90,21 @@ public class BluesyncControllerImpl implements BluesyncController {
             return;
         }
 
-        mActiveChannel = null;
         setState(STATE.STOP);
 
         mBleController.stop();
 
-        clearResponseHolder();
+        failRequests();
+        mTimeoutTimer.stop();
         mContext.unregisterReceiver(mBluetoothStateReceiver);
     }
 
+    @Override
+    public void release() {
+        stop();
+        mBleController.release();
+    }
+
     @Override
     public void addListener(Listener listener) {
         assert (listener != null);
@@ -95,19 +116,44 @@ public class BluesyncControllerImpl implements BluesyncController {
         mListeners.remove(listener);
     }
 
+    @Override
+    public void addDataListener(DataListener listener) {
+        assert (listener != null);
+        mDataListeners.add(listener);
+    }
+
+    @Override
+    public void removeDataListener(DataListener listener) {
+        mDataListeners.remove(listener);
+    }
+
     private void setState(STATE state) {
-        if (state == mState) {
-            return;
-        }
-        mState = state;
+        synchronized (mStateLock) {
+            if (state == mState) {
+                return;
+            }
+            mState = state;
 
-        for (Listener listener : mListeners) {
-            listener.onSateChange(state);
+            for (Listener listener : mListeners) {
+                listener.onSateChange(state);
+            }
         }
 
         printLog("state is " + state);
     }
 
+    /**
+     * Set state only while at most maxSessions sessions are connected. The count is read again
+     * under the state lock, a central that connects meanwhile sets its own state after this.
+     * */
+    private void setSessionState(STATE state, int maxSessions) {
+        synchronized (mStateLock) {
+            if (mSessions.size() <= maxSessions) {
+                setState(state);
+            }
+        }
+    }
+
     @Override
     public STATE getState() {
         return mState;
@@ -119,133 +165,181 @@ public class BluesyncControllerImpl implements BluesyncController {
     }
 
     @Override
-    public void pushData(String data) throws BluesyncException {
-        if (data == null) {
-            throw new BluesyncException("push data fail, data can not be null");
-        }
+    public void addSessionListener(SessionListener listener) {
+        assert (listener != null);
+        mSessionListeners.add(listener);
+    }
 
-        if (!isConnected()) {
-            throw new BluesyncException("push data fail, bluesync is already disconnected.");
-        }
+    @Override
+    public void removeSessionListener(SessionListener listener) {
+        mSessionListeners.remove(listener);
+    }
 
-        BluesyncMessage request = BluesyncProtoUtil.getRecvDataPush(data.getBytes());
-        mActiveChannel.write(request);
+    @Override
+    public void setMultiSession(boolean enable) {
+        mIsMultiSession = enable;
     }
 
     @Override
-    public void sendRequest(String data, ResponseCallback callback) throws BluesyncException {
-        sendRequest(data, callback, DEFAULT_TIMEOUT);
+    public List<Session> getSessions() {
+        return new ArrayList<Session>(mSessions.list());
     }
 
     @Override
-    public void sendRequest(String data, ResponseCallback callback, int timeout) throws BluesyncException {
-        if (callback == null ) {
-            throw new BluesyncException("send request fail, callback can not be null");
-        }
+    public Session getSession(String sessionId) {
+        return mSessions.get(sessionId);
+    }
 
-        if (data == null) {
-            throw new BluesyncException("send request fail, data can not be null");
+    private BluesyncSession activeSession(String operation) throws BluesyncException {
+        BluesyncSession session = mSessions.active();
+        if (!isConnected() || session == null) {
+            throw new BluesyncException(operation + " fail, bluesync has already disconnected.");
         }
+        return session;
+    }
 
-        if (!isConnected()) {
-            throw new BluesyncException("send request fail, bluesync has already disconnected.");
+    private BluesyncSession session(String sessionId, String operation) throws BluesyncException {
+        BluesyncSession session = mSessions.get(sessionId);
+        if (session == null) {
+            throw new BluesyncException(operation + " fail, no session " + sessionId);
         }
+        return session;
+    }
 
-        BluesyncMessage request = BluesyncProtoUtil.getSendDataRequest(data.getBytes());
-        addResponseHolder(request.getSeqId(), callback, timeout);
-        mActiveChannel.write(request);
+    @Override
+    public void pushData(String data) throws BluesyncException {
+        activeSession("push data").pushData(data);
     }
 
     @Override
-    public void sendResponse(int seqId, String data) throws BluesyncException {
+    public void pushData(byte[] data) throws BluesyncException {
+        activeSession("push data").pushData(data);
+    }
+
+    @Override
+    public void pushData(ByteBuffer data) throws BluesyncException {
+        activeSession("push data").pushData(data);
+    }
+
+    @Override
+    public void pushData(String sessionId, byte[] data) throws BluesyncException {
+        session(sessionId, "push data").pushData(data);
+    }
+
+    @Override
+    public int broadcastPush(byte[] data) throws BluesyncException {
         if (data == null) {
-            throw new BluesyncException("send response fail, data can not be null");
+            throw new BluesyncException("push data fail, data can not be null");
         }
+        return BluesyncSession.pushToAll(mSessions.list(), ByteString.copyFrom(data));
+    }
 
-        if (!isConnected()) {
-            throw new BluesyncException("send response fail, bluesync has already disconnected.");
-        }
+    @Override
+    public void sendRequest(String data, ResponseCallback callback) throws BluesyncException {
+        sendRequest(data, callback, DEFAULT_TIMEOUT);
+    }
 
-        BluesyncMessage request = BluesyncProtoUtil.getSendDataResponse(seqId, data.getBytes());
-        mActiveChannel.write(request);
+    @Override
+    public void sendRequest(String data, ResponseCallback callback, int timeout) throws BluesyncException {
+        activeSession("send request").sendRequest(data, callback, timeout);
     }
 
-    private synchronized void addResponseHolder(int seqId, ResponseCallback callback, int timeout) {
-        ResponseHolder holder = new ResponseHolder(seqId, callback, timeout);
-        mResponseHolderMap.put(seqId, holder);
+    @Override
+    public void sendRequest(byte[] data, DataResponseCallback callback) throws BluesyncException {
+        sendRequest(data, callback, DEFAULT_TIMEOUT);
     }
 
-    private synchronized void clearResponseHolder() {
-        List<ResponseHolder> holderList = new ArrayList();
-        for(int i = 0; i < mResponseHolderMap.size(); i++){
-            int key = mResponseHolderMap.keyAt(i);
-            ResponseHolder holder = mResponseHolderMap.get(key);
-            holderList.add(holder);
-        }
-        mResponseHolderMap.clear();
+    @Override
+    public void sendRequest(byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException {
+        activeSession("send request").sendRequest(data, callback, timeout);
+    }
 
-        for (ResponseHolder response: holderList) {
-            response.discard();
-        }
+    @Override
+    public void sendRequest(String sessionId, byte[] data, DataResponseCallback callback, int timeout) throws BluesyncException {
+        session(sessionId, "send request").sendRequest(data, callback, timeout);
     }
 
-    private synchronized void removeResponseCallback(int seqId) {
-        mResponseHolderMap.delete(seqId);
+    @Override
+    public Single<byte[]> sendRequestAsync(byte[] data) {
+        return sendRequestAsync(data, DEFAULT_TIMEOUT);
     }
 
-    private synchronized boolean consumeResponseHolder(BluesyncMessage protobufData) {
-        int seqId = protobufData.getSeqId();
-        ResponseHolder holder = mResponseHolderMap.get(seqId);
-        if (holder != null) {
-            mResponseHolderMap.delete(seqId);
-            holder.handleResponse(protobufData);
-            return true;
-        } else {
-            return false;
-        }
+    /**
+     * The session is looked up on subscribe, the request goes to the one active at that time.
+     * */
+    @Override
+    public Single<byte[]> sendRequestAsync(final byte[] data, final int timeout) {
+        return Single.defer(new Callable<SingleSource<byte[]>>() {
+            @Override
+            public SingleSource<byte[]> call() throws Exception {
+                return activeSession("send request").sendRequestAsync(data, timeout);
+            }
+        });
     }
 
-    private class ResponseHolder {
-        private int seqId;
-        private ResponseCallback callback;
-        private Timer timer;
+    @Override
+    public void sendResponse(int seqId, String data) throws BluesyncException {
+        activeSession("send response").sendResponse(seqId, data);
+    }
 
-        ResponseHolder(int seqId, ResponseCallback callback, int timeout) {
-            this.seqId = seqId;
-            this.callback = callback;
+    @Override
+    public void sendResponse(int seqId, byte[] data) throws BluesyncException {
+        activeSession("send response").sendResponse(seqId, data);
+    }
 
-            timer = new Timer();
-            timer.schedule(new TimeoutTask(), timeout);
-        }
+    @Override
+    public void sendResponse(int seqId, ByteBuffer data) throws BluesyncException {
+        activeSession("send response").sendResponse(seqId, data);
+    }
 
-        private class TimeoutTask extends TimerTask {
+    @Override
+    public void setStreamListener(StreamListener listener) {
+        mStreamListener = listener;
+    }
 
-            @Override
-            public void run() {
-                printLog("response timeout, seqId=" + seqId);
-                removeResponseCallback(seqId);
+    @Override
+    public void sendStream(int streamId, InputStream source, long length, StreamCallback callback) throws BluesyncException {
+        activeSession("send stream").sendStream(streamId, source, length, callback);
+    }
 
-                callback.onError("response timeout");
-            }
-        }
+    /**
+     * The channels are destroyed without going inactive, every session is closed and the session
+     * listeners are told here instead.
+     * */
+    private void failRequests() {
+        mSessions.clear("bluesync disconnected");
+    }
 
-        public void handleResponse(BluesyncMessage protobufData) {
-            timer.cancel();
+    /**
+     * Reports the streams of one channel together with its session, to the listener set at the
+     * time. Streams only open once the channel is active and its session is set.
+     * */
+    private class SessionStreamListener implements StreamHandler.Listener {
+        private volatile BluesyncSession mSession;
 
-            SendDataResponse response = (SendDataResponse) protobufData.getProtobufData();
+        @Override
+        public StreamSink onStreamOpen(int streamId, long length) {
+            StreamListener listener = mStreamListener;
+            BluesyncSession session = mSession;
+            return listener != null && session != null ? listener.onStreamOpen(session, streamId, length) : null;
+        }
 
-            EmCmdId cmdId = protobufData.getCmdId();
-            if (cmdId != EmCmdId.ECI_error) {
-                String dataStr = new String(response.getData().toByteArray());
-                callback.onSuccess(dataStr);
-            } else {
-                callback.onError(protobufData.toString());
+        @Override
+        public void onStreamComplete(int streamId) {
+            StreamListener listener = mStreamListener;
+            BluesyncSession session = mSession;
+            if (listener != null && session != null) {
+                listener.onStreamComplete(session, streamId);
             }
         }
 
-        public void discard() {
-            timer.cancel();
-            callback.onError("bluesync disconnected");
+        @Override
+        public void onStreamError(int streamId, String message) {
+            StreamListener listener = mStreamListener;
+            BluesyncSession session = mSession;
+            if (listener != null && session != null) {
+                listener.onStreamError(session, streamId, message);
+            }
         }
     }
 
@@ -255,9 +349,14 @@ public class BluesyncControllerImpl implements BluesyncController {
         public void initChannel(Channel ch) {
             ChannelPipeline pipeline = ch.channelPipeline();
 
+            RequestHandler requestHandler = new RequestHandler(mTimeoutTimer);
+            SessionStreamListener streamListener = new SessionStreamListener();
+            StreamHandler streamHandler = new StreamHandler(mTimeoutTimer, streamListener);
             pipeline.addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_DATA_LENGTH))
                     .addLast("messageCoder", new BluesyncMessageCoder(MAX_DATA_LENGTH, false, new LoginCallback()))
-                    .addLast("messageHandler", new BluesycnMessageHandler());
+                    .addLast("requestHandler", requestHandler)
+                    .addLast("streamHandler", streamHandler)
+                    .addLast("messageHandler", new BluesycnMessageHandler(requestHandler, streamHandler, streamListener));
         }
     };
 
@@ -267,7 +366,8 @@ public class BluesyncControllerImpl implements BluesyncController {
         public void onLoginBegin() {
             printLog("login start");
 
-            setState(STATE.START);
+            /** login of one central only sets the state back while no other session is connected */
+            setSessionState(STATE.START, 1);
         }
 
         @Override
@@ -281,36 +381,47 @@ public class BluesyncControllerImpl implements BluesyncController {
         public void onLoginFail(String message) {
             printError("login fail, message=" + message);
 
-            setState(STATE.START);
+            setSessionState(STATE.START, 1);
         }
     }
 
     private class BluesycnMessageHandler extends ChannelHandlerAdapter {
+        private final RequestHandler mRequestHandler;
+        private final StreamHandler mStreamHandler;
+        private final SessionStreamListener mSessionStreamListener;
+        private BluesyncSession mSession;
+
+        BluesycnMessageHandler(RequestHandler requestHandler, StreamHandler streamHandler, SessionStreamListener streamListener) {
+            mRequestHandler = requestHandler;
+            mStreamHandler = streamHandler;
+            mSessionStreamListener = streamListener;
+        }
+
         @Override
         public void active(AbstractChannelHandlerContext ctx) throws Exception {
-            Channel newChannel = ctx.channel();
-            if (mActiveChannel != null && mActiveChannel != newChannel) {
-                printLog("disconnect for already connected");
-                mActiveChannel.disconnect();
-            }
-
-            mActiveChannel = newChannel;
-            setState(STATE.CONNECTED);
+            BluesyncSession session = new BluesyncSession(ctx.channel(), mRequestHandler, mStreamHandler);
+            mSession = session;
+            mSessionStreamListener.mSession = session;
+            /** connected once its central has logged in */
+            mSessions.add(session, mIsMultiSession);
         }
 
         @Override
         public void inactive(AbstractChannelHandlerContext ctx) throws Exception {
-            Channel newChannel = ctx.channel();
-            if (mActiveChannel == newChannel) {
-                mActiveChannel = null;
-                setState(STATE.START);
+            BluesyncSession session = mSession;
+            if (session == null) {
+                return;
+            }
+            mSession = null;
+
+            if (mSessions.remove(session) == 0) {
+                setSessionState(STATE.START, 0);
             }
         }
 
         @Override
         public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
             BluesyncMessage protobufData = (BluesyncMessage) msg;
-            String dataStr;
 
             switch (protobufData.getCmdId()) {
                 case ECI_error:
@@ -320,21 +431,28 @@ public class BluesyncControllerImpl implements BluesyncController {
                     break;
                 case ECI_req_sendData:
                     SendDataRequest sendRequest = (SendDataRequest) protobufData.getProtobufData();
-                    dataStr = new String(sendRequest.getData().toByteArray());
-                    BluesyncRequest bluesyncRequest = new BluesyncRequest(BluesyncControllerImpl.this, protobufData.getSeqId(), dataStr);
+                    BluesyncRequest bluesyncRequest = new BluesyncRequest(mSession, protobufData.getSeqId(), sendRequest.getData());
 
                     for (Listener listener : mListeners) {
                         listener.onReceiveSendData(bluesyncRequest);
                     }
                     break;
                 case ECI_resp_sendData:
-                    consumeResponseHolder(protobufData);
+                    printLog("no request waiting for response, seqId=" + protobufData.getSeqId());
                     break;
                 case ECI_push_recvData:
-                    RecvDataPush dataPush = (RecvDataPush) protobufData.getProtobufData();
-                    for (Listener listener : mListeners) {
-                        dataStr = new String(dataPush.getData().toByteArray());
-                        listener.onReceivePushData(dataStr);
+                    ByteString pushData = ((RecvDataPush) protobufData.getProtobufData()).getData();
+                    if (!mListeners.isEmpty()) {
+                        String dataStr = pushData.toStringUtf8();
+                        for (Listener listener : mListeners) {
+                            listener.onReceivePushData(dataStr);
+                        }
+                    }
+                    for (DataListener listener : mDataListeners) {
+                        listener.onReceivePushData(pushData.asReadOnlyByteBuffer());
+                    }
+                    for (SessionListener listener : mSessionListeners) {
+                        listener.onReceivePushData(mSession, pushData.asReadOnlyByteBuffer());
                     }
                     break;
             }
@@ -351,7 +469,7 @@ public class BluesyncControllerImpl implements BluesyncController {
                     printLog("Bluetooth turn off");
 
                     mBleController.stop();
-                    mActiveChannel = null;
+                    failRequests();
                     setState(STATE.START);
                     break;
                 case BluetoothAdapter.STATE_ON:
@@ -1,31 +1,64 @@
 package terry.bluesync.server;
 
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+
 public class BluesyncRequest {
 
-    private BluesyncController controller;
+    private BluesyncController.Session session;
     private int seqId;
-    private String data;
+    private ByteString data;
+
+    public BluesyncRequest(BluesyncController.Session session, int seqId, String data) {
+        this(session, seqId, ByteString.copyFromUtf8(data));
+    }
 
-    public BluesyncRequest(BluesyncController controller, int seqId, String data) {
-        this.controller = controller;
+    public BluesyncRequest(BluesyncController.Session session, int seqId, ByteString data) {
+        this.session = session;
         this.seqId = seqId;
         this.data = data;
     }
 
+    /**
+     * The central that sent the request, the response goes back to it.
+     * */
+    public BluesyncController.Session getSession() {
+        return session;
+    }
+
     public int getSeqId() {
         return seqId;
     }
 
+    /**
+     * Data decoded as UTF-8, decoded again on every call.
+     * */
     public String getData() {
-        return data;
+        return data.toStringUtf8();
+    }
+
+    /**
+     * Data as a read-only buffer, nothing is copied.
+     * */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyByteBuffer();
     }
 
     public void sendResponse(String reponseData) throws BluesyncException {
-        controller.sendResponse(this.seqId, reponseData);
+        session.sendResponse(this.seqId, reponseData);
+    }
+
+    public void sendResponse(byte[] reponseData) throws BluesyncException {
+        session.sendResponse(this.seqId, reponseData);
+    }
+
+    public void sendResponse(ByteBuffer reponseData) throws BluesyncException {
+        session.sendResponse(this.seqId, reponseData);
     }
 
     @Override
     public String toString() {
-        return "seqId=" + seqId + ", data=" + data;
+        return "seqId=" + seqId + ", data=" + getData();
     }
 }
@@ -11,6 +11,7 @@ import android.os.Binder;
 import android.os.IBinder;
 import android.support.annotation.Nullable;
 
+import terry.bluesync.server.util.ByteBufPool;
 import terry.bluesync.server.util.LogUtil;
 
 public class BluesyncServerService extends Service {
@@ -23,6 +24,7 @@ public class BluesyncServerService extends Service {
     @Override
     public void onCreate() {
         LogUtil.d(TAG,"onCreate");
+        ByteBufPool.DEFAULT.setLeakDetection(BuildConfig.DEBUG);
         mBluesyncController = new BluesyncControllerImpl(this);
         mBinder = new LocalBinder();
 
@@ -69,7 +71,7 @@ public class BluesyncServerService extends Service {
     public void onDestroy() {
         super.onDestroy();
 
-        mBluesyncController.stop();
+        mBluesyncController.release();
         unregisterReceiver(mWifiStateReceive);
     }
 
@@ -0,0 +1,284 @@
+package terry.bluesync.server;
+
+import com.google.protobuf.ByteString;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.functions.Cancellable;
+
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.handler.BluesyncMessageCoderException;
+import terry.bluesync.server.handler.BroadcastMessage;
+import terry.bluesync.server.handler.RequestHandler;
+import terry.bluesync.server.handler.StreamHandler;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+
+/**
+ * The channel of one central together with its request and stream handlers. Writes go straight
+ * to the channel, its event loop serialises them with the events of that central only.
+ */
+class BluesyncSession implements BluesyncController.Session {
+    private final Channel mChannel;
+    private final RequestHandler mRequestHandler;
+    private final StreamHandler mStreamHandler;
+    private volatile boolean mIsConnected = true;
+
+    BluesyncSession(Channel channel, RequestHandler requestHandler, StreamHandler streamHandler) {
+        mChannel = channel;
+        mRequestHandler = requestHandler;
+        mStreamHandler = streamHandler;
+    }
+
+    Channel channel() {
+        return mChannel;
+    }
+
+    /**
+     * The central is gone, everything still waiting on it fails.
+     * */
+    void close(String message) {
+        mIsConnected = false;
+        mRequestHandler.failAll(message);
+        mStreamHandler.failAll(message);
+    }
+
+    @Override
+    public String getId() {
+        return mChannel.toString();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return mIsConnected;
+    }
+
+    @Override
+    public void disconnect() {
+        mChannel.disconnect();
+    }
+
+    @Override
+    public void pushData(String data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("push data fail, data can not be null");
+        }
+        writePushData(ByteString.copyFromUtf8(data));
+    }
+
+    @Override
+    public void pushData(byte[] data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("push data fail, data can not be null");
+        }
+        writePushData(ByteString.copyFrom(data));
+    }
+
+    @Override
+    public void pushData(ByteBuffer data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("push data fail, data can not be null");
+        }
+        writePushData(ByteString.copyFrom(data.duplicate()));
+    }
+
+    private void writePushData(ByteString data) throws BluesyncException {
+        if (!isConnected()) {
+            throw new BluesyncException("push data fail, bluesync is already disconnected.");
+        }
+
+        mChannel.write(BluesyncProtoUtil.getRecvDataPush(data));
+    }
+
+    /**
+     * Write one push message to every connected session, its frame is packaged once for all of
+     * them. Only an encrypted session still encrypts it on its own.
+     *
+     * @return the sessions it was written to
+     * */
+    static int pushToAll(Collection<BluesyncSession> sessions, ByteString data) throws BluesyncException {
+        BroadcastMessage push;
+        try {
+            push = new BroadcastMessage(BluesyncProtoUtil.getRecvDataPush(data));
+        } catch (BluesyncMessageCoderException e) {
+            throw new BluesyncException("push data fail, " + e.getMessage());
+        }
+
+        int count = 0;
+        try {
+            for (BluesyncSession session : sessions) {
+                if (session.isConnected()) {
+                    session.mChannel.write(push.retain());
+                    count++;
+                }
+            }
+        } finally {
+            push.release();
+        }
+        return count;
+    }
+
+    @Override
+    public void sendRequest(String data, BluesyncController.ResponseCallback callback, int timeout) throws BluesyncException {
+        if (callback == null ) {
+            throw new BluesyncException("send request fail, callback can not be null");
+        }
+
+        if (data == null) {
+            throw new BluesyncException("send request fail, data can not be null");
+        }
+
+        final BluesyncController.ResponseCallback responseCallback = callback;
+        writeRequest(ByteString.copyFromUtf8(data), timeout, new RequestHandler.Callback() {
+            @Override
+            public void onResponse(ByteString data) {
+                responseCallback.onSuccess(data.toStringUtf8());
+            }
+
+            @Override
+            public void onError(String message) {
+                responseCallback.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public void sendRequest(byte[] data, BluesyncController.DataResponseCallback callback, int timeout) throws BluesyncException {
+        if (callback == null ) {
+            throw new BluesyncException("send request fail, callback can not be null");
+        }
+
+        if (data == null) {
+            throw new BluesyncException("send request fail, data can not be null");
+        }
+
+        final BluesyncController.DataResponseCallback responseCallback = callback;
+        writeRequest(ByteString.copyFrom(data), timeout, new RequestHandler.Callback() {
+            @Override
+            public void onResponse(ByteString data) {
+                responseCallback.onSuccess(data.asReadOnlyByteBuffer());
+            }
+
+            @Override
+            public void onError(String message) {
+                responseCallback.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public Single<byte[]> sendRequestAsync(final byte[] data, final int timeout) {
+        return Single.create(new SingleOnSubscribe<byte[]>() {
+            @Override
+            public void subscribe(final SingleEmitter<byte[]> emitter) throws Exception {
+                if (data == null) {
+                    throw new BluesyncException("send request fail, data can not be null");
+                }
+
+                final RequestHandler.Request request = writeRequest(ByteString.copyFrom(data), timeout, new RequestHandler.Callback() {
+                    @Override
+                    public void onResponse(ByteString data) {
+                        emitter.onSuccess(data.toByteArray());
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        if (!emitter.isDisposed()) {
+                            emitter.onError(new BluesyncException(message));
+                        }
+                    }
+                });
+
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        request.cancel();
+                    }
+                });
+            }
+        });
+    }
+
+    private RequestHandler.Request writeRequest(ByteString data, int timeout, RequestHandler.Callback callback) throws BluesyncException {
+        if (!isConnected()) {
+            throw new BluesyncException("send request fail, bluesync has already disconnected.");
+        }
+
+        return mRequestHandler.sendRequest(data, timeout, callback);
+    }
+
+    @Override
+    public void sendResponse(int seqId, String data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("send response fail, data can not be null");
+        }
+        writeResponse(seqId, ByteString.copyFromUtf8(data));
+    }
+
+    @Override
+    public void sendResponse(int seqId, byte[] data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("send response fail, data can not be null");
+        }
+        writeResponse(seqId, ByteString.copyFrom(data));
+    }
+
+    @Override
+    public void sendResponse(int seqId, ByteBuffer data) throws BluesyncException {
+        if (data == null) {
+            throw new BluesyncException("send response fail, data can not be null");
+        }
+        writeResponse(seqId, ByteString.copyFrom(data.duplicate()));
+    }
+
+    private void writeResponse(int seqId, ByteString data) throws BluesyncException {
+        if (!isConnected()) {
+            throw new BluesyncException("send response fail, bluesync has already disconnected.");
+        }
+
+        BluesyncMessage response = BluesyncProtoUtil.getSendDataResponse(seqId, data);
+        mChannel.write(response);
+    }
+
+    @Override
+    public void sendStream(int streamId, InputStream source, long length, final BluesyncController.StreamCallback callback) throws BluesyncException {
+        if (callback == null) {
+            throw new BluesyncException("send stream fail, callback can not be null");
+        }
+
+        if (source == null || length < 0) {
+            throw new BluesyncException("send stream fail, source can not be null, length=" + length);
+        }
+
+        if (!isConnected()) {
+            throw new BluesyncException("send stream fail, bluesync has already disconnected.");
+        }
+
+        mStreamHandler.sendStream(streamId, source, length, new StreamHandler.Callback() {
+            @Override
+            public void onProgress(int streamId, long offset, long length) {
+                callback.onProgress(offset, length);
+            }
+
+            @Override
+            public void onComplete(int streamId) {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(int streamId, String message) {
+                callback.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "session " + getId();
+    }
+}
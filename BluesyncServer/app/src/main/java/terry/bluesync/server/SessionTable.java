@@ -0,0 +1,128 @@
+package terry.bluesync.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The connected sessions by id in the order their centrals connected, the newest one is active.
+ * Channels on different event loops add and remove their sessions at the same time, listeners
+ * are told outside the lock.
+ */
+class SessionTable {
+    private final LinkedHashMap<String, BluesyncSession> mSessions = new LinkedHashMap<>();
+    private final List<BluesyncController.SessionListener> mListeners;
+    private volatile BluesyncSession mActiveSession;
+
+    SessionTable(List<BluesyncController.SessionListener> listeners) {
+        mListeners = listeners;
+    }
+
+    /**
+     * Add the session of a central that just connected, it becomes the active one. The session
+     * of the same central connected again before its old channel went inactive is closed and
+     * replaced. Without multiSession the other centrals are disconnected, their sessions are
+     * removed once their channels go inactive.
+     * */
+    void add(BluesyncSession session, boolean multiSession) {
+        BluesyncSession previous;
+        List<BluesyncSession> others;
+        synchronized (this) {
+            previous = mSessions.remove(session.getId());
+            others = multiSession ? new ArrayList<BluesyncSession>() : new ArrayList<>(mSessions.values());
+            mSessions.put(session.getId(), session);
+            mActiveSession = session;
+        }
+
+        for (BluesyncSession other : others) {
+            other.disconnect();
+        }
+
+        if (previous != null) {
+            previous.close("bluesync reconnected");
+            notifyInactive(previous);
+        }
+
+        for (BluesyncController.SessionListener listener : mListeners) {
+            listener.onSessionActive(session);
+        }
+    }
+
+    /**
+     * Remove the session of a channel that went inactive, the newest one left becomes active.
+     *
+     * @return sessions left, counted under the same lock, or -1 if it was already removed or
+     * replaced, listeners are not told again then
+     * */
+    int remove(BluesyncSession session) {
+        session.close("bluesync disconnected");
+        int left;
+        synchronized (this) {
+            if (mSessions.get(session.getId()) != session) {
+                return -1;
+            }
+
+            mSessions.remove(session.getId());
+            if (mActiveSession == session) {
+                mActiveSession = newest();
+            }
+            left = mSessions.size();
+        }
+
+        notifyInactive(session);
+        return left;
+    }
+
+    /**
+     * Close and remove every session, for channels destroyed without going inactive.
+     * */
+    void clear(String message) {
+        List<BluesyncSession> sessions;
+        synchronized (this) {
+            sessions = new ArrayList<>(mSessions.values());
+            mSessions.clear();
+            mActiveSession = null;
+        }
+
+        for (BluesyncSession session : sessions) {
+            session.close(message);
+            notifyInactive(session);
+        }
+    }
+
+    /**
+     * @return the session of the central that connected last, null if there is none
+     * */
+    BluesyncSession active() {
+        return mActiveSession;
+    }
+
+    synchronized BluesyncSession get(String sessionId) {
+        return sessionId != null ? mSessions.get(sessionId) : null;
+    }
+
+    /**
+     * @return a copy in connect order
+     * */
+    synchronized List<BluesyncSession> list() {
+        return new ArrayList<>(mSessions.values());
+    }
+
+    synchronized int size() {
+        return mSessions.size();
+    }
+
+    private BluesyncSession newest() {
+        BluesyncSession newest = null;
+        for (BluesyncSession session : mSessions.values()) {
+            newest = session;
+        }
+        return newest;
+    }
+
+    private void notifyInactive(BluesyncSession session) {
+        for (BluesyncController.SessionListener listener : mListeners) {
+            listener.onSessionInactive(session);
+        }
+    }
+}
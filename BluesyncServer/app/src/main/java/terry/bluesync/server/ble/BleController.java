@@ -18,12 +18,11 @@ import android.bluetooth.le.BluetoothLeAdvertiser;
 import android.content.Context;
 import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelUuid;
 
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 import terry.bluesync.server.util.ByteUtil;
@@ -53,7 +52,9 @@ public class BleController {
     private BluetoothGattCharacteristic mReadCharacteristic;
     private BluetoothGattCharacteristic mIndicateCharacteristic;
 
-    private Map<BluetoothDevice, Channel> mChannelMap;
+    private final DeviceChannels<BluetoothDevice> mChannels;
+    private final EventLoopGroup mEventLoopGroup;
+    private final NotificationScheduler<BluetoothDevice> mNotificationScheduler;
     private boolean mIsRunning = false;
     private ChannelInitializer mChannelInitializer;
 
@@ -66,8 +67,16 @@ public class BleController {
 
         mBluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         mBluetoothAdapter = mBluetoothManager.getAdapter();
-        mChannelMap = new HashMap<>();
-        mHandler = new Handler();
+        mEventLoopGroup = new EventLoopGroup("bluesync-loop");
+        mNotificationScheduler = new NotificationScheduler<>(mNotificationSender);
+        mChannels = new DeviceChannels<>(mNotificationScheduler, new DeviceChannels.Factory<BluetoothDevice>() {
+            @Override
+            public Channel newChannel(BluetoothDevice device) {
+                return new Channel(new GattServerTransport(device, mUnSafe), mEventLoopGroup.next());
+            }
+        });
+        /** GATT callbacks come on binder threads, connection state is kept on the main thread */
+        mHandler = new Handler(Looper.getMainLooper());
     }
 
     public void registerChannelInitializer(ChannelInitializer initializer) {
@@ -101,7 +110,8 @@ public class BleController {
                 BluetoothGattService.SERVICE_TYPE_PRIMARY);
 
         mWriteCharacteristic = new BluetoothGattCharacteristic(WRITE_CHARACTERISTIC,
-                BluetoothGattCharacteristic.PROPERTY_WRITE, BluetoothGattCharacteristic.PERMISSION_WRITE);
+                BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE,
+                BluetoothGattCharacteristic.PERMISSION_WRITE);
         mWriteCharacteristic.setValue("");
         service.addCharacteristic(mWriteCharacteristic);
 
@@ -140,7 +150,7 @@ public class BleController {
                     if (newState == BluetoothProfile.STATE_CONNECTED) {
                         printLog("[" + device + "]" + " connect");
 
-                        Channel channel = getChannel(device);
+                        Channel channel = mChannels.open(device);
                         if (mChannelInitializer != null) {
                             mChannelInitializer.initChannel(channel);
                         }
@@ -149,8 +159,7 @@ public class BleController {
                     } else if (newState == BluetoothProfile.STATE_DISCONNECTED){
                         printLog("[" + device + "]" + " disconnect");
 
-                        getChannel(device).inactive();
-                        removeChannel(device);
+                        mChannels.close(device);
                     }
                 }
             });
@@ -186,7 +195,10 @@ public class BleController {
             /* No need to respond with a value */ null);
             }
 
-            getChannel(device).read(value);
+            Channel channel = mChannels.get(device);
+            if (channel != null) {
+                channel.read(value);
+            }
         }
 
         @Override
@@ -236,7 +248,10 @@ public class BleController {
             /* No need to respond with a value */ null);
             }
 
-            getChannel(device).descriptorWrite();
+            Channel channel = mChannels.get(device);
+            if (channel != null) {
+                channel.descriptorWrite();
+            }
         }
 
         @Override
@@ -249,12 +264,16 @@ public class BleController {
             super.onNotificationSent(device, status);
             printLog("Notification sent. Status: " + status);
 
-            getChannel(device).writeChannel();
+            mChannels.notificationSent(device);
         }
 
         @Override
         public void onMtuChanged(BluetoothDevice device, int mtu) {
-            printLog("onMtuChanged, mtu=" + mtu);
+            printLog("[" + device + "]" + " onMtuChanged, mtu=" + mtu);
+            Channel channel = mChannels.get(device);
+            if (channel != null) {
+                channel.setMtu(mtu);
+            }
         }
 
         @Override
@@ -273,35 +292,15 @@ public class BleController {
         }
     }
 
-    private void removeChannel(BluetoothDevice device) {
-        mChannelMap.remove(device);
-    }
-
-    private Channel getChannel(BluetoothDevice device) {
-        Channel channel = mChannelMap.get(device);
-        if (channel == null) {
-            channel = new Channel(device, mUnSafe);
-            mChannelMap.put(device, channel);
-        }
-
-        return channel;
-    }
-
     private UnSafe mUnSafe = new UnSafe() {
         @Override
-        public synchronized void doWrite(BluetoothDevice device, byte[] value) {
+        public void doWrite(BluetoothDevice device, byte[] value, boolean confirm) {
             if (!mIsRunning) {
                 printLog("Write fail because BleController is inactive.");
                 return;
             }
 
-            try {
-                mIndicateCharacteristic.setValue(value);
-                boolean ret = mGattServer.notifyCharacteristicChanged(device, mIndicateCharacteristic, true);
-                printLog("[" + device + "] doWrite success=" + ret + ", value=" + ByteUtil.byte2HexString(value));
-            } catch (Exception exception) {
-                printLog("[" + device + "] doWrite failure, e=" + exception.toString());
-            }
+            mNotificationScheduler.submit(device, value, confirm);
         }
 
         @Override
@@ -316,6 +315,30 @@ public class BleController {
         }
     };
 
+    /**
+     * Only called from the scheduler's thread, so the shared characteristic value is not changed
+     * while the stack reads it.
+     * */
+    private NotificationScheduler.Sender<BluetoothDevice> mNotificationSender = new NotificationScheduler.Sender<BluetoothDevice>() {
+        @Override
+        public boolean send(BluetoothDevice device, byte[] value, boolean confirm) {
+            if (!mIsRunning) {
+                printLog("Write fail because BleController is inactive.");
+                return false;
+            }
+
+            try {
+                mIndicateCharacteristic.setValue(value);
+                boolean ret = mGattServer.notifyCharacteristicChanged(device, mIndicateCharacteristic, confirm);
+                printLog("[" + device + "] doWrite success=" + ret + ", value=" + ByteUtil.byte2HexString(value));
+                return ret;
+            } catch (Exception exception) {
+                printLog("[" + device + "] doWrite failure, e=" + exception.toString());
+                return false;
+            }
+        }
+    };
+
     private BluetoothGattDescriptor getClientCharacteristicConfigurationDescriptor() {
         BluetoothGattDescriptor descriptor = new BluetoothGattDescriptor(CLIENT_CHARACTERISTIC_CONFIG,
                 (BluetoothGattDescriptor.PERMISSION_READ | BluetoothGattDescriptor.PERMISSION_WRITE));
@@ -411,13 +434,20 @@ public class BleController {
         }
 
 
-        for(Channel channel: mChannelMap.values()) {
-            channel.destroy();
-        }
-        mChannelMap.clear();
+        mChannels.clear();
         mIsRunning = false;
     }
 
+    /**
+     * Stop and shut the event loops and the notify thread down, the controller can not be
+     * started again.
+     * */
+    public void release() {
+        stop();
+        mEventLoopGroup.shutdown();
+        mNotificationScheduler.shutdown();
+    }
+
     private void printLog(String msg) {
         if (DEBUG) {
             LogUtil.d(TAG, msg);
@@ -433,7 +463,7 @@ public class BleController {
     }
 
     public void dumpChannel() {
-        for (BluetoothDevice device: mChannelMap.keySet()) {
+        for (BluetoothDevice device: mChannels.devices()) {
             LogUtil.event(TAG, "device=" + device.getName() + ", " + device.getAddress());
         }
     }
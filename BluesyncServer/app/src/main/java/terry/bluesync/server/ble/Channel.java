@@ -1,29 +1,70 @@
 package terry.bluesync.server.ble;
 
-
-import android.bluetooth.BluetoothDevice;
+import terry.bluesync.server.util.ByteBufPool;
 
 public class Channel {
-    private BluetoothDevice mDevice;
-    private UnSafe mUnsafe;
+    /** ATT_MTU every connection starts with, before any MTU exchange. */
+    public static final int DEFAULT_MTU = 23;
+    /** Largest ATT_MTU android will negotiate. */
+    public static final int MAX_MTU = 517;
+
+    private static final int ATT_HEADER_LEN = 3;
+    private static final int MAX_ATTRIBUTE_LEN = 512;
+
+    private Transport mTransport;
     private ChannelPipeline mChannelPipeline;
+    private final ByteBufPool mAlloc;
+    private volatile int mMtu = DEFAULT_MTU;
+
+    public Channel(Transport transport) {
+        this(transport, new ChannelHandlerInvoker());
+    }
+
+    public Channel(Transport transport, ChannelHandlerInvoker invoker) {
+        this(transport, invoker, ByteBufPool.DEFAULT);
+    }
 
-    public Channel(BluetoothDevice device, UnSafe unSafe) {
-        mDevice = device;
-        mUnsafe = unSafe;
-        mChannelPipeline = new ChannelPipeline(this);
+    public Channel(Transport transport, ChannelHandlerInvoker invoker, ByteBufPool alloc) {
+        mTransport = transport;
+        mAlloc = alloc;
+        mChannelPipeline = new ChannelPipeline(this, invoker);
+        mTransport.bind(this);
     }
 
     public void destroy() {
         mChannelPipeline.destroy();
     }
 
-    public UnSafe unSafe() {
-        return mUnsafe;
+    public Transport transport() {
+        return mTransport;
     }
 
-    public BluetoothDevice device() {
-        return mDevice;
+    /**
+     * Pool the handlers of this channel allocate outbound frames from.
+     * */
+    public ByteBufPool alloc() {
+        return mAlloc;
+    }
+
+    public int mtu() {
+        return mMtu;
+    }
+
+    /**
+     * Update ATT_MTU after exchange, an invalid value falls back to {@link #DEFAULT_MTU}.
+     * */
+    public void setMtu(int mtu) {
+        if (mtu < DEFAULT_MTU || mtu > MAX_MTU) {
+            mtu = DEFAULT_MTU;
+        }
+        mMtu = mtu;
+    }
+
+    /**
+     * Max bytes one notification can carry, it is ATT_MTU - 3.
+     * */
+    public int payloadSize() {
+        return Math.min(mMtu - ATT_HEADER_LEN, MAX_ATTRIBUTE_LEN);
     }
 
     public ChannelPipeline channelPipeline() {
@@ -57,7 +98,48 @@ public class Channel {
         channelPipeline().writeChannel();
     }
 
+    /**
+     * Whether a write would be queued, writing while it is false drops the message.
+     * */
+    public boolean isWritable() {
+        return channelPipeline().isWritable();
+    }
+
+    /**
+     * Write without response, or notify instead of indicate, once the peer grants credits. The
+     * peer must turn it on as well, window is the frames it may have in flight toward this side.
+     * 0, the default, waits for the peer to confirm every chunk.
+     * */
+    public void setFastWriteWindow(int window) {
+        channelPipeline().setFastWriteWindow(window);
+    }
+
+    /**
+     * Pack small frames queued behind each other into one chunk, the peer's frame decoder splits
+     * them again. An idle channel holds a frame up to maxDelayMillis for more to come, unless
+     * flushBytes are queued, 0 for a full chunk. With no delay only the frames queued while a
+     * chunk is in flight are packed. Off by default.
+     * */
+    public void setWriteBatching(boolean enable, int maxDelayMillis, int flushBytes) {
+        channelPipeline().setWriteBatching(enable, maxDelayMillis, flushBytes);
+    }
+
+    /**Notes: user should not call this function*/
+    public void updateWriteCredits(int consumedFrames, int window) {
+        channelPipeline().updateWriteCredits(consumedFrames, window);
+    }
+
+    /**Notes: user should not call this function*/
+    public void frameConsumed() {
+        channelPipeline().frameConsumed();
+    }
+
     public void exceptionCaught(Throwable throwable) {
         channelPipeline().exceptionCaught(throwable);
     }
+
+    @Override
+    public String toString() {
+        return String.valueOf(mTransport);
+    }
 }
@@ -3,7 +3,11 @@ package terry.bluesync.server.ble;
 
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import terry.bluesync.server.util.LogUtil;
 
@@ -12,14 +16,80 @@ public class ChannelHandlerInvoker {
     private static final boolean DEBUG = false;
 
     private ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsExecutor;
+    private volatile Thread thread;
+    private volatile boolean destroyed = false;
 
     public ChannelHandlerInvoker() {
-        this.executor = Executors.newSingleThreadExecutor();
+        this(newScheduledExecutor("invoker"));
+    }
+
+    /**
+     * Timeouts wait on executor itself if it is a {@link ScheduledExecutorService}, else on a
+     * timer thread shared by every invoker.
+     * */
+    public ChannelHandlerInvoker(ExecutorService executor) {
+        this(executor, executor instanceof ScheduledExecutorService ? (ScheduledExecutorService) executor : null);
+    }
+
+    /**
+     * Run events on the given executor, a null executor runs them on the caller thread.
+     *
+     * @param scheduler where timeouts wait until they are due, they then run as events. A null
+     *                  scheduler uses a timer thread shared by every invoker, a virtual time one
+     *                  lets tests run timeouts when they like.
+     * */
+    public ChannelHandlerInvoker(ExecutorService executor, ScheduledExecutorService scheduler) {
+        this(executor, scheduler, true);
+    }
+
+    /**
+     * @param ownsExecutor false for a loop of an {@link EventLoopGroup}, destroy leaves it running
+     * */
+    ChannelHandlerInvoker(ExecutorService executor, ScheduledExecutorService scheduler, boolean ownsExecutor) {
+        this.executor = executor;
+        this.scheduler = scheduler != null ? scheduler : SharedTimer.INSTANCE;
+        this.ownsExecutor = ownsExecutor;
+
+        if (executor != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    thread = Thread.currentThread();
+                }
+            });
+        }
+    }
+
+    /**
+     * Events raised on the invoker thread run inline instead of being queued, so a handler can
+     * pass a view of its buffer to the next one and reuse the buffer once fireXxx returns.
+     * */
+    public boolean inEventLoop() {
+        return executor == null || Thread.currentThread() == thread;
+    }
+
+    /**
+     * Run task as an event after delay, handlers schedule their timeouts here so a timeout never
+     * races with the events of its channel.
+     *
+     * @return cancel it on the event thread and task is sure not to run
+     * */
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        ScheduledTask scheduledTask = new ScheduledTask(task);
+        scheduledTask.mFuture = scheduler.schedule(scheduledTask, delay, unit);
+        return scheduledTask;
     }
 
     public void destroy() {
-        executor.shutdown();
-        executor = null;
+        destroyed = true;
+        if (executor != null) {
+            if (ownsExecutor) {
+                executor.shutdown();
+            }
+            executor = null;
+        }
     }
 
     public void invokeRunable(Runnable runnable) {
@@ -31,7 +101,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeActive(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeActiveNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -54,7 +124,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeInactive(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeInactiveNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -77,7 +147,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeDescriptorWrite(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeDescriptorWriteNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -104,7 +174,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("msg");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeReadNow(ctx, msg);
         } else {
             executor.execute(new Runnable() {
@@ -118,7 +188,9 @@ public class ChannelHandlerInvoker {
 
     private void invokeReadNow(final AbstractChannelHandlerContext ctx, final Object msg) {
         try {
-            logPrintObject(ctx, "read()" + ", msg=" + String.valueOf(msg));
+            if (DEBUG) {
+                logPrintObject(ctx, "read()" + ", msg=" + String.valueOf(msg));
+            }
 
             ctx.handler().read(ctx, msg);
         } catch (Throwable t) {
@@ -131,7 +203,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("msg");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeWriteNow(ctx, msg);
         } else {
             executor.execute(new Runnable() {
@@ -145,7 +217,9 @@ public class ChannelHandlerInvoker {
 
     private void invokeWriteNow(final AbstractChannelHandlerContext ctx, Object msg) {
         try {
-            logPrintObject(ctx, "write()" + ", msg=" + String.valueOf(msg));
+            if (DEBUG) {
+                logPrintObject(ctx, "write()" + ", msg=" + String.valueOf(msg));
+            }
 
             ctx.handler().write(ctx, msg);
         } catch (Throwable t) {
@@ -154,7 +228,7 @@ public class ChannelHandlerInvoker {
     }
 
     public void invokeDisconnect(final AbstractChannelHandlerContext ctx) {
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeDisconnectNow(ctx);
         } else {
             executor.execute(new Runnable() {
@@ -181,7 +255,7 @@ public class ChannelHandlerInvoker {
             throw new NullPointerException("cause");
         }
 
-        if (executor == null) {
+        if (inEventLoop()) {
             invokeExceptionCaughtNow(ctx, cause);
         } else {
             try {
@@ -230,7 +304,9 @@ public class ChannelHandlerInvoker {
 
     public void invokeExceptionCaughtNow(final AbstractChannelHandlerContext ctx, final Throwable cause) {
         try {
-            logPrintObject(ctx, "exceptionCaught()" + ", cause=" + cause.toString());
+            if (DEBUG) {
+                logPrintObject(ctx, "exceptionCaught()" + ", cause=" + cause.toString());
+            }
 
             ctx.handler().exceptionCaught(ctx, cause);
         } catch (Throwable t) {
@@ -240,7 +316,11 @@ public class ChannelHandlerInvoker {
     }
 
     private void logPrintObject(AbstractChannelHandlerContext ctx, String msg) {
-        LogPrint("[" +  ctx.channel().device() + "] " + ctx.handler().getClass().getSimpleName() + "." + msg);
+        if (!DEBUG) {
+            return;
+        }
+
+        LogPrint("[" +  ctx.channel() + "] " + ctx.handler().getClass().getSimpleName() + "." + msg);
     }
 
     private void LogPrint(String msg) {
@@ -248,4 +328,68 @@ public class ChannelHandlerInvoker {
             LogUtil.d(TAG, msg);
         }
     }
+
+    private static ScheduledExecutorService newScheduledExecutor(final String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private static final class SharedTimer {
+        static final ScheduledExecutorService INSTANCE = newScheduledExecutor("invoker-timer");
+    }
+
+    /**
+     * A task waiting in the scheduler, it hops to the executor once due unless the scheduler is
+     * the executor.
+     * */
+    public final class ScheduledTask implements Runnable {
+        private final Runnable mTask;
+        private volatile Future<?> mFuture;
+        private volatile boolean mIsCancelled = false;
+
+        ScheduledTask(Runnable task) {
+            mTask = task;
+        }
+
+        public void cancel() {
+            mIsCancelled = true;
+            Future<?> future = mFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        @Override
+        public void run() {
+            if (mIsCancelled || destroyed) {
+                return;
+            }
+
+            if (inEventLoop()) {
+                mTask.run();
+            } else {
+                invokeRunable(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mIsCancelled) {
+                            mTask.run();
+                        }
+                    }
+                });
+            }
+        }
+    }
 }
@@ -0,0 +1,87 @@
+package terry.bluesync.server.ble;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The channel of every connected device. Only the main thread opens and closes them, GATT
+ * callbacks on binder threads look them up. A callback for a device already closed is dropped,
+ * it neither opens a channel nor brings the device back to the notification scheduler.
+ */
+class DeviceChannels<D> {
+
+    interface Factory<D> {
+        Channel newChannel(D device);
+    }
+
+    private final Map<D, Channel> mChannels = new ConcurrentHashMap<>();
+    private final NotificationScheduler<D> mScheduler;
+    private final Factory<D> mFactory;
+
+    DeviceChannels(NotificationScheduler<D> scheduler, Factory<D> factory) {
+        mScheduler = scheduler;
+        mFactory = factory;
+    }
+
+    /**
+     * Only for a device that just connected.
+     * */
+    Channel open(D device) {
+        Channel channel = mChannels.get(device);
+        if (channel == null) {
+            channel = mFactory.newChannel(device);
+            mChannels.put(device, channel);
+        }
+
+        return channel;
+    }
+
+    /**
+     * @return null if device is not connected
+     * */
+    Channel get(D device) {
+        return mChannels.get(device);
+    }
+
+    /**
+     * The device disconnected, its channel goes inactive and what is queued for it is dropped.
+     * */
+    void close(D device) {
+        Channel channel = mChannels.get(device);
+        if (channel == null) {
+            return;
+        }
+
+        channel.inactive();
+        mScheduler.remove(device);
+        mChannels.remove(device);
+        /** events already queued, inactive among them, still run on its loop */
+        channel.destroy();
+    }
+
+    /**
+     * The chunk in flight to device is sent, the next one of its queue or its channel may go.
+     * */
+    void notificationSent(D device) {
+        Channel channel = mChannels.get(device);
+        if (channel == null) {
+            return;
+        }
+
+        mScheduler.sent(device);
+        channel.writeChannel();
+    }
+
+    void clear() {
+        for (Channel channel : mChannels.values()) {
+            channel.destroy();
+        }
+        mChannels.clear();
+        mScheduler.clear();
+    }
+
+    Set<D> devices() {
+        return mChannels.keySet();
+    }
+}
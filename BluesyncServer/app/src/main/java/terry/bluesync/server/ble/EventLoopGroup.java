@@ -0,0 +1,65 @@
+package terry.bluesync.server.ble;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of event threads shared by many channels. Every channel is pinned to one loop
+ * for its whole life, so its events keep their order while the thread count stays the same
+ * however many centrals connect.
+ */
+public class EventLoopGroup {
+    private final ScheduledThreadPoolExecutor[] mLoops;
+    private final AtomicInteger mNext = new AtomicInteger();
+
+    /**
+     * One loop per available processor.
+     * */
+    public EventLoopGroup(String name) {
+        this(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    public EventLoopGroup(final String name, int loops) {
+        if (loops <= 0) {
+            throw new IllegalArgumentException("loops=" + loops);
+        }
+
+        mLoops = new ScheduledThreadPoolExecutor[loops];
+        for (int i = 0; i < loops; i++) {
+            final String threadName = name + "-" + i;
+            mLoops[i] = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mLoops[i].setRemoveOnCancelPolicy(true);
+            mLoops[i].setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+    }
+
+    /**
+     * Invoker for a new channel on the next loop in turn. Destroying the channel leaves the loop
+     * running for the others.
+     * */
+    public ChannelHandlerInvoker next() {
+        int index = (mNext.getAndIncrement() & Integer.MAX_VALUE) % mLoops.length;
+        return new ChannelHandlerInvoker(mLoops[index], mLoops[index], false);
+    }
+
+    public int loops() {
+        return mLoops.length;
+    }
+
+    /**
+     * Stop every loop, the channels on them must be destroyed first.
+     * */
+    public void shutdown() {
+        for (ScheduledThreadPoolExecutor loop : mLoops) {
+            loop.shutdown();
+        }
+    }
+}
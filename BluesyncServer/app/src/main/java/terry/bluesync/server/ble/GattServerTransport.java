@@ -0,0 +1,56 @@
+package terry.bluesync.server.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import java.util.Arrays;
+
+public class GattServerTransport implements Transport {
+    private BluetoothDevice mDevice;
+    private UnSafe mUnSafe;
+    private volatile boolean mConfirm = true;
+
+    public GattServerTransport(BluetoothDevice device, UnSafe unSafe) {
+        mDevice = device;
+        mUnSafe = unSafe;
+    }
+
+    @Override
+    public void bind(Channel channel) {
+        // gatt server callbacks are dispatched to channel by BleController
+    }
+
+    @Override
+    public void write(byte[] value, int offset, int length) {
+        mUnSafe.doWrite(mDevice, chunkOf(value, offset, length), mConfirm);
+    }
+
+    /**
+     * Notify instead of indicate, the client does not confirm a notification.
+     * */
+    @Override
+    public void setWriteWithoutResponse(boolean enable) {
+        mConfirm = !enable;
+    }
+
+    /**
+     * The characteristic value is a whole array. The chunk waits in the device's queue of the
+     * notification scheduler, so it gets an array of its own.
+     * */
+    private static byte[] chunkOf(byte[] value, int offset, int length) {
+        return Arrays.copyOfRange(value, offset, offset + length);
+    }
+
+    @Override
+    public void disconnect() {
+        mUnSafe.doDisconnect(mDevice);
+    }
+
+    public BluetoothDevice device() {
+        return mDevice;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(mDevice);
+    }
+}
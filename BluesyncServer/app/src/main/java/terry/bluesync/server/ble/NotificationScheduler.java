@@ -0,0 +1,191 @@
+package terry.bluesync.server.ble;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Indications and notifications to every connected device. Each device has its own queue of
+ * chunks and at most one of them in flight until its {@link #sent} comes, devices with chunks
+ * waiting take turns. A slow central only holds back its own chunks.
+ *
+ * The chunks are sent one at a time from the scheduler's thread, below API 33 the value goes
+ * through the characteristic every device shares. Channel loops only queue their chunk.
+ */
+public class NotificationScheduler<D> {
+
+    public interface Sender<D> {
+        /**
+         * @return false if the stack did not take the chunk, no {@link #sent} comes for it
+         * */
+        boolean send(D device, byte[] value, boolean confirm);
+    }
+
+    private final Sender<D> mSender;
+    private final Executor mExecutor;
+    private final Map<D, DeviceQueue<D>> mQueues = new HashMap<>();
+    /** devices with a chunk waiting and none in flight, in turn */
+    private final ArrayDeque<DeviceQueue<D>> mReady = new ArrayDeque<>();
+    private boolean mIsDraining = false;
+
+    public NotificationScheduler(Sender<D> sender) {
+        this(sender, newNotifyExecutor());
+    }
+
+    NotificationScheduler(Sender<D> sender, Executor executor) {
+        mSender = sender;
+        mExecutor = executor;
+    }
+
+    private static ExecutorService newNotifyExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bluesync-notify");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queue a chunk for device, value is kept until it is sent and must not be changed after.
+     * */
+    public void submit(D device, byte[] value, boolean confirm) {
+        synchronized (this) {
+            DeviceQueue<D> queue = mQueues.get(device);
+            if (queue == null) {
+                queue = new DeviceQueue<>(device);
+                mQueues.put(device, queue);
+            }
+
+            queue.mPending.add(new Chunk(value, confirm));
+            if (!markReady(queue)) {
+                return;
+            }
+        }
+        mExecutor.execute(mDrain);
+    }
+
+    /**
+     * The chunk in flight to device is sent, its next one may go.
+     * */
+    public void sent(D device) {
+        synchronized (this) {
+            DeviceQueue<D> queue = mQueues.get(device);
+            if (queue == null || !queue.mIsInFlight) {
+                return;
+            }
+
+            queue.mIsInFlight = false;
+            if (!markReady(queue)) {
+                return;
+            }
+        }
+        mExecutor.execute(mDrain);
+    }
+
+    /**
+     * Drop what is queued for device, it is gone.
+     * */
+    public synchronized void remove(D device) {
+        DeviceQueue<D> queue = mQueues.remove(device);
+        if (queue != null) {
+            queue.mPending.clear();
+            mReady.remove(queue);
+        }
+    }
+
+    public synchronized void clear() {
+        mQueues.clear();
+        mReady.clear();
+    }
+
+    /**
+     * Drop every chunk and stop the notify thread, nothing can be submitted after.
+     * */
+    public void shutdown() {
+        clear();
+        if (mExecutor instanceof ExecutorService) {
+            ((ExecutorService) mExecutor).shutdown();
+        }
+    }
+
+    public synchronized int pendingChunks(D device) {
+        DeviceQueue<D> queue = mQueues.get(device);
+        return queue != null ? queue.mPending.size() : 0;
+    }
+
+    /**
+     * @return whether the drain task has to be started
+     * */
+    private boolean markReady(DeviceQueue<D> queue) {
+        if (!queue.mIsInFlight && !queue.mIsReady && !queue.mPending.isEmpty()) {
+            queue.mIsReady = true;
+            mReady.add(queue);
+        }
+
+        if (mIsDraining || mReady.isEmpty()) {
+            return false;
+        }
+        mIsDraining = true;
+        return true;
+    }
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                DeviceQueue<D> queue;
+                Chunk chunk;
+                synchronized (NotificationScheduler.this) {
+                    queue = mReady.poll();
+                    if (queue == null) {
+                        mIsDraining = false;
+                        return;
+                    }
+
+                    queue.mIsReady = false;
+                    queue.mIsInFlight = true;
+                    chunk = queue.mPending.poll();
+                }
+
+                if (!mSender.send(queue.mDevice, chunk.mValue, chunk.mConfirm)) {
+                    /** the stack dropped it, the channel's write timeout deals with the chunk */
+                    synchronized (NotificationScheduler.this) {
+                        queue.mIsInFlight = false;
+                        if (mQueues.get(queue.mDevice) == queue && !queue.mIsReady && !queue.mPending.isEmpty()) {
+                            queue.mIsReady = true;
+                            mReady.add(queue);
+                        }
+                    }
+                }
+            }
+        }
+    };
+
+    private static final class DeviceQueue<D> {
+        private final D mDevice;
+        private final ArrayDeque<Chunk> mPending = new ArrayDeque<>();
+        private boolean mIsInFlight = false;
+        private boolean mIsReady = false;
+
+        DeviceQueue(D device) {
+            mDevice = device;
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] mValue;
+        private final boolean mConfirm;
+
+        Chunk(byte[] value, boolean confirm) {
+            mValue = value;
+            mConfirm = confirm;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package terry.bluesync.server.ble;
+
+/**
+ * The link under a {@link Channel}, it only moves chunks which already fit in one ATT packet.
+ * Whoever owns the link reports back to the channel: received chunks to {@link Channel#read},
+ * write completion to {@link Channel#writeChannel} and ATT_MTU to {@link Channel#setMtu}.
+ */
+public interface Transport {
+    void bind(Channel channel);
+
+    /**
+     * Send length bytes of value from offset as one chunk, length never exceeds
+     * {@link Channel#payloadSize()}. value is the whole outbound frame, it must be copied if the
+     * chunk is kept after this returns.
+     * Only one chunk is in flight, the next one waits until the channel is told it was written.
+     * */
+    void write(byte[] value, int offset, int length);
+
+    /**
+     * Send the next chunks without asking the peer to confirm them, the channel is still told
+     * when each one is written. The channel turns it on only when the peer grants credits.
+     * */
+    void setWriteWithoutResponse(boolean enable);
+
+    void disconnect();
+}
@@ -3,6 +3,6 @@ package terry.bluesync.server.ble;
 import android.bluetooth.BluetoothDevice;
 
 public interface UnSafe {
-    void doWrite(BluetoothDevice device, byte[] value);
+    void doWrite(BluetoothDevice device, byte[] value, boolean confirm);
     void doDisconnect(BluetoothDevice device);
 }
@@ -0,0 +1,15 @@
+package terry.bluesync.server.ble;
+
+/**
+ * A frame was written while the outbound buffer of the channel was full, it was dropped.
+ */
+public class WriteBufferFullException extends Exception {
+    private static final long serialVersionUID = -3620457130846243410L;
+
+    /**
+     * Creates a new instance.
+     */
+    public WriteBufferFullException(String message) {
+        super(message);
+    }
+}
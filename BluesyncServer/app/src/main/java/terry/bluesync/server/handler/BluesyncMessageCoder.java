@@ -1,26 +1,34 @@
 package terry.bluesync.server.handler;
 
-import android.os.Handler;
-
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.GeneratedMessageV3;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 import terry.bluesync.server.ble.AbstractChannelHandlerContext;
 import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
 import terry.bluesync.server.protocol.BluesyncMessage;
 import terry.bluesync.server.protocol.BluesyncProto;
 import terry.bluesync.server.protocol.BluesyncProtoUtil;
 import terry.bluesync.server.util.AesCoder;
 import terry.bluesync.server.util.AesCoderException;
-import terry.bluesync.server.util.ByteUtil;
+import terry.bluesync.server.util.AesCtrSession;
+import terry.bluesync.server.util.AesSession;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
 import terry.bluesync.server.util.DeviceUtil;
 import terry.bluesync.server.util.LogUtil;
+import terry.bluesync.server.util.SessionCipher;
 import terry.bluesync.server.util.SessionInfo;
 
 
 public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     private static final String TAG = BluesyncMessageCoder.class.getSimpleName();
-    private static final boolean DEBUG = true;
+    private static final boolean DEBUG = false;
     private static final int FIXED_HEAD_LEN = 8;
     private static final int AUTH_REQ_DELAY = 500;
     private static final int AUTH_TIME_OUT = 4 * 1000;
@@ -28,7 +36,9 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     private int mSendDataLen;
     private boolean mIsEncrypt;
     private byte[] mSessionKey = null;
-    private Handler mHandler;
+    private SessionCipher mSessionCipher;
+    private byte[] mPlainBuf;
+    private ChannelHandlerInvoker.ScheduledTask mAuthTimeoutTask;
 
     private AbstractChannelHandlerContext mCtx;
 
@@ -49,7 +59,6 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     public BluesyncMessageCoder(int size, boolean isEncrypt, Callback callback) {
         assert (callback != null);
 
-        mHandler = new Handler();
         mSendDataLen = size;
         mIsEncrypt = isEncrypt;
 
@@ -60,7 +69,7 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     @Override
     public void descriptorWrite(final AbstractChannelHandlerContext ctx) throws Exception {
 
-        mHandler.postDelayed(new Runnable() {
+        ctx.invoker().schedule(new Runnable() {
             @Override
             public void run() {
                 mCallback.onLoginBegin();
@@ -69,13 +78,13 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
 
                 startAuthTimeout(ctx);
             }
-        }, AUTH_REQ_DELAY);
+        }, AUTH_REQ_DELAY, TimeUnit.MILLISECONDS);
     }
 
     private void startAuthTimeout(AbstractChannelHandlerContext ctx) {
         mCtx = ctx;
-        mHandler.removeCallbacks(mAuthTimeout);
-        mHandler.postDelayed(mAuthTimeout, AUTH_TIME_OUT);
+        cancelAuthTimeout();
+        mAuthTimeoutTask = ctx.invoker().schedule(mAuthTimeout, AUTH_TIME_OUT, TimeUnit.MILLISECONDS);
     }
 
     private Runnable mAuthTimeout = new Runnable() {
@@ -92,6 +101,13 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         }
     };
 
+    private void cancelAuthTimeout() {
+        if (mAuthTimeoutTask != null) {
+            mAuthTimeoutTask.cancel();
+            mAuthTimeoutTask = null;
+        }
+    }
+
     private void sendAuthRequest(AbstractChannelHandlerContext ctx) {
         String model = DeviceUtil.getModel();
         String sn = DeviceUtil.getSerialNo();
@@ -103,15 +119,15 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
                 .setModle(model)
                 .setSerialNo(sn)
                 .setMacAddress(mac)
-                .setIsEncrypt(mIsEncrypt)
+                .setIsEncrypt(mIsEncrypt ? BluesyncProto.EmEncryptMode.EEM_aes_ctr_VALUE : BluesyncProto.EmEncryptMode.EEM_none_VALUE)
                 .setAesSign(aesSign);
 
         BluesyncMessage request = new BluesyncMessage(BluesyncProtoUtil.genSeqId(), BluesyncProto.EmCmdId.ECI_req_auth, builder.build());
         printLog("write data=" + request);
 
         try {
-            byte[] bArr = packagePlainData(request);
-            ctx.fireWrite(bArr);
+            ByteBuf frame = packagePlainData(ctx.channel().alloc(), request);
+            ctx.fireWrite(frame);
         } catch (BluesyncMessageCoderException e) {
             e.printStackTrace();
         }
@@ -119,22 +135,34 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
 
     @Override
     public void read(AbstractChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = toFrame(msg);
         switch (getStep()) {
             case AUTH:
-                handleAuthenResponse(ctx, (byte[]) msg);
+                handleAuthenResponse(ctx, frame);
                 break;
             case INIT:
-                handleInitResponse(ctx, (byte[]) msg);
+                handleInitResponse(ctx, frame);
                 break;
             case READY:
-                handleMessage(ctx, (byte[]) msg);
+                handleMessage(ctx, frame);
                 break;
         }
     }
 
-    private void handleAuthenResponse(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    /**
+     * Frames from LengthFieldFrameDecoder are views of its receive buffer, a plain byte array
+     * is accepted as a whole frame.
+     * */
+    private ByteBuf toFrame(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return (ByteBuf) msg;
+        }
+        return new ByteBuf((byte[]) msg);
+    }
+
+    private void handleAuthenResponse(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parsePlainData(bArr);
+            BluesyncMessage message = parsePlainData(frame);
 
             if (!isAuthenCmdId(message.getCmdId())) {
                 throw new BluesyncMessageCoderException(message.getSeqId(), BluesyncProto.EmErrorCode.EEC_needAuth_VALUE, "need authen");
@@ -150,6 +178,11 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
                 if (mSessionKey == null) {
                     throw new BluesyncMessageCoderException(message.getSeqId(), BluesyncProto.EmErrorCode.EEC_authFail_VALUE, "sessionKey error");
                 }
+
+                /** old clients do not answer the mode and always use cbc */
+                int encryptMode = authResponse.hasEncryptMode() ? authResponse.getEncryptMode() : BluesyncProto.EmEncryptMode.EEM_aes_cbc_VALUE;
+                mSessionCipher = newSessionCipher(message.getSeqId(), encryptMode);
+                printLog("encrypt mode=" + encryptMode);
             }
 
             /** generate ticket */
@@ -165,6 +198,17 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         }
     }
 
+    private SessionCipher newSessionCipher(int seqId, int encryptMode) throws BluesyncMessageCoderException, AesCoderException {
+        switch (encryptMode) {
+            case BluesyncProto.EmEncryptMode.EEM_aes_cbc_VALUE:
+                return new AesSession(mSessionKey, mSessionKey);
+            case BluesyncProto.EmEncryptMode.EEM_aes_ctr_VALUE:
+                return new AesCtrSession(mSessionKey, true);
+            default:
+                throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_authFail_VALUE, "unsupported encrypt mode " + encryptMode);
+        }
+    }
+
     private boolean isAuthenCmdId(BluesyncProto.EmCmdId cmdId) {
         return cmdId == BluesyncProto.EmCmdId.ECI_resp_auth;
     }
@@ -177,17 +221,17 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
             BluesyncMessage request = new BluesyncMessage(BluesyncProtoUtil.genSeqId(), BluesyncProto.EmCmdId.ECI_req_init, builder.build());
             printLog("write data=" + request);
 
-            byte[] bArr = packageData(request);
-            ctx.fireWrite(bArr);
+            ByteBuf frame = packageData(ctx.channel().alloc(), request);
+            ctx.fireWrite(frame);
         } catch (Exception e) {
             e.printStackTrace();
             LogUtil.e(TAG, "sendInitRequest error, " + e.toString());
         }
     }
 
-    private void handleInitResponse(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    private void handleInitResponse(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parseData(bArr);
+            BluesyncMessage message = parseData(ctx.channel().alloc(), frame);
             if (!isInitCmdId(message.getCmdId())) {
                 throw new BluesyncMessageCoderException(message.getSeqId(), BluesyncProto.EmErrorCode.EEC_needAuth_VALUE, "need authen");
             }
@@ -198,7 +242,7 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
             }
 
             mCallback.onLoginSuccess(initResponse);
-            mHandler.removeCallbacks(mAuthTimeout);
+            cancelAuthTimeout();
             setStep(STEP.READY);
         } catch (BluesyncMessageCoderException e) {
             LogUtil.e(TAG, "handleInitResponse fail, " + e.toString());
@@ -211,10 +255,12 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         return cmdId == BluesyncProto.EmCmdId.ECI_resp_init;
     }
 
-    private void handleMessage(AbstractChannelHandlerContext ctx, byte[] bArr) {
+    private void handleMessage(AbstractChannelHandlerContext ctx, ByteBuf frame) {
         try {
-            BluesyncMessage message = parseData(bArr);
-            printLog("receive data=" + message);
+            BluesyncMessage message = parseData(ctx.channel().alloc(), frame);
+            if (DEBUG) {
+                printLog("receive data=" + message);
+            }
 
             ctx.fireRead(message);
         } catch (BluesyncMessageCoderException exception) {
@@ -222,77 +268,74 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
         }
     }
 
-    private BluesyncMessage parseData(byte[] bArr) throws BluesyncMessageCoderException {
+    BluesyncMessage parseData(ByteBufPool pool, ByteBuf frame) throws BluesyncMessageCoderException {
         if (mIsEncrypt) {
-            return parseEncryptedData(bArr);
+            return parseEncryptedData(pool, frame);
         } else {
-            return parsePlainData(bArr);
+            return parsePlainData(frame);
         }
     }
 
-    private BluesyncMessage parsePlainData(byte[] bArr) throws BluesyncMessageCoderException {
-        int seqId = getSeqId(bArr);
-        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, bArr);
-        byte[] protobuf = getProtobufByteArray(bArr);
+    BluesyncMessage parsePlainData(ByteBuf frame) throws BluesyncMessageCoderException {
+        int seqId = getSeqId(frame);
+        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, frame);
 
-        GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, protobuf);
+        GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId,
+                frame.array(), frame.offset() + FIXED_HEAD_LEN, frame.length() - FIXED_HEAD_LEN);
         return new BluesyncMessage(seqId, cmdId, protobufObject);
     }
 
-    private BluesyncMessage parseEncryptedData(byte[] bArr) throws BluesyncMessageCoderException {
-        int seqId = getSeqId(bArr);
-        try {
-            BluesyncProto.EmCmdId cmdId = getCmdId(seqId, bArr);
+    /**
+     * The payload is decrypted into a buffer of pool, protobuf copies what it keeps so the
+     * buffer is released before returning.
+     * */
+    BluesyncMessage parseEncryptedData(ByteBufPool pool, ByteBuf frame) throws BluesyncMessageCoderException {
+        int seqId = getSeqId(frame);
+        BluesyncProto.EmCmdId cmdId = getCmdId(seqId, frame);
 
-            byte[] encryptedProtobuf = getProtobufByteArray(bArr);
-            byte[] protobufData = AesCoder.decrypt(mSessionKey, mSessionKey, encryptedProtobuf);
+        int encryptedLength = frame.length() - FIXED_HEAD_LEN;
+        ByteBuf plain = pool.allocate(mSessionCipher.decryptOutputSize(encryptedLength));
+        try {
+            int plainLength = mSessionCipher.decrypt(frame.array(), frame.offset() + FIXED_HEAD_LEN, encryptedLength,
+                    plain.array(), plain.offset());
 
-            GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, protobufData);
+            GeneratedMessageV3 protobufObject = getProtobufObject(seqId, cmdId, plain.array(), plain.offset(), plainLength);
             return new BluesyncMessage(seqId, cmdId, protobufObject);
         } catch (AesCoderException e) {
             e.printStackTrace();
             throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "aes decode error");
+        } finally {
+            plain.release();
         }
     }
 
-    private BluesyncProto.EmCmdId getCmdId(int seqId, byte[] bArr) throws BluesyncMessageCoderException {
+    private BluesyncProto.EmCmdId getCmdId(int seqId, ByteBuf frame) throws BluesyncMessageCoderException {
         try {
-            int cmdInt = ((bArr[4] & 0xFF) << 8) | (bArr[5] & 0xFF);
+            int cmdInt = frame.getUnsignedShort(4);
             BluesyncProto.EmCmdId cmdId = BluesyncProto.EmCmdId.forNumber(cmdInt);
             cmdId.toString();
             return cmdId;
         } catch (NullPointerException exception) {
-            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + frame.toHexString());
         } catch (IndexOutOfBoundsException exception) {
-            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(seqId, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse cmdId fail, cmdId=" + frame.toHexString());
         }
     }
 
-    private int getSeqId(byte[] bArr) throws BluesyncMessageCoderException {
+    private int getSeqId(ByteBuf frame) throws BluesyncMessageCoderException {
         try {
-            int seq = ((bArr[6] & 0xFF) << 8) | (bArr[7] & 0xFF);
+            int seq = frame.getUnsignedShort(6);
             return seq;
         } catch (NullPointerException exception) {
-            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + frame.toHexString());
         } catch (IndexOutOfBoundsException exception) {
-            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + ByteUtil.byte2HexString(bArr));
+            throw new BluesyncMessageCoderException(0, BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse seq fail, cmdId=" + frame.toHexString());
         }
     }
 
-    private byte[] getProtobufByteArray(byte[] bArr) {
-        int length = bArr.length - FIXED_HEAD_LEN;
-        if (length == 0) {
-            return null;
-        }
-
-        byte[] protobuf = new byte[length];
-        System.arraycopy(bArr, FIXED_HEAD_LEN, protobuf, 0, length);
-
-        return protobuf;
-    }
-
-    private GeneratedMessageV3 getProtobufObject(int seqId, BluesyncProto.EmCmdId cmdId, byte[] protobuf) throws BluesyncMessageCoderException {
+    private GeneratedMessageV3 getProtobufObject(int seqId, BluesyncProto.EmCmdId cmdId, byte[] bArr, int offset, int length) throws BluesyncMessageCoderException {
         try {
+            CodedInputStream protobuf = CodedInputStream.newInstance(bArr, offset, length);
             GeneratedMessageV3 retObject = null;
             switch (cmdId) {
                 case ECI_error:
@@ -319,6 +362,18 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
                 case ECI_push_recvData:
                     retObject = BluesyncProto.RecvDataPush.parseFrom(protobuf);
                     break;
+                case ECI_req_streamOpen:
+                    retObject = BluesyncProto.StreamOpenRequest.parseFrom(protobuf);
+                    break;
+                case ECI_resp_streamOpen:
+                    retObject = BluesyncProto.StreamOpenResponse.parseFrom(protobuf);
+                    break;
+                case ECI_push_streamData:
+                    retObject = BluesyncProto.StreamDataPush.parseFrom(protobuf);
+                    break;
+                case ECI_push_streamAck:
+                    retObject = BluesyncProto.StreamAckPush.parseFrom(protobuf);
+                    break;
                 default:
                     printError("parse protobuf fail for unexpected command id.");
                     throw new Exception();
@@ -346,80 +401,181 @@ public class BluesyncMessageCoder extends ChannelHandlerAdapter {
     public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
         if (getStep() != STEP.READY) {
             LogUtil.e(TAG, "you want write data must after authentication success");
+            if (msg instanceof BroadcastMessage) {
+                ((BroadcastMessage) msg).release();
+            }
             return;
         }
 
         try {
-            printLog("write data=" + msg);
+            if (DEBUG) {
+                printLog("write data=" + msg);
+            }
 
-            byte[] bArr = packageData((BluesyncMessage) msg);
-            ctx.fireWrite(bArr);
+            ByteBuf frame;
+            if (msg instanceof BroadcastMessage) {
+                frame = packageBroadcast(ctx.channel().alloc(), (BroadcastMessage) msg);
+            } else {
+                frame = packageData(ctx.channel().alloc(), (BluesyncMessage) msg);
+            }
+            ctx.fireWrite(frame);
         } catch (Exception e) {
             LogUtil.e(TAG, e.toString());
         }
     }
 
-    private byte[] packageData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    /**
+     * Takes over the reference of broadcast this channel holds.
+     *
+     * @return the shared frame for a plain channel, an encrypted frame allocated from pool
+     * otherwise
+     * */
+    ByteBuf packageBroadcast(ByteBufPool pool, BroadcastMessage broadcast) throws BluesyncMessageCoderException {
+        ByteBuf shared = broadcast.frame();
+        BluesyncMessage message = broadcast.message();
+        if (!mIsEncrypt) {
+            if (shared.length() > mSendDataLen) {
+                shared.release();
+                throw new BluesyncMessageCoderException(message.getSeqId(), 0, "send data length exceed " + mSendDataLen);
+            }
+            return shared;
+        }
+
+        try {
+            return packageEncryptFrame(pool, message.getSeqId(), message.getCmdId().getNumber(),
+                    shared.array(), shared.offset() + FIXED_HEAD_LEN, shared.length() - FIXED_HEAD_LEN);
+        } finally {
+            shared.release();
+        }
+    }
+
+    /**
+     * @return a frame allocated from pool, released by the pipeline head once it is sent
+     * */
+    ByteBuf packageData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         if (mIsEncrypt) {
-            return packageEncryptData(bluesyncMessage);
+            return packageEncryptData(pool, bluesyncMessage);
         } else {
-            return packagePlainData(bluesyncMessage);
+            return packagePlainData(pool, bluesyncMessage);
         }
     }
 
-    private byte[] packageEncryptData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    ByteBuf packageEncryptData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         int seqId = bluesyncMessage.getSeqId();
+        GeneratedMessageV3 protobuf = bluesyncMessage.getProtobufData();
+        int protoLength = protobuf.getSerializedSize();
         try {
-            BluesyncProto.EmCmdId cmdId = bluesyncMessage.getCmdId();
+            if (protoLength > mSendDataLen) {
+                throw new BluesyncMessageCoderException(seqId, 0, "send data length exceed " + mSendDataLen);
+            }
 
-            byte[] protoData = bluesyncMessage.getProtobufData().toByteArray();
-            byte[] encryptedProtoData = AesCoder.encrypt(mSessionKey, mSessionKey, protoData);
+            /** plain data is only needed until it is encrypted, it is serialized into a reused buffer */
+            if (mPlainBuf == null) {
+                mPlainBuf = new byte[mSendDataLen];
+            }
+            writeProtobuf(protobuf, mPlainBuf, 0, protoLength);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new BluesyncMessageCoderException(seqId, 0, "encryptAndPackageData error" + e);
+        }
 
-            byte[] packData = addFixedHeadBuf(seqId, cmdId.getNumber(), encryptedProtoData);
-            if (packData.length > mSendDataLen) {
+        return packageEncryptFrame(pool, seqId, bluesyncMessage.getCmdId().getNumber(), mPlainBuf, 0, protoLength);
+    }
+
+    /**
+     * Encrypt length bytes of serialized protobuf at offset of plain into a frame.
+     * */
+    private ByteBuf packageEncryptFrame(ByteBufPool pool, int seqId, int cmdId, byte[] plain, int offset, int length) throws BluesyncMessageCoderException {
+        try {
+            int totalLength = FIXED_HEAD_LEN + mSessionCipher.encryptOutputSize(length);
+            if (totalLength > mSendDataLen) {
                 throw new BluesyncMessageCoderException(seqId, 0, "send data length exceed " + mSendDataLen);
             }
-            return packData;
+
+            ByteBuf frame = pool.allocate(totalLength);
+            try {
+                int encryptedLength = mSessionCipher.encrypt(plain, offset, length, frame.array(), frame.offset() + FIXED_HEAD_LEN);
+                frame.setLength(FIXED_HEAD_LEN + encryptedLength);
+            } catch (Exception e) {
+                frame.release();
+                throw e;
+            }
+            writeFixedHead(frame, seqId, cmdId);
+            return frame;
+        } catch (BluesyncMessageCoderException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             throw new BluesyncMessageCoderException(seqId, 0, "encryptAndPackageData error" + e);
         }
     }
 
-    private byte[] packagePlainData(BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
+    /**
+     * Header and protobuf are written into one buffer of the exact frame length.
+     * */
+    ByteBuf packagePlainData(ByteBufPool pool, BluesyncMessage bluesyncMessage) throws BluesyncMessageCoderException {
         BluesyncProto.EmCmdId cmdId = bluesyncMessage.getCmdId();
         int seqId = bluesyncMessage.getSeqId();
-        byte[] protoData = bluesyncMessage.getProtobufData().toByteArray();
+        GeneratedMessageV3 protobuf = bluesyncMessage.getProtobufData();
 
-        byte[] packData = addFixedHeadBuf(seqId, cmdId.getNumber(), protoData);
-        if (packData.length > mSendDataLen) {
+        int protoLength = protobuf.getSerializedSize();
+        int totalLength = FIXED_HEAD_LEN + protoLength;
+        if (totalLength > mSendDataLen) {
             throw new BluesyncMessageCoderException(seqId, 0, "send data length exceed " + mSendDataLen);
         }
 
-        return packData;
+        ByteBuf frame = pool.allocate(totalLength);
+        writeFixedHead(frame, seqId, cmdId.getNumber());
+        try {
+            writeProtobuf(protobuf, frame.array(), frame.offset() + FIXED_HEAD_LEN, protoLength);
+        } catch (IOException e) {
+            frame.release();
+            throw new BluesyncMessageCoderException(seqId, 0, "packagePlainData error" + e);
+        }
+
+        return frame;
     }
 
-    private byte[] addFixedHeadBuf(int seqId,int cmdId, byte[] protobuf) {
-        int totalLength = FIXED_HEAD_LEN;
-        if (protobuf != null && protobuf.length > 0) {
-            totalLength = protobuf.length + FIXED_HEAD_LEN;
-        }
-        byte[] bArr = new byte[totalLength];
-
-        bArr[0] = (byte) -2;
-        bArr[1] = (byte) 1;
-        bArr[2] = (byte) ((totalLength >> 8) & 255);
-        bArr[3] = (byte) (totalLength & 255);
-        bArr[4] = (byte) ((cmdId >> 8) & 255);
-        bArr[5] = (byte) (cmdId & 255);
-        bArr[6] = (byte) ((seqId >> 8) & 255);
-        bArr[7] = (byte) (seqId & 255);
-
-        if (totalLength > FIXED_HEAD_LEN) {
-            System.arraycopy(protobuf, 0, bArr, 8, protobuf.length);
+    /**
+     * Plain frame of message in an array of its own, for a frame shared by many channels.
+     * */
+    static ByteBuf packageSharedFrame(BluesyncMessage message) throws BluesyncMessageCoderException {
+        GeneratedMessageV3 protobuf = message.getProtobufData();
+        int protoLength = protobuf.getSerializedSize();
+
+        ByteBuf frame = new ByteBuf(new byte[FIXED_HEAD_LEN + protoLength]);
+        writeFixedHead(frame, message.getSeqId(), message.getCmdId().getNumber());
+        try {
+            writeProtobuf(protobuf, frame.array(), FIXED_HEAD_LEN, protoLength);
+        } catch (IOException e) {
+            throw new BluesyncMessageCoderException(message.getSeqId(), 0, "packageSharedFrame error" + e);
         }
+        return frame;
+    }
+
+    private static void writeProtobuf(GeneratedMessageV3 protobuf, byte[] bArr, int offset, int length) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(bArr, offset, length);
+        protobuf.writeTo(output);
+        output.checkNoSpaceLeft();
+    }
+
+    private static void writeFixedHead(ByteBuf frame, int seqId, int cmdId) {
+        byte[] bArr = frame.array();
+        int offset = frame.offset();
+        int totalLength = frame.length();
+        bArr[offset] = (byte) -2;
+        bArr[offset + 1] = (byte) 1;
+        bArr[offset + 2] = (byte) ((totalLength >> 8) & 255);
+        bArr[offset + 3] = (byte) (totalLength & 255);
+        bArr[offset + 4] = (byte) ((cmdId >> 8) & 255);
+        bArr[offset + 5] = (byte) (cmdId & 255);
+        bArr[offset + 6] = (byte) ((seqId >> 8) & 255);
+        bArr[offset + 7] = (byte) (seqId & 255);
+    }
 
-        return bArr;
+    /** Only for benchmarks, the cipher is normally created from AuthResponse. */
+    void setSessionCipher(SessionCipher sessionCipher) {
+        mSessionCipher = sessionCipher;
     }
 
     private STEP getStep() {
@@ -0,0 +1,47 @@
+package terry.bluesync.server.handler;
+
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.util.ByteBuf;
+
+/**
+ * A message written to many channels, its plain frame is packaged once in the constructor. The
+ * message coder of a plain channel sends that frame as it is, an encrypted channel only encrypts
+ * the serialized protobuf behind its header with its own session.
+ *
+ * Every channel takes a reference with {@link #retain()} before the message is written to it,
+ * the one the constructor holds is dropped with {@link #release()} once all writes are made.
+ */
+public final class BroadcastMessage {
+    private final BluesyncMessage mMessage;
+    private final ByteBuf mFrame;
+
+    public BroadcastMessage(BluesyncMessage message) throws BluesyncMessageCoderException {
+        mMessage = message;
+        mFrame = BluesyncMessageCoder.packageSharedFrame(message);
+    }
+
+    public BluesyncMessage message() {
+        return mMessage;
+    }
+
+    /**
+     * The plain frame, shared by every channel. Whoever sends it releases one reference.
+     * */
+    public ByteBuf frame() {
+        return mFrame;
+    }
+
+    public BroadcastMessage retain() {
+        mFrame.retain();
+        return this;
+    }
+
+    public void release() {
+        mFrame.release();
+    }
+
+    @Override
+    public String toString() {
+        return "broadcast " + mMessage;
+    }
+}
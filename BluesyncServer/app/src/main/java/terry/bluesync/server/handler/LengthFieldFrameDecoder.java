@@ -1,40 +1,73 @@
 package terry.bluesync.server.handler;
 
 
-import android.os.Handler;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import terry.bluesync.server.ble.AbstractChannelHandlerContext;
 import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
+import terry.bluesync.server.ble.CreditFrame;
 import terry.bluesync.server.protocol.BluesyncMessage;
 import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.util.ByteBuf;
 import terry.bluesync.server.util.ByteUtil;
 import terry.bluesync.server.util.LogUtil;
 
 public class LengthFieldFrameDecoder extends ChannelHandlerAdapter {
     private static final String TAG = LengthFieldFrameDecoder.class.getSimpleName();
-    private static final boolean DEBUG = true;
+    private static final boolean DEBUG = false;
     private static final int READ_TIMEOUT = 1 * 1000;
+    private static final int FIXED_HEAD_LEN = 8;
+    /** The length field has 2 bytes. */
+    public static final int MAX_FRAME_LENGTH = 0xFFFF;
 
-    protected byte[] mRecvBuf;
-    protected int mRecvBufSize;
+    protected final int mMaxFrameLength;
+    protected final byte[] mHead;
+    protected ByteBuf mRecvBuf;
     protected int mRecvDataLen;
     protected int mRecvOffset;
-    protected Handler mHandler;
+    protected ChannelHandlerInvoker mInvoker;
+    protected ChannelHandlerInvoker.ScheduledTask mReadTimeout;
+    protected boolean mIsChunkRead;
 
     Runnable mTimeoutRunnable = new Runnable() {
         @Override
         public void run() {
+            if (mRecvOffset == 0) {
+                mReadTimeout = null;
+                return;
+            }
+
+            if (mIsChunkRead) {
+                mIsChunkRead = false;
+                mReadTimeout = mInvoker.schedule(this, READ_TIMEOUT, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            mReadTimeout = null;
             printLog("read timeout");
             resetRecv();
         }
     };
 
-    public LengthFieldFrameDecoder(int size) {
-        mRecvBuf = new byte[size];
-        mRecvBufSize = size;
+    /**
+     * Nothing is allocated up front. A frame that comes in one chunk is read in place, a longer
+     * one is collected in a buffer of the channel's pool sized from its length field, and the
+     * buffer goes back to the pool as soon as the frame is read.
+     *
+     * @param maxFrameLength longest frame accepted, at most {@link #MAX_FRAME_LENGTH}
+     * */
+    public LengthFieldFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength < FIXED_HEAD_LEN || maxFrameLength > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("maxFrameLength=" + maxFrameLength);
+        }
+
+        mMaxFrameLength = maxFrameLength;
+        mHead = new byte[FIXED_HEAD_LEN];
+        mRecvBuf = null;
         mRecvDataLen = 0;
         mRecvOffset = 0;
-        mHandler = new Handler();
     }
 
     @Override
@@ -43,120 +76,185 @@ public class LengthFieldFrameDecoder extends ChannelHandlerAdapter {
         ctx.fireDescriptorWrite();
     }
 
+    @Override
+    public void inactive(AbstractChannelHandlerContext ctx) throws Exception {
+        resetRecv();
+        ctx.fireInactive();
+    }
+
     @Override
     public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
         byte[] bArr = (byte[]) msg;
         int size = ((byte[]) msg).length;
 
-        printLog("read bytes=" + ByteUtil.byteArray2HexString(bArr, size));
+        if (DEBUG) {
+            printLog("read bytes=" + ByteUtil.byteArray2HexString(bArr, size));
+        }
 
-        try {
-            System.arraycopy(bArr, 0, mRecvBuf, mRecvOffset, size);
-            mRecvOffset += size;
+        /** a chunk may hold the end of one frame, any number of whole frames and the start of the next */
+        int offset = 0;
+        while (offset < size) {
+            try {
+                if (mRecvOffset == 0) {
+                    if (bArr[offset] == (byte) 0) {
+                        checkZeroFill(bArr, offset, size);
+                        return;
+                    }
+
+                    /** a whole frame with nothing pending is read in place */
+                    if (size - offset >= FIXED_HEAD_LEN) {
+                        int frameLength = getFrameLength(bArr, offset);
+                        if (size - offset >= frameLength) {
+                            fireFrame(ctx, new ByteBuf(bArr, offset, frameLength));
+                            offset += frameLength;
+                            continue;
+                        }
+                    }
+                }
+
+                offset = readPartial(ctx, bArr, offset, size);
+            } catch (Exception exception) {
+                /** the rest of the chunk can not be framed any more */
+                int seqId = 0;
+                if (mRecvOffset >= FIXED_HEAD_LEN) {
+                    seqId = getSeqId(mHead, 0);
+                } else if (mRecvOffset == 0 && size - offset >= FIXED_HEAD_LEN) {
+                    seqId = getSeqId(bArr, offset);
+                }
+                handleException(ctx, exception, seqId);
+                resetRecv();
+                return;
+            }
+        }
+    }
 
-            if (mRecvOffset > 8 && mRecvDataLen == 0) {
-                mRecvDataLen = getFrameLength(mRecvBuf, size);
-                printLog("read frame total length=" + mRecvDataLen);
+    /**
+     * Collect the frame that spans chunks from bArr at offset.
+     *
+     * @return the offset after the bytes taken, where the next frame starts if this one ended
+     * */
+    private int readPartial(AbstractChannelHandlerContext ctx, byte[] bArr, int offset, int size) {
+        if (mRecvBuf == null) {
+            int headLength = Math.min(FIXED_HEAD_LEN - mRecvOffset, size - offset);
+            System.arraycopy(bArr, offset, mHead, mRecvOffset, headLength);
+            mRecvOffset += headLength;
+            offset += headLength;
+            if (mRecvOffset < FIXED_HEAD_LEN) {
+                waitForNextChunk(ctx);
+                return offset;
             }
 
-            if (isReadEnd()) {
-                byte[] readBuf = new byte[mRecvDataLen];
-                System.arraycopy(mRecvBuf, 0, readBuf, 0, mRecvDataLen);
+            mRecvDataLen = getFrameLength(mHead, 0);
+            printLog("read frame total length=" + mRecvDataLen);
 
-                printLog("read end, bytes=" + ByteUtil.byte2HexString(readBuf));
+            mRecvBuf = ctx.channel().alloc().allocate(mRecvDataLen);
+            System.arraycopy(mHead, 0, mRecvBuf.array(), mRecvBuf.offset(), FIXED_HEAD_LEN);
+        }
 
-                ctx.fireRead(readBuf);
-                resetRecv();
+        int length = Math.min(size - offset, mRecvDataLen - mRecvOffset);
+        System.arraycopy(bArr, offset, mRecvBuf.array(), mRecvBuf.offset() + mRecvOffset, length);
+        mRecvOffset += length;
+        offset += length;
+        if (mRecvOffset < mRecvDataLen) {
+            waitForNextChunk(ctx);
+            return offset;
+        }
 
-                mHandler.removeCallbacks(mTimeoutRunnable);
-            } else {
-                mHandler.removeCallbacks(mTimeoutRunnable);
-                mHandler.postDelayed(mTimeoutRunnable, READ_TIMEOUT);
-            }
-        } catch (ArrayIndexOutOfBoundsException outOfBoundsException) {
-            handleException(ctx, "array out of bounds", outOfBoundsException);
-        } catch (FrameDecodeException decodeException) {
-            handleException(ctx, decodeException.getMessage(), decodeException);
-        } catch (Exception exception) {
-            handleException(ctx, "inner exception", exception);
+        try {
+            fireFrame(ctx, mRecvBuf);
+        } finally {
+            resetRecv();
         }
+        return offset;
     }
 
-    private int getFrameLength(byte[] buffer, int size) {
-        StringBuilder stringBuilder = new StringBuilder(2);
-        stringBuilder.append(String.format("%02X", new Object[]{Byte.valueOf(buffer[0])}));
-        stringBuilder.append(String.format("%02X", new Object[]{Byte.valueOf(buffer[1])}));
-
-        if (buffer[0] == (byte) -2 && buffer[1] == (byte) 1) {
-            int length = ((buffer[2] & 255) << 8) + (buffer[3] & 255);
-            if (length > mRecvBufSize) {
-                throw new FrameDecodeException("receive data length exceed " + mRecvBufSize);
-            }
-
-            return length;
+    private void fireFrame(AbstractChannelHandlerContext ctx, ByteBuf frame) {
+        if (DEBUG) {
+            printLog("read end, bytes=" + frame.toHexString());
         }
 
-        throw new FrameDecodeException("can not found airsync protocol frame header, bArr=" + ByteUtil.byteArray2HexString(buffer, size));
+        /** handlers run inline on the invoker thread, the frame is not reused before this returns */
+        if (CreditFrame.isCreditFrame(frame)) {
+            ctx.channel().updateWriteCredits(CreditFrame.consumedFrames(frame), CreditFrame.window(frame));
+        } else {
+            ctx.fireRead(frame);
+            ctx.channel().frameConsumed();
+        }
     }
 
-    private boolean isReadEnd() {
-        if (mRecvOffset != 0 && mRecvDataLen != 0 && mRecvOffset == mRecvDataLen) {
-            return true;
+    /**
+     * The timeout is armed once for a frame rather than once per chunk, it drops the partial frame
+     * after a whole period without a chunk, between one and two READ_TIMEOUT after the last one.
+     * */
+    private void waitForNextChunk(AbstractChannelHandlerContext ctx) {
+        if (mReadTimeout == null) {
+            mIsChunkRead = false;
+            mInvoker = ctx.invoker();
+            mReadTimeout = mInvoker.schedule(mTimeoutRunnable, READ_TIMEOUT, TimeUnit.MILLISECONDS);
+        } else {
+            mIsChunkRead = true;
         }
+    }
 
-        if (mRecvOffset != 0 && mRecvDataLen != 0 && this.mRecvOffset > this.mRecvDataLen) {
-            if (isFillZeroEndOfFrame()) {
-                return true;
+    private int getFrameLength(byte[] head, int offset) {
+        if (head[offset] == (byte) -2 && head[offset + 1] == (byte) 1) {
+            int length = ((head[offset + 2] & 255) << 8) + (head[offset + 3] & 255);
+            if (length > mMaxFrameLength) {
+                throw new FrameDecodeException("receive data length exceed " + mMaxFrameLength);
+            }
+            if (length < FIXED_HEAD_LEN) {
+                throw new FrameDecodeException("receive data length " + length + " shorter than the head");
             }
 
-            throw new FrameDecodeException("read frame length error, expect was " + mRecvDataLen +
-                                        "but was " + mRecvOffset + " , bArr=" + ByteUtil.byte2HexString(mRecvBuf));
+            return length;
         }
 
-        return false;
+        throw new FrameDecodeException("can not found airsync protocol frame header, bArr=" + ByteUtil.byteArray2HexString(Arrays.copyOfRange(head, offset, offset + FIXED_HEAD_LEN), FIXED_HEAD_LEN));
     }
 
-    private boolean isFillZeroEndOfFrame() {
-        int remainLen = this.mRecvOffset - this.mRecvDataLen;
-        byte[] remainData = new byte[remainLen];
-        System.arraycopy(this.mRecvBuf, this.mRecvDataLen, remainData, 0, remainLen);
-
-        boolean isFillZero = true;
-        for (int i = 0; i < remainLen; i++) {
-            if (remainData[i] != (byte) 0) {
-                isFillZero = false;
+    /**
+     * Zero fill pads the last chunk of a frame, nothing follows it.
+     * */
+    private void checkZeroFill(byte[] bArr, int offset, int size) {
+        for (int i = offset; i < size; i++) {
+            if (bArr[i] != (byte) 0) {
+                throw new FrameDecodeException("read frame length error, zero fill at " + offset +
+                        " followed by data, bArr=" + ByteUtil.byteArray2HexString(bArr, size));
             }
         }
-
-        return isFillZero;
     }
 
     private void resetRecv() {
+        if (mRecvBuf != null) {
+            mRecvBuf.release();
+            mRecvBuf = null;
+        }
         this.mRecvDataLen = 0;
         this.mRecvOffset = 0;
     }
 
-    private void handleException(AbstractChannelHandlerContext ctx, String errMsg, Exception e) {
+    private void handleException(AbstractChannelHandlerContext ctx, Exception e, int seqId) {
+        String errMsg;
+        if (e instanceof ArrayIndexOutOfBoundsException) {
+            errMsg = "array out of bounds";
+        } else if (e instanceof FrameDecodeException) {
+            errMsg = e.getMessage();
+        } else {
+            errMsg = "inner exception";
+        }
         LogUtil.e(TAG, errMsg + ", exception=" + e.toString());
 
-        if (getSeqId() != 0) {
+        if (seqId != 0) {
             BluesyncProto.BaseResponse.Builder builder = BluesyncProto.BaseResponse.newBuilder();
             builder.setErrCode(BluesyncProto.EmErrorCode.EEC_decode_VALUE);
             builder.setErrMsg(errMsg);
-            BluesyncMessage errResponse = new BluesyncMessage(getSeqId(), BluesyncProto.EmCmdId.ECI_error, builder.build());
+            BluesyncMessage errResponse = new BluesyncMessage(seqId, BluesyncProto.EmCmdId.ECI_error, builder.build());
             ctx.fireWrite(errResponse);
         }
-
-        resetRecv();
     }
 
-    private int getSeqId() {
-        if (mRecvOffset > 8) {
-            int seq = ((mRecvBuf[6] & 0xFF) << 8) | (mRecvBuf[7] & 0xFF);
-            return seq;
-        }
-
-        return 0;
+    private static int getSeqId(byte[] head, int offset) {
+        return ((head[offset + 6] & 0xFF) << 8) | (head[offset + 7] & 0xFF);
     }
 
     private void printLog(String msg) {
@@ -0,0 +1,196 @@
+package terry.bluesync.server.handler;
+
+import com.google.protobuf.ByteString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.ConcurrentIntObjectMap;
+import terry.bluesync.server.util.HashedWheelTimer;
+import terry.bluesync.server.util.LogUtil;
+
+/**
+ * Requests sent on one channel and waiting for their response, matched by seqId. Any number may
+ * be in flight at once, each with its own timeout, and responses may come back in any order.
+ *
+ * Goes after the message coder, responses and errors to a pending request are consumed here
+ * and every other message is passed on.
+ */
+public class RequestHandler extends ChannelHandlerAdapter {
+    private static final String TAG = RequestHandler.class.getSimpleName();
+    private static final boolean DEBUG = false;
+
+    public interface Callback {
+        void onResponse(ByteString data);
+        void onError(String message);
+    }
+
+    private final HashedWheelTimer mTimer;
+    private final ConcurrentIntObjectMap<Request> mPending;
+    private volatile Channel mChannel;
+
+    /**
+     * @param timer runs the timeouts, usually shared by the handlers of every channel
+     * */
+    public RequestHandler(HashedWheelTimer timer) {
+        mTimer = timer;
+        mPending = new ConcurrentIntObjectMap<>();
+    }
+
+    /**
+     * Write a request with data and call callback once with its response or the error, from the
+     * invoker thread for a response and from the timer thread for a timeout.
+     *
+     * @param timeout milliseconds to wait for the response
+     * @return the request, cancel it to stop waiting
+     * */
+    public Request sendRequest(ByteString data, int timeout, Callback callback) {
+        BluesyncMessage message = BluesyncProtoUtil.getSendDataRequest(data);
+        Request request = new Request(message.getSeqId(), callback);
+
+        Channel channel = mChannel;
+        if (channel == null) {
+            request.mCallback.onError("bluesync disconnected");
+            return request;
+        }
+
+        if (mPending.putIfAbsent(request.mSeqId, request) != null) {
+            request.mCallback.onError("seqId " + request.mSeqId + " is still waiting for response");
+            return request;
+        }
+        request.mTimeout = mTimer.newTimeout(request, timeout, TimeUnit.MILLISECONDS);
+
+        channel.write(message);
+        return request;
+    }
+
+    public int pendingRequests() {
+        return mPending.size();
+    }
+
+    /**
+     * Fail every request waiting for a response.
+     * */
+    public void failAll(String message) {
+        List<Request> requests = new ArrayList<>();
+        mPending.drainTo(requests);
+
+        for (Request request : requests) {
+            request.fail(message);
+        }
+    }
+
+    @Override
+    public void active(AbstractChannelHandlerContext ctx) throws Exception {
+        mChannel = ctx.channel();
+        ctx.fireActive();
+    }
+
+    @Override
+    public void inactive(AbstractChannelHandlerContext ctx) throws Exception {
+        mChannel = null;
+        failAll("bluesync disconnected");
+        ctx.fireInactive();
+    }
+
+    @Override
+    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof BluesyncMessage) {
+            BluesyncMessage message = (BluesyncMessage) msg;
+            if (message.getCmdId() == BluesyncProto.EmCmdId.ECI_resp_sendData) {
+                Request request = mPending.remove(message.getSeqId());
+                if (request != null) {
+                    request.complete(message);
+                    return;
+                }
+            } else if (message.getCmdId() == BluesyncProto.EmCmdId.ECI_error) {
+                /** the peer could not handle the request, it answers with the request's seqId */
+                Request request = mPending.remove(message.getSeqId());
+                if (request != null) {
+                    BluesyncProto.BaseResponse error = (BluesyncProto.BaseResponse) message.getProtobufData();
+                    request.fail(error.hasErrMsg() ? error.getErrMsg() : "error code " + error.getErrCode());
+                    return;
+                }
+            }
+        }
+
+        ctx.fireRead(msg);
+    }
+
+    /**
+     * A request waiting for its response, it runs as its own timeout task.
+     * */
+    public final class Request implements Runnable {
+        private final int mSeqId;
+        private final Callback mCallback;
+        private volatile HashedWheelTimer.Timeout mTimeout;
+
+        Request(int seqId, Callback callback) {
+            mSeqId = seqId;
+            mCallback = callback;
+        }
+
+        public int seqId() {
+            return mSeqId;
+        }
+
+        /**
+         * Stop waiting for the response, the callback is not called afterwards.
+         *
+         * @return false if the request already completed or failed
+         * */
+        public boolean cancel() {
+            if (!mPending.remove(mSeqId, this)) {
+                return false;
+            }
+
+            cancelTimeout();
+            printLog("request cancelled, seqId=" + mSeqId);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (mPending.remove(mSeqId, this)) {
+                printLog("response timeout, seqId=" + mSeqId);
+                mCallback.onError("response timeout");
+            }
+        }
+
+        void complete(BluesyncMessage message) {
+            cancelTimeout();
+
+            BluesyncProto.SendDataResponse response = (BluesyncProto.SendDataResponse) message.getProtobufData();
+            mCallback.onResponse(response.getData());
+        }
+
+        void fail(String message) {
+            cancelTimeout();
+            mCallback.onError(message);
+        }
+
+        /**
+         * The response may beat the timeout being scheduled, a timeout left behind finds the
+         * request gone and does nothing.
+         * */
+        private void cancelTimeout() {
+            HashedWheelTimer.Timeout timeout = mTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    private void printLog(String message) {
+        if (DEBUG) {
+            LogUtil.d(TAG, message);
+        }
+    }
+}
@@ -89,6 +89,38 @@ public final class BluesyncProto {
      * <code>ECI_push_recvData = 30001;</code>
      */
     ECI_push_recvData(30001),
+    /**
+     * <pre>
+     * 打开数据流，超过单帧上限的数据分块传输，支持双向请求
+     * </pre>
+     *
+     * <code>ECI_req_streamOpen = 40001;</code>
+     */
+    ECI_req_streamOpen(40001),
+    /**
+     * <pre>
+     * 打开数据流应答，返回接收方已保存的长度
+     * </pre>
+     *
+     * <code>ECI_resp_streamOpen = 40002;</code>
+     */
+    ECI_resp_streamOpen(40002),
+    /**
+     * <pre>
+     * 数据流分块，发送方 -&gt; 接收方
+     * </pre>
+     *
+     * <code>ECI_push_streamData = 40003;</code>
+     */
+    ECI_push_streamData(40003),
+    /**
+     * <pre>
+     * 数据流确认，接收方每收到若干分块回复一次
+     * </pre>
+     *
+     * <code>ECI_push_streamAck = 40004;</code>
+     */
+    ECI_push_streamAck(40004),
     ;
 
     /**
@@ -159,6 +191,38 @@ public final class BluesyncProto {
      * <code>ECI_push_recvData = 30001;</code>
      */
     public static final int ECI_push_recvData_VALUE = 30001;
+    /**
+     * <pre>
+     * 打开数据流，超过单帧上限的数据分块传输，支持双向请求
+     * </pre>
+     *
+     * <code>ECI_req_streamOpen = 40001;</code>
+     */
+    public static final int ECI_req_streamOpen_VALUE = 40001;
+    /**
+     * <pre>
+     * 打开数据流应答，返回接收方已保存的长度
+     * </pre>
+     *
+     * <code>ECI_resp_streamOpen = 40002;</code>
+     */
+    public static final int ECI_resp_streamOpen_VALUE = 40002;
+    /**
+     * <pre>
+     * 数据流分块，发送方 -&gt; 接收方
+     * </pre>
+     *
+     * <code>ECI_push_streamData = 40003;</code>
+     */
+    public static final int ECI_push_streamData_VALUE = 40003;
+    /**
+     * <pre>
+     * 数据流确认，接收方每收到若干分块回复一次
+     * </pre>
+     *
+     * <code>ECI_push_streamAck = 40004;</code>
+     */
+    public static final int ECI_push_streamAck_VALUE = 40004;
 
 
     public final int getNumber() {
@@ -184,6 +248,10 @@ public final class BluesyncProto {
         case 20001: return ECI_req_sendData;
         case 20002: return ECI_resp_sendData;
         case 30001: return ECI_push_recvData;
+        case 40001: return ECI_req_streamOpen;
+        case 40002: return ECI_resp_streamOpen;
+        case 40003: return ECI_push_streamData;
+        case 40004: return ECI_push_streamAck;
         default: return null;
       }
     }
@@ -497,6 +565,133 @@ public final class BluesyncProto {
     // @@protoc_insertion_point(enum_scope:EmPlatformType)
   }
 
+  /**
+   * <pre>
+   * 数据传输加密方式，旧版本的 IsEncrypt 为 bool，false/true 与 0/1 兼容
+   * </pre>
+   *
+   * Protobuf enum {@code EmEncryptMode}
+   */
+  public enum EmEncryptMode
+      implements com.google.protobuf.ProtocolMessageEnum {
+    /**
+     * <pre>
+     * 不加密
+     * </pre>
+     *
+     * <code>EEM_none = 0;</code>
+     */
+    EEM_none(0),
+    /**
+     * <pre>
+     * AES/CBC/PKCS7，sessionKey 同时作为 IV
+     * </pre>
+     *
+     * <code>EEM_aes_cbc = 1;</code>
+     */
+    EEM_aes_cbc(1),
+    /**
+     * <pre>
+     * AES/CTR，每条消息携带 8 字节 nonce，不需要填充
+     * </pre>
+     *
+     * <code>EEM_aes_ctr = 2;</code>
+     */
+    EEM_aes_ctr(2),
+    ;
+
+    /**
+     * <pre>
+     * 不加密
+     * </pre>
+     *
+     * <code>EEM_none = 0;</code>
+     */
+    public static final int EEM_none_VALUE = 0;
+    /**
+     * <pre>
+     * AES/CBC/PKCS7，sessionKey 同时作为 IV
+     * </pre>
+     *
+     * <code>EEM_aes_cbc = 1;</code>
+     */
+    public static final int EEM_aes_cbc_VALUE = 1;
+    /**
+     * <pre>
+     * AES/CTR，每条消息携带 8 字节 nonce，不需要填充
+     * </pre>
+     *
+     * <code>EEM_aes_ctr = 2;</code>
+     */
+    public static final int EEM_aes_ctr_VALUE = 2;
+
+
+    public final int getNumber() {
+      return value;
+    }
+
+    /**
+     * @deprecated Use {@link #forNumber(int)} instead.
+     */
+    @Deprecated
+    public static EmEncryptMode valueOf(int value) {
+      return forNumber(value);
+    }
+
+    public static EmEncryptMode forNumber(int value) {
+      switch (value) {
+        case 0: return EEM_none;
+        case 1: return EEM_aes_cbc;
+        case 2: return EEM_aes_ctr;
+        default: return null;
+      }
+    }
+
+    public static com.google.protobuf.Internal.EnumLiteMap<EmEncryptMode>
+        internalGetValueMap() {
+      return internalValueMap;
+    }
+    private static final com.google.protobuf.Internal.EnumLiteMap<
+        EmEncryptMode> internalValueMap =
+          new com.google.protobuf.Internal.EnumLiteMap<EmEncryptMode>() {
+            public EmEncryptMode findValueByNumber(int number) {
+              return EmEncryptMode.forNumber(number);
+            }
+          };
+
+    public final com.google.protobuf.Descriptors.EnumValueDescriptor
+        getValueDescriptor() {
+      return getDescriptor().getValues().get(ordinal());
+    }
+    public final com.google.protobuf.Descriptors.EnumDescriptor
+        getDescriptorForType() {
+      return getDescriptor();
+    }
+    public static final com.google.protobuf.Descriptors.EnumDescriptor
+        getDescriptor() {
+      return BluesyncProto.getDescriptor().getEnumTypes().get(3);
+    }
+
+    private static final EmEncryptMode[] VALUES = values();
+
+    public static EmEncryptMode valueOf(
+        com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
+      if (desc.getType() != getDescriptor()) {
+        throw new IllegalArgumentException(
+          "EnumValueDescriptor is not for this type.");
+      }
+      return VALUES[desc.getIndex()];
+    }
+
+    private final int value;
+
+    private EmEncryptMode(int value) {
+      this.value = value;
+    }
+
+    // @@protoc_insertion_point(enum_scope:EmEncryptMode)
+  }
+
   public interface BaseRequestOrBuilder extends
       // @@protoc_insertion_point(interface_extends:BaseRequest)
       com.google.protobuf.MessageOrBuilder {
@@ -1986,20 +2181,20 @@ public final class BluesyncProto {
 
     /**
      * <pre>
-     * 数据传输是否加密
+     * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
      * </pre>
      *
-     * <code>required bool IsEncrypt = 6;</code>
+     * <code>required uint32 IsEncrypt = 6;</code>
      */
     boolean hasIsEncrypt();
     /**
      * <pre>
-     * 数据传输是否加密
+     * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
      * </pre>
      *
-     * <code>required bool IsEncrypt = 6;</code>
+     * <code>required uint32 IsEncrypt = 6;</code>
      */
-    boolean getIsEncrypt();
+    int getIsEncrypt();
 
     /**
      * <pre>
@@ -2047,7 +2242,7 @@ public final class BluesyncProto {
       serialNo_ = "";
       macAddress_ = com.google.protobuf.ByteString.EMPTY;
       aesSign_ = com.google.protobuf.ByteString.EMPTY;
-      isEncrypt_ = false;
+      isEncrypt_ = 0;
       extraData_ = "";
     }
 
@@ -2116,7 +2311,7 @@ public final class BluesyncProto {
             }
             case 48: {
               bitField0_ |= 0x00000020;
-              isEncrypt_ = input.readBool();
+              isEncrypt_ = input.readUInt32();
               break;
             }
             case 58: {
@@ -2326,25 +2521,25 @@ public final class BluesyncProto {
     }
 
     public static final int ISENCRYPT_FIELD_NUMBER = 6;
-    private boolean isEncrypt_;
+    private int isEncrypt_;
     /**
      * <pre>
-     * 数据传输是否加密
+     * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
      * </pre>
      *
-     * <code>required bool IsEncrypt = 6;</code>
+     * <code>required uint32 IsEncrypt = 6;</code>
      */
     public boolean hasIsEncrypt() {
       return ((bitField0_ & 0x00000020) == 0x00000020);
     }
     /**
      * <pre>
-     * 数据传输是否加密
+     * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
      * </pre>
      *
-     * <code>required bool IsEncrypt = 6;</code>
+     * <code>required uint32 IsEncrypt = 6;</code>
      */
-    public boolean getIsEncrypt() {
+    public int getIsEncrypt() {
       return isEncrypt_;
     }
 
@@ -2454,7 +2649,7 @@ public final class BluesyncProto {
         output.writeBytes(5, aesSign_);
       }
       if (((bitField0_ & 0x00000020) == 0x00000020)) {
-        output.writeBool(6, isEncrypt_);
+        output.writeUInt32(6, isEncrypt_);
       }
       if (((bitField0_ & 0x00000040) == 0x00000040)) {
         com.google.protobuf.GeneratedMessageV3.writeString(output, 7, extraData_);
@@ -2487,7 +2682,7 @@ public final class BluesyncProto {
       }
       if (((bitField0_ & 0x00000020) == 0x00000020)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBoolSize(6, isEncrypt_);
+          .computeUInt32Size(6, isEncrypt_);
       }
       if (((bitField0_ & 0x00000040) == 0x00000040)) {
         size += com.google.protobuf.GeneratedMessageV3.computeStringSize(7, extraData_);
@@ -2577,8 +2772,7 @@ public final class BluesyncProto {
       }
       if (hasIsEncrypt()) {
         hash = (37 * hash) + ISENCRYPT_FIELD_NUMBER;
-        hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
-            getIsEncrypt());
+        hash = (53 * hash) + getIsEncrypt();
       }
       if (hasExtraData()) {
         hash = (37 * hash) + EXTRADATA_FIELD_NUMBER;
@@ -2721,7 +2915,7 @@ public final class BluesyncProto {
         bitField0_ = (bitField0_ & ~0x00000008);
         aesSign_ = com.google.protobuf.ByteString.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000010);
-        isEncrypt_ = false;
+        isEncrypt_ = 0;
         bitField0_ = (bitField0_ & ~0x00000020);
         extraData_ = "";
         bitField0_ = (bitField0_ & ~0x00000040);
@@ -3316,35 +3510,35 @@ public final class BluesyncProto {
         return this;
       }
 
-      private boolean isEncrypt_ ;
+      private int isEncrypt_ ;
       /**
        * <pre>
-       * 数据传输是否加密
+       * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
        * </pre>
        *
-       * <code>required bool IsEncrypt = 6;</code>
+       * <code>required uint32 IsEncrypt = 6;</code>
        */
       public boolean hasIsEncrypt() {
         return ((bitField0_ & 0x00000020) == 0x00000020);
       }
       /**
        * <pre>
-       * 数据传输是否加密
+       * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
        * </pre>
        *
-       * <code>required bool IsEncrypt = 6;</code>
+       * <code>required uint32 IsEncrypt = 6;</code>
        */
-      public boolean getIsEncrypt() {
+      public int getIsEncrypt() {
         return isEncrypt_;
       }
       /**
        * <pre>
-       * 数据传输是否加密
+       * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
        * </pre>
        *
-       * <code>required bool IsEncrypt = 6;</code>
+       * <code>required uint32 IsEncrypt = 6;</code>
        */
-      public Builder setIsEncrypt(boolean value) {
+      public Builder setIsEncrypt(int value) {
         bitField0_ |= 0x00000020;
         isEncrypt_ = value;
         onChanged();
@@ -3352,14 +3546,14 @@ public final class BluesyncProto {
       }
       /**
        * <pre>
-       * 数据传输是否加密
+       * 数据传输加密方式，取值见EmEncryptMode，服务端填写支持的最高方式
        * </pre>
        *
-       * <code>required bool IsEncrypt = 6;</code>
+       * <code>required uint32 IsEncrypt = 6;</code>
        */
       public Builder clearIsEncrypt() {
         bitField0_ = (bitField0_ & ~0x00000020);
-        isEncrypt_ = false;
+        isEncrypt_ = 0;
         onChanged();
         return this;
       }
@@ -3571,6 +3765,23 @@ public final class BluesyncProto {
      */
     com.google.protobuf.ByteString
         getExtraDataBytes();
+
+    /**
+     * <pre>
+     * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+     * </pre>
+     *
+     * <code>optional uint32 EncryptMode = 4;</code>
+     */
+    boolean hasEncryptMode();
+    /**
+     * <pre>
+     * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+     * </pre>
+     *
+     * <code>optional uint32 EncryptMode = 4;</code>
+     */
+    int getEncryptMode();
   }
   /**
    * Protobuf type {@code AuthResponse}
@@ -3586,6 +3797,7 @@ public final class BluesyncProto {
     private AuthResponse() {
       aesSessionKey_ = com.google.protobuf.ByteString.EMPTY;
       extraData_ = "";
+      encryptMode_ = 0;
     }
 
     @Override
@@ -3640,6 +3852,11 @@ public final class BluesyncProto {
               extraData_ = bs;
               break;
             }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              encryptMode_ = input.readUInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -3763,6 +3980,29 @@ public final class BluesyncProto {
       }
     }
 
+    public static final int ENCRYPTMODE_FIELD_NUMBER = 4;
+    private int encryptMode_;
+    /**
+     * <pre>
+     * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+     * </pre>
+     *
+     * <code>optional uint32 EncryptMode = 4;</code>
+     */
+    public boolean hasEncryptMode() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <pre>
+     * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+     * </pre>
+     *
+     * <code>optional uint32 EncryptMode = 4;</code>
+     */
+    public int getEncryptMode() {
+      return encryptMode_;
+    }
+
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
@@ -3792,6 +4032,9 @@ public final class BluesyncProto {
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
         com.google.protobuf.GeneratedMessageV3.writeString(output, 3, extraData_);
       }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt32(4, encryptMode_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -3811,6 +4054,10 @@ public final class BluesyncProto {
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
         size += com.google.protobuf.GeneratedMessageV3.computeStringSize(3, extraData_);
       }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(4, encryptMode_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -3843,6 +4090,11 @@ public final class BluesyncProto {
         result = result && getExtraData()
             .equals(other.getExtraData());
       }
+      result = result && (hasEncryptMode() == other.hasEncryptMode());
+      if (hasEncryptMode()) {
+        result = result && (getEncryptMode()
+            == other.getEncryptMode());
+      }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -3866,6 +4118,10 @@ public final class BluesyncProto {
         hash = (37 * hash) + EXTRADATA_FIELD_NUMBER;
         hash = (53 * hash) + getExtraData().hashCode();
       }
+      if (hasEncryptMode()) {
+        hash = (37 * hash) + ENCRYPTMODE_FIELD_NUMBER;
+        hash = (53 * hash) + getEncryptMode();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -3995,6 +4251,8 @@ public final class BluesyncProto {
         bitField0_ = (bitField0_ & ~0x00000002);
         extraData_ = "";
         bitField0_ = (bitField0_ & ~0x00000004);
+        encryptMode_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
 
@@ -4035,6 +4293,10 @@ public final class BluesyncProto {
           to_bitField0_ |= 0x00000004;
         }
         result.extraData_ = extraData_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.encryptMode_ = encryptMode_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -4088,6 +4350,9 @@ public final class BluesyncProto {
           extraData_ = other.extraData_;
           onChanged();
         }
+        if (other.hasEncryptMode()) {
+          setEncryptMode(other.getEncryptMode());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -4390,6 +4655,54 @@ public final class BluesyncProto {
         onChanged();
         return this;
       }
+
+      private int encryptMode_ ;
+      /**
+       * <pre>
+       * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+       * </pre>
+       *
+       * <code>optional uint32 EncryptMode = 4;</code>
+       */
+      public boolean hasEncryptMode() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <pre>
+       * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+       * </pre>
+       *
+       * <code>optional uint32 EncryptMode = 4;</code>
+       */
+      public int getEncryptMode() {
+        return encryptMode_;
+      }
+      /**
+       * <pre>
+       * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+       * </pre>
+       *
+       * <code>optional uint32 EncryptMode = 4;</code>
+       */
+      public Builder setEncryptMode(int value) {
+        bitField0_ |= 0x00000008;
+        encryptMode_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 客户端实际采用的加密方式，取值见EmEncryptMode，旧版本不返回时按 EEM_aes_cbc 处理
+       * </pre>
+       *
+       * <code>optional uint32 EncryptMode = 4;</code>
+       */
+      public Builder clearEncryptMode() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        encryptMode_ = 0;
+        onChanged();
+        return this;
+      }
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
@@ -8688,59 +9001,3805 @@ public final class BluesyncProto {
 
   }
 
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_BaseRequest_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_BaseRequest_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_BaseResponse_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_BaseResponse_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_BasePush_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_BasePush_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_AuthRequest_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_AuthRequest_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_AuthResponse_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_AuthResponse_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_InitRequest_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_InitRequest_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_InitResponse_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_InitResponse_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_SendDataRequest_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_SendDataRequest_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_SendDataResponse_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_SendDataResponse_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_RecvDataPush_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_RecvDataPush_fieldAccessorTable;
+  public interface StreamOpenRequestOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:StreamOpenRequest)
+      com.google.protobuf.MessageOrBuilder {
 
-  public static com.google.protobuf.Descriptors.FileDescriptor
-      getDescriptor() {
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    boolean hasBaseRequest();
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    BaseRequest getBaseRequest();
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    BaseRequestOrBuilder getBaseRequestOrBuilder();
+
+    /**
+     * <pre>
+     * 数据流 id，断线重连后使用相同的 id 续传
+     * </pre>
+     *
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    boolean hasStreamId();
+    /**
+     * <pre>
+     * 数据流 id，断线重连后使用相同的 id 续传
+     * </pre>
+     *
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    int getStreamId();
+
+    /**
+     * <pre>
+     * 数据总长度
+     * </pre>
+     *
+     * <code>required uint64 Length = 3;</code>
+     */
+    boolean hasLength();
+    /**
+     * <pre>
+     * 数据总长度
+     * </pre>
+     *
+     * <code>required uint64 Length = 3;</code>
+     */
+    long getLength();
+
+    /**
+     * <pre>
+     * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+     * </pre>
+     *
+     * <code>required uint32 Window = 4;</code>
+     */
+    boolean hasWindow();
+    /**
+     * <pre>
+     * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+     * </pre>
+     *
+     * <code>required uint32 Window = 4;</code>
+     */
+    int getWindow();
+  }
+  /**
+   * <pre>
+   * 分块传输 --------------------------------------------
+   * </pre>
+   *
+   * Protobuf type {@code StreamOpenRequest}
+   */
+  public  static final class StreamOpenRequest extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:StreamOpenRequest)
+      StreamOpenRequestOrBuilder {
+    // Use StreamOpenRequest.newBuilder() to construct.
+    private StreamOpenRequest(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private StreamOpenRequest() {
+      streamId_ = 0;
+      length_ = 0L;
+      window_ = 0;
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private StreamOpenRequest(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              BaseRequest.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                subBuilder = baseRequest_.toBuilder();
+              }
+              baseRequest_ = input.readMessage(BaseRequest.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(baseRequest_);
+                baseRequest_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000001;
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              streamId_ = input.readUInt32();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              length_ = input.readUInt64();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              window_ = input.readUInt32();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return BluesyncProto.internal_static_StreamOpenRequest_descriptor;
+    }
+
+    protected FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return BluesyncProto.internal_static_StreamOpenRequest_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              StreamOpenRequest.class, Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int BASEREQUEST_FIELD_NUMBER = 1;
+    private BaseRequest baseRequest_;
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    public boolean hasBaseRequest() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    public BaseRequest getBaseRequest() {
+      return baseRequest_ == null ? BaseRequest.getDefaultInstance() : baseRequest_;
+    }
+    /**
+     * <code>required .BaseRequest BaseRequest = 1;</code>
+     */
+    public BaseRequestOrBuilder getBaseRequestOrBuilder() {
+      return baseRequest_ == null ? BaseRequest.getDefaultInstance() : baseRequest_;
+    }
+
+    public static final int STREAMID_FIELD_NUMBER = 2;
+    private int streamId_;
+    /**
+     * <pre>
+     * 数据流 id，断线重连后使用相同的 id 续传
+     * </pre>
+     *
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public boolean hasStreamId() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <pre>
+     * 数据流 id，断线重连后使用相同的 id 续传
+     * </pre>
+     *
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public int getStreamId() {
+      return streamId_;
+    }
+
+    public static final int LENGTH_FIELD_NUMBER = 3;
+    private long length_;
+    /**
+     * <pre>
+     * 数据总长度
+     * </pre>
+     *
+     * <code>required uint64 Length = 3;</code>
+     */
+    public boolean hasLength() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <pre>
+     * 数据总长度
+     * </pre>
+     *
+     * <code>required uint64 Length = 3;</code>
+     */
+    public long getLength() {
+      return length_;
+    }
+
+    public static final int WINDOW_FIELD_NUMBER = 4;
+    private int window_;
+    /**
+     * <pre>
+     * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+     * </pre>
+     *
+     * <code>required uint32 Window = 4;</code>
+     */
+    public boolean hasWindow() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <pre>
+     * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+     * </pre>
+     *
+     * <code>required uint32 Window = 4;</code>
+     */
+    public int getWindow() {
+      return window_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasBaseRequest()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasStreamId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasLength()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasWindow()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeMessage(1, getBaseRequest());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeUInt32(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(3, length_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt32(4, window_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getBaseRequest());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, length_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(4, window_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof StreamOpenRequest)) {
+        return super.equals(obj);
+      }
+      StreamOpenRequest other = (StreamOpenRequest) obj;
+
+      boolean result = true;
+      result = result && (hasBaseRequest() == other.hasBaseRequest());
+      if (hasBaseRequest()) {
+        result = result && getBaseRequest()
+            .equals(other.getBaseRequest());
+      }
+      result = result && (hasStreamId() == other.hasStreamId());
+      if (hasStreamId()) {
+        result = result && (getStreamId()
+            == other.getStreamId());
+      }
+      result = result && (hasLength() == other.hasLength());
+      if (hasLength()) {
+        result = result && (getLength()
+            == other.getLength());
+      }
+      result = result && (hasWindow() == other.hasWindow());
+      if (hasWindow()) {
+        result = result && (getWindow()
+            == other.getWindow());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasBaseRequest()) {
+        hash = (37 * hash) + BASEREQUEST_FIELD_NUMBER;
+        hash = (53 * hash) + getBaseRequest().hashCode();
+      }
+      if (hasStreamId()) {
+        hash = (37 * hash) + STREAMID_FIELD_NUMBER;
+        hash = (53 * hash) + getStreamId();
+      }
+      if (hasLength()) {
+        hash = (37 * hash) + LENGTH_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getLength());
+      }
+      if (hasWindow()) {
+        hash = (37 * hash) + WINDOW_FIELD_NUMBER;
+        hash = (53 * hash) + getWindow();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static StreamOpenRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamOpenRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamOpenRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamOpenRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamOpenRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamOpenRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamOpenRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static StreamOpenRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamOpenRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamOpenRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(StreamOpenRequest prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(
+        BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * <pre>
+     * 分块传输 --------------------------------------------
+     * </pre>
+     *
+     * Protobuf type {@code StreamOpenRequest}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:StreamOpenRequest)
+        StreamOpenRequestOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return BluesyncProto.internal_static_StreamOpenRequest_descriptor;
+      }
+
+      protected FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return BluesyncProto.internal_static_StreamOpenRequest_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                StreamOpenRequest.class, Builder.class);
+      }
+
+      // Construct using BluesyncProto.StreamOpenRequest.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getBaseRequestFieldBuilder();
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (baseRequestBuilder_ == null) {
+          baseRequest_ = null;
+        } else {
+          baseRequestBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        streamId_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        length_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        window_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return BluesyncProto.internal_static_StreamOpenRequest_descriptor;
+      }
+
+      public StreamOpenRequest getDefaultInstanceForType() {
+        return StreamOpenRequest.getDefaultInstance();
+      }
+
+      public StreamOpenRequest build() {
+        StreamOpenRequest result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public StreamOpenRequest buildPartial() {
+        StreamOpenRequest result = new StreamOpenRequest(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        if (baseRequestBuilder_ == null) {
+          result.baseRequest_ = baseRequest_;
+        } else {
+          result.baseRequest_ = baseRequestBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.streamId_ = streamId_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.length_ = length_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.window_ = window_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof StreamOpenRequest) {
+          return mergeFrom((StreamOpenRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(StreamOpenRequest other) {
+        if (other == StreamOpenRequest.getDefaultInstance()) return this;
+        if (other.hasBaseRequest()) {
+          mergeBaseRequest(other.getBaseRequest());
+        }
+        if (other.hasStreamId()) {
+          setStreamId(other.getStreamId());
+        }
+        if (other.hasLength()) {
+          setLength(other.getLength());
+        }
+        if (other.hasWindow()) {
+          setWindow(other.getWindow());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasBaseRequest()) {
+          return false;
+        }
+        if (!hasStreamId()) {
+          return false;
+        }
+        if (!hasLength()) {
+          return false;
+        }
+        if (!hasWindow()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        StreamOpenRequest parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (StreamOpenRequest) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private BaseRequest baseRequest_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BaseRequest, BaseRequest.Builder, BaseRequestOrBuilder> baseRequestBuilder_;
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public boolean hasBaseRequest() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public BaseRequest getBaseRequest() {
+        if (baseRequestBuilder_ == null) {
+          return baseRequest_ == null ? BaseRequest.getDefaultInstance() : baseRequest_;
+        } else {
+          return baseRequestBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public Builder setBaseRequest(BaseRequest value) {
+        if (baseRequestBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          baseRequest_ = value;
+          onChanged();
+        } else {
+          baseRequestBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public Builder setBaseRequest(
+          BaseRequest.Builder builderForValue) {
+        if (baseRequestBuilder_ == null) {
+          baseRequest_ = builderForValue.build();
+          onChanged();
+        } else {
+          baseRequestBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public Builder mergeBaseRequest(BaseRequest value) {
+        if (baseRequestBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001) &&
+              baseRequest_ != null &&
+              baseRequest_ != BaseRequest.getDefaultInstance()) {
+            baseRequest_ =
+              BaseRequest.newBuilder(baseRequest_).mergeFrom(value).buildPartial();
+          } else {
+            baseRequest_ = value;
+          }
+          onChanged();
+        } else {
+          baseRequestBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public Builder clearBaseRequest() {
+        if (baseRequestBuilder_ == null) {
+          baseRequest_ = null;
+          onChanged();
+        } else {
+          baseRequestBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public BaseRequest.Builder getBaseRequestBuilder() {
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return getBaseRequestFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      public BaseRequestOrBuilder getBaseRequestOrBuilder() {
+        if (baseRequestBuilder_ != null) {
+          return baseRequestBuilder_.getMessageOrBuilder();
+        } else {
+          return baseRequest_ == null ?
+              BaseRequest.getDefaultInstance() : baseRequest_;
+        }
+      }
+      /**
+       * <code>required .BaseRequest BaseRequest = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BaseRequest, BaseRequest.Builder, BaseRequestOrBuilder>
+          getBaseRequestFieldBuilder() {
+        if (baseRequestBuilder_ == null) {
+          baseRequestBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              BaseRequest, BaseRequest.Builder, BaseRequestOrBuilder>(
+                  getBaseRequest(),
+                  getParentForChildren(),
+                  isClean());
+          baseRequest_ = null;
+        }
+        return baseRequestBuilder_;
+      }
+
+      private int streamId_ ;
+      /**
+       * <pre>
+       * 数据流 id，断线重连后使用相同的 id 续传
+       * </pre>
+       *
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public boolean hasStreamId() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <pre>
+       * 数据流 id，断线重连后使用相同的 id 续传
+       * </pre>
+       *
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public int getStreamId() {
+        return streamId_;
+      }
+      /**
+       * <pre>
+       * 数据流 id，断线重连后使用相同的 id 续传
+       * </pre>
+       *
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder setStreamId(int value) {
+        bitField0_ |= 0x00000002;
+        streamId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 数据流 id，断线重连后使用相同的 id 续传
+       * </pre>
+       *
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder clearStreamId() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        streamId_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long length_ ;
+      /**
+       * <pre>
+       * 数据总长度
+       * </pre>
+       *
+       * <code>required uint64 Length = 3;</code>
+       */
+      public boolean hasLength() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <pre>
+       * 数据总长度
+       * </pre>
+       *
+       * <code>required uint64 Length = 3;</code>
+       */
+      public long getLength() {
+        return length_;
+      }
+      /**
+       * <pre>
+       * 数据总长度
+       * </pre>
+       *
+       * <code>required uint64 Length = 3;</code>
+       */
+      public Builder setLength(long value) {
+        bitField0_ |= 0x00000004;
+        length_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 数据总长度
+       * </pre>
+       *
+       * <code>required uint64 Length = 3;</code>
+       */
+      public Builder clearLength() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        length_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private int window_ ;
+      /**
+       * <pre>
+       * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+       * </pre>
+       *
+       * <code>required uint32 Window = 4;</code>
+       */
+      public boolean hasWindow() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <pre>
+       * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+       * </pre>
+       *
+       * <code>required uint32 Window = 4;</code>
+       */
+      public int getWindow() {
+        return window_;
+      }
+      /**
+       * <pre>
+       * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+       * </pre>
+       *
+       * <code>required uint32 Window = 4;</code>
+       */
+      public Builder setWindow(int value) {
+        bitField0_ |= 0x00000008;
+        window_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 发送方未确认的分块数上限，接收方每收到一半回复一次确认
+       * </pre>
+       *
+       * <code>required uint32 Window = 4;</code>
+       */
+      public Builder clearWindow() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        window_ = 0;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:StreamOpenRequest)
+    }
+
+    // @@protoc_insertion_point(class_scope:StreamOpenRequest)
+    private static final StreamOpenRequest DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new StreamOpenRequest();
+    }
+
+    public static StreamOpenRequest getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated public static final com.google.protobuf.Parser<StreamOpenRequest>
+        PARSER = new com.google.protobuf.AbstractParser<StreamOpenRequest>() {
+      public StreamOpenRequest parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new StreamOpenRequest(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<StreamOpenRequest> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<StreamOpenRequest> getParserForType() {
+      return PARSER;
+    }
+
+    public StreamOpenRequest getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface StreamOpenResponseOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:StreamOpenResponse)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    boolean hasBaseResponse();
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    BaseResponse getBaseResponse();
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    BaseResponseOrBuilder getBaseResponseOrBuilder();
+
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    boolean hasStreamId();
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    int getStreamId();
+
+    /**
+     * <pre>
+     * 接收方已保存的长度，发送方从这里开始发送
+     * </pre>
+     *
+     * <code>optional uint64 Offset = 3;</code>
+     */
+    boolean hasOffset();
+    /**
+     * <pre>
+     * 接收方已保存的长度，发送方从这里开始发送
+     * </pre>
+     *
+     * <code>optional uint64 Offset = 3;</code>
+     */
+    long getOffset();
+  }
+  /**
+   * Protobuf type {@code StreamOpenResponse}
+   */
+  public  static final class StreamOpenResponse extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:StreamOpenResponse)
+      StreamOpenResponseOrBuilder {
+    // Use StreamOpenResponse.newBuilder() to construct.
+    private StreamOpenResponse(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private StreamOpenResponse() {
+      streamId_ = 0;
+      offset_ = 0L;
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private StreamOpenResponse(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              BaseResponse.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                subBuilder = baseResponse_.toBuilder();
+              }
+              baseResponse_ = input.readMessage(BaseResponse.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(baseResponse_);
+                baseResponse_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000001;
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              streamId_ = input.readUInt32();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              offset_ = input.readUInt64();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return BluesyncProto.internal_static_StreamOpenResponse_descriptor;
+    }
+
+    protected FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return BluesyncProto.internal_static_StreamOpenResponse_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              StreamOpenResponse.class, Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int BASERESPONSE_FIELD_NUMBER = 1;
+    private BaseResponse baseResponse_;
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    public boolean hasBaseResponse() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    public BaseResponse getBaseResponse() {
+      return baseResponse_ == null ? BaseResponse.getDefaultInstance() : baseResponse_;
+    }
+    /**
+     * <code>required .BaseResponse BaseResponse = 1;</code>
+     */
+    public BaseResponseOrBuilder getBaseResponseOrBuilder() {
+      return baseResponse_ == null ? BaseResponse.getDefaultInstance() : baseResponse_;
+    }
+
+    public static final int STREAMID_FIELD_NUMBER = 2;
+    private int streamId_;
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public boolean hasStreamId() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public int getStreamId() {
+      return streamId_;
+    }
+
+    public static final int OFFSET_FIELD_NUMBER = 3;
+    private long offset_;
+    /**
+     * <pre>
+     * 接收方已保存的长度，发送方从这里开始发送
+     * </pre>
+     *
+     * <code>optional uint64 Offset = 3;</code>
+     */
+    public boolean hasOffset() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <pre>
+     * 接收方已保存的长度，发送方从这里开始发送
+     * </pre>
+     *
+     * <code>optional uint64 Offset = 3;</code>
+     */
+    public long getOffset() {
+      return offset_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasBaseResponse()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasStreamId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!getBaseResponse().isInitialized()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeMessage(1, getBaseResponse());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeUInt32(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(3, offset_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getBaseResponse());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, offset_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof StreamOpenResponse)) {
+        return super.equals(obj);
+      }
+      StreamOpenResponse other = (StreamOpenResponse) obj;
+
+      boolean result = true;
+      result = result && (hasBaseResponse() == other.hasBaseResponse());
+      if (hasBaseResponse()) {
+        result = result && getBaseResponse()
+            .equals(other.getBaseResponse());
+      }
+      result = result && (hasStreamId() == other.hasStreamId());
+      if (hasStreamId()) {
+        result = result && (getStreamId()
+            == other.getStreamId());
+      }
+      result = result && (hasOffset() == other.hasOffset());
+      if (hasOffset()) {
+        result = result && (getOffset()
+            == other.getOffset());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasBaseResponse()) {
+        hash = (37 * hash) + BASERESPONSE_FIELD_NUMBER;
+        hash = (53 * hash) + getBaseResponse().hashCode();
+      }
+      if (hasStreamId()) {
+        hash = (37 * hash) + STREAMID_FIELD_NUMBER;
+        hash = (53 * hash) + getStreamId();
+      }
+      if (hasOffset()) {
+        hash = (37 * hash) + OFFSET_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getOffset());
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static StreamOpenResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamOpenResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamOpenResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamOpenResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamOpenResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamOpenResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamOpenResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static StreamOpenResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamOpenResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamOpenResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(StreamOpenResponse prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(
+        BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code StreamOpenResponse}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:StreamOpenResponse)
+        StreamOpenResponseOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return BluesyncProto.internal_static_StreamOpenResponse_descriptor;
+      }
+
+      protected FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return BluesyncProto.internal_static_StreamOpenResponse_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                StreamOpenResponse.class, Builder.class);
+      }
+
+      // Construct using BluesyncProto.StreamOpenResponse.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getBaseResponseFieldBuilder();
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (baseResponseBuilder_ == null) {
+          baseResponse_ = null;
+        } else {
+          baseResponseBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        streamId_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        offset_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return BluesyncProto.internal_static_StreamOpenResponse_descriptor;
+      }
+
+      public StreamOpenResponse getDefaultInstanceForType() {
+        return StreamOpenResponse.getDefaultInstance();
+      }
+
+      public StreamOpenResponse build() {
+        StreamOpenResponse result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public StreamOpenResponse buildPartial() {
+        StreamOpenResponse result = new StreamOpenResponse(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        if (baseResponseBuilder_ == null) {
+          result.baseResponse_ = baseResponse_;
+        } else {
+          result.baseResponse_ = baseResponseBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.streamId_ = streamId_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.offset_ = offset_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof StreamOpenResponse) {
+          return mergeFrom((StreamOpenResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(StreamOpenResponse other) {
+        if (other == StreamOpenResponse.getDefaultInstance()) return this;
+        if (other.hasBaseResponse()) {
+          mergeBaseResponse(other.getBaseResponse());
+        }
+        if (other.hasStreamId()) {
+          setStreamId(other.getStreamId());
+        }
+        if (other.hasOffset()) {
+          setOffset(other.getOffset());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasBaseResponse()) {
+          return false;
+        }
+        if (!hasStreamId()) {
+          return false;
+        }
+        if (!getBaseResponse().isInitialized()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        StreamOpenResponse parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (StreamOpenResponse) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private BaseResponse baseResponse_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BaseResponse, BaseResponse.Builder, BaseResponseOrBuilder> baseResponseBuilder_;
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public boolean hasBaseResponse() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public BaseResponse getBaseResponse() {
+        if (baseResponseBuilder_ == null) {
+          return baseResponse_ == null ? BaseResponse.getDefaultInstance() : baseResponse_;
+        } else {
+          return baseResponseBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public Builder setBaseResponse(BaseResponse value) {
+        if (baseResponseBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          baseResponse_ = value;
+          onChanged();
+        } else {
+          baseResponseBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public Builder setBaseResponse(
+          BaseResponse.Builder builderForValue) {
+        if (baseResponseBuilder_ == null) {
+          baseResponse_ = builderForValue.build();
+          onChanged();
+        } else {
+          baseResponseBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public Builder mergeBaseResponse(BaseResponse value) {
+        if (baseResponseBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001) &&
+              baseResponse_ != null &&
+              baseResponse_ != BaseResponse.getDefaultInstance()) {
+            baseResponse_ =
+              BaseResponse.newBuilder(baseResponse_).mergeFrom(value).buildPartial();
+          } else {
+            baseResponse_ = value;
+          }
+          onChanged();
+        } else {
+          baseResponseBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public Builder clearBaseResponse() {
+        if (baseResponseBuilder_ == null) {
+          baseResponse_ = null;
+          onChanged();
+        } else {
+          baseResponseBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public BaseResponse.Builder getBaseResponseBuilder() {
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return getBaseResponseFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      public BaseResponseOrBuilder getBaseResponseOrBuilder() {
+        if (baseResponseBuilder_ != null) {
+          return baseResponseBuilder_.getMessageOrBuilder();
+        } else {
+          return baseResponse_ == null ?
+              BaseResponse.getDefaultInstance() : baseResponse_;
+        }
+      }
+      /**
+       * <code>required .BaseResponse BaseResponse = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BaseResponse, BaseResponse.Builder, BaseResponseOrBuilder>
+          getBaseResponseFieldBuilder() {
+        if (baseResponseBuilder_ == null) {
+          baseResponseBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              BaseResponse, BaseResponse.Builder, BaseResponseOrBuilder>(
+                  getBaseResponse(),
+                  getParentForChildren(),
+                  isClean());
+          baseResponse_ = null;
+        }
+        return baseResponseBuilder_;
+      }
+
+      private int streamId_ ;
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public boolean hasStreamId() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public int getStreamId() {
+        return streamId_;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder setStreamId(int value) {
+        bitField0_ |= 0x00000002;
+        streamId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder clearStreamId() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        streamId_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long offset_ ;
+      /**
+       * <pre>
+       * 接收方已保存的长度，发送方从这里开始发送
+       * </pre>
+       *
+       * <code>optional uint64 Offset = 3;</code>
+       */
+      public boolean hasOffset() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度，发送方从这里开始发送
+       * </pre>
+       *
+       * <code>optional uint64 Offset = 3;</code>
+       */
+      public long getOffset() {
+        return offset_;
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度，发送方从这里开始发送
+       * </pre>
+       *
+       * <code>optional uint64 Offset = 3;</code>
+       */
+      public Builder setOffset(long value) {
+        bitField0_ |= 0x00000004;
+        offset_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度，发送方从这里开始发送
+       * </pre>
+       *
+       * <code>optional uint64 Offset = 3;</code>
+       */
+      public Builder clearOffset() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        offset_ = 0L;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:StreamOpenResponse)
+    }
+
+    // @@protoc_insertion_point(class_scope:StreamOpenResponse)
+    private static final StreamOpenResponse DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new StreamOpenResponse();
+    }
+
+    public static StreamOpenResponse getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated public static final com.google.protobuf.Parser<StreamOpenResponse>
+        PARSER = new com.google.protobuf.AbstractParser<StreamOpenResponse>() {
+      public StreamOpenResponse parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new StreamOpenResponse(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<StreamOpenResponse> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<StreamOpenResponse> getParserForType() {
+      return PARSER;
+    }
+
+    public StreamOpenResponse getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface StreamDataPushOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:StreamDataPush)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    boolean hasBasePush();
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    BasePush getBasePush();
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    BasePushOrBuilder getBasePushOrBuilder();
+
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    boolean hasStreamId();
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    int getStreamId();
+
+    /**
+     * <pre>
+     * 本分块在数据流中的位置
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    boolean hasOffset();
+    /**
+     * <pre>
+     * 本分块在数据流中的位置
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    long getOffset();
+
+    /**
+     * <code>required bytes Data = 4;</code>
+     */
+    boolean hasData();
+    /**
+     * <code>required bytes Data = 4;</code>
+     */
+    com.google.protobuf.ByteString getData();
+
+    /**
+     * <pre>
+     * 是否为最后一个分块
+     * </pre>
+     *
+     * <code>optional bool Final = 5;</code>
+     */
+    boolean hasFinal();
+    /**
+     * <pre>
+     * 是否为最后一个分块
+     * </pre>
+     *
+     * <code>optional bool Final = 5;</code>
+     */
+    boolean getFinal();
+  }
+  /**
+   * Protobuf type {@code StreamDataPush}
+   */
+  public  static final class StreamDataPush extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:StreamDataPush)
+      StreamDataPushOrBuilder {
+    // Use StreamDataPush.newBuilder() to construct.
+    private StreamDataPush(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private StreamDataPush() {
+      streamId_ = 0;
+      offset_ = 0L;
+      data_ = com.google.protobuf.ByteString.EMPTY;
+      final_ = false;
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private StreamDataPush(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              BasePush.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                subBuilder = basePush_.toBuilder();
+              }
+              basePush_ = input.readMessage(BasePush.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(basePush_);
+                basePush_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000001;
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              streamId_ = input.readUInt32();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              offset_ = input.readUInt64();
+              break;
+            }
+            case 34: {
+              bitField0_ |= 0x00000008;
+              data_ = input.readBytes();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000010;
+              final_ = input.readBool();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return BluesyncProto.internal_static_StreamDataPush_descriptor;
+    }
+
+    protected FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return BluesyncProto.internal_static_StreamDataPush_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              StreamDataPush.class, Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int BASEPUSH_FIELD_NUMBER = 1;
+    private BasePush basePush_;
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public boolean hasBasePush() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public BasePush getBasePush() {
+      return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+    }
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public BasePushOrBuilder getBasePushOrBuilder() {
+      return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+    }
+
+    public static final int STREAMID_FIELD_NUMBER = 2;
+    private int streamId_;
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public boolean hasStreamId() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public int getStreamId() {
+      return streamId_;
+    }
+
+    public static final int OFFSET_FIELD_NUMBER = 3;
+    private long offset_;
+    /**
+     * <pre>
+     * 本分块在数据流中的位置
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    public boolean hasOffset() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <pre>
+     * 本分块在数据流中的位置
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    public long getOffset() {
+      return offset_;
+    }
+
+    public static final int DATA_FIELD_NUMBER = 4;
+    private com.google.protobuf.ByteString data_;
+    /**
+     * <code>required bytes Data = 4;</code>
+     */
+    public boolean hasData() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>required bytes Data = 4;</code>
+     */
+    public com.google.protobuf.ByteString getData() {
+      return data_;
+    }
+
+    public static final int FINAL_FIELD_NUMBER = 5;
+    private boolean final_;
+    /**
+     * <pre>
+     * 是否为最后一个分块
+     * </pre>
+     *
+     * <code>optional bool Final = 5;</code>
+     */
+    public boolean hasFinal() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <pre>
+     * 是否为最后一个分块
+     * </pre>
+     *
+     * <code>optional bool Final = 5;</code>
+     */
+    public boolean getFinal() {
+      return final_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasBasePush()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasStreamId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasOffset()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasData()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeMessage(1, getBasePush());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeUInt32(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(3, offset_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeBytes(4, data_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeBool(5, final_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getBasePush());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, offset_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, data_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(5, final_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof StreamDataPush)) {
+        return super.equals(obj);
+      }
+      StreamDataPush other = (StreamDataPush) obj;
+
+      boolean result = true;
+      result = result && (hasBasePush() == other.hasBasePush());
+      if (hasBasePush()) {
+        result = result && getBasePush()
+            .equals(other.getBasePush());
+      }
+      result = result && (hasStreamId() == other.hasStreamId());
+      if (hasStreamId()) {
+        result = result && (getStreamId()
+            == other.getStreamId());
+      }
+      result = result && (hasOffset() == other.hasOffset());
+      if (hasOffset()) {
+        result = result && (getOffset()
+            == other.getOffset());
+      }
+      result = result && (hasData() == other.hasData());
+      if (hasData()) {
+        result = result && getData()
+            .equals(other.getData());
+      }
+      result = result && (hasFinal() == other.hasFinal());
+      if (hasFinal()) {
+        result = result && (getFinal()
+            == other.getFinal());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasBasePush()) {
+        hash = (37 * hash) + BASEPUSH_FIELD_NUMBER;
+        hash = (53 * hash) + getBasePush().hashCode();
+      }
+      if (hasStreamId()) {
+        hash = (37 * hash) + STREAMID_FIELD_NUMBER;
+        hash = (53 * hash) + getStreamId();
+      }
+      if (hasOffset()) {
+        hash = (37 * hash) + OFFSET_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getOffset());
+      }
+      if (hasData()) {
+        hash = (37 * hash) + DATA_FIELD_NUMBER;
+        hash = (53 * hash) + getData().hashCode();
+      }
+      if (hasFinal()) {
+        hash = (37 * hash) + FINAL_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+            getFinal());
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static StreamDataPush parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamDataPush parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamDataPush parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamDataPush parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamDataPush parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamDataPush parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamDataPush parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static StreamDataPush parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamDataPush parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamDataPush parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(StreamDataPush prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(
+        BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code StreamDataPush}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:StreamDataPush)
+        StreamDataPushOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return BluesyncProto.internal_static_StreamDataPush_descriptor;
+      }
+
+      protected FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return BluesyncProto.internal_static_StreamDataPush_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                StreamDataPush.class, Builder.class);
+      }
+
+      // Construct using BluesyncProto.StreamDataPush.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getBasePushFieldBuilder();
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (basePushBuilder_ == null) {
+          basePush_ = null;
+        } else {
+          basePushBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        streamId_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        offset_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        data_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        final_ = false;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return BluesyncProto.internal_static_StreamDataPush_descriptor;
+      }
+
+      public StreamDataPush getDefaultInstanceForType() {
+        return StreamDataPush.getDefaultInstance();
+      }
+
+      public StreamDataPush build() {
+        StreamDataPush result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public StreamDataPush buildPartial() {
+        StreamDataPush result = new StreamDataPush(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        if (basePushBuilder_ == null) {
+          result.basePush_ = basePush_;
+        } else {
+          result.basePush_ = basePushBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.streamId_ = streamId_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.offset_ = offset_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.data_ = data_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.final_ = final_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof StreamDataPush) {
+          return mergeFrom((StreamDataPush)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(StreamDataPush other) {
+        if (other == StreamDataPush.getDefaultInstance()) return this;
+        if (other.hasBasePush()) {
+          mergeBasePush(other.getBasePush());
+        }
+        if (other.hasStreamId()) {
+          setStreamId(other.getStreamId());
+        }
+        if (other.hasOffset()) {
+          setOffset(other.getOffset());
+        }
+        if (other.hasData()) {
+          setData(other.getData());
+        }
+        if (other.hasFinal()) {
+          setFinal(other.getFinal());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasBasePush()) {
+          return false;
+        }
+        if (!hasStreamId()) {
+          return false;
+        }
+        if (!hasOffset()) {
+          return false;
+        }
+        if (!hasData()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        StreamDataPush parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (StreamDataPush) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private BasePush basePush_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BasePush, BasePush.Builder, BasePushOrBuilder> basePushBuilder_;
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public boolean hasBasePush() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePush getBasePush() {
+        if (basePushBuilder_ == null) {
+          return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+        } else {
+          return basePushBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder setBasePush(BasePush value) {
+        if (basePushBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          basePush_ = value;
+          onChanged();
+        } else {
+          basePushBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder setBasePush(
+          BasePush.Builder builderForValue) {
+        if (basePushBuilder_ == null) {
+          basePush_ = builderForValue.build();
+          onChanged();
+        } else {
+          basePushBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder mergeBasePush(BasePush value) {
+        if (basePushBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001) &&
+              basePush_ != null &&
+              basePush_ != BasePush.getDefaultInstance()) {
+            basePush_ =
+              BasePush.newBuilder(basePush_).mergeFrom(value).buildPartial();
+          } else {
+            basePush_ = value;
+          }
+          onChanged();
+        } else {
+          basePushBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder clearBasePush() {
+        if (basePushBuilder_ == null) {
+          basePush_ = null;
+          onChanged();
+        } else {
+          basePushBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePush.Builder getBasePushBuilder() {
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return getBasePushFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePushOrBuilder getBasePushOrBuilder() {
+        if (basePushBuilder_ != null) {
+          return basePushBuilder_.getMessageOrBuilder();
+        } else {
+          return basePush_ == null ?
+              BasePush.getDefaultInstance() : basePush_;
+        }
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BasePush, BasePush.Builder, BasePushOrBuilder>
+          getBasePushFieldBuilder() {
+        if (basePushBuilder_ == null) {
+          basePushBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              BasePush, BasePush.Builder, BasePushOrBuilder>(
+                  getBasePush(),
+                  getParentForChildren(),
+                  isClean());
+          basePush_ = null;
+        }
+        return basePushBuilder_;
+      }
+
+      private int streamId_ ;
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public boolean hasStreamId() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public int getStreamId() {
+        return streamId_;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder setStreamId(int value) {
+        bitField0_ |= 0x00000002;
+        streamId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder clearStreamId() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        streamId_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long offset_ ;
+      /**
+       * <pre>
+       * 本分块在数据流中的位置
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public boolean hasOffset() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <pre>
+       * 本分块在数据流中的位置
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public long getOffset() {
+        return offset_;
+      }
+      /**
+       * <pre>
+       * 本分块在数据流中的位置
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public Builder setOffset(long value) {
+        bitField0_ |= 0x00000004;
+        offset_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 本分块在数据流中的位置
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public Builder clearOffset() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        offset_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private com.google.protobuf.ByteString data_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>required bytes Data = 4;</code>
+       */
+      public boolean hasData() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>required bytes Data = 4;</code>
+       */
+      public com.google.protobuf.ByteString getData() {
+        return data_;
+      }
+      /**
+       * <code>required bytes Data = 4;</code>
+       */
+      public Builder setData(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000008;
+        data_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required bytes Data = 4;</code>
+       */
+      public Builder clearData() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        data_ = getDefaultInstance().getData();
+        onChanged();
+        return this;
+      }
+
+      private boolean final_ ;
+      /**
+       * <pre>
+       * 是否为最后一个分块
+       * </pre>
+       *
+       * <code>optional bool Final = 5;</code>
+       */
+      public boolean hasFinal() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <pre>
+       * 是否为最后一个分块
+       * </pre>
+       *
+       * <code>optional bool Final = 5;</code>
+       */
+      public boolean getFinal() {
+        return final_;
+      }
+      /**
+       * <pre>
+       * 是否为最后一个分块
+       * </pre>
+       *
+       * <code>optional bool Final = 5;</code>
+       */
+      public Builder setFinal(boolean value) {
+        bitField0_ |= 0x00000010;
+        final_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 是否为最后一个分块
+       * </pre>
+       *
+       * <code>optional bool Final = 5;</code>
+       */
+      public Builder clearFinal() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        final_ = false;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:StreamDataPush)
+    }
+
+    // @@protoc_insertion_point(class_scope:StreamDataPush)
+    private static final StreamDataPush DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new StreamDataPush();
+    }
+
+    public static StreamDataPush getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated public static final com.google.protobuf.Parser<StreamDataPush>
+        PARSER = new com.google.protobuf.AbstractParser<StreamDataPush>() {
+      public StreamDataPush parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new StreamDataPush(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<StreamDataPush> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<StreamDataPush> getParserForType() {
+      return PARSER;
+    }
+
+    public StreamDataPush getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface StreamAckPushOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:StreamAckPush)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    boolean hasBasePush();
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    BasePush getBasePush();
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    BasePushOrBuilder getBasePushOrBuilder();
+
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    boolean hasStreamId();
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    int getStreamId();
+
+    /**
+     * <pre>
+     * 接收方已保存的长度
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    boolean hasOffset();
+    /**
+     * <pre>
+     * 接收方已保存的长度
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    long getOffset();
+
+    /**
+     * <pre>
+     * 非 0 时数据流中止，取值见EmErrorCode
+     * </pre>
+     *
+     * <code>optional int32 ErrCode = 4;</code>
+     */
+    boolean hasErrCode();
+    /**
+     * <pre>
+     * 非 0 时数据流中止，取值见EmErrorCode
+     * </pre>
+     *
+     * <code>optional int32 ErrCode = 4;</code>
+     */
+    int getErrCode();
+  }
+  /**
+   * Protobuf type {@code StreamAckPush}
+   */
+  public  static final class StreamAckPush extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:StreamAckPush)
+      StreamAckPushOrBuilder {
+    // Use StreamAckPush.newBuilder() to construct.
+    private StreamAckPush(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private StreamAckPush() {
+      streamId_ = 0;
+      offset_ = 0L;
+      errCode_ = 0;
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private StreamAckPush(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              BasePush.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                subBuilder = basePush_.toBuilder();
+              }
+              basePush_ = input.readMessage(BasePush.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(basePush_);
+                basePush_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000001;
+              break;
+            }
+            case 16: {
+              bitField0_ |= 0x00000002;
+              streamId_ = input.readUInt32();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              offset_ = input.readUInt64();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              errCode_ = input.readInt32();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return BluesyncProto.internal_static_StreamAckPush_descriptor;
+    }
+
+    protected FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return BluesyncProto.internal_static_StreamAckPush_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              StreamAckPush.class, Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int BASEPUSH_FIELD_NUMBER = 1;
+    private BasePush basePush_;
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public boolean hasBasePush() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public BasePush getBasePush() {
+      return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+    }
+    /**
+     * <code>required .BasePush BasePush = 1;</code>
+     */
+    public BasePushOrBuilder getBasePushOrBuilder() {
+      return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+    }
+
+    public static final int STREAMID_FIELD_NUMBER = 2;
+    private int streamId_;
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public boolean hasStreamId() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required uint32 StreamId = 2;</code>
+     */
+    public int getStreamId() {
+      return streamId_;
+    }
+
+    public static final int OFFSET_FIELD_NUMBER = 3;
+    private long offset_;
+    /**
+     * <pre>
+     * 接收方已保存的长度
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    public boolean hasOffset() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <pre>
+     * 接收方已保存的长度
+     * </pre>
+     *
+     * <code>required uint64 Offset = 3;</code>
+     */
+    public long getOffset() {
+      return offset_;
+    }
+
+    public static final int ERRCODE_FIELD_NUMBER = 4;
+    private int errCode_;
+    /**
+     * <pre>
+     * 非 0 时数据流中止，取值见EmErrorCode
+     * </pre>
+     *
+     * <code>optional int32 ErrCode = 4;</code>
+     */
+    public boolean hasErrCode() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <pre>
+     * 非 0 时数据流中止，取值见EmErrorCode
+     * </pre>
+     *
+     * <code>optional int32 ErrCode = 4;</code>
+     */
+    public int getErrCode() {
+      return errCode_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasBasePush()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasStreamId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasOffset()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeMessage(1, getBasePush());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeUInt32(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(3, offset_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeInt32(4, errCode_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getBasePush());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(2, streamId_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, offset_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(4, errCode_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof StreamAckPush)) {
+        return super.equals(obj);
+      }
+      StreamAckPush other = (StreamAckPush) obj;
+
+      boolean result = true;
+      result = result && (hasBasePush() == other.hasBasePush());
+      if (hasBasePush()) {
+        result = result && getBasePush()
+            .equals(other.getBasePush());
+      }
+      result = result && (hasStreamId() == other.hasStreamId());
+      if (hasStreamId()) {
+        result = result && (getStreamId()
+            == other.getStreamId());
+      }
+      result = result && (hasOffset() == other.hasOffset());
+      if (hasOffset()) {
+        result = result && (getOffset()
+            == other.getOffset());
+      }
+      result = result && (hasErrCode() == other.hasErrCode());
+      if (hasErrCode()) {
+        result = result && (getErrCode()
+            == other.getErrCode());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasBasePush()) {
+        hash = (37 * hash) + BASEPUSH_FIELD_NUMBER;
+        hash = (53 * hash) + getBasePush().hashCode();
+      }
+      if (hasStreamId()) {
+        hash = (37 * hash) + STREAMID_FIELD_NUMBER;
+        hash = (53 * hash) + getStreamId();
+      }
+      if (hasOffset()) {
+        hash = (37 * hash) + OFFSET_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getOffset());
+      }
+      if (hasErrCode()) {
+        hash = (37 * hash) + ERRCODE_FIELD_NUMBER;
+        hash = (53 * hash) + getErrCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static StreamAckPush parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamAckPush parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamAckPush parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static StreamAckPush parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static StreamAckPush parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamAckPush parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamAckPush parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static StreamAckPush parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static StreamAckPush parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static StreamAckPush parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(StreamAckPush prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(
+        BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code StreamAckPush}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:StreamAckPush)
+        StreamAckPushOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return BluesyncProto.internal_static_StreamAckPush_descriptor;
+      }
+
+      protected FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return BluesyncProto.internal_static_StreamAckPush_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                StreamAckPush.class, Builder.class);
+      }
+
+      // Construct using BluesyncProto.StreamAckPush.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getBasePushFieldBuilder();
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (basePushBuilder_ == null) {
+          basePush_ = null;
+        } else {
+          basePushBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        streamId_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        offset_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        errCode_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return BluesyncProto.internal_static_StreamAckPush_descriptor;
+      }
+
+      public StreamAckPush getDefaultInstanceForType() {
+        return StreamAckPush.getDefaultInstance();
+      }
+
+      public StreamAckPush build() {
+        StreamAckPush result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public StreamAckPush buildPartial() {
+        StreamAckPush result = new StreamAckPush(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        if (basePushBuilder_ == null) {
+          result.basePush_ = basePush_;
+        } else {
+          result.basePush_ = basePushBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.streamId_ = streamId_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.offset_ = offset_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.errCode_ = errCode_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof StreamAckPush) {
+          return mergeFrom((StreamAckPush)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(StreamAckPush other) {
+        if (other == StreamAckPush.getDefaultInstance()) return this;
+        if (other.hasBasePush()) {
+          mergeBasePush(other.getBasePush());
+        }
+        if (other.hasStreamId()) {
+          setStreamId(other.getStreamId());
+        }
+        if (other.hasOffset()) {
+          setOffset(other.getOffset());
+        }
+        if (other.hasErrCode()) {
+          setErrCode(other.getErrCode());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasBasePush()) {
+          return false;
+        }
+        if (!hasStreamId()) {
+          return false;
+        }
+        if (!hasOffset()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        StreamAckPush parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (StreamAckPush) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private BasePush basePush_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BasePush, BasePush.Builder, BasePushOrBuilder> basePushBuilder_;
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public boolean hasBasePush() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePush getBasePush() {
+        if (basePushBuilder_ == null) {
+          return basePush_ == null ? BasePush.getDefaultInstance() : basePush_;
+        } else {
+          return basePushBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder setBasePush(BasePush value) {
+        if (basePushBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          basePush_ = value;
+          onChanged();
+        } else {
+          basePushBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder setBasePush(
+          BasePush.Builder builderForValue) {
+        if (basePushBuilder_ == null) {
+          basePush_ = builderForValue.build();
+          onChanged();
+        } else {
+          basePushBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder mergeBasePush(BasePush value) {
+        if (basePushBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001) &&
+              basePush_ != null &&
+              basePush_ != BasePush.getDefaultInstance()) {
+            basePush_ =
+              BasePush.newBuilder(basePush_).mergeFrom(value).buildPartial();
+          } else {
+            basePush_ = value;
+          }
+          onChanged();
+        } else {
+          basePushBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public Builder clearBasePush() {
+        if (basePushBuilder_ == null) {
+          basePush_ = null;
+          onChanged();
+        } else {
+          basePushBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePush.Builder getBasePushBuilder() {
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return getBasePushFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      public BasePushOrBuilder getBasePushOrBuilder() {
+        if (basePushBuilder_ != null) {
+          return basePushBuilder_.getMessageOrBuilder();
+        } else {
+          return basePush_ == null ?
+              BasePush.getDefaultInstance() : basePush_;
+        }
+      }
+      /**
+       * <code>required .BasePush BasePush = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          BasePush, BasePush.Builder, BasePushOrBuilder>
+          getBasePushFieldBuilder() {
+        if (basePushBuilder_ == null) {
+          basePushBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              BasePush, BasePush.Builder, BasePushOrBuilder>(
+                  getBasePush(),
+                  getParentForChildren(),
+                  isClean());
+          basePush_ = null;
+        }
+        return basePushBuilder_;
+      }
+
+      private int streamId_ ;
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public boolean hasStreamId() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public int getStreamId() {
+        return streamId_;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder setStreamId(int value) {
+        bitField0_ |= 0x00000002;
+        streamId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint32 StreamId = 2;</code>
+       */
+      public Builder clearStreamId() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        streamId_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long offset_ ;
+      /**
+       * <pre>
+       * 接收方已保存的长度
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public boolean hasOffset() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public long getOffset() {
+        return offset_;
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public Builder setOffset(long value) {
+        bitField0_ |= 0x00000004;
+        offset_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 接收方已保存的长度
+       * </pre>
+       *
+       * <code>required uint64 Offset = 3;</code>
+       */
+      public Builder clearOffset() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        offset_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private int errCode_ ;
+      /**
+       * <pre>
+       * 非 0 时数据流中止，取值见EmErrorCode
+       * </pre>
+       *
+       * <code>optional int32 ErrCode = 4;</code>
+       */
+      public boolean hasErrCode() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <pre>
+       * 非 0 时数据流中止，取值见EmErrorCode
+       * </pre>
+       *
+       * <code>optional int32 ErrCode = 4;</code>
+       */
+      public int getErrCode() {
+        return errCode_;
+      }
+      /**
+       * <pre>
+       * 非 0 时数据流中止，取值见EmErrorCode
+       * </pre>
+       *
+       * <code>optional int32 ErrCode = 4;</code>
+       */
+      public Builder setErrCode(int value) {
+        bitField0_ |= 0x00000008;
+        errCode_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 非 0 时数据流中止，取值见EmErrorCode
+       * </pre>
+       *
+       * <code>optional int32 ErrCode = 4;</code>
+       */
+      public Builder clearErrCode() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        errCode_ = 0;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:StreamAckPush)
+    }
+
+    // @@protoc_insertion_point(class_scope:StreamAckPush)
+    private static final StreamAckPush DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new StreamAckPush();
+    }
+
+    public static StreamAckPush getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated public static final com.google.protobuf.Parser<StreamAckPush>
+        PARSER = new com.google.protobuf.AbstractParser<StreamAckPush>() {
+      public StreamAckPush parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new StreamAckPush(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<StreamAckPush> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<StreamAckPush> getParserForType() {
+      return PARSER;
+    }
+
+    public StreamAckPush getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_BaseRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_BaseRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_BaseResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_BaseResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_BasePush_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_BasePush_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_AuthRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_AuthRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_AuthResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_AuthResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_InitRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_InitRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_InitResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_InitResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_SendDataRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_SendDataRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_SendDataResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_SendDataResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_RecvDataPush_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_RecvDataPush_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_StreamOpenRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_StreamOpenRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_StreamOpenResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_StreamOpenResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_StreamDataPush_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_StreamDataPush_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_StreamAckPush_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_StreamAckPush_fieldAccessorTable;
+
+  public static com.google.protobuf.Descriptors.FileDescriptor
+      getDescriptor() {
     return descriptor;
   }
   private static  com.google.protobuf.Descriptors.FileDescriptor
@@ -8752,31 +12811,46 @@ public final class BluesyncProto {
       "\"\n\n\010BasePush\"\234\001\n\013AuthRequest\022!\n\013BaseRequ" +
       "est\030\001 \002(\0132\014.BaseRequest\022\r\n\005Modle\030\002 \002(\t\022\020" +
       "\n\010SerialNo\030\003 \002(\t\022\022\n\nMacAddress\030\004 \002(\014\022\017\n\007" +
-      "AesSign\030\005 \002(\014\022\021\n\tIsEncrypt\030\006 \002(\010\022\021\n\tExtr" +
-      "aData\030\007 \001(\t\"]\n\014AuthResponse\022#\n\014BaseRespo" +
+      "AesSign\030\005 \002(\014\022\021\n\tIsEncrypt\030\006 \002(\r\022\021\n\tExtr" +
+      "aData\030\007 \001(\t\"r\n\014AuthResponse\022#\n\014BaseRespo" +
       "nse\030\001 \002(\0132\r.BaseResponse\022\025\n\rAesSessionKe" +
-      "y\030\002 \001(\014\022\021\n\tExtraData\030\003 \001(\t\"C\n\013InitReques" +
-      "t\022!\n\013BaseRequest\030\001 \002(\0132\014.BaseRequest\022\021\n\t",
-      "ExtraData\030\002 \001(\t\"\210\001\n\014InitResponse\022#\n\014Base" +
-      "Response\030\001 \002(\0132\r.BaseResponse\022%\n\014Platfor" +
-      "mType\030\002 \002(\0162\017.EmPlatformType\022\r\n\005Model\030\003 " +
-      "\002(\t\022\n\n\002Os\030\004 \002(\t\022\021\n\tExtraData\030\005 \001(\t\"B\n\017Se" +
-      "ndDataRequest\022!\n\013BaseRequest\030\001 \002(\0132\014.Bas" +
-      "eRequest\022\014\n\004Data\030\002 \002(\014\"E\n\020SendDataRespon" +
-      "se\022#\n\014BaseResponse\030\001 \002(\0132\r.BaseResponse\022" +
-      "\014\n\004Data\030\002 \001(\014\"9\n\014RecvDataPush\022\033\n\010BasePus" +
-      "h\030\001 \002(\0132\t.BasePush\022\014\n\004Data\030\002 \002(\014*\276\001\n\007EmC" +
-      "mdId\022\014\n\010ECI_none\020\000\022\r\n\tECI_error\020\001\022\021\n\014ECI",
-      "_req_auth\020\221N\022\022\n\rECI_resp_auth\020\222N\022\021\n\014ECI_" +
-      "req_init\020\223N\022\022\n\rECI_resp_init\020\224N\022\026\n\020ECI_r" +
-      "eq_sendData\020\241\234\001\022\027\n\021ECI_resp_sendData\020\242\234\001" +
-      "\022\027\n\021ECI_push_recvData\020\261\352\001*\242\001\n\013EmErrorCod" +
-      "e\022\017\n\013EEC_success\020\000\022\027\n\nEEC_system\020\377\377\377\377\377\377\377" +
-      "\377\377\001\022\031\n\014EEC_needAuth\020\376\377\377\377\377\377\377\377\377\001\022\031\n\014EEC_au" +
-      "thFail\020\375\377\377\377\377\377\377\377\377\001\022\027\n\nEEC_decode\020\374\377\377\377\377\377\377\377" +
-      "\377\001\022\032\n\rEEC_interrupt\020\373\377\377\377\377\377\377\377\377\001*.\n\016EmPlat" +
-      "formType\022\013\n\007EPT_ios\020\001\022\017\n\013EPT_andriod\020\002B\017" +
-      "B\rBluesyncProto"
+      "y\030\002 \001(\014\022\021\n\tExtraData\030\003 \001(\t\022\023\n\013EncryptMod" +
+      "e\030\004 \001(\r\"C\n\013InitRequest\022!\n\013BaseRequest\030\001 ",
+      "\002(\0132\014.BaseRequest\022\021\n\tExtraData\030\002 \001(\t\"\210\001\n" +
+      "\014InitResponse\022#\n\014BaseResponse\030\001 \002(\0132\r.Ba" +
+      "seResponse\022%\n\014PlatformType\030\002 \002(\0162\017.EmPla" +
+      "tformType\022\r\n\005Model\030\003 \002(\t\022\n\n\002Os\030\004 \002(\t\022\021\n\t" +
+      "ExtraData\030\005 \001(\t\"B\n\017SendDataRequest\022!\n\013Ba" +
+      "seRequest\030\001 \002(\0132\014.BaseRequest\022\014\n\004Data\030\002 " +
+      "\002(\014\"E\n\020SendDataResponse\022#\n\014BaseResponse\030" +
+      "\001 \002(\0132\r.BaseResponse\022\014\n\004Data\030\002 \001(\014\"9\n\014Re" +
+      "cvDataPush\022\033\n\010BasePush\030\001 \002(\0132\t.BasePush\022" +
+      "\014\n\004Data\030\002 \002(\014\"h\n\021StreamOpenRequest\022!\n\013Ba",
+      "seRequest\030\001 \002(\0132\014.BaseRequest\022\020\n\010StreamI" +
+      "d\030\002 \002(\r\022\016\n\006Length\030\003 \002(\004\022\016\n\006Window\030\004 \002(\r\"" +
+      "[\n\022StreamOpenResponse\022#\n\014BaseResponse\030\001 " +
+      "\002(\0132\r.BaseResponse\022\020\n\010StreamId\030\002 \002(\r\022\016\n\006" +
+      "Offset\030\003 \001(\004\"l\n\016StreamDataPush\022\033\n\010BasePu" +
+      "sh\030\001 \002(\0132\t.BasePush\022\020\n\010StreamId\030\002 \002(\r\022\016\n" +
+      "\006Offset\030\003 \002(\004\022\014\n\004Data\030\004 \002(\014\022\r\n\005Final\030\005 \001" +
+      "(\010\"_\n\rStreamAckPush\022\033\n\010BasePush\030\001 \002(\0132\t." +
+      "BasePush\022\020\n\010StreamId\030\002 \002(\r\022\016\n\006Offset\030\003 \002" +
+      "(\004\022\017\n\007ErrCode\030\004 \001(\005*\250\002\n\007EmCmdId\022\014\n\010ECI_n",
+      "one\020\000\022\r\n\tECI_error\020\001\022\021\n\014ECI_req_auth\020\221N\022" +
+      "\022\n\rECI_resp_auth\020\222N\022\021\n\014ECI_req_init\020\223N\022\022" +
+      "\n\rECI_resp_init\020\224N\022\026\n\020ECI_req_sendData\020\241" +
+      "\234\001\022\027\n\021ECI_resp_sendData\020\242\234\001\022\027\n\021ECI_push_" +
+      "recvData\020\261\352\001\022\030\n\022ECI_req_streamOpen\020\301\270\002\022\031" +
+      "\n\023ECI_resp_streamOpen\020\302\270\002\022\031\n\023ECI_push_st" +
+      "reamData\020\303\270\002\022\030\n\022ECI_push_streamAck\020\304\270\002*\242" +
+      "\001\n\013EmErrorCode\022\017\n\013EEC_success\020\000\022\027\n\nEEC_s" +
+      "ystem\020\377\377\377\377\377\377\377\377\377\001\022\031\n\014EEC_needAuth\020\376\377\377\377\377\377\377" +
+      "\377\377\001\022\031\n\014EEC_authFail\020\375\377\377\377\377\377\377\377\377\001\022\027\n\nEEC_de",
+      "code\020\374\377\377\377\377\377\377\377\377\001\022\032\n\rEEC_interrupt\020\373\377\377\377\377\377\377" +
+      "\377\377\001*.\n\016EmPlatformType\022\013\n\007EPT_ios\020\001\022\017\n\013EP" +
+      "T_andriod\020\002*?\n\rEmEncryptMode\022\014\n\010EEM_none" +
+      "\020\000\022\017\n\013EEM_aes_cbc\020\001\022\017\n\013EEM_aes_ctr\020\002B\017B\r" +
+      "BluesyncProto"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -8819,7 +12893,7 @@ public final class BluesyncProto {
     internal_static_AuthResponse_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_AuthResponse_descriptor,
-        new String[] { "BaseResponse", "AesSessionKey", "ExtraData", });
+        new String[] { "BaseResponse", "AesSessionKey", "ExtraData", "EncryptMode", });
     internal_static_InitRequest_descriptor =
       getDescriptor().getMessageTypes().get(5);
     internal_static_InitRequest_fieldAccessorTable = new
@@ -8850,6 +12924,30 @@ public final class BluesyncProto {
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_RecvDataPush_descriptor,
         new String[] { "BasePush", "Data", });
+    internal_static_StreamOpenRequest_descriptor =
+      getDescriptor().getMessageTypes().get(10);
+    internal_static_StreamOpenRequest_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_StreamOpenRequest_descriptor,
+        new String[] { "BaseRequest", "StreamId", "Length", "Window", });
+    internal_static_StreamOpenResponse_descriptor =
+      getDescriptor().getMessageTypes().get(11);
+    internal_static_StreamOpenResponse_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_StreamOpenResponse_descriptor,
+        new String[] { "BaseResponse", "StreamId", "Offset", });
+    internal_static_StreamDataPush_descriptor =
+      getDescriptor().getMessageTypes().get(12);
+    internal_static_StreamDataPush_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_StreamDataPush_descriptor,
+        new String[] { "BasePush", "StreamId", "Offset", "Data", "Final", });
+    internal_static_StreamAckPush_descriptor =
+      getDescriptor().getMessageTypes().get(13);
+    internal_static_StreamAckPush_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_StreamAckPush_descriptor,
+        new String[] { "BasePush", "StreamId", "Offset", "ErrCode", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -29,32 +29,98 @@ public class BluesyncProtoUtil {
     }
 
     public static BluesyncMessage getSendDataRequest(byte[] data) {
+        return getSendDataRequest(ByteString.copyFrom(data));
+    }
+
+    public static BluesyncMessage getSendDataRequest(ByteString data) {
         SendDataRequest.Builder builder = SendDataRequest.newBuilder();
         builder.setBaseRequest(BaseRequest.newBuilder().build())
-            .setData(ByteString.copyFrom(data));
+            .setData(data);
 
         return  new BluesyncMessage(genSeqId(), EmCmdId.ECI_req_sendData, builder.build());
     }
 
     public static BluesyncMessage getSendDataResponse(int seqId, byte[] data) {
+        return getSendDataResponse(seqId, data != null ? ByteString.copyFrom(data) : null);
+    }
+
+    public static BluesyncMessage getSendDataResponse(int seqId, ByteString data) {
         SendDataResponse.Builder builder = SendDataResponse.newBuilder();
 
         builder.setBaseResponse(getBaseResponseMessage(EmCmdId.ECI_none_VALUE, null));
         if (data != null) {
-            builder.setData(ByteString.copyFrom(data));
+            builder.setData(data);
         }
 
         return  new BluesyncMessage(seqId, EmCmdId.ECI_resp_sendData, builder.build());
     }
 
     public static BluesyncMessage getRecvDataPush(byte[] data) {
+        return getRecvDataPush(ByteString.copyFrom(data));
+    }
+
+    public static BluesyncMessage getRecvDataPush(ByteString data) {
         RecvDataPush.Builder builder = RecvDataPush.newBuilder();
         builder.setBasePush(BasePush.newBuilder().build())
-                .setData(ByteString.copyFrom(data));
+                .setData(data);
 
         return new BluesyncMessage(0, EmCmdId.ECI_push_recvData, builder.build());
     }
 
+    /**
+     * @param window chunks the sender writes ahead of the acks
+     * */
+    public static BluesyncMessage getStreamOpenRequest(int streamId, long length, int window) {
+        StreamOpenRequest.Builder builder = StreamOpenRequest.newBuilder();
+        builder.setBaseRequest(BaseRequest.newBuilder().build())
+                .setStreamId(streamId)
+                .setLength(length)
+                .setWindow(window);
+
+        return new BluesyncMessage(genSeqId(), EmCmdId.ECI_req_streamOpen, builder.build());
+    }
+
+    /**
+     * @param error EmErrorCode, the stream is refused unless it is EEC_success
+     * @param offset bytes the receiver already stored
+     * */
+    public static BluesyncMessage getStreamOpenResponse(int seqId, int streamId, int error, long offset) {
+        StreamOpenResponse.Builder builder = StreamOpenResponse.newBuilder();
+        builder.setBaseResponse(getBaseResponseMessage(error, null))
+                .setStreamId(streamId)
+                .setOffset(offset);
+
+        return new BluesyncMessage(seqId, EmCmdId.ECI_resp_streamOpen, builder.build());
+    }
+
+    public static BluesyncMessage getStreamDataPush(int streamId, long offset, ByteString data, boolean isFinal) {
+        StreamDataPush.Builder builder = StreamDataPush.newBuilder();
+        builder.setBasePush(BasePush.newBuilder().build())
+                .setStreamId(streamId)
+                .setOffset(offset)
+                .setData(data);
+        if (isFinal) {
+            builder.setFinal(true);
+        }
+
+        return new BluesyncMessage(0, EmCmdId.ECI_push_streamData, builder.build());
+    }
+
+    /**
+     * @param error EmErrorCode, anything but EEC_success aborts the stream
+     * */
+    public static BluesyncMessage getStreamAckPush(int streamId, long offset, int error) {
+        StreamAckPush.Builder builder = StreamAckPush.newBuilder();
+        builder.setBasePush(BasePush.newBuilder().build())
+                .setStreamId(streamId)
+                .setOffset(offset);
+        if (error != EmErrorCode.EEC_success_VALUE) {
+            builder.setErrCode(error);
+        }
+
+        return new BluesyncMessage(0, EmCmdId.ECI_push_streamAck, builder.build());
+    }
+
     public static BaseResponse getBaseResponseMessage(int error, String message) {
         BaseResponse.Builder builder = BaseResponse.newBuilder();
         builder.setErrCode(error);
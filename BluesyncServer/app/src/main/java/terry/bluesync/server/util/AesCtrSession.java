@@ -0,0 +1,135 @@
+package terry.bluesync.server.util;
+
+import org.bouncycastle.crypto.engines.AESFastEngine;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+/**
+ * AES/CTR session cipher, every message carries its own 8 bytes nonce in front of the
+ * ciphertext and no padding is added.
+ *
+ * The nonce is a message counter of the sender, the top bit tells which side sent it so the
+ * two directions never share a counter block under the same session key. The counter block
+ * is nonce (8 bytes) + block index (8 bytes).
+ *
+ * The bouncycastle block cipher is used directly, re-initializing a JCE cipher for every nonce
+ * expands the key again and costs more than encrypting a small message. Here the key is
+ * expanded once and only the counter block changes.
+ *
+ * Not thread safe, a session belongs to one channel and is only used on its invoker thread.
+ */
+public class AesCtrSession implements SessionCipher {
+    public static final int NONCE_LEN = 8;
+
+    private static final int BLOCK_LEN = 16;
+    private static final long SERVER_DIRECTION = 1L << 63;
+    private static final long MAX_COUNTER = SERVER_DIRECTION - 1;
+
+    private final SICBlockCipher mEncryptCipher;
+    private final SICBlockCipher mDecryptCipher;
+    private final byte[] mCounterBlock = new byte[BLOCK_LEN];
+    private final byte[] mPartialBlock = new byte[BLOCK_LEN];
+
+    private final long mSendDirection;
+    private final long mReceiveDirection;
+    private long mSendCounter = 0;
+
+    public AesCtrSession(byte[] key, boolean isServer) throws AesCoderException {
+        try {
+            mEncryptCipher = newCipher(key);
+            mDecryptCipher = newCipher(key);
+        } catch (IllegalArgumentException e) {
+            throw new AesCoderException(e);
+        }
+
+        mSendDirection = isServer ? SERVER_DIRECTION : 0;
+        mReceiveDirection = isServer ? 0 : SERVER_DIRECTION;
+    }
+
+    private SICBlockCipher newCipher(byte[] key) {
+        SICBlockCipher cipher = new SICBlockCipher(new AESFastEngine());
+        cipher.init(true, new ParametersWithIV(new KeyParameter(key), mCounterBlock));
+        return cipher;
+    }
+
+    @Override
+    public int encryptOutputSize(int len) {
+        return NONCE_LEN + len;
+    }
+
+    @Override
+    public int encrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException {
+        if (mSendCounter > MAX_COUNTER) {
+            throw new AesCoderException("nonce exhausted, session key must be renewed");
+        }
+
+        long nonce = mSendDirection | mSendCounter++;
+        writeNonce(nonce, output, outOff);
+
+        process(mEncryptCipher, nonce, input, inOff, len, output, outOff + NONCE_LEN);
+        return NONCE_LEN + len;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] input, int inOff, int len) throws AesCoderException {
+        byte[] output = new byte[decryptOutputSize(len)];
+        decrypt(input, inOff, len, output, 0);
+        return output;
+    }
+
+    @Override
+    public int decryptOutputSize(int len) {
+        return Math.max(len - NONCE_LEN, 0);
+    }
+
+    @Override
+    public int decrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException {
+        if (len < NONCE_LEN) {
+            throw new AesCoderException("data length " + len + " is shorter than nonce");
+        }
+
+        long nonce = readNonce(input, inOff);
+        if ((nonce & SERVER_DIRECTION) != mReceiveDirection) {
+            throw new AesCoderException("nonce was not sent by peer");
+        }
+
+        process(mDecryptCipher, nonce, input, inOff + NONCE_LEN, len - NONCE_LEN, output, outOff);
+        return len - NONCE_LEN;
+    }
+
+    /**
+     * Xor the key stream of nonce with input, encryption and decryption are the same in CTR.
+     * */
+    private void process(SICBlockCipher cipher, long nonce, byte[] input, int inOff, int len, byte[] output, int outOff) {
+        writeNonce(nonce, mCounterBlock, 0);
+        cipher.init(true, new ParametersWithIV(null, mCounterBlock));
+
+        int fullLen = len - len % BLOCK_LEN;
+        for (int i = 0; i < fullLen; i += BLOCK_LEN) {
+            cipher.processBlock(input, inOff + i, output, outOff + i);
+        }
+
+        int remain = len - fullLen;
+        if (remain > 0) {
+            System.arraycopy(input, inOff + fullLen, mPartialBlock, 0, remain);
+            cipher.processBlock(mPartialBlock, 0, mPartialBlock, 0);
+            System.arraycopy(mPartialBlock, 0, output, outOff + fullLen, remain);
+        }
+    }
+
+    private static void writeNonce(long nonce, byte[] bArr, int offset) {
+        for (int i = NONCE_LEN - 1; i >= 0; i--) {
+            bArr[offset + i] = (byte) nonce;
+            nonce >>>= 8;
+        }
+    }
+
+    private static long readNonce(byte[] bArr, int offset) {
+        long nonce = 0;
+        for (int i = 0; i < NONCE_LEN; i++) {
+            nonce = (nonce << 8) | (bArr[offset + i] & 0xFF);
+        }
+        return nonce;
+    }
+}
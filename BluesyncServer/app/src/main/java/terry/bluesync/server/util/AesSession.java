@@ -0,0 +1,90 @@
+package terry.bluesync.server.util;
+
+import javax.crypto.Cipher;
+
+/**
+ * Encrypt and decrypt ciphers of one session, initialized once when the session key is known
+ * instead of looked up from the provider for every message.
+ *
+ * Not thread safe, a session belongs to one channel and is only used on its invoker thread.
+ */
+public class AesSession implements SessionCipher {
+    private final byte[] mKey;
+    private final byte[] mIv;
+    private Cipher mEncryptCipher;
+    private Cipher mDecryptCipher;
+
+    public AesSession(byte[] key, byte[] iv) throws AesCoderException {
+        mKey = key.clone();
+        mIv = iv.clone();
+        mEncryptCipher = AesCoder.newCipher(Cipher.ENCRYPT_MODE, mKey, mIv);
+        mDecryptCipher = AesCoder.newCipher(Cipher.DECRYPT_MODE, mKey, mIv);
+    }
+
+    public byte[] encrypt(byte[] data) throws AesCoderException {
+        return encrypt(data, 0, data.length);
+    }
+
+    public byte[] encrypt(byte[] input, int inOff, int len) throws AesCoderException {
+        try {
+            return mEncryptCipher.doFinal(input, inOff, len);
+        } catch (Exception e) {
+            mEncryptCipher = AesCoder.newCipher(Cipher.ENCRYPT_MODE, mKey, mIv);
+            throw new AesCoderException(e);
+        }
+    }
+
+    /**
+     * Encrypt into output at outOff, output must have {@link #encryptOutputSize(int)} bytes left.
+     *
+     * @return the number of bytes written
+     * */
+    @Override
+    public int encrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException {
+        try {
+            return mEncryptCipher.doFinal(input, inOff, len, output, outOff);
+        } catch (Exception e) {
+            mEncryptCipher = AesCoder.newCipher(Cipher.ENCRYPT_MODE, mKey, mIv);
+            throw new AesCoderException(e);
+        }
+    }
+
+    @Override
+    public int encryptOutputSize(int len) {
+        return mEncryptCipher.getOutputSize(len);
+    }
+
+    public byte[] decrypt(byte[] data) throws AesCoderException {
+        return decrypt(data, 0, data.length);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] input, int inOff, int len) throws AesCoderException {
+        try {
+            return mDecryptCipher.doFinal(input, inOff, len);
+        } catch (Exception e) {
+            mDecryptCipher = AesCoder.newCipher(Cipher.DECRYPT_MODE, mKey, mIv);
+            throw new AesCoderException(e);
+        }
+    }
+
+    /**
+     * Decrypt into output at outOff, output must have {@link #decryptOutputSize(int)} bytes left.
+     *
+     * @return the number of bytes written, less than the output size because of the padding
+     * */
+    @Override
+    public int decrypt(byte[] input, int inOff, int len, byte[] output, int outOff) throws AesCoderException {
+        try {
+            return mDecryptCipher.doFinal(input, inOff, len, output, outOff);
+        } catch (Exception e) {
+            mDecryptCipher = AesCoder.newCipher(Cipher.DECRYPT_MODE, mKey, mIv);
+            throw new AesCoderException(e);
+        }
+    }
+
+    @Override
+    public int decryptOutputSize(int len) {
+        return mDecryptCipher.getOutputSize(len);
+    }
+}
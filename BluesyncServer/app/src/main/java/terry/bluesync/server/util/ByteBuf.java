@@ -0,0 +1,144 @@
+package terry.bluesync.server.util;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A view of length bytes of array starting at offset, the bytes are not copied.
+ *
+ * The view shares the array with its owner, a handler receiving one must use it before
+ * read() returns and must not keep it.
+ *
+ * A buffer from {@link ByteBufPool} is reference counted, it starts at 1 and its array goes back
+ * to the pool when {@link #release()} drops the count to 0. Releasing a buffer that is not pooled
+ * only updates the count.
+ */
+public class ByteBuf {
+    private static final AtomicIntegerFieldUpdater<ByteBuf> REF_CNT_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ByteBuf.class, "mRefCnt");
+
+    private final byte[] mArray;
+    private final int mOffset;
+    private int mLength;
+
+    private final ByteBufPool mPool;
+    private volatile int mRefCnt = 1;
+    ByteBufPool.LeakRecord mLeak;
+
+    public ByteBuf(byte[] array) {
+        this(array, 0, array.length);
+    }
+
+    public ByteBuf(byte[] array, int offset, int length) {
+        this(array, offset, length, null);
+    }
+
+    ByteBuf(byte[] array, int offset, int length, ByteBufPool pool) {
+        if (offset < 0 || length < 0 || offset + length > array.length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", array length=" + array.length);
+        }
+
+        mArray = array;
+        mOffset = offset;
+        mLength = length;
+        mPool = pool;
+    }
+
+    public byte[] array() {
+        return mArray;
+    }
+
+    public int offset() {
+        return mOffset;
+    }
+
+    public int length() {
+        return mLength;
+    }
+
+    /**
+     * Bytes of array from offset on, a pooled buffer may have more than it was allocated with.
+     * */
+    public int capacity() {
+        return mArray.length - mOffset;
+    }
+
+    /**
+     * Shrink or grow the view within {@link #capacity()}.
+     * */
+    public void setLength(int length) {
+        if (length < 0 || length > capacity()) {
+            throw new IndexOutOfBoundsException("length=" + length + ", capacity=" + capacity());
+        }
+        mLength = length;
+    }
+
+    public byte getByte(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + mLength);
+        }
+        return mArray[mOffset + index];
+    }
+
+    /**
+     * Unsigned big endian short at index, the byte order of the frame header.
+     * */
+    public int getUnsignedShort(int index) {
+        return ((getByte(index) & 0xFF) << 8) | (getByte(index + 1) & 0xFF);
+    }
+
+    public boolean isPooled() {
+        return mPool != null;
+    }
+
+    public int refCnt() {
+        return mRefCnt;
+    }
+
+    public ByteBuf retain() {
+        for (;;) {
+            int refCnt = mRefCnt;
+            if (refCnt <= 0) {
+                throw new IllegalStateException("retain a released buffer, " + this);
+            }
+            if (REF_CNT_UPDATER.compareAndSet(this, refCnt, refCnt + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * @return true when this call dropped the count to 0, the buffer must not be used afterwards
+     * */
+    public boolean release() {
+        for (;;) {
+            int refCnt = mRefCnt;
+            if (refCnt <= 0) {
+                throw new IllegalStateException("release a released buffer, " + this);
+            }
+            if (REF_CNT_UPDATER.compareAndSet(this, refCnt, refCnt - 1)) {
+                if (refCnt == 1) {
+                    if (mPool != null) {
+                        mPool.recycle(this);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bArr = new byte[mLength];
+        System.arraycopy(mArray, mOffset, bArr, 0, mLength);
+        return bArr;
+    }
+
+    public String toHexString() {
+        return ByteUtil.byteArray2HexString(toByteArray(), mLength);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBuf(offset=" + mOffset + ", length=" + mLength + ")";
+    }
+}
@@ -0,0 +1,175 @@
+package terry.bluesync.server.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free map of int keys, sized for requests in flight keyed by seqId. A key goes to the slot
+ * of its low bits, so sequential seqIds land in distinct slots until more than the capacity are
+ * pending. Each slot holds an immutable chain replaced with a single CAS, put and remove never
+ * block and nothing is boxed.
+ *
+ * The remove winning the CAS owns the value, so a response and a timeout for the same request
+ * cannot both complete it.
+ */
+public class ConcurrentIntObjectMap<V> {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<Node<V>> mSlots;
+    private final int mMask;
+
+    public ConcurrentIntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity slots, rounded up to a power of two. More keys than slots still fit, they
+     *                 share chains.
+     * */
+    public ConcurrentIntObjectMap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mSlots = new AtomicReferenceArray<>(size);
+        mMask = size - 1;
+    }
+
+    /**
+     * @return the value already mapped to key, value is not put then. null once value is put.
+     * */
+    public V putIfAbsent(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        int index = key & mMask;
+        for (;;) {
+            Node<V> head = mSlots.get(index);
+            Node<V> node = find(head, key);
+            if (node != null) {
+                return node.mValue;
+            }
+            if (mSlots.compareAndSet(index, head, new Node<>(key, value, head))) {
+                return null;
+            }
+        }
+    }
+
+    public V get(int key) {
+        Node<V> node = find(mSlots.get(key & mMask), key);
+        return node != null ? node.mValue : null;
+    }
+
+    /**
+     * @return the value removed, null if key is not mapped
+     * */
+    public V remove(int key) {
+        int index = key & mMask;
+        for (;;) {
+            Node<V> head = mSlots.get(index);
+            Node<V> node = find(head, key);
+            if (node == null) {
+                return null;
+            }
+            if (mSlots.compareAndSet(index, head, without(head, node))) {
+                return node.mValue;
+            }
+        }
+    }
+
+    /**
+     * Remove key only while it maps to value.
+     * */
+    public boolean remove(int key, V value) {
+        int index = key & mMask;
+        for (;;) {
+            Node<V> head = mSlots.get(index);
+            Node<V> node = find(head, key);
+            if (node == null || node.mValue != value) {
+                return false;
+            }
+            if (mSlots.compareAndSet(index, head, without(head, node))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove every value and add it to values, each value is handed out once even with
+     * removes running at the same time.
+     *
+     * @return number of values removed
+     * */
+    public int drainTo(List<? super V> values) {
+        int count = 0;
+        for (int i = 0; i < mSlots.length(); i++) {
+            if (mSlots.get(i) == null) {
+                continue;
+            }
+
+            for (Node<V> node = mSlots.getAndSet(i, null); node != null; node = node.mNext) {
+                values.add(node.mValue);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count of values, a snapshot that walks every slot.
+     * */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < mSlots.length(); i++) {
+            for (Node<V> node = mSlots.get(i); node != null; node = node.mNext) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < mSlots.length(); i++) {
+            if (mSlots.get(i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <V> Node<V> find(Node<V> head, int key) {
+        for (Node<V> node = head; node != null; node = node.mNext) {
+            if (node.mKey == key) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Chain of head without node, the nodes after it are shared and the ones before it copied.
+     * */
+    private static <V> Node<V> without(Node<V> head, Node<V> node) {
+        if (head == node) {
+            return node.mNext;
+        }
+        return new Node<>(head.mKey, head.mValue, without(head.mNext, node));
+    }
+
+    private static final class Node<V> {
+        final int mKey;
+        final V mValue;
+        final Node<V> mNext;
+
+        Node(int key, V value, Node<V> next) {
+            mKey = key;
+            mValue = value;
+            mNext = next;
+        }
+    }
+}
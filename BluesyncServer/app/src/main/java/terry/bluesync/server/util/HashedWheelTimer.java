@@ -0,0 +1,250 @@
+package terry.bluesync.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts of many outstanding requests on one thread. A timeout lands in the slot of the wheel
+ * its deadline falls in, so scheduling and cancelling are O(1) whatever the number pending. It
+ * fires up to one tick late, never early.
+ *
+ * The worker thread starts with the first timeout and exits once none is pending, or at once on
+ * {@link #stop()}.
+ */
+public class HashedWheelTimer {
+    private static final String TAG = HashedWheelTimer.class.getSimpleName();
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    /**
+     * Handle of a scheduled task.
+     * */
+    public interface Timeout {
+        /**
+         * @return false if the task already ran or was cancelled
+         * */
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+    }
+
+    private final String mName;
+    private final long mTickNanos;
+    private final Entry[] mWheel;
+    private final int mMask;
+
+    private Thread mWorker;
+    private long mStartTime;
+    private long mTick;
+    private int mPending;
+
+    public HashedWheelTimer(String name) {
+        this(name, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * @param tickDuration precision of the timer
+     * @param ticksPerWheel slots of the wheel, rounded up to a power of two
+     * */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tickDuration=" + tickDuration + ", ticksPerWheel=" + ticksPerWheel);
+        }
+
+        int capacity = Integer.highestOneBit(ticksPerWheel);
+        if (capacity < ticksPerWheel) {
+            capacity <<= 1;
+        }
+
+        mName = name;
+        mTickNanos = unit.toNanos(tickDuration);
+        mWheel = new Entry[capacity];
+        mMask = capacity - 1;
+    }
+
+    /**
+     * Run task on the timer thread once delay elapsed, the task should hand anything long to
+     * another thread.
+     * */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (mWorker == null) {
+                mStartTime = now;
+                mTick = 0;
+                mWorker = new Thread(mWorkerRunnable, mName);
+                mWorker.setDaemon(true);
+                mWorker.start();
+            }
+
+            long deadlineTick = (now - mStartTime + Math.max(unit.toNanos(delay), 0)) / mTickNanos;
+            Entry entry = new Entry(task);
+            entry.mRemainingRounds = Math.max(deadlineTick - mTick, 0) / mWheel.length;
+            entry.mSlot = (int) (Math.max(deadlineTick, mTick) & mMask);
+            link(entry);
+            mPending++;
+            return entry;
+        }
+    }
+
+    public synchronized int pendingTimeouts() {
+        return mPending;
+    }
+
+    /**
+     * Cancel every pending timeout, the worker exits right after. A later newTimeout starts it
+     * again.
+     * */
+    public synchronized void stop() {
+        for (int i = 0; i < mWheel.length; i++) {
+            Entry entry = mWheel[i];
+            while (entry != null) {
+                Entry next = entry.mNext;
+                entry.mState = Entry.CANCELLED;
+                unlink(entry);
+                entry = next;
+            }
+        }
+
+        if (mWorker != null) {
+            mWorker.interrupt();
+        }
+    }
+
+    private void link(Entry entry) {
+        Entry head = mWheel[entry.mSlot];
+        entry.mNext = head;
+        if (head != null) {
+            head.mPrev = entry;
+        }
+        mWheel[entry.mSlot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.mPrev != null) {
+            entry.mPrev.mNext = entry.mNext;
+        } else {
+            mWheel[entry.mSlot] = entry.mNext;
+        }
+        if (entry.mNext != null) {
+            entry.mNext.mPrev = entry.mPrev;
+        }
+        entry.mPrev = null;
+        entry.mNext = null;
+        mPending--;
+    }
+
+    private Runnable mWorkerRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            List<Entry> expired = new ArrayList<>();
+            for (;;) {
+                if (!waitForNextTick()) {
+                    return;
+                }
+
+                synchronized (HashedWheelTimer.this) {
+                    Entry entry = mWheel[(int) (mTick & mMask)];
+                    while (entry != null) {
+                        Entry next = entry.mNext;
+                        if (entry.mRemainingRounds <= 0) {
+                            unlink(entry);
+                            entry.mState = Entry.EXPIRED;
+                            expired.add(entry);
+                        } else {
+                            entry.mRemainingRounds--;
+                        }
+                        entry = next;
+                    }
+                    mTick++;
+                }
+
+                for (int i = 0; i < expired.size(); i++) {
+                    try {
+                        expired.get(i).mTask.run();
+                    } catch (Throwable t) {
+                        LogUtil.e(TAG, "timeout task threw", t);
+                    }
+                }
+                expired.clear();
+            }
+        }
+
+        /**
+         * @return false once nothing is pending, the worker is gone then
+         * */
+        private boolean waitForNextTick() {
+            for (;;) {
+                long sleepNanos;
+                synchronized (HashedWheelTimer.this) {
+                    if (mPending == 0) {
+                        mWorker = null;
+                        return false;
+                    }
+                    sleepNanos = mStartTime + (mTick + 1) * mTickNanos - System.nanoTime();
+                }
+
+                if (sleepNanos <= 0) {
+                    return true;
+                }
+
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        }
+    };
+
+    private final class Entry implements Timeout {
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        private final Runnable mTask;
+        private int mSlot;
+        private long mRemainingRounds;
+        private Entry mPrev;
+        private Entry mNext;
+        private int mState = PENDING;
+
+        Entry(Runnable task) {
+            mTask = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (HashedWheelTimer.this) {
+                if (mState != PENDING) {
+                    return false;
+                }
+                mState = CANCELLED;
+                unlink(this);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isExpired() {
+            synchronized (HashedWheelTimer.this) {
+                return mState == EXPIRED;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (HashedWheelTimer.this) {
+                return mState == CANCELLED;
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package terry.bluesync.server;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.GeneratedMessageV3;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.handler.BroadcastMessage;
+import terry.bluesync.server.handler.LengthFieldFrameDecoder;
+import terry.bluesync.server.handler.RequestHandler;
+import terry.bluesync.server.handler.StreamHandler;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.HashedWheelTimer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sessions over {@link LoopbackTransport}, each central is a peer channel that collects the pushes
+ * it gets and answers requests with their own data. Frames are plain, without login.
+ */
+public class BluesyncSessionTest {
+    private static final int MAX_FRAME_LENGTH = 4 * 1024;
+    private static final int MTU = 247;
+    private static final int HEAD_LENGTH = 8;
+
+    private HashedWheelTimer mTimer;
+    private List<Channel> mChannels;
+
+    @Before
+    public void setUp() {
+        mTimer = new HashedWheelTimer("test-timeout");
+        mChannels = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (Channel channel : mChannels) {
+            channel.disconnect();
+            channel.destroy();
+        }
+    }
+
+    @Test
+    public void pushGoesToItsOwnCentral() throws Exception {
+        List<Central> centrals = connect(3);
+        for (int i = 0; i < centrals.size(); i++) {
+            centrals.get(i).mSession.pushData(new byte[]{(byte) i});
+        }
+
+        for (int i = 0; i < centrals.size(); i++) {
+            assertArrayEquals(new byte[]{(byte) i}, centrals.get(i).mPushes.poll(1, TimeUnit.SECONDS));
+            assertNull(centrals.get(i).mPushes.poll(50, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void responsesComeBackToTheirSession() throws Exception {
+        List<Central> centrals = connect(4);
+
+        List<BlockingQueue<String>> responses = new ArrayList<>();
+        for (Central central : centrals) {
+            final BlockingQueue<String> response = new LinkedBlockingQueue<>();
+            responses.add(response);
+            central.mSession.sendRequest(central.mSession.getId(), new BluesyncController.ResponseCallback() {
+                @Override
+                public void onSuccess(String data) {
+                    response.add(data);
+                }
+
+                @Override
+                public void onError(String message) {
+                    response.add("error " + message);
+                }
+            }, 1000);
+        }
+
+        for (int i = 0; i < centrals.size(); i++) {
+            assertEquals(centrals.get(i).mSession.getId(), responses.get(i).poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void broadcastSkipsClosedSessions() throws Exception {
+        List<Central> centrals = connect(3);
+        centrals.get(1).mSession.close("bluesync disconnected");
+
+        List<BluesyncSession> sessions = new ArrayList<>();
+        for (Central central : centrals) {
+            sessions.add(central.mSession);
+        }
+        byte[] data = "broadcast".getBytes();
+        assertEquals(2, BluesyncSession.pushToAll(sessions, ByteString.copyFrom(data)));
+
+        assertArrayEquals(data, centrals.get(0).mPushes.poll(1, TimeUnit.SECONDS));
+        assertArrayEquals(data, centrals.get(2).mPushes.poll(1, TimeUnit.SECONDS));
+        assertNull(centrals.get(1).mPushes.poll(50, TimeUnit.MILLISECONDS));
+        try {
+            centrals.get(1).mSession.pushData(data);
+            fail();
+        } catch (BluesyncException e) {
+        }
+    }
+
+    /**
+     * Returns once every channel on both sides went active, a request written before the
+     * request handler saw its channel would fail.
+     * */
+    private List<Central> connect(int count) throws InterruptedException {
+        final CountDownLatch active = new CountDownLatch(2 * count);
+        ChannelHandlerAdapter activeLatch = new ChannelHandlerAdapter() {
+            @Override
+            public void active(AbstractChannelHandlerContext ctx) throws Exception {
+                active.countDown();
+                ctx.fireActive();
+            }
+        };
+
+        List<Central> centrals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LoopbackTransport serverTransport = new LoopbackTransport(MTU, 0, 0f);
+            LoopbackTransport centralTransport = new LoopbackTransport(MTU, 0, 0f);
+
+            RequestHandler requestHandler = new RequestHandler(mTimer);
+            StreamHandler streamHandler = new StreamHandler(mTimer, null);
+            Channel server = new Channel(serverTransport);
+            server.channelPipeline()
+                    .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                    .addLast("messageCoder", new PlainCoder())
+                    .addLast("requestHandler", requestHandler)
+                    .addLast("streamHandler", streamHandler)
+                    .addLast("activeLatch", activeLatch);
+
+            Central central = new Central();
+            Channel peer = new Channel(centralTransport);
+            peer.channelPipeline()
+                    .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                    .addLast("messageCoder", new PlainCoder())
+                    .addLast("central", central)
+                    .addLast("activeLatch", activeLatch);
+
+            mChannels.add(server);
+            mChannels.add(peer);
+            LoopbackTransport.connect(serverTransport, centralTransport);
+
+            central.mSession = new BluesyncSession(server, requestHandler, streamHandler);
+            centrals.add(central);
+        }
+
+        assertTrue(active.await(1, TimeUnit.SECONDS));
+        return centrals;
+    }
+
+    /**
+     * Keeps the pushes and answers every request with its data.
+     * */
+    private static class Central extends ChannelHandlerAdapter {
+        private final BlockingQueue<byte[]> mPushes = new LinkedBlockingQueue<>();
+        private BluesyncSession mSession;
+
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            BluesyncMessage message = (BluesyncMessage) msg;
+            switch (message.getCmdId()) {
+                case ECI_push_recvData:
+                    mPushes.add(((BluesyncProto.RecvDataPush) message.getProtobufData()).getData().toByteArray());
+                    break;
+                case ECI_req_sendData:
+                    ByteString data = ((BluesyncProto.SendDataRequest) message.getProtobufData()).getData();
+                    ctx.channel().write(BluesyncProtoUtil.getSendDataResponse(message.getSeqId(), data));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Messages to frames and back, only for the commands used here.
+     * */
+    private static class PlainCoder extends ChannelHandlerAdapter {
+
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ByteBuf frame = (ByteBuf) msg;
+            byte[] bArr = frame.toByteArray();
+            int cmdId = ((bArr[4] & 0xFF) << 8) | (bArr[5] & 0xFF);
+            int seqId = ((bArr[6] & 0xFF) << 8) | (bArr[7] & 0xFF);
+            byte[] body = Arrays.copyOfRange(bArr, HEAD_LENGTH, bArr.length);
+
+            BluesyncProto.EmCmdId cmd = BluesyncProto.EmCmdId.forNumber(cmdId);
+            GeneratedMessageV3 protobuf;
+            switch (cmd) {
+                case ECI_push_recvData:
+                    protobuf = BluesyncProto.RecvDataPush.parseFrom(body);
+                    break;
+                case ECI_req_sendData:
+                    protobuf = BluesyncProto.SendDataRequest.parseFrom(body);
+                    break;
+                case ECI_resp_sendData:
+                    protobuf = BluesyncProto.SendDataResponse.parseFrom(body);
+                    break;
+                default:
+                    return;
+            }
+            ctx.fireRead(new BluesyncMessage(seqId, cmd, protobuf));
+        }
+
+        @Override
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof BroadcastMessage) {
+                ctx.fireWrite(((BroadcastMessage) msg).frame());
+                return;
+            }
+
+            BluesyncMessage message = (BluesyncMessage) msg;
+            byte[] body = message.getProtobufData().toByteArray();
+            ByteBuffer frame = ByteBuffer.allocate(HEAD_LENGTH + body.length);
+            frame.put((byte) 0xFE).put((byte) 0x01)
+                    .putShort((short) frame.capacity())
+                    .putShort((short) message.getCmdId().getNumber())
+                    .putShort((short) message.getSeqId())
+                    .put(body);
+            ctx.fireWrite(frame.array());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package terry.bluesync.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.handler.RequestHandler;
+import terry.bluesync.server.handler.StreamHandler;
+import terry.bluesync.server.util.HashedWheelTimer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Session bookkeeping of the controller. Every session is a channel on the calling thread over a
+ * connected {@link LoopbackTransport} named after its central, the listener keeps the events.
+ */
+public class SessionTableTest {
+    private static final LoopbackTransport.Peer NO_PEER = new LoopbackTransport.Peer() {
+        @Override
+        public void receive(byte[] value) {}
+
+        @Override
+        public void disconnected() {}
+    };
+
+    private HashedWheelTimer mTimer;
+    private List<String> mEvents;
+    private SessionTable mTable;
+
+    @Before
+    public void setUp() {
+        mTimer = new HashedWheelTimer("test-timeout");
+        mEvents = new ArrayList<>();
+        List<BluesyncController.SessionListener> listeners = new ArrayList<>();
+        listeners.add(new BluesyncController.SessionListener() {
+            @Override
+            public void onSessionActive(BluesyncController.Session session) {
+                mEvents.add("active " + session.getId());
+            }
+
+            @Override
+            public void onSessionInactive(BluesyncController.Session session) {
+                mEvents.add("inactive " + session.getId());
+            }
+
+            @Override
+            public void onReceivePushData(BluesyncController.Session session, ByteBuffer data) {
+            }
+        });
+        mTable = new SessionTable(listeners);
+    }
+
+    @After
+    public void tearDown() {
+        mTimer.stop();
+    }
+
+    @Test
+    public void activeFallsBackToTheNewestSession() {
+        BluesyncSession a = session("a");
+        BluesyncSession b = session("b");
+        BluesyncSession c = session("c");
+        mTable.add(a, true);
+        mTable.add(b, true);
+        mTable.add(c, true);
+        assertSame(c, mTable.active());
+
+        assertEquals(2, mTable.remove(c));
+        assertSame(b, mTable.active());
+
+        BluesyncSession d = session("d");
+        mTable.add(d, true);
+        assertEquals(2, mTable.remove(b));
+        assertSame(d, mTable.active());
+
+        assertEquals(1, mTable.remove(a));
+        assertSame(d, mTable.active());
+        assertEquals(0, mTable.remove(d));
+        assertNull(mTable.active());
+        assertEquals(0, mTable.size());
+    }
+
+    @Test
+    public void sessionsAreListedInConnectOrder() {
+        BluesyncSession a = session("a");
+        BluesyncSession b = session("b");
+        BluesyncSession c = session("c");
+        mTable.add(b, true);
+        mTable.add(a, true);
+        mTable.add(c, true);
+        mTable.remove(a);
+
+        assertEquals(Arrays.asList(b, c), mTable.list());
+        assertSame(b, mTable.get("b"));
+        assertNull(mTable.get("a"));
+        assertNull(mTable.get(null));
+    }
+
+    @Test
+    public void singleSessionDisconnectsTheOthers() {
+        BluesyncSession a = session("a");
+        BluesyncSession b = session("b");
+        mTable.add(a, false);
+        mTable.add(b, false);
+
+        assertFalse(isLinked(a));
+        assertTrue(isLinked(b));
+        assertSame(b, mTable.active());
+
+        /** a stays until its channel goes inactive */
+        assertEquals(2, mTable.size());
+        assertEquals(1, mTable.remove(a));
+        assertSame(b, mTable.active());
+        assertEquals(Arrays.asList("active a", "active b", "inactive a"), mEvents);
+    }
+
+    @Test
+    public void multiSessionKeepsTheOthers() {
+        BluesyncSession a = session("a");
+        BluesyncSession b = session("b");
+        mTable.add(a, true);
+        mTable.add(b, true);
+
+        assertTrue(isLinked(a));
+        assertTrue(isLinked(b));
+        assertEquals(Arrays.asList("active a", "active b"), mEvents);
+    }
+
+    @Test
+    public void reconnectReplacesThePreviousSession() {
+        BluesyncSession first = session("a");
+        BluesyncSession b = session("b");
+        BluesyncSession second = session("a");
+        mTable.add(first, true);
+        mTable.add(b, true);
+        mTable.add(second, true);
+
+        assertFalse(first.isConnected());
+        assertTrue(second.isConnected());
+        assertSame(second, mTable.get("a"));
+        assertEquals(Arrays.asList(b, second), mTable.list());
+        assertEquals(Arrays.asList("active a", "active b", "inactive a", "active a"), mEvents);
+
+        /** the old channel goes inactive later, it no longer has a session here */
+        assertEquals(-1, mTable.remove(first));
+        assertSame(second, mTable.get("a"));
+        assertEquals(4, mEvents.size());
+    }
+
+    @Test
+    public void clearTellsListenersOfEverySession() {
+        BluesyncSession a = session("a");
+        BluesyncSession b = session("b");
+        mTable.add(a, true);
+        mTable.add(b, true);
+        mEvents.clear();
+
+        mTable.clear("bluesync disconnected");
+
+        assertFalse(a.isConnected());
+        assertFalse(b.isConnected());
+        assertNull(mTable.active());
+        assertEquals(0, mTable.size());
+        assertEquals(Arrays.asList("inactive a", "inactive b"), mEvents);
+
+        assertEquals(-1, mTable.remove(a));
+        assertEquals(2, mEvents.size());
+    }
+
+    @Test
+    public void removeTellsListenersOnce() {
+        BluesyncSession a = session("a");
+        mTable.add(a, true);
+
+        assertEquals(0, mTable.remove(a));
+        assertEquals(-1, mTable.remove(a));
+        assertFalse(a.isConnected());
+        assertEquals(Arrays.asList("active a", "inactive a"), mEvents);
+    }
+
+    private BluesyncSession session(final String address) {
+        LoopbackTransport transport = new LoopbackTransport() {
+            @Override
+            public String toString() {
+                return address;
+            }
+        };
+        Channel channel = new Channel(transport, new ChannelHandlerInvoker(null));
+        transport.connect(NO_PEER);
+        return new BluesyncSession(channel, new RequestHandler(mTimer), new StreamHandler(mTimer, null));
+    }
+
+    private static boolean isLinked(BluesyncSession session) {
+        return ((LoopbackTransport) session.channel().transport()).isConnected();
+    }
+}
@@ -0,0 +1,127 @@
+package terry.bluesync.server.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ChannelHandlerInvokerTest {
+    private ChannelHandlerInvoker mInvoker;
+
+    @Before
+    public void setUp() {
+        mInvoker = new ChannelHandlerInvoker(Executors.newSingleThreadExecutor());
+    }
+
+    @After
+    public void tearDown() {
+        mInvoker.destroy();
+    }
+
+    @Test
+    public void notInEventLoopFromOtherThread() {
+        assertFalse(mInvoker.inEventLoop());
+        assertTrue(new ChannelHandlerInvoker(null).inEventLoop());
+    }
+
+    @Test
+    public void readFromInvokerThreadRunsInline() throws Exception {
+        final Channel channel = new Channel(new LoopbackTransport(), mInvoker);
+        final AtomicBoolean inline = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        channel.channelPipeline().addLast("first", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                byte[] buf = (byte[]) msg;
+                ctx.fireRead(msg);
+                buf[0] = 0;
+                done.countDown();
+            }
+        });
+        channel.channelPipeline().addLast("second", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                inline.set(((byte[]) msg)[0] == 1);
+            }
+        });
+
+        channel.read(new byte[] {1});
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(inline.get());
+    }
+
+    @Test
+    public void scheduledTaskRunsWhenDueUnlessCancelled() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        ChannelHandlerInvoker invoker = new ChannelHandlerInvoker(null, scheduler);
+        final List<String> ran = new ArrayList<>();
+
+        invoker.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.add("first");
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        ChannelHandlerInvoker.ScheduledTask second = invoker.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.add("second");
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+
+        scheduler.advance(99);
+        assertTrue(ran.isEmpty());
+        scheduler.advance(1);
+        assertEquals(Arrays.asList("first"), ran);
+
+        second.cancel();
+        scheduler.advance(1000);
+        assertEquals(Arrays.asList("first"), ran);
+    }
+
+    @Test
+    public void unconfirmedChunkTimesOut() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+        final List<Integer> chunks = new ArrayList<>();
+        Channel channel = new Channel(new Transport() {
+            @Override
+            public void bind(Channel channel) {}
+
+            @Override
+            public void write(byte[] value, int offset, int length) {
+                chunks.add(length);
+            }
+
+            @Override
+            public void setWriteWithoutResponse(boolean enable) {}
+
+            @Override
+            public void disconnect() {}
+        }, new ChannelHandlerInvoker(null, scheduler));
+
+        channel.write(new byte[100]);
+        scheduler.advance(600);
+        channel.writeChannel();
+        assertEquals(2, chunks.size());
+
+        /** the confirmation keeps the frame going past the first period */
+        scheduler.advance(600);
+        channel.write(new byte[100]);
+        assertEquals(2, chunks.size());
+
+        scheduler.advance(1000);
+        channel.write(new byte[100]);
+        assertEquals(3, chunks.size());
+    }
+}
@@ -0,0 +1,178 @@
+package terry.bluesync.server.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ChannelPipelineTest {
+    private Channel mChannel;
+    private ChannelPipeline mPipeline;
+    private List<String> mVisited;
+
+    @Before
+    public void setUp() {
+        mChannel = new Channel(new LoopbackTransport(), new ChannelHandlerInvoker(null));
+        mPipeline = mChannel.channelPipeline();
+        mVisited = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @After
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Test
+    public void eventsOnlyVisitHandlersWhichHandleThem() {
+        mPipeline.addLast("writeEnd", new ChannelHandlerAdapter() {
+            @Override
+            public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mVisited.add("writeEnd");
+            }
+        });
+        mPipeline.addLast("reader", new Reader("reader"));
+        mPipeline.addLast("writer", new Writer("writer"));
+        mPipeline.addLast("activeOnly", new ChannelHandlerAdapter() {
+            @Override
+            public void active(AbstractChannelHandlerContext ctx) throws Exception {
+                mVisited.add("activeOnly");
+                ctx.fireActive();
+            }
+        });
+        mPipeline.addLast("readEnd", new Reader("readEnd"));
+
+        mChannel.read("msg");
+        assertEquals(list("reader", "readEnd"), mVisited);
+
+        mVisited.clear();
+        mChannel.write("msg");
+        assertEquals(list("writer", "writeEnd"), mVisited);
+
+        mVisited.clear();
+        mPipeline.active();
+        assertEquals(list("activeOnly"), mVisited);
+    }
+
+    @Test
+    public void removedHandlerPassesOnItsEvent() {
+        mPipeline.addLast("first", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mVisited.add("first");
+                ctx.pipeline().remove("first");
+                ctx.fireRead(msg);
+            }
+        });
+        mPipeline.addLast("last", new Reader("last"));
+
+        mChannel.read("msg");
+        mChannel.read("msg");
+        assertEquals(list("first", "last", "last"), mVisited);
+    }
+
+    @Test
+    public void handlersChangeWhileEventsGoThrough() throws Exception {
+        final int messages = 200000;
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        mPipeline.addLast("counter", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                received.incrementAndGet();
+                ctx.fireRead(msg);
+            }
+        });
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < messages; i++) {
+                        mChannel.read(i);
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }
+        });
+        reader.start();
+
+        ChannelHandlerAdapter passOn = new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                ctx.fireRead(msg);
+            }
+        };
+        while (reader.isAlive()) {
+            mPipeline.addLast("passOn", passOn);
+            mPipeline.remove("passOn");
+        }
+        reader.join();
+
+        assertNull(error.get());
+        assertEquals(messages, received.get());
+    }
+
+    @Test
+    public void skipFlagsAreLookedUpOncePerClass() {
+        int flags = AbstractChannelHandlerContext.skipFlags0(Cached.class);
+        assertEquals(flags, AbstractChannelHandlerContext.skipFlags(new Cached()));
+        assertEquals(Integer.valueOf(flags), AbstractChannelHandlerContext.SKIP_FLAGS_CACHE.get(Cached.class));
+
+        /** a second handler of the class takes the cached flags instead of looking them up again */
+        AbstractChannelHandlerContext.SKIP_FLAGS_CACHE.put(Cached.class, ~flags);
+        assertEquals(~flags, AbstractChannelHandlerContext.skipFlags(new Cached()));
+        AbstractChannelHandlerContext.SKIP_FLAGS_CACHE.remove(Cached.class);
+
+        assertNotEquals(AbstractChannelHandlerContext.skipFlags(new Reader("a")),
+                AbstractChannelHandlerContext.skipFlags(new Writer("b")));
+    }
+
+    private static class Cached extends ChannelHandlerAdapter {
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireRead(msg);
+        }
+    }
+
+    private class Reader extends ChannelHandlerAdapter {
+        private final String mName;
+
+        Reader(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            mVisited.add(mName);
+            ctx.fireRead(msg);
+        }
+    }
+
+    private class Writer extends ChannelHandlerAdapter {
+        private final String mName;
+
+        Writer(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            mVisited.add(mName);
+            ctx.fireWrite(msg);
+        }
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
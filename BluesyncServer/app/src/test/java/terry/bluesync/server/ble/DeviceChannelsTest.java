@@ -0,0 +1,94 @@
+package terry.bluesync.server.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class DeviceChannelsTest {
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private List<String> mSent;
+    private List<String> mOpened;
+    private NotificationScheduler<String> mScheduler;
+    private DeviceChannels<String> mChannels;
+
+    @Before
+    public void setUp() {
+        mSent = new ArrayList<>();
+        mOpened = new ArrayList<>();
+        mScheduler = new NotificationScheduler<>(new NotificationScheduler.Sender<String>() {
+            @Override
+            public boolean send(String device, byte[] value, boolean confirm) {
+                mSent.add(device + value[0]);
+                return true;
+            }
+        }, INLINE);
+        mChannels = new DeviceChannels<>(mScheduler, new DeviceChannels.Factory<String>() {
+            @Override
+            public Channel newChannel(String device) {
+                mOpened.add(device);
+                return new Channel(new LoopbackTransport(), new ChannelHandlerInvoker(null));
+            }
+        });
+    }
+
+    @Test
+    public void connectedDeviceKeepsItsChannel() {
+        Channel channel = mChannels.open("a");
+
+        assertSame(channel, mChannels.open("a"));
+        assertSame(channel, mChannels.get("a"));
+        assertNull(mChannels.get("b"));
+        assertEquals(1, mOpened.size());
+    }
+
+    @Test
+    public void notificationSentAfterDisconnectIsDropped() {
+        mChannels.open("a");
+        mScheduler.submit("a", new byte[]{0}, true);
+        mScheduler.submit("a", new byte[]{1}, true);
+
+        mChannels.close("a");
+        mChannels.notificationSent("a");
+
+        assertNull(mChannels.get("a"));
+        assertTrue(mChannels.devices().isEmpty());
+        assertEquals(1, mOpened.size());
+        assertEquals(0, mScheduler.pendingChunks("a"));
+        assertEquals(1, mSent.size());
+    }
+
+    @Test
+    public void notificationSentLetsTheNextChunkGo() {
+        mChannels.open("a");
+        mScheduler.submit("a", new byte[]{0}, true);
+        mScheduler.submit("a", new byte[]{1}, true);
+
+        mChannels.notificationSent("a");
+
+        assertEquals(2, mSent.size());
+        assertEquals(0, mScheduler.pendingChunks("a"));
+    }
+
+    @Test
+    public void clearClosesEveryChannel() {
+        mChannels.open("a");
+        mChannels.open("b");
+
+        mChannels.clear();
+
+        assertTrue(mChannels.devices().isEmpty());
+        assertNull(mChannels.get("a"));
+        assertNull(mChannels.get("b"));
+    }
+}
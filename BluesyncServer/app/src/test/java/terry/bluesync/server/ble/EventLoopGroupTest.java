@@ -0,0 +1,115 @@
+package terry.bluesync.server.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventLoopGroupTest {
+    private static final int LOOPS = 4;
+    private static final int CHANNELS = 100;
+    private static final int MESSAGES = 200;
+
+    private EventLoopGroup mGroup;
+    private List<Channel> mChannels;
+
+    @Before
+    public void setUp() {
+        mGroup = new EventLoopGroup("test-loop", LOOPS);
+        mChannels = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (Channel channel : mChannels) {
+            channel.destroy();
+        }
+        mGroup.shutdown();
+    }
+
+    @Test
+    public void hundredChannelsOnFixedThreadsKeepTheirOrder() throws Exception {
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final CountDownLatch done = new CountDownLatch(CHANNELS);
+        final List<List<Integer>> received = new ArrayList<>();
+
+        for (int i = 0; i < CHANNELS; i++) {
+            final List<Integer> messages = Collections.synchronizedList(new ArrayList<Integer>());
+            received.add(messages);
+
+            Channel channel = new Channel(new LoopbackTransport(), mGroup.next());
+            channel.channelPipeline().addLast("collector", new ChannelHandlerAdapter() {
+                @Override
+                public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                    threads.add(Thread.currentThread());
+                    messages.add((Integer) msg);
+                    if (messages.size() == MESSAGES) {
+                        done.countDown();
+                    }
+                }
+            });
+            mChannels.add(channel);
+        }
+
+        /** every producer feeds its own share of the channels, interleaved */
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < LOOPS; p++) {
+            final int first = p;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int message = 0; message < MESSAGES; message++) {
+                        for (int i = first; i < CHANNELS; i += LOOPS) {
+                            mChannels.get(i).read(message);
+                        }
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(LOOPS, threads.size());
+        for (List<Integer> messages : received) {
+            for (int message = 0; message < MESSAGES; message++) {
+                assertEquals(message, (int) messages.get(message));
+            }
+        }
+    }
+
+    @Test
+    public void destroyedChannelLeavesItsLoopRunning() throws Exception {
+        EventLoopGroup group = new EventLoopGroup("single-loop", 1);
+        try {
+            group.next().destroy();
+
+            final CountDownLatch read = new CountDownLatch(1);
+            Channel channel = new Channel(new LoopbackTransport(), group.next());
+            channel.channelPipeline().addLast("latch", new ChannelHandlerAdapter() {
+                @Override
+                public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                    read.countDown();
+                }
+            });
+            mChannels.add(channel);
+
+            channel.read(new byte[1]);
+            assertTrue(read.await(1, TimeUnit.SECONDS));
+        } finally {
+            group.shutdown();
+        }
+    }
+}
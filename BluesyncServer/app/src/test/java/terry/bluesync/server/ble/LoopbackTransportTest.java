@@ -0,0 +1,267 @@
+package terry.bluesync.server.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.handler.LengthFieldFrameDecoder;
+import terry.bluesync.server.util.ByteBuf;
+
+import static org.junit.Assert.*;
+import static terry.bluesync.server.util.TestBytes.frame;
+
+/**
+ * Run two pipelines against each other over {@link LoopbackTransport}, the frames written on one
+ * side must come out of the decoder on the other side unchanged.
+ */
+public class LoopbackTransportTest {
+    private static final int FRAME_BUF_SIZE = 4 * 1024;
+
+    private Channel mFirst;
+    private Channel mSecond;
+    private BlockingQueue<byte[]> mFirstFrames;
+    private BlockingQueue<byte[]> mSecondFrames;
+
+    @Before
+    public void setUp() {
+        mFirstFrames = new LinkedBlockingQueue<>();
+        mSecondFrames = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDown() {
+        mFirst.disconnect();
+        mFirst.destroy();
+        mSecond.destroy();
+    }
+
+    @Test
+    public void frameArrivesUnchanged() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(247, 0, 0f);
+        LoopbackTransport second = new LoopbackTransport(247, 0, 0f);
+        connect(first, second);
+
+        byte[] frame = frame(1000, 1);
+        mFirst.write(frame);
+
+        assertArrayEquals(frame, mSecondFrames.poll(1, TimeUnit.SECONDS));
+        assertEquals(5, first.writeCount());
+        assertEquals(0, first.lostCount());
+    }
+
+    @Test
+    public void framesTravelBothWays() throws Exception {
+        LoopbackTransport first = new LoopbackTransport();
+        LoopbackTransport second = new LoopbackTransport();
+        connect(first, second);
+
+        byte[] request = frame(300, 1);
+        byte[] response = frame(120, 2);
+        mFirst.write(request);
+        mSecond.write(response);
+
+        assertArrayEquals(request, mSecondFrames.poll(1, TimeUnit.SECONDS));
+        assertArrayEquals(response, mFirstFrames.poll(1, TimeUnit.SECONDS));
+        assertEquals(15, first.writeCount());
+        assertEquals(6, second.writeCount());
+    }
+
+    @Test
+    public void latencyDelaysDelivery() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.MAX_MTU, 50, 0f);
+        LoopbackTransport second = new LoopbackTransport(Channel.MAX_MTU, 50, 0f);
+        connect(first, second);
+
+        long start = System.nanoTime();
+        mFirst.write(frame(100, 1));
+
+        assertNotNull(mSecondFrames.poll(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    public void lostChunksNeverArrive() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 0, 1f, new Random(1));
+        LoopbackTransport second = new LoopbackTransport();
+        connect(first, second);
+
+        mFirst.write(frame(100, 1));
+
+        assertNull(mSecondFrames.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(5, first.lostCount());
+    }
+
+    @Test
+    public void fastWriteKeepsFrameOrder() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        LoopbackTransport second = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        connect(first, second);
+        mFirst.setFastWriteWindow(4);
+        mSecond.setFastWriteWindow(4);
+
+        byte[][] frames = new byte[20][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame(200, i + 1);
+            mFirst.write(frames[i]);
+        }
+
+        for (byte[] frame : frames) {
+            assertArrayEquals(frame, mSecondFrames.poll(1, TimeUnit.SECONDS));
+        }
+        assertNull(mSecondFrames.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void fastWriteOnOneSideFallsBack() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        LoopbackTransport second = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        connect(first, second);
+        mFirst.setFastWriteWindow(4);
+
+        byte[][] frames = new byte[10][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame(200, i + 1);
+            mFirst.write(frames[i]);
+            mSecond.write(frames[i]);
+        }
+
+        for (byte[] frame : frames) {
+            assertArrayEquals(frame, mSecondFrames.poll(1, TimeUnit.SECONDS));
+            assertArrayEquals(frame, mFirstFrames.poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void batchingPacksSmallFrames() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(247, 1, 0f);
+        LoopbackTransport second = new LoopbackTransport(247, 1, 0f);
+        connect(first, second);
+        mFirst.setWriteBatching(true, 0, 0);
+
+        byte[][] frames = new byte[24][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame(30, i + 1);
+            mFirst.write(frames[i]);
+        }
+
+        for (byte[] frame : frames) {
+            assertArrayEquals(frame, mSecondFrames.poll(1, TimeUnit.SECONDS));
+        }
+        assertTrue("chunks=" + first.writeCount(), first.writeCount() <= frames.length / 4);
+    }
+
+    @Test
+    public void batchingWithFastWriteKeepsFrameOrder() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        LoopbackTransport second = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        connect(first, second);
+        mFirst.setFastWriteWindow(4);
+        mSecond.setFastWriteWindow(4);
+        mFirst.setWriteBatching(true, 0, 0);
+
+        byte[][] frames = new byte[30][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame(8 + i % 3 * 4, i + 1);
+            mFirst.write(frames[i]);
+        }
+
+        for (byte[] frame : frames) {
+            assertArrayEquals(frame, mSecondFrames.poll(1, TimeUnit.SECONDS));
+        }
+        assertNull(mSecondFrames.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue("chunks=" + first.writeCount(), first.writeCount() < frames.length);
+    }
+
+    /**
+     * A credit frame lost on the way is made up by the next one, the sender never runs dry.
+     * */
+    @Test
+    public void fastWriteSurvivesLostCredits() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        LoopbackTransport second = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0.1f, new Random(2));
+        connect(first, second);
+        mFirst.setFastWriteWindow(4);
+        mSecond.setFastWriteWindow(4);
+
+        for (int batch = 0; batch < 10; batch++) {
+            for (byte[] frame : writeFrames(mFirst, 20, batch * 20)) {
+                assertArrayEquals(frame, mSecondFrames.poll(5, TimeUnit.SECONDS));
+            }
+        }
+        assertTrue(second.lostCount() > 0);
+    }
+
+    /**
+     * Lost frames never give their credits back, the sender falls back to confirmed writes once
+     * it runs out and keeps delivering.
+     * */
+    @Test
+    public void fastWriteRecoversFromLostFrames() throws Exception {
+        LoopbackTransport first = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0.02f, new Random(3));
+        LoopbackTransport second = new LoopbackTransport(Channel.DEFAULT_MTU, 1, 0f);
+        connect(first, second);
+        mFirst.setFastWriteWindow(4);
+        mSecond.setFastWriteWindow(4);
+
+        for (int batch = 0; batch < 10; batch++) {
+            writeFrames(mFirst, 20, batch * 20);
+            while (mSecondFrames.poll(300, TimeUnit.MILLISECONDS) != null) {
+            }
+        }
+        assertTrue(first.lostCount() > 0);
+
+        /** the decoder drops what is left of a broken frame after its read timeout */
+        first.setLossRate(0f);
+        Thread.sleep(2500);
+        mSecondFrames.clear();
+
+        for (byte[] frame : writeFrames(mFirst, 20, 1000)) {
+            assertArrayEquals(frame, mSecondFrames.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void disconnectInactivesBothSides() throws Exception {
+        LoopbackTransport first = new LoopbackTransport();
+        LoopbackTransport second = new LoopbackTransport();
+        connect(first, second);
+
+        mFirst.disconnect();
+        Thread.sleep(100);
+
+        assertFalse(first.isConnected());
+        assertFalse(second.isConnected());
+    }
+
+    private void connect(LoopbackTransport first, LoopbackTransport second) {
+        mFirst = newChannel(first, mFirstFrames);
+        mSecond = newChannel(second, mSecondFrames);
+        LoopbackTransport.connect(first, second);
+    }
+
+    private static Channel newChannel(LoopbackTransport transport, final BlockingQueue<byte[]> frames) {
+        Channel channel = new Channel(transport);
+        channel.channelPipeline().addLast("frameDecoder", new LengthFieldFrameDecoder(FRAME_BUF_SIZE));
+        channel.channelPipeline().addLast("collector", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                frames.add(((ByteBuf) msg).toByteArray());
+            }
+        });
+        return channel;
+    }
+
+    private static byte[][] writeFrames(Channel channel, int count, int firstSeqId) {
+        byte[][] frames = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            frames[i] = frame(60, firstSeqId + i + 1);
+            channel.write(frames[i]);
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,156 @@
+package terry.bluesync.server.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NotificationSchedulerTest {
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private List<String> mSent;
+    private NotificationScheduler<String> mScheduler;
+
+    @Before
+    public void setUp() {
+        mSent = Collections.synchronizedList(new ArrayList<String>());
+        mScheduler = new NotificationScheduler<>(new NotificationScheduler.Sender<String>() {
+            @Override
+            public boolean send(String device, byte[] value, boolean confirm) {
+                mSent.add(device + value[0]);
+                return true;
+            }
+        }, INLINE);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.clear();
+    }
+
+    @Test
+    public void oneChunkInFlightPerDevice() {
+        submit("a", 3);
+        submit("b", 2);
+        assertEquals(list("a0", "b0"), mSent);
+
+        mScheduler.sent("a");
+        assertEquals(list("a0", "b0", "a1"), mSent);
+        assertEquals(1, mScheduler.pendingChunks("a"));
+
+        /** nothing in flight to b after its last chunk, a stray completion is ignored */
+        mScheduler.sent("b");
+        mScheduler.sent("b");
+        mScheduler.sent("b");
+        assertEquals(list("a0", "b0", "a1", "b1"), mSent);
+    }
+
+    @Test
+    public void slowDeviceOnlyHoldsBackItself() {
+        submit("slow", 5);
+        submit("fast", 5);
+        for (int i = 0; i < 5; i++) {
+            mScheduler.sent("fast");
+        }
+
+        assertEquals(list("slow0", "fast0", "fast1", "fast2", "fast3", "fast4"), mSent);
+        assertEquals(4, mScheduler.pendingChunks("slow"));
+    }
+
+    @Test
+    public void removedDeviceDropsItsChunks() {
+        submit("a", 3);
+        mScheduler.remove("a");
+        mScheduler.sent("a");
+
+        assertEquals(list("a0"), mSent);
+        assertEquals(0, mScheduler.pendingChunks("a"));
+    }
+
+    @Test
+    public void refusedChunkLetsTheNextOneGo() {
+        final List<String> sent = new ArrayList<>();
+        NotificationScheduler<String> scheduler = new NotificationScheduler<>(new NotificationScheduler.Sender<String>() {
+            @Override
+            public boolean send(String device, byte[] value, boolean confirm) {
+                sent.add(device + value[0]);
+                return value[0] != 0;
+            }
+        }, INLINE);
+        scheduler.submit("a", new byte[]{0}, true);
+        scheduler.submit("a", new byte[]{1}, true);
+
+        assertEquals(list("a0", "a1"), sent);
+    }
+
+    /**
+     * Every device takes 5 ms to confirm a chunk, devices wait for their confirmations at the
+     * same time.
+     * */
+    @Test
+    public void devicesConfirmInParallel() throws Exception {
+        final int devices = 4;
+        final int chunks = 20;
+        final ScheduledExecutorService stack = Executors.newSingleThreadScheduledExecutor();
+        final CountDownLatch done = new CountDownLatch(devices * chunks);
+        final AtomicReference<NotificationScheduler<String>> scheduler = new AtomicReference<>();
+        scheduler.set(new NotificationScheduler<>(new NotificationScheduler.Sender<String>() {
+            @Override
+            public boolean send(final String device, byte[] value, boolean confirm) {
+                stack.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                        scheduler.get().sent(device);
+                    }
+                }, 5, TimeUnit.MILLISECONDS);
+                return true;
+            }
+        }));
+
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                for (int device = 0; device < devices; device++) {
+                    scheduler.get().submit("d" + device, new byte[]{(byte) i}, true);
+                }
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis < devices * chunks * 5 / 2);
+        } finally {
+            scheduler.get().clear();
+            stack.shutdownNow();
+            assertTrue(stack.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    private void submit(String device, int chunks) {
+        for (int i = 0; i < chunks; i++) {
+            mScheduler.submit(device, new byte[]{(byte) i}, true);
+        }
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
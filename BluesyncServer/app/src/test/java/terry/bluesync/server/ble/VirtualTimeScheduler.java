@@ -0,0 +1,148 @@
+package terry.bluesync.server.ble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler whose clock only moves in {@link #advance(long)}, due tasks then run on the calling
+ * thread in the order they are due. Only {@link #schedule(Runnable, long, TimeUnit)} is supported.
+ */
+public class VirtualTimeScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+    private final PriorityQueue<Task> mTasks = new PriorityQueue<>();
+    private long mNow = 0;
+    private long mSequence = 0;
+
+    public long now() {
+        return mNow;
+    }
+
+    public void advance(long millis) {
+        long deadline = mNow + millis;
+        Task task;
+        while ((task = mTasks.peek()) != null && task.mTime <= deadline) {
+            mTasks.poll();
+            mNow = task.mTime;
+            if (!task.mIsCancelled) {
+                task.mRunnable.run();
+            }
+        }
+        mNow = deadline;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Task task = new Task(command, mNow + unit.toMillis(delay), mSequence++);
+        mTasks.add(task);
+        return task;
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        mTasks.clear();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (Task task : mTasks) {
+            tasks.add(task.mRunnable);
+        }
+        mTasks.clear();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+
+    private final class Task implements ScheduledFuture<Object> {
+        private final Runnable mRunnable;
+        private final long mTime;
+        private final long mSequence;
+        private boolean mIsCancelled = false;
+
+        Task(Runnable runnable, long time, long sequence) {
+            mRunnable = runnable;
+            mTime = time;
+            mSequence = sequence;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(mTime - mNow, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            Task task = (Task) other;
+            if (mTime != task.mTime) {
+                return mTime < task.mTime ? -1 : 1;
+            }
+            return mSequence < task.mSequence ? -1 : (mSequence == task.mSequence ? 0 : 1);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            mIsCancelled = true;
+            return mTasks.remove(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return mIsCancelled || !mTasks.contains(this);
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
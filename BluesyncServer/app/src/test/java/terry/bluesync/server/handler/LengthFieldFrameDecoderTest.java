@@ -0,0 +1,200 @@
+package terry.bluesync.server.handler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.ble.VirtualTimeScheduler;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
+
+import static org.junit.Assert.*;
+import static terry.bluesync.server.util.TestBytes.frame;
+
+/**
+ * Chunks are read into the decoder inline on the test thread, the frames it fires are copied
+ * out together with the array they were read from.
+ */
+public class LengthFieldFrameDecoderTest {
+    private static final int MAX_FRAME_LENGTH = 4 * 1024;
+
+    private ByteBufPool mPool;
+    private VirtualTimeScheduler mScheduler;
+    private Channel mChannel;
+    private List<byte[]> mFrames;
+    private List<byte[]> mArrays;
+
+    @Before
+    public void setUp() {
+        mPool = new ByteBufPool();
+        mScheduler = new VirtualTimeScheduler();
+        mFrames = new ArrayList<>();
+        mArrays = new ArrayList<>();
+
+        mChannel = new Channel(new LoopbackTransport(), new ChannelHandlerInvoker(null, mScheduler), mPool);
+        mChannel.channelPipeline()
+                .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                .addLast("collector", new ChannelHandlerAdapter() {
+                    @Override
+                    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        ByteBuf frame = (ByteBuf) msg;
+                        mFrames.add(frame.toByteArray());
+                        mArrays.add(frame.array());
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Test
+    public void frameInOneChunkIsReadInPlace() {
+        byte[] frame = frame(100, 1);
+        mChannel.read(frame);
+
+        assertArrayEquals(frame, mFrames.get(0));
+        assertSame(frame, mArrays.get(0));
+        assertEquals(0, mPool.stats().allocations());
+    }
+
+    @Test
+    public void chunkedFrameBufferGoesBackToPool() {
+        byte[] frame = frame(1000, 1);
+        readChunks(frame, 20);
+        readChunks(frame(1000, 2), 20);
+
+        assertEquals(2, mFrames.size());
+        assertArrayEquals(frame, mFrames.get(0));
+
+        ByteBufPool.Stats stats = mPool.stats();
+        assertEquals(2, stats.allocations());
+        assertEquals(1, stats.hits());
+        assertEquals(0, stats.inUse());
+    }
+
+    @Test
+    public void headSplitAcrossChunks() {
+        byte[] frame = frame(30, 1);
+        readChunks(frame, 3);
+
+        assertArrayEquals(frame, mFrames.get(0));
+        assertEquals(0, mPool.stats().inUse());
+    }
+
+    @Test
+    public void zeroFillAfterFrameIsIgnored() {
+        byte[] frame = frame(50, 1);
+        mChannel.read(Arrays.copyOf(frame, 60));
+
+        assertArrayEquals(frame, mFrames.get(0));
+    }
+
+    @Test
+    public void severalFramesInOneChunk() {
+        byte[] first = frame(20, 1);
+        byte[] second = frame(8, 2);
+        byte[] third = frame(60, 3);
+        byte[] chunk = concat(first, second, third);
+        mChannel.read(chunk);
+
+        assertEquals(3, mFrames.size());
+        assertArrayEquals(first, mFrames.get(0));
+        assertArrayEquals(second, mFrames.get(1));
+        assertArrayEquals(third, mFrames.get(2));
+        assertSame(chunk, mArrays.get(2));
+        assertEquals(0, mPool.stats().allocations());
+    }
+
+    @Test
+    public void framesStraddlingChunksAreCarriedOver() {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            frames.add(frame(8 + i * 37, i));
+        }
+        readChunks(concat(frames.toArray(new byte[0][])), 23);
+
+        assertEquals(frames.size(), mFrames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals(frames.get(i), mFrames.get(i));
+        }
+        assertEquals(0, mPool.stats().inUse());
+    }
+
+    @Test
+    public void zeroFillAfterSeveralFrames() {
+        byte[] first = frame(20, 1);
+        byte[] second = frame(30, 2);
+        mChannel.read(Arrays.copyOf(concat(first, second), 64));
+
+        assertEquals(2, mFrames.size());
+        assertArrayEquals(second, mFrames.get(1));
+    }
+
+    @Test
+    public void oversizeFrameIsDroppedAndNextOneRead() {
+        readChunks(frame(MAX_FRAME_LENGTH + 1, 1), 20);
+        assertTrue(mFrames.isEmpty());
+
+        byte[] frame = frame(40, 2);
+        mChannel.read(frame);
+        assertArrayEquals(frame, mFrames.get(0));
+        assertEquals(0, mPool.stats().inUse());
+    }
+
+    @Test
+    public void partialFrameTimesOut() {
+        byte[] frame = frame(100, 1);
+        mChannel.read(Arrays.copyOf(frame, 50));
+        mScheduler.advance(1000);
+        assertEquals(0, mPool.stats().inUse());
+
+        byte[] next = frame(100, 2);
+        mChannel.read(next);
+        assertEquals(1, mFrames.size());
+        assertArrayEquals(next, mFrames.get(0));
+    }
+
+    @Test
+    public void chunksKeepPartialFrameAlive() {
+        byte[] frame = frame(100, 1);
+        for (int offset = 0; offset < frame.length; offset += 20) {
+            mChannel.read(Arrays.copyOfRange(frame, offset, offset + 20));
+            mScheduler.advance(600);
+        }
+
+        assertEquals(1, mFrames.size());
+        assertArrayEquals(frame, mFrames.get(0));
+    }
+
+    private void readChunks(byte[] frame, int chunkSize) {
+        for (int offset = 0; offset < frame.length; offset += chunkSize) {
+            mChannel.read(Arrays.copyOfRange(frame, offset, Math.min(offset + chunkSize, frame.length)));
+        }
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] array : arrays) {
+            length += array.length;
+        }
+
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,193 @@
+package terry.bluesync.server.handler;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.HashedWheelTimer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Requests written by {@link RequestHandler} are captured instead of sent, responses are read
+ * into the channel by the test. Events run inline on the test thread.
+ */
+public class RequestHandlerTest {
+    private static final int TIMEOUT = 5 * 1000;
+
+    private Channel mChannel;
+    private RequestHandler mRequestHandler;
+    private List<BluesyncMessage> mRequests;
+    private List<Object> mPassed;
+
+    @Before
+    public void setUp() {
+        mRequests = new ArrayList<>();
+        mPassed = new ArrayList<>();
+        mRequestHandler = new RequestHandler(new HashedWheelTimer("test", 10, TimeUnit.MILLISECONDS, 8));
+
+        mChannel = new Channel(new LoopbackTransport(), new ChannelHandlerInvoker(null));
+        mChannel.channelPipeline()
+                .addLast("capture", new ChannelHandlerAdapter() {
+                    @Override
+                    public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        mRequests.add((BluesyncMessage) msg);
+                    }
+                })
+                .addLast("requestHandler", mRequestHandler)
+                .addLast("collector", new ChannelHandlerAdapter() {
+                    @Override
+                    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        mPassed.add(msg);
+                    }
+                });
+        mChannel.active();
+    }
+
+    @After
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Test
+    public void responsesCompleteInAnyOrder() throws Exception {
+        Result first = new Result();
+        Result second = new Result();
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("first"), TIMEOUT, first);
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("second"), TIMEOUT, second);
+        assertEquals(2, mRequests.size());
+        assertEquals(2, mRequestHandler.pendingRequests());
+
+        respond(mRequests.get(1), "two");
+        respond(mRequests.get(0), "one");
+
+        assertEquals("one", first.take());
+        assertEquals("two", second.take());
+        assertEquals(0, mRequestHandler.pendingRequests());
+        assertTrue(mPassed.isEmpty());
+    }
+
+    @Test
+    public void errorFailsItsRequest() throws Exception {
+        Result failed = new Result();
+        Result other = new Result();
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("bad"), TIMEOUT, failed);
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("good"), TIMEOUT, other);
+
+        mChannel.read(new BluesyncMessage(mRequests.get(0).getSeqId(), BluesyncProto.EmCmdId.ECI_error,
+                BluesyncProtoUtil.getBaseResponseMessage(BluesyncProto.EmErrorCode.EEC_decode_VALUE, "parse protobuf fail.")));
+
+        assertEquals("error: parse protobuf fail.", failed.take());
+        assertEquals(1, mRequestHandler.pendingRequests());
+        assertTrue(mPassed.isEmpty());
+
+        /** an error no request waits for goes on to the controller */
+        mChannel.read(new BluesyncMessage(0, BluesyncProto.EmCmdId.ECI_error,
+                BluesyncProtoUtil.getBaseResponseMessage(BluesyncProto.EmErrorCode.EEC_decode_VALUE, null)));
+        assertEquals(1, mPassed.size());
+        assertNull(other.poll(50));
+    }
+
+    @Test
+    public void cancelledRequestIsNotCompleted() throws Exception {
+        Result result = new Result();
+        RequestHandler.Request request = mRequestHandler.sendRequest(ByteString.copyFromUtf8("data"), TIMEOUT, result);
+
+        assertTrue(request.cancel());
+        assertFalse(request.cancel());
+        assertEquals(0, mRequestHandler.pendingRequests());
+
+        respond(mRequests.get(0), "late");
+        assertNull(result.poll(50));
+        assertEquals(1, mPassed.size());
+    }
+
+    @Test
+    public void timeoutFailsRequest() throws Exception {
+        Result result = new Result();
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("data"), 30, result);
+
+        assertEquals("error: response timeout", result.take());
+        assertEquals(0, mRequestHandler.pendingRequests());
+
+        respond(mRequests.get(0), "late");
+        assertEquals(1, mPassed.size());
+    }
+
+    @Test
+    public void inactiveFailsPendingRequests() throws Exception {
+        Result result = new Result();
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("data"), TIMEOUT, result);
+
+        mChannel.inactive();
+
+        assertEquals("error: bluesync disconnected", result.take());
+        mRequestHandler.sendRequest(ByteString.copyFromUtf8("data"), TIMEOUT, result);
+        assertEquals("error: bluesync disconnected", result.take());
+        assertEquals(1, mRequests.size());
+    }
+
+    @Test
+    public void manyRequestsInFlight() throws Exception {
+        int count = 500;
+        Result result = new Result();
+        for (int i = 0; i < count; i++) {
+            mRequestHandler.sendRequest(ByteString.copyFromUtf8(String.valueOf(i)), TIMEOUT, result);
+        }
+        assertEquals(count, mRequestHandler.pendingRequests());
+
+        List<BluesyncMessage> requests = new ArrayList<>(mRequests);
+        Collections.shuffle(requests);
+        for (BluesyncMessage request : requests) {
+            respond(request, "ok");
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("ok", result.take());
+        }
+        assertEquals(0, mRequestHandler.pendingRequests());
+    }
+
+    private void respond(BluesyncMessage request, String data) {
+        mChannel.read(BluesyncProtoUtil.getSendDataResponse(request.getSeqId(), data.getBytes()));
+    }
+
+    private static class Result implements RequestHandler.Callback {
+        private final BlockingQueue<String> mResults = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onResponse(ByteString data) {
+            mResults.add(data.toStringUtf8());
+        }
+
+        @Override
+        public void onError(String message) {
+            mResults.add("error: " + message);
+        }
+
+        String take() throws InterruptedException {
+            return mResults.poll(1, TimeUnit.SECONDS);
+        }
+
+        String poll(long millis) throws InterruptedException {
+            return mResults.poll(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
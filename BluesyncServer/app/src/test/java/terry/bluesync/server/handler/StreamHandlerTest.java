@@ -0,0 +1,278 @@
+package terry.bluesync.server.handler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.HashedWheelTimer;
+import terry.bluesync.server.util.StreamSink;
+
+import static org.junit.Assert.*;
+import static terry.bluesync.server.util.TestBytes.randomBytes;
+
+/**
+ * Streams sent between two pipelines over {@link LoopbackTransport}, framed and coded like the
+ * real ones but without the login handshake.
+ */
+public class StreamHandlerTest {
+    private static final int MAX_FRAME_LENGTH = 4 * 1024;
+    private static final int STREAM_ID = 7;
+
+    private HashedWheelTimer mTimer;
+    private Channel mSender;
+    private Channel mReceiver;
+    private StreamHandler mStreamHandler;
+    private Map<Integer, StreamSink> mSinks;
+    private BlockingQueue<String> mReceived;
+    private CountDownLatch mActive;
+
+    @Before
+    public void setUp() throws Exception {
+        mTimer = new HashedWheelTimer("test");
+        mSinks = new ConcurrentHashMap<>();
+        mReceived = new LinkedBlockingQueue<>();
+        mActive = new CountDownLatch(2);
+
+        LoopbackTransport senderTransport = new LoopbackTransport(Channel.MAX_MTU, 0, 0f);
+        LoopbackTransport receiverTransport = new LoopbackTransport(Channel.MAX_MTU, 0, 0f);
+
+        mStreamHandler = new StreamHandler(mTimer, null);
+        mSender = newChannel(senderTransport, mStreamHandler);
+        mReceiver = newChannel(receiverTransport, new StreamHandler(mTimer, new StreamHandler.Listener() {
+            @Override
+            public StreamSink onStreamOpen(int streamId, long length) {
+                return mSinks.get(streamId);
+            }
+
+            @Override
+            public void onStreamComplete(int streamId) {
+                mReceived.add("complete " + streamId);
+            }
+
+            @Override
+            public void onStreamError(int streamId, String message) {
+                mReceived.add("error " + streamId);
+            }
+        }));
+
+        LoopbackTransport.connect(senderTransport, receiverTransport);
+        assertTrue(mActive.await(1, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        mSender.disconnect();
+        mSender.destroy();
+        mReceiver.destroy();
+    }
+
+    @Test
+    public void transfersTenMegabytes() throws Exception {
+        byte[] data = randomBytes(10 * 1024 * 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        mSinks.put(STREAM_ID, StreamSink.wrap(out));
+
+        Progress progress = new Progress();
+        mStreamHandler.sendStream(STREAM_ID, new ByteArrayInputStream(data), data.length, progress);
+
+        assertEquals("complete", progress.take(60));
+        assertEquals("complete " + STREAM_ID, mReceived.poll(1, TimeUnit.SECONDS));
+        assertEquals(data.length, progress.mOffset);
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(0, mStreamHandler.sendingStreams());
+    }
+
+    @Test
+    public void resumesFromStoredOffset() throws Exception {
+        byte[] data = randomBytes(300 * 1000);
+        int stored = 100 * 1000;
+
+        File file = File.createTempFile("stream", null);
+        file.deleteOnExit();
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            channel.write(ByteBuffer.wrap(data, 0, stored));
+            mSinks.put(STREAM_ID, StreamSink.wrap(channel));
+
+            Progress progress = new Progress();
+            mStreamHandler.sendStream(STREAM_ID, new ByteArrayInputStream(data), data.length, progress);
+
+            assertEquals("complete", progress.take(10));
+            assertEquals("complete " + STREAM_ID, mReceived.poll(1, TimeUnit.SECONDS));
+
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            assertArrayEquals(data, content.array());
+            assertTrue(progress.mFirstOffset > stored);
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void refusedStreamFails() throws Exception {
+        Progress progress = new Progress();
+        mStreamHandler.sendStream(STREAM_ID, new ByteArrayInputStream(new byte[10]), 10, progress);
+
+        assertTrue(progress.take(1).startsWith("error: stream refused"));
+        assertEquals(0, mStreamHandler.sendingStreams());
+    }
+
+    @Test
+    public void disconnectFailsBothSides() throws Exception {
+        mSinks.put(STREAM_ID, new StreamSink() {
+            @Override
+            public long position() {
+                return 0;
+            }
+
+            @Override
+            public void write(ByteBuffer data) {
+                mReceiver.disconnect();
+            }
+        });
+
+        Progress progress = new Progress();
+        byte[] data = randomBytes(64 * 1024);
+        mStreamHandler.sendStream(STREAM_ID, new ByteArrayInputStream(data), data.length, progress);
+
+        assertEquals("error: bluesync disconnected", progress.take(1));
+        assertEquals("error " + STREAM_ID, mReceived.poll(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A source that blocks must not hold up the channel, other streams keep going meanwhile.
+     * */
+    @Test
+    public void slowSourceOnlyHoldsUpItsOwnStream() throws Exception {
+        final CountDownLatch readable = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    readable.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return len;
+            }
+        };
+        ByteArrayOutputStream slowOut = new ByteArrayOutputStream();
+        mSinks.put(STREAM_ID, StreamSink.wrap(slowOut));
+        Progress slowProgress = new Progress();
+        mStreamHandler.sendStream(STREAM_ID, slow, 1024, slowProgress);
+
+        byte[] data = randomBytes(16 * 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        mSinks.put(STREAM_ID + 1, StreamSink.wrap(out));
+        Progress progress = new Progress();
+        mStreamHandler.sendStream(STREAM_ID + 1, new ByteArrayInputStream(data), data.length, progress);
+
+        assertEquals("complete", progress.take(5));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(0, slowOut.size());
+
+        readable.countDown();
+        assertEquals("complete", slowProgress.take(5));
+        assertEquals(1024, slowOut.size());
+    }
+
+    private Channel newChannel(LoopbackTransport transport, StreamHandler streamHandler) {
+        Channel channel = new Channel(transport);
+        channel.channelPipeline()
+                .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                .addLast("messageCoder", new PlainCoder())
+                .addLast("streamHandler", streamHandler)
+                .addLast("activeLatch", new ChannelHandlerAdapter() {
+                    @Override
+                    public void active(AbstractChannelHandlerContext ctx) throws Exception {
+                        mActive.countDown();
+                    }
+                });
+        return channel;
+    }
+
+    private static class Progress implements StreamHandler.Callback {
+        private final BlockingQueue<String> mResults = new LinkedBlockingQueue<>();
+        private volatile long mFirstOffset = -1;
+        private volatile long mOffset;
+
+        @Override
+        public void onProgress(int streamId, long offset, long length) {
+            if (mFirstOffset < 0) {
+                mFirstOffset = offset;
+            }
+            mOffset = offset;
+        }
+
+        @Override
+        public void onComplete(int streamId) {
+            mResults.add("complete");
+        }
+
+        @Override
+        public void onError(int streamId, String message) {
+            mResults.add("error: " + message);
+        }
+
+        String take(int seconds) throws InterruptedException {
+            return mResults.poll(seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Plain frames both ways, the coder past login without the handshake.
+     * */
+    private static class PlainCoder extends ChannelHandlerAdapter {
+        private final BluesyncMessageCoder mCoder = new BluesyncMessageCoder(MAX_FRAME_LENGTH, false,
+                new BluesyncMessageCoder.Callback() {
+                    @Override
+                    public void onLoginBegin() {}
+
+                    @Override
+                    public void onLoginSuccess(BluesyncProto.InitResponse initResponse) {}
+
+                    @Override
+                    public void onLoginFail(String message) {}
+                });
+
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireRead(mCoder.parsePlainData((ByteBuf) msg));
+        }
+
+        @Override
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireWrite(mCoder.packagePlainData(ctx.channel().alloc(), (BluesyncMessage) msg));
+        }
+    }
+}
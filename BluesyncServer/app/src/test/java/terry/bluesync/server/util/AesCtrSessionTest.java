@@ -0,0 +1,83 @@
+package terry.bluesync.server.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static terry.bluesync.server.util.TestBytes.randomBytes;
+
+public class AesCtrSessionTest {
+    private static final byte[] KEY = "0123456789abcdef".getBytes();
+
+    private AesCtrSession mServer;
+    private AesCtrSession mClient;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new AesCtrSession(KEY, true);
+        mClient = new AesCtrSession(KEY, false);
+    }
+
+    @Test
+    public void roundTripBothDirections() throws Exception {
+        for (int length = 0; length < 100; length += 7) {
+            byte[] data = randomBytes(length);
+            assertArrayEquals(data, decrypt(mClient, encrypt(mServer, data)));
+            assertArrayEquals(data, decrypt(mServer, encrypt(mClient, data)));
+        }
+    }
+
+    @Test
+    public void onlyNonceIsAdded() throws Exception {
+        for (int length = 0; length < 40; length++) {
+            assertEquals(AesCtrSession.NONCE_LEN + length, mServer.encryptOutputSize(length));
+            assertEquals(AesCtrSession.NONCE_LEN + length, encrypt(mServer, randomBytes(length)).length);
+        }
+    }
+
+    @Test
+    public void sameDataEncryptsDifferently() throws Exception {
+        byte[] data = randomBytes(32);
+        byte[] first = encrypt(mServer, data);
+        byte[] second = encrypt(mServer, data);
+
+        assertFalse(Arrays.equals(first, second));
+        assertArrayEquals(data, decrypt(mClient, first));
+        assertArrayEquals(data, decrypt(mClient, second));
+    }
+
+    @Test
+    public void encryptAndDecryptWithOffsets() throws Exception {
+        byte[] data = randomBytes(50);
+        byte[] input = new byte[data.length + 10];
+        System.arraycopy(data, 0, input, 6, data.length);
+
+        byte[] encrypted = new byte[8 + mClient.encryptOutputSize(data.length)];
+        int encryptedLength = mClient.encrypt(input, 6, data.length, encrypted, 8);
+        assertEquals(encrypted.length - 8, encryptedLength);
+
+        assertArrayEquals(data, mServer.decrypt(encrypted, 8, encryptedLength));
+    }
+
+    @Test(expected = AesCoderException.class)
+    public void rejectOwnDirection() throws Exception {
+        mServer.decrypt(encrypt(mServer, randomBytes(20)), 0, 28);
+    }
+
+    @Test(expected = AesCoderException.class)
+    public void rejectShorterThanNonce() throws Exception {
+        mServer.decrypt(new byte[4], 0, 4);
+    }
+
+    private static byte[] encrypt(AesCtrSession session, byte[] data) throws Exception {
+        byte[] encrypted = new byte[session.encryptOutputSize(data.length)];
+        session.encrypt(data, 0, data.length, encrypted, 0);
+        return encrypted;
+    }
+
+    private static byte[] decrypt(AesCtrSession session, byte[] encrypted) throws Exception {
+        return session.decrypt(encrypted, 0, encrypted.length);
+    }
+}
@@ -0,0 +1,70 @@
+package terry.bluesync.server.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static terry.bluesync.server.util.TestBytes.randomBytes;
+
+public class AesSessionTest {
+    private static final byte[] KEY = "0123456789abcdef".getBytes();
+
+    private byte[] mKey;
+    private AesSession mSession;
+
+    @Before
+    public void setUp() throws Exception {
+        mKey = KEY;
+        mSession = new AesSession(mKey, mKey);
+    }
+
+    @Test
+    public void sameOutputAsAesCoder() throws Exception {
+        byte[] data = randomBytes(100);
+
+        byte[] encrypted = mSession.encrypt(data);
+        assertArrayEquals(AesCoder.encrypt(mKey, mKey, data), encrypted);
+        assertArrayEquals(data, AesCoder.decrypt(mKey, mKey, encrypted));
+        assertArrayEquals(data, mSession.decrypt(encrypted));
+    }
+
+    @Test
+    public void reuseForManyMessages() throws Exception {
+        for (int length = 0; length < 300; length += 7) {
+            byte[] data = randomBytes(length);
+            assertArrayEquals(data, mSession.decrypt(mSession.encrypt(data)));
+        }
+    }
+
+    @Test
+    public void encryptAndDecryptWithOffsets() throws Exception {
+        byte[] data = randomBytes(50);
+        byte[] input = new byte[data.length + 10];
+        System.arraycopy(data, 0, input, 6, data.length);
+
+        byte[] encrypted = new byte[8 + mSession.encryptOutputSize(data.length)];
+        int encryptedLength = mSession.encrypt(input, 6, data.length, encrypted, 8);
+        assertEquals(encrypted.length - 8, encryptedLength);
+
+        byte[] decrypted = new byte[mSession.decryptOutputSize(encryptedLength)];
+        int decryptedLength = mSession.decrypt(encrypted, 8, encryptedLength, decrypted, 0);
+        assertArrayEquals(data, Arrays.copyOf(decrypted, decryptedLength));
+    }
+
+    @Test
+    public void usableAfterBadPadding() throws Exception {
+        byte[] data = randomBytes(40);
+        byte[] encrypted = mSession.encrypt(data);
+
+        try {
+            mSession.decrypt(new byte[32]);
+            fail("bad padding should fail");
+        } catch (AesCoderException e) {
+            // expected
+        }
+
+        assertArrayEquals(data, mSession.decrypt(encrypted));
+    }
+}
@@ -0,0 +1,102 @@
+package terry.bluesync.server.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteBufPoolTest {
+
+    @Test
+    public void releasedArrayIsReused() {
+        ByteBufPool pool = new ByteBufPool();
+        ByteBuf first = pool.allocate(100);
+        byte[] array = first.array();
+        assertTrue(first.release());
+
+        ByteBuf second = pool.allocate(120);
+        assertSame(array, second.array());
+        assertEquals(120, second.length());
+
+        ByteBufPool.Stats stats = pool.stats();
+        assertEquals(2, stats.allocations());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.inUse());
+    }
+
+    @Test
+    public void lengthIsRoundedUpToSizeClass() {
+        ByteBufPool pool = new ByteBufPool();
+        assertEquals(64, pool.allocate(0).capacity());
+        assertEquals(64, pool.allocate(64).capacity());
+        assertEquals(128, pool.allocate(65).capacity());
+        assertEquals(8 * 1024, pool.allocate(8 * 1024).capacity());
+    }
+
+    @Test
+    public void oversizeIsNotPooled() {
+        ByteBufPool pool = new ByteBufPool(1024, 4);
+        ByteBuf buf = pool.allocate(1025);
+        assertEquals(1025, buf.capacity());
+        buf.release();
+
+        assertEquals(1, pool.stats().unpooled());
+        assertEquals(0, pool.stats().cachedBytes());
+        assertNotSame(buf.array(), pool.allocate(1025).array());
+    }
+
+    @Test
+    public void cachedArraysAreBounded() {
+        ByteBufPool pool = new ByteBufPool(1024, 2);
+        ByteBuf[] bufs = new ByteBuf[3];
+        for (int i = 0; i < bufs.length; i++) {
+            bufs[i] = pool.allocate(64);
+        }
+        for (ByteBuf buf : bufs) {
+            buf.release();
+        }
+
+        assertEquals(2 * 64, pool.stats().cachedBytes());
+        assertEquals(3, pool.stats().releases());
+    }
+
+    @Test
+    public void retainDefersRecycle() {
+        ByteBufPool pool = new ByteBufPool();
+        ByteBuf buf = pool.allocate(10).retain();
+        assertEquals(2, buf.refCnt());
+
+        assertFalse(buf.release());
+        assertEquals(0, pool.stats().releases());
+        assertTrue(buf.release());
+        assertEquals(1, pool.stats().releases());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleReleaseThrows() {
+        ByteBuf buf = new ByteBufPool().allocate(10);
+        buf.release();
+        buf.release();
+    }
+
+    @Test
+    public void leakIsCounted() throws Exception {
+        ByteBufPool pool = new ByteBufPool();
+        pool.setLeakDetection(true);
+        pool.allocate(10).release();
+        allocateAndDrop(pool);
+
+        for (int i = 0; i < 50 && pool.stats().leaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        ByteBufPool.Stats stats = pool.stats();
+        assertEquals(1, stats.leaks());
+        assertEquals(0, stats.inUse());
+    }
+
+    private static void allocateAndDrop(ByteBufPool pool) {
+        pool.allocate(10);
+    }
+}
@@ -0,0 +1,112 @@
+package terry.bluesync.server.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentIntObjectMapTest {
+
+    @Test
+    public void putGetRemove() {
+        ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>(4);
+        assertNull(map.putIfAbsent(1, "a"));
+        assertNull(map.putIfAbsent(5, "b"));
+        assertEquals("a", map.putIfAbsent(1, "c"));
+
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(5));
+        assertEquals(2, map.size());
+
+        assertFalse(map.remove(5, "a"));
+        assertEquals("a", map.remove(1));
+        assertNull(map.remove(1));
+        assertTrue(map.remove(5, "b"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void drainRemovesEverything() {
+        ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>(8);
+        for (int i = 0; i < 20; i++) {
+            map.putIfAbsent(i, i);
+        }
+
+        List<Integer> values = new ArrayList<>();
+        assertEquals(20, map.drainTo(values));
+        assertEquals(20, values.size());
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Requests put from many threads, completed on one thread as responses arrive and raced by
+     * timeouts. Every request must be completed exactly once.
+     * */
+    @Test
+    public void eachRequestCompletesOnce() throws Exception {
+        final int threads = 8;
+        final int perThread = 20 * 1000;
+        final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>(256);
+        final AtomicIntegerArray completions = new AtomicIntegerArray(threads * perThread);
+        final BlockingQueue<Integer> responses = new LinkedBlockingQueue<>();
+        final AtomicInteger nextSeqId = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            callers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        int seqId = nextSeqId.getAndIncrement();
+                        assertNull(map.putIfAbsent(seqId, seqId));
+                        responses.add(seqId);
+
+                        if ((i & 3) == 0 && map.remove(seqId, seqId)) {
+                            completions.incrementAndGet(seqId);
+                        }
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        Thread invoker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < threads * perThread; i++) {
+                        int seqId = responses.take();
+                        Integer value = map.remove(seqId);
+                        if (value != null) {
+                            assertEquals(seqId, value.intValue());
+                            completions.incrementAndGet(seqId);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        invoker.start();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        invoker.join(10 * 1000);
+        callers.shutdown();
+
+        for (int i = 0; i < completions.length(); i++) {
+            assertEquals("seqId " + i, 1, completions.get(i));
+        }
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package terry.bluesync.server.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void taskRunsAfterDelay() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test", 10, TimeUnit.MILLISECONDS, 8);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void delayLongerThanWheelTakesRounds() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test", 5, TimeUnit.MILLISECONDS, 4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 60);
+    }
+
+    @Test
+    public void cancelledTaskNeverRuns() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test", 10, TimeUnit.MILLISECONDS, 8);
+        final AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+    }
+
+    /**
+     * 10k outstanding timeouts, a Timer per request would have started as many threads.
+     * */
+    @Test
+    public void manyTimeoutsShareOneThread() throws Exception {
+        final int count = 10 * 1000;
+        HashedWheelTimer timer = new HashedWheelTimer("test", 10, TimeUnit.MILLISECONDS, 64);
+        final CountDownLatch latch = new CountDownLatch(count / 2);
+        int threadsBefore = Thread.activeCount();
+
+        HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = timer.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 100 + i % 200, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(count, timer.pendingTimeouts());
+        assertTrue(Thread.activeCount() <= threadsBefore + 1);
+
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(timeouts[i].cancel());
+        }
+        assertEquals(count / 2, timer.pendingTimeouts());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(Thread.activeCount() <= threadsBefore + 1);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 1, timeouts[i].isExpired());
+        }
+    }
+
+    @Test
+    public void workerExitsWhenIdle() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("idle-timer", 5, TimeUnit.MILLISECONDS, 8);
+        final CountDownLatch latch = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+
+        timer.newTimeout(task, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+        assertFalse(isThreadAlive("idle-timer"));
+
+        timer.newTimeout(task, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    private static boolean isThreadAlive(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void stopCancelsPendingTasks() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test", 10, TimeUnit.MILLISECONDS, 8);
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        HashedWheelTimer.Timeout first = timer.newTimeout(task, 50, TimeUnit.MILLISECONDS);
+        timer.newTimeout(task, 500, TimeUnit.MILLISECONDS);
+
+        timer.stop();
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(first.isCancelled());
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+    }
+}
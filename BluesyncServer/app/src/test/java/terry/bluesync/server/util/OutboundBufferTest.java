@@ -0,0 +1,140 @@
+package terry.bluesync.server.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class OutboundBufferTest {
+
+    @Test
+    public void chunksFollowFrameOrder() {
+        OutboundBuffer buffer = new OutboundBuffer(4, 1024);
+        byte[] first = bytes(0, 50);
+        byte[] second = bytes(50, 7);
+        assertTrue(buffer.add(new ByteBuf(first)));
+        assertTrue(buffer.add(new ByteBuf(second)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int chunks = 0;
+        int length;
+        while ((length = buffer.nextChunk(20)) > 0) {
+            assertTrue(length <= 20);
+            out.write(buffer.chunkArray(), buffer.chunkOffset(), length);
+            buffer.ack();
+            chunks++;
+        }
+
+        assertEquals(3 + 1, chunks);
+        assertArrayEquals(bytes(0, 57), out.toByteArray());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.queuedBytes());
+    }
+
+    @Test
+    public void frameIsReleasedWhenLastChunkIsAcked() {
+        ByteBufPool pool = new ByteBufPool();
+        OutboundBuffer buffer = new OutboundBuffer(4, 1024);
+        ByteBuf frame = pool.allocate(30);
+        buffer.add(frame);
+
+        buffer.nextChunk(20);
+        buffer.ack();
+        assertEquals(1, frame.refCnt());
+        assertEquals(10, buffer.queuedBytes());
+
+        buffer.nextChunk(20);
+        assertEquals(1, frame.refCnt());
+        buffer.ack();
+        assertEquals(0, frame.refCnt());
+        assertEquals(0, pool.stats().inUse());
+    }
+
+    @Test
+    public void fullBufferRejectsFrames() {
+        OutboundBuffer buffer = new OutboundBuffer(2, 100);
+        assertTrue(buffer.add(new ByteBuf(new byte[60])));
+        assertFalse(buffer.add(new ByteBuf(new byte[60])));
+        assertTrue(buffer.isWritable());
+
+        assertTrue(buffer.add(new ByteBuf(new byte[40])));
+        assertFalse(buffer.isWritable());
+        assertFalse(buffer.add(new ByteBuf(new byte[0])));
+
+        buffer.nextChunk(60);
+        buffer.ack();
+        assertTrue(buffer.isWritable());
+        assertTrue(buffer.add(new ByteBuf(new byte[60])));
+    }
+
+    @Test
+    public void clearReleasesEveryFrame() {
+        ByteBufPool pool = new ByteBufPool();
+        OutboundBuffer buffer = new OutboundBuffer(4, 1024);
+        buffer.add(pool.allocate(30));
+        buffer.add(pool.allocate(30));
+        buffer.nextChunk(20);
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.queuedBytes());
+        assertEquals(0, pool.stats().inUse());
+        assertEquals(0, buffer.nextChunk(20));
+    }
+
+    @Test
+    public void wholeFramesArePackedBehindTheHeadFrame() {
+        ByteBufPool pool = new ByteBufPool();
+        OutboundBuffer buffer = new OutboundBuffer(8, 1024);
+        buffer.add(new ByteBuf(bytes(0, 30)));
+        buffer.add(new ByteBuf(bytes(30, 5)));
+        buffer.add(new ByteBuf(bytes(35, 5)));
+        ByteBuf last = pool.allocate(15);
+        System.arraycopy(bytes(40, 15), 0, last.array(), last.offset(), 15);
+        buffer.add(last);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(20, buffer.nextChunk(20, 8));
+        assertEquals(0, buffer.chunkBatchFrames());
+        out.write(buffer.chunkArray(), buffer.chunkOffset(), 20);
+        buffer.ack();
+
+        assertEquals(20, buffer.nextChunk(20, 8));
+        assertEquals(2, buffer.chunkBatchFrames());
+        out.write(buffer.chunkArray(), buffer.chunkOffset(), 20);
+        buffer.ack();
+        assertEquals(1, buffer.size());
+        assertEquals(15, buffer.queuedBytes());
+
+        assertEquals(15, buffer.nextChunk(20, 8));
+        out.write(buffer.chunkArray(), buffer.chunkOffset(), 15);
+        buffer.ack();
+
+        assertArrayEquals(bytes(0, 55), out.toByteArray());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, pool.stats().inUse());
+    }
+
+    @Test
+    public void packedFramesAreLimited() {
+        OutboundBuffer buffer = new OutboundBuffer(8, 1024);
+        for (int i = 0; i < 4; i++) {
+            buffer.add(new ByteBuf(new byte[4]));
+        }
+
+        assertEquals(8, buffer.nextChunk(20, 1));
+        assertEquals(1, buffer.chunkBatchFrames());
+        buffer.clear();
+        assertEquals(0, buffer.queuedBytes());
+        assertEquals(0, buffer.chunkBatchFrames());
+    }
+
+    private static byte[] bytes(int from, int length) {
+        byte[] bArr = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bArr[i] = (byte) (from + i);
+        }
+        return bArr;
+    }
+}
@@ -0,0 +1,35 @@
+package terry.bluesync.server.util;
+
+import java.util.Random;
+
+/**
+ * Byte fixtures the tests of every package share, the same arguments always give the same bytes.
+ */
+public final class TestBytes {
+
+    private TestBytes() {
+    }
+
+    public static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * A whole frame of length bytes with its fixed head, the body is random bytes seeded by seqId.
+     * */
+    public static byte[] frame(int length, int seqId) {
+        byte[] frame = new byte[length];
+        new Random(seqId).nextBytes(frame);
+        frame[0] = (byte) 0xFE;
+        frame[1] = 0x01;
+        frame[2] = (byte) (length >> 8);
+        frame[3] = (byte) length;
+        frame[4] = 0;
+        frame[5] = 0x01;
+        frame[6] = (byte) (seqId >> 8);
+        frame[7] = (byte) seqId;
+        return frame;
+    }
+}
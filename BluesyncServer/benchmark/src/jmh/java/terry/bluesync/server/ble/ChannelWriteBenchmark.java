@@ -0,0 +1,78 @@
+package terry.bluesync.server.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
+
+/**
+ * Outbound path of one message from a packaged frame to ATT chunks handed to the transport,
+ * events run inline and every chunk is acknowledged right away. Frames come from the channel
+ * pool and go back to it once sent, gc.alloc.rate.norm is what one message costs.
+ */
+@State(Scope.Thread)
+public class ChannelWriteBenchmark {
+
+    /** Whole frame, header included, 4096 is the largest HeadContext accepts. */
+    @Param({"32", "256", "4096"})
+    int frameLength;
+
+    @Param({"23", "247"})
+    int mtu;
+
+    private Channel mChannel;
+    private byte[] mFrame;
+    private boolean mWritten;
+    private Blackhole mBlackhole;
+
+    @Setup
+    public void setUp() throws Exception {
+        mChannel = new Channel(new Transport() {
+            @Override
+            public void bind(Channel channel) {}
+
+            @Override
+            public void write(byte[] value, int offset, int length) {
+                mBlackhole.consume(value);
+                mWritten = true;
+            }
+
+            @Override
+            public void setWriteWithoutResponse(boolean enable) {}
+
+            @Override
+            public void disconnect() {}
+        }, new ChannelHandlerInvoker(null), new ByteBufPool());
+        mChannel.setMtu(mtu);
+
+        mFrame = new byte[frameLength];
+        new Random(frameLength).nextBytes(mFrame);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Benchmark
+    public void write(Blackhole blackhole) {
+        mBlackhole = blackhole;
+        mWritten = false;
+        ByteBuf frame = mChannel.alloc().allocate(frameLength);
+        System.arraycopy(mFrame, 0, frame.array(), frame.offset(), frameLength);
+        mChannel.write(frame);
+
+        while (mWritten) {
+            mWritten = false;
+            mChannel.writeChannel();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package terry.bluesync.server.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.handler.LengthFieldFrameDecoder;
+
+/**
+ * A burst of frames from one channel to another over {@link LoopbackTransport} with 1 ms per
+ * chunk, until the last frame comes out of the peer decoder. Window 0 waits for every chunk to
+ * be confirmed, a window lets the chunks of several frames be in flight at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoopbackThroughputBenchmark {
+    private static final int MTU = 185;
+    private static final int LATENCY_MILLIS = 1;
+    private static final int FRAMES_PER_BURST = 8;
+
+    @Param({"0", "4", "16"})
+    int window;
+
+    /** Whole frame, a burst stays within half the write buffer of HeadContext. */
+    @Param({"256", "1024"})
+    int frameLength;
+
+    private Channel mSender;
+    private Channel mReceiver;
+    private byte[] mFrame;
+    private final Semaphore mReceived = new Semaphore(0);
+
+    @Setup
+    public void setUp() {
+        LoopbackTransport senderTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+        LoopbackTransport receiverTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+        mSender = newChannel(senderTransport);
+        mReceiver = newChannel(receiverTransport);
+        mReceiver.channelPipeline().addLast("counter", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mReceived.release();
+            }
+        });
+        LoopbackTransport.connect(senderTransport, receiverTransport);
+        mSender.setFastWriteWindow(window);
+        mReceiver.setFastWriteWindow(window);
+
+        mFrame = new byte[frameLength];
+        new Random(frameLength).nextBytes(mFrame);
+        mFrame[0] = (byte) 0xFE;
+        mFrame[1] = 0x01;
+        mFrame[2] = (byte) (frameLength >> 8);
+        mFrame[3] = (byte) frameLength;
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSender.disconnect();
+        mSender.destroy();
+        mReceiver.destroy();
+    }
+
+    @Benchmark
+    public void burst() throws Exception {
+        for (int i = 0; i < FRAMES_PER_BURST; i++) {
+            mSender.write(mFrame);
+        }
+
+        if (!mReceived.tryAcquire(FRAMES_PER_BURST, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("burst not received, " + mReceived.availablePermits() + " frames");
+        }
+    }
+
+    private static Channel newChannel(LoopbackTransport transport) {
+        Channel channel = new Channel(transport);
+        channel.channelPipeline().addLast("frameDecoder", new LengthFieldFrameDecoder(4 * 1024));
+        return channel;
+    }
+}
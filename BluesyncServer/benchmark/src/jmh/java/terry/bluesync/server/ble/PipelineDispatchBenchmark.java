@@ -0,0 +1,101 @@
+package terry.bluesync.server.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One read and one write through a pipeline of handlers, events run inline. In turn a handler
+ * passes reads on, passes writes on, or only handles active, so every event skips two of three
+ * handlers. The first handler ends writes and the last one ends reads. setUpChannel builds such
+ * a channel the way every connection does.
+ */
+@State(Scope.Thread)
+public class PipelineDispatchBenchmark {
+    private static final Object MESSAGE = new Object();
+
+    @Param({"3", "10", "30"})
+    int handlers;
+
+    private Channel mChannel;
+    private Blackhole mBlackhole;
+
+    @Setup
+    public void setUp() {
+        mChannel = newChannel(handlers);
+    }
+
+    private Channel newChannel(int handlers) {
+        Channel channel = new Channel(new LoopbackTransport(), new ChannelHandlerInvoker(null));
+        ChannelPipeline pipeline = channel.channelPipeline();
+
+        pipeline.addLast("writeEnd", new ChannelHandlerAdapter() {
+            @Override
+            public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mBlackhole.consume(msg);
+            }
+        });
+        for (int i = 0; i < handlers; i++) {
+            pipeline.addLast("handler" + i, newHandler(i % 3));
+        }
+        pipeline.addLast("readEnd", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mBlackhole.consume(msg);
+            }
+        });
+        return channel;
+    }
+
+    @TearDown
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        mBlackhole = blackhole;
+        mChannel.read(MESSAGE);
+    }
+
+    @Benchmark
+    public void write(Blackhole blackhole) {
+        mBlackhole = blackhole;
+        mChannel.write(MESSAGE);
+    }
+
+    @Benchmark
+    public Channel setUpChannel() {
+        return newChannel(handlers);
+    }
+
+    private static ChannelHandler newHandler(int kind) {
+        switch (kind) {
+            case 0:
+                return new ChannelHandlerAdapter() {
+                    @Override
+                    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        ctx.fireRead(msg);
+                    }
+                };
+            case 1:
+                return new ChannelHandlerAdapter() {
+                    @Override
+                    public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        ctx.fireWrite(msg);
+                    }
+                };
+            default:
+                return new ChannelHandlerAdapter() {
+                    @Override
+                    public void active(AbstractChannelHandlerContext ctx) throws Exception {
+                        ctx.fireActive();
+                    }
+                };
+        }
+    }
+}
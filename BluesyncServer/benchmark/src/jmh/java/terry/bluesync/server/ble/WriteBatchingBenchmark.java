@@ -0,0 +1,129 @@
+package terry.bluesync.server.ble;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.handler.LengthFieldFrameDecoder;
+
+/**
+ * Small frames from one channel to another over {@link LoopbackTransport} with 1 ms per chunk,
+ * with and without write batching. burst is the time to get a run of frames through, single the
+ * latency of one frame on an idle channel. The counters give the chunks written for the frames
+ * sent, frames per chunk is frames / chunks.
+ *
+ * maxDelayMillis trades the two: single waits up to the delay for frames that never come, burst
+ * packs more frames per chunk. flushBytes sends a held chunk early once that much is queued,
+ * maxDelayMillis and flushBytes have no effect without batching.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WriteBatchingBenchmark {
+    private static final int MTU = 247;
+    private static final int LATENCY_MILLIS = 1;
+    private static final int FRAMES_PER_BURST = 16;
+
+    @Param({"false", "true"})
+    boolean batching;
+
+    @Param({"0", "4"})
+    int window;
+
+    @Param({"20", "64"})
+    int frameLength;
+
+    @Param({"0", "2", "5"})
+    int maxDelayMillis;
+
+    /** 0 for a full chunk. */
+    @Param({"0", "128"})
+    int flushBytes;
+
+    private LoopbackTransport mSenderTransport;
+    private Channel mSender;
+    private Channel mReceiver;
+    private byte[] mFrame;
+    private final Semaphore mReceived = new Semaphore(0);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long frames;
+        public long chunks;
+    }
+
+    @Setup
+    public void setUp() {
+        mSenderTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+        LoopbackTransport receiverTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+        mSender = newChannel(mSenderTransport);
+        mReceiver = newChannel(receiverTransport);
+        mReceiver.channelPipeline().addLast("counter", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mReceived.release();
+            }
+        });
+        LoopbackTransport.connect(mSenderTransport, receiverTransport);
+        mSender.setFastWriteWindow(window);
+        mReceiver.setFastWriteWindow(window);
+        mSender.setWriteBatching(batching, maxDelayMillis, flushBytes);
+
+        mFrame = new byte[frameLength];
+        new Random(frameLength).nextBytes(mFrame);
+        mFrame[0] = (byte) 0xFE;
+        mFrame[1] = 0x01;
+        mFrame[2] = (byte) (frameLength >> 8);
+        mFrame[3] = (byte) frameLength;
+        mFrame[4] = 0;
+        mFrame[5] = 0x01;
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSender.disconnect();
+        mSender.destroy();
+        mReceiver.destroy();
+    }
+
+    @Benchmark
+    public void burst(Counters counters) throws Exception {
+        send(counters, FRAMES_PER_BURST);
+    }
+
+    @Benchmark
+    public void single(Counters counters) throws Exception {
+        send(counters, 1);
+    }
+
+    private void send(Counters counters, int frames) throws Exception {
+        long chunks = mSenderTransport.writeCount();
+        for (int i = 0; i < frames; i++) {
+            mSender.write(mFrame);
+        }
+
+        if (!mReceived.tryAcquire(frames, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("frames not received, " + mReceived.availablePermits() + " frames");
+        }
+        counters.frames += frames;
+        counters.chunks += mSenderTransport.writeCount() - chunks;
+    }
+
+    private static Channel newChannel(LoopbackTransport transport) {
+        Channel channel = new Channel(transport);
+        channel.channelPipeline().addLast("frameDecoder", new LengthFieldFrameDecoder(4 * 1024));
+        return channel;
+    }
+}
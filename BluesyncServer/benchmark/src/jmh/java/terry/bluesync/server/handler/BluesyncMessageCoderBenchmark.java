@@ -0,0 +1,133 @@
+package terry.bluesync.server.handler;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.AesCoder;
+import terry.bluesync.server.util.AesCtrSession;
+import terry.bluesync.server.util.AesSession;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
+import terry.bluesync.server.util.SessionCipher;
+
+/**
+ * Inbound parse and outbound package of one SendDataRequest, the per message work of
+ * BluesyncMessageCoder without pipeline dispatch. Parsed frames are encrypted as the client
+ * would send them.
+ *
+ * With pooled=false every buffer is a new array, the allocation of the unpooled coder.
+ */
+@State(Scope.Thread)
+public class BluesyncMessageCoderBenchmark {
+    static final int MAX_FRAME_LENGTH = 8 * 1024;
+    static final String NONE = "none";
+    static final String AES_CBC = "aes_cbc";
+    static final String AES_CTR = "aes_ctr";
+
+    private static final byte[] SESSION_KEY = AesCoder.genSessionKey();
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    int payloadSize;
+
+    @Param({NONE, AES_CBC, AES_CTR})
+    String encryptMode;
+
+    @Param({"true", "false"})
+    boolean pooled;
+
+    private ByteBufPool mPool;
+
+    private BluesyncMessageCoder mCoder;
+    private BluesyncMessage mMessage;
+    private int mMessageLength;
+    private ByteBuf mFrame;
+
+    /**
+     * Bytes the packed frames carry on top of the serialized message, the 8 bytes header
+     * included. Per frame overhead is overheadBytes / frames.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameOverhead {
+        public long frames;
+        public long overheadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+            overheadBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        mPool = pooled ? new ByteBufPool() : new ByteBufPool(1, 0);
+        mMessage = newMessage(payloadSize);
+        mMessageLength = mMessage.getProtobufData().getSerializedSize();
+        mFrame = new ByteBuf(newClientFrame(encryptMode, mMessage));
+        mCoder = newCoder(encryptMode);
+    }
+
+    @Benchmark
+    public BluesyncMessage parse() throws Exception {
+        return mCoder.parseData(mPool, mFrame);
+    }
+
+    @Benchmark
+    public int pack(FrameOverhead overhead) throws Exception {
+        ByteBuf frame = mCoder.packageData(mPool, mMessage);
+        int length = frame.length();
+        frame.release();
+        overhead.frames++;
+        overhead.overheadBytes += length - mMessageLength;
+        return length;
+    }
+
+    static BluesyncMessageCoder newCoder(String encryptMode) throws Exception {
+        return newCoder(encryptMode, true);
+    }
+
+    static byte[] newClientFrame(String encryptMode, BluesyncMessage message) throws Exception {
+        return newCoder(encryptMode, false).packageData(ByteBufPool.DEFAULT, message).toByteArray();
+    }
+
+    private static BluesyncMessageCoder newCoder(String encryptMode, boolean isServer) throws Exception {
+        BluesyncMessageCoder coder = new BluesyncMessageCoder(MAX_FRAME_LENGTH, !NONE.equals(encryptMode), new BluesyncMessageCoder.Callback() {
+            @Override
+            public void onLoginBegin() {}
+
+            @Override
+            public void onLoginSuccess(BluesyncProto.InitResponse initResponse) {}
+
+            @Override
+            public void onLoginFail(String message) {}
+        });
+        coder.setSessionCipher(newSessionCipher(encryptMode, isServer));
+        return coder;
+    }
+
+    private static SessionCipher newSessionCipher(String encryptMode, boolean isServer) throws Exception {
+        if (AES_CBC.equals(encryptMode)) {
+            return new AesSession(SESSION_KEY, SESSION_KEY);
+        } else if (AES_CTR.equals(encryptMode)) {
+            return new AesCtrSession(SESSION_KEY, isServer);
+        }
+        return null;
+    }
+
+    static BluesyncMessage newMessage(int payloadSize) {
+        byte[] data = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(data);
+        return BluesyncProtoUtil.getSendDataRequest(data);
+    }
+}
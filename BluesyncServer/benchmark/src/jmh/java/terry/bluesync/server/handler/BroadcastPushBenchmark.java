@@ -0,0 +1,80 @@
+package terry.bluesync.server.handler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
+
+/**
+ * One push packaged for every channel, each channel a message coder with a session of its own.
+ * perChannel builds and serializes the message for each channel as pushData does, broadcast
+ * packages it once with {@link BroadcastMessage} and only encrypts per channel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BroadcastPushBenchmark {
+
+    @Param({"1", "10", "50"})
+    int channels;
+
+    @Param({"64", "1024"})
+    int payloadSize;
+
+    @Param({BluesyncMessageCoderBenchmark.NONE, BluesyncMessageCoderBenchmark.AES_CTR})
+    String encryptMode;
+
+    private ByteBufPool mPool;
+    private BluesyncMessageCoder[] mCoders;
+    private ByteString mData;
+
+    @Setup
+    public void setUp() throws Exception {
+        mPool = new ByteBufPool();
+        mCoders = new BluesyncMessageCoder[channels];
+        for (int i = 0; i < channels; i++) {
+            mCoders[i] = BluesyncMessageCoderBenchmark.newCoder(encryptMode);
+        }
+
+        byte[] data = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(data);
+        mData = ByteString.copyFrom(data);
+    }
+
+    @Benchmark
+    public int perChannel() throws Exception {
+        int length = 0;
+        for (BluesyncMessageCoder coder : mCoders) {
+            ByteBuf frame = coder.packageData(mPool, BluesyncProtoUtil.getRecvDataPush(mData));
+            length += frame.length();
+            frame.release();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int broadcast() throws Exception {
+        BroadcastMessage push = new BroadcastMessage(BluesyncProtoUtil.getRecvDataPush(mData));
+        int length = 0;
+        for (BluesyncMessageCoder coder : mCoders) {
+            ByteBuf frame = coder.packageBroadcast(mPool, push.retain());
+            length += frame.length();
+            frame.release();
+        }
+        push.release();
+        return length;
+    }
+}
@@ -0,0 +1,114 @@
+package terry.bluesync.server.handler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.ChannelHandlerInvoker;
+import terry.bluesync.server.ble.Transport;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.ByteBufPool;
+import terry.bluesync.server.util.OutboundBuffer;
+
+/**
+ * Reassemble one frame from ATT sized chunks, events run inline so only the decoder and
+ * pipeline dispatch are measured.
+ *
+ * readAndParse goes on to parse the protobuf from the decoder's view of its receive buffer,
+ * gc.alloc.rate.norm at payloadSize=4096 shows what the whole inbound path allocates per frame.
+ */
+@State(Scope.Thread)
+public class LengthFieldFrameDecoderBenchmark {
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    int payloadSize;
+
+    @Param({BluesyncMessageCoderBenchmark.NONE, BluesyncMessageCoderBenchmark.AES_CBC, BluesyncMessageCoderBenchmark.AES_CTR})
+    String encryptMode;
+
+    @Param({"247"})
+    int mtu;
+
+    private Channel mChannel;
+    private List<byte[]> mChunks;
+    private Blackhole mBlackhole;
+    private boolean mParse;
+    private BluesyncMessageCoder mCoder;
+
+    @Setup
+    public void setUp() throws Exception {
+        mChannel = new Channel(new Transport() {
+            @Override
+            public void bind(Channel channel) {}
+
+            @Override
+            public void write(byte[] value, int offset, int length) {}
+
+            @Override
+            public void setWriteWithoutResponse(boolean enable) {}
+
+            @Override
+            public void disconnect() {}
+        }, new ChannelHandlerInvoker(null));
+        mChannel.setMtu(mtu);
+
+        mChannel.channelPipeline().addLast("frameDecoder",
+                new LengthFieldFrameDecoder(BluesyncMessageCoderBenchmark.MAX_FRAME_LENGTH));
+        mChannel.channelPipeline().addLast("sink", new ChannelHandlerAdapter() {
+            @Override
+            public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                mBlackhole.consume(mParse ? mCoder.parseData(ByteBufPool.DEFAULT, (ByteBuf) msg) : msg);
+            }
+        });
+
+        mCoder = BluesyncMessageCoderBenchmark.newCoder(encryptMode);
+
+        byte[] frame = BluesyncMessageCoderBenchmark.newClientFrame(encryptMode,
+                BluesyncMessageCoderBenchmark.newMessage(payloadSize));
+        /** chunked the way the peer's HeadContext sends it */
+        OutboundBuffer outboundBuffer = new OutboundBuffer(1, frame.length);
+        outboundBuffer.add(new ByteBuf(frame));
+
+        mChunks = new ArrayList<>();
+        int length;
+        while ((length = outboundBuffer.nextChunk(mChannel.payloadSize())) > 0) {
+            int offset = outboundBuffer.chunkOffset();
+            mChunks.add(Arrays.copyOfRange(outboundBuffer.chunkArray(), offset, offset + length));
+            outboundBuffer.ack();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mChannel.destroy();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        readChunks(blackhole, false);
+    }
+
+    @Benchmark
+    public void readAndParse(Blackhole blackhole) {
+        readChunks(blackhole, true);
+    }
+
+    private void readChunks(Blackhole blackhole, boolean parse) {
+        mBlackhole = blackhole;
+        mParse = parse;
+        for (int i = 0; i < mChunks.size(); i++) {
+            mChannel.read(mChunks.get(i));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package terry.bluesync.server.handler;
+
+import com.google.protobuf.ByteString;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProto;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+import terry.bluesync.server.util.ByteBuf;
+import terry.bluesync.server.util.HashedWheelTimer;
+
+/**
+ * Requests answered by a peer over {@link LoopbackTransport} with 1 ms per chunk. Serial waits
+ * for each response before sending the next request, pipelined sends them all and then waits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestHandlerBenchmark {
+    private static final int MTU = 185;
+    private static final int LATENCY_MILLIS = 1;
+    private static final int MAX_FRAME_LENGTH = 4 * 1024;
+    private static final int TIMEOUT = 10 * 1000;
+
+    @Param({"8", "24"})
+    int requests;
+
+    @Param({"serial", "pipelined"})
+    String mode;
+
+    private Channel mRequester;
+    private Channel mResponder;
+    private RequestHandler mRequestHandler;
+    private final ByteString mData = ByteString.copyFrom(new byte[64]);
+    private final Semaphore mResponses = new Semaphore(0);
+
+    private final RequestHandler.Callback mCallback = new RequestHandler.Callback() {
+        @Override
+        public void onResponse(ByteString data) {
+            mResponses.release();
+        }
+
+        @Override
+        public void onError(String message) {
+            throw new IllegalStateException(message);
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        LoopbackTransport requesterTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+        LoopbackTransport responderTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+
+        mRequestHandler = new RequestHandler(new HashedWheelTimer("timeout"));
+        mRequester = new Channel(requesterTransport);
+        mRequester.channelPipeline()
+                .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                .addLast("messageCoder", new PlainCoder())
+                .addLast("requestHandler", mRequestHandler);
+
+        mResponder = new Channel(responderTransport);
+        mResponder.channelPipeline()
+                .addLast("frameDecoder", new LengthFieldFrameDecoder(MAX_FRAME_LENGTH))
+                .addLast("messageCoder", new PlainCoder())
+                .addLast("echo", new ChannelHandlerAdapter() {
+                    @Override
+                    public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                        BluesyncMessage request = (BluesyncMessage) msg;
+                        BluesyncProto.SendDataRequest sendRequest = (BluesyncProto.SendDataRequest) request.getProtobufData();
+                        ctx.channel().write(BluesyncProtoUtil.getSendDataResponse(request.getSeqId(),
+                                sendRequest.getData().toByteArray()));
+                    }
+                });
+
+        LoopbackTransport.connect(requesterTransport, responderTransport);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mRequester.disconnect();
+        mRequester.destroy();
+        mResponder.destroy();
+    }
+
+    @Benchmark
+    public void requests() throws Exception {
+        if ("serial".equals(mode)) {
+            for (int i = 0; i < requests; i++) {
+                mRequestHandler.sendRequest(mData, TIMEOUT, mCallback);
+                awaitResponses(1);
+            }
+        } else {
+            for (int i = 0; i < requests; i++) {
+                mRequestHandler.sendRequest(mData, TIMEOUT, mCallback);
+            }
+            awaitResponses(requests);
+        }
+    }
+
+    private void awaitResponses(int count) throws InterruptedException {
+        if (!mResponses.tryAcquire(count, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("responses not received, " + mResponses.availablePermits());
+        }
+    }
+
+    /**
+     * Plain frames both ways, the coder past login without the handshake.
+     * */
+    private static class PlainCoder extends ChannelHandlerAdapter {
+        private final BluesyncMessageCoder mCoder = new BluesyncMessageCoder(MAX_FRAME_LENGTH, false,
+                new BluesyncMessageCoder.Callback() {
+                    @Override
+                    public void onLoginBegin() {}
+
+                    @Override
+                    public void onLoginSuccess(BluesyncProto.InitResponse initResponse) {}
+
+                    @Override
+                    public void onLoginFail(String message) {}
+                });
+
+        @Override
+        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireRead(mCoder.parsePlainData((ByteBuf) msg));
+        }
+
+        @Override
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireWrite(mCoder.packagePlainData(ctx.channel().alloc(), (BluesyncMessage) msg));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package terry.bluesync.server.handler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+
+import terry.bluesync.server.ble.AbstractChannelHandlerContext;
+import terry.bluesync.server.ble.Channel;
+import terry.bluesync.server.ble.ChannelHandlerAdapter;
+import terry.bluesync.server.ble.EventLoopGroup;
+import terry.bluesync.server.ble.LoopbackTransport;
+import terry.bluesync.server.protocol.BluesyncMessage;
+import terry.bluesync.server.protocol.BluesyncProtoUtil;
+
+/**
+ * Pushes to several centrals at once, each session a server channel of its own over
+ * {@link LoopbackTransport} with 1 ms per chunk, the server channels on one
+ * {@link EventLoopGroup} as in multi-session mode. One session is bound by waiting for its
+ * chunks to be confirmed. Sessions on their own channels should not wait on each other, so the
+ * score, pushes per second to each session, should stay about the same as sessions are added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SessionThroughputBenchmark {
+    private static final int MTU = 247;
+    private static final int LATENCY_MILLIS = 1;
+    /** Within the 32 frames a channel queues. */
+    private static final int PUSHES_PER_SESSION = 24;
+
+    @Param({"1", "2", "8"})
+    int sessions;
+
+    @Param({"200"})
+    int payloadSize;
+
+    private EventLoopGroup mEventLoopGroup;
+    private Channel[] mServers;
+    private Channel[] mCentrals;
+    private ByteString mData;
+    private final Semaphore mReceived = new Semaphore(0);
+
+    @Setup
+    public void setUp() throws Exception {
+        mEventLoopGroup = new EventLoopGroup("benchmark-loop");
+        mServers = new Channel[sessions];
+        mCentrals = new Channel[sessions];
+        for (int i = 0; i < sessions; i++) {
+            LoopbackTransport serverTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+            LoopbackTransport centralTransport = new LoopbackTransport(MTU, LATENCY_MILLIS, 0f);
+
+            mServers[i] = new Channel(serverTransport, mEventLoopGroup.next());
+            mServers[i].channelPipeline().addLast("messageEncoder", new PlainEncoder());
+
+            mCentrals[i] = new Channel(centralTransport);
+            mCentrals[i].channelPipeline()
+                    .addLast("frameDecoder", new LengthFieldFrameDecoder(BluesyncMessageCoderBenchmark.MAX_FRAME_LENGTH))
+                    .addLast("counter", new ChannelHandlerAdapter() {
+                        @Override
+                        public void read(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+                            mReceived.release();
+                        }
+                    });
+
+            LoopbackTransport.connect(serverTransport, centralTransport);
+        }
+
+        mData = ByteString.copyFrom(new byte[payloadSize]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < sessions; i++) {
+            mServers[i].disconnect();
+            mServers[i].destroy();
+            mCentrals[i].destroy();
+        }
+        mEventLoopGroup.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUSHES_PER_SESSION)
+    public void push() throws Exception {
+        for (int i = 0; i < PUSHES_PER_SESSION; i++) {
+            for (Channel server : mServers) {
+                server.write(BluesyncProtoUtil.getRecvDataPush(mData));
+            }
+        }
+
+        int pushes = PUSHES_PER_SESSION * sessions;
+        if (!mReceived.tryAcquire(pushes, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("pushes not received, " + mReceived.availablePermits() + " of " + pushes);
+        }
+    }
+
+    /**
+     * Push messages to frames without login, as a logged in plain session writes them.
+     * */
+    private static class PlainEncoder extends ChannelHandlerAdapter {
+        private final BluesyncMessageCoder mCoder;
+
+        PlainEncoder() throws Exception {
+            mCoder = BluesyncMessageCoderBenchmark.newCoder(BluesyncMessageCoderBenchmark.NONE);
+        }
+
+        @Override
+        public void write(AbstractChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.fireWrite(mCoder.packageData(ctx.channel().alloc(), (BluesyncMessage) msg));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package terry.bluesync.server.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * AES/CBC/PKCS7 with the session key, as done once per encrypted message in each direction.
+ * The session variants reuse the ciphers of {@link AesSession} and write into a preallocated
+ * buffer, the others look the cipher up for every call.
+ */
+@State(Scope.Thread)
+public class AesCoderBenchmark {
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    int payloadSize;
+
+    private byte[] mSessionKey;
+    private byte[] mPlain;
+    private byte[] mEncrypted;
+    private byte[] mOutput;
+    private AesSession mSession;
+
+    @Setup
+    public void setUp() throws Exception {
+        mSessionKey = AesCoder.genSessionKey();
+        mPlain = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(mPlain);
+        mEncrypted = AesCoder.encrypt(mSessionKey, mSessionKey, mPlain);
+
+        mSession = new AesSession(mSessionKey, mSessionKey);
+        mOutput = new byte[mSession.encryptOutputSize(payloadSize)];
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        return AesCoder.encrypt(mSessionKey, mSessionKey, mPlain);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return AesCoder.decrypt(mSessionKey, mSessionKey, mEncrypted);
+    }
+
+    @Benchmark
+    public int sessionEncrypt() throws Exception {
+        return mSession.encrypt(mPlain, 0, mPlain.length, mOutput, 0);
+    }
+
+    @Benchmark
+    public int sessionDecrypt() throws Exception {
+        return mSession.decrypt(mEncrypted, 0, mEncrypted.length, mOutput, 0);
+    }
+}
@@ -0,0 +1,89 @@
+package terry.bluesync.server.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Put a request and take it back by seqId with some requests always pending, from several
+ * threads at once. "synchronized" is a map locked as a whole, the way the response holders used
+ * to be kept.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class ConcurrentIntObjectMapBenchmark {
+    private static final Object HOLDER = new Object();
+
+    @Param({"lockFree", "synchronized"})
+    String table;
+
+    /** Requests each thread keeps in flight. */
+    @Param({"1", "16"})
+    int pending;
+
+    private final AtomicInteger mNextThread = new AtomicInteger();
+    private ConcurrentIntObjectMap<Object> mMap;
+    private Map<Integer, Object> mLockedMap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mMap = new ConcurrentIntObjectMap<>();
+        mLockedMap = new HashMap<>();
+    }
+
+    /**
+     * Threads take interleaved seqIds, as callers sharing one seqId counter would.
+     * */
+    @State(Scope.Thread)
+    public static class Caller {
+        int mCount;
+        int mIndex;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentIntObjectMapBenchmark benchmark) {
+            mIndex = benchmark.mNextThread.getAndIncrement();
+            mCount = 0;
+            for (int i = 0; i < benchmark.pending; i++) {
+                benchmark.put(seqId(mCount++));
+            }
+        }
+
+        int seqId(int count) {
+            return ((count & 0xFFF) << 3) | mIndex;
+        }
+    }
+
+    @Benchmark
+    public Object putAndComplete(Caller caller) {
+        int oldest = caller.seqId(caller.mCount - pending);
+        put(caller.seqId(caller.mCount++));
+        return remove(oldest);
+    }
+
+    private void put(int seqId) {
+        if ("lockFree".equals(table)) {
+            mMap.putIfAbsent(seqId, HOLDER);
+        } else {
+            synchronized (mLockedMap) {
+                mLockedMap.put(seqId, HOLDER);
+            }
+        }
+    }
+
+    private Object remove(int seqId) {
+        if ("lockFree".equals(table)) {
+            return mMap.remove(seqId);
+        }
+        synchronized (mLockedMap) {
+            return mLockedMap.remove(seqId);
+        }
+    }
+}
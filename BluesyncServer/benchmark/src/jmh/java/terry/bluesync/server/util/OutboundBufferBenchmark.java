@@ -0,0 +1,55 @@
+package terry.bluesync.server.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Queue outbound frames and take them back as ATT payload sized chunks, as HeadContext does
+ * per message. Chunks stay in the frame array so nothing is allocated per chunk.
+ */
+@State(Scope.Thread)
+public class OutboundBufferBenchmark {
+    private static final int FIXED_HEAD_LEN = 8;
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    int payloadSize;
+
+    @Param({"23", "247"})
+    int mtu;
+
+    /** Frames queued before the first chunk is taken. */
+    @Param({"1", "8"})
+    int burst;
+
+    private OutboundBuffer mOutboundBuffer;
+    private ByteBuf mFrame;
+
+    @Setup
+    public void setUp() {
+        mOutboundBuffer = new OutboundBuffer(32, 64 * 1024);
+        byte[] frame = new byte[payloadSize + FIXED_HEAD_LEN];
+        new Random(payloadSize).nextBytes(frame);
+        mFrame = new ByteBuf(frame);
+    }
+
+    @Benchmark
+    public void drain(Blackhole blackhole) {
+        for (int i = 0; i < burst; i++) {
+            mOutboundBuffer.add(mFrame.retain());
+        }
+
+        int chunkSize = mtu - 3;
+        int length;
+        while ((length = mOutboundBuffer.nextChunk(chunkSize)) > 0) {
+            blackhole.consume(mOutboundBuffer.chunkArray());
+            blackhole.consume(mOutboundBuffer.chunkOffset() + length);
+            mOutboundBuffer.ack();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package terry.bluesync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Run the client pipeline against the server pipeline over loopback transports, frames written
+ * on one side must come out of the frame decoder on the other side unchanged.
+ */
+public class ClientServerLoopbackTest {
+    private static final int FRAME_BUF_SIZE = 4 * 1024;
+
+    private terry.bluesync.client.ble.LoopbackTransport mClientTransport;
+    private terry.bluesync.server.ble.LoopbackTransport mServerTransport;
+    private terry.bluesync.client.ble.Channel mClient;
+    private terry.bluesync.server.ble.Channel mServer;
+    private BlockingQueue<byte[]> mClientFrames;
+    private BlockingQueue<byte[]> mServerFrames;
+
+    @Before
+    public void setUp() {
+        mClientFrames = new LinkedBlockingQueue<>();
+        mServerFrames = new LinkedBlockingQueue<>();
+
+        mClientTransport = new terry.bluesync.client.ble.LoopbackTransport(247, 0, 0f);
+        mServerTransport = new terry.bluesync.server.ble.LoopbackTransport(247, 0, 0f);
+
+        mClient = new terry.bluesync.client.ble.Channel(mClientTransport);
+        mClient.channelPipeline().addLast("frameDecoder",
+                new terry.bluesync.client.handler.LengthFieldFrameDecoder(FRAME_BUF_SIZE));
+        mClient.channelPipeline().addLast("collector", new terry.bluesync.client.ble.ChannelHandlerAdapter() {
+            @Override
+            public void read(terry.bluesync.client.ble.AbstractChannelHandlerContext ctx, Object msg) {
+                mClientFrames.add(((terry.bluesync.client.util.ByteBuf) msg).toByteArray());
+            }
+        });
+
+        mServer = new terry.bluesync.server.ble.Channel(mServerTransport);
+        mServer.channelPipeline().addLast("frameDecoder",
+                new terry.bluesync.server.handler.LengthFieldFrameDecoder(FRAME_BUF_SIZE));
+        mServer.channelPipeline().addLast("collector", new terry.bluesync.server.ble.ChannelHandlerAdapter() {
+            @Override
+            public void read(terry.bluesync.server.ble.AbstractChannelHandlerContext ctx, Object msg) {
+                mServerFrames.add(((terry.bluesync.server.util.ByteBuf) msg).toByteArray());
+            }
+        });
+
+        connect(mClientTransport, mServerTransport);
+    }
+
+    @After
+    public void tearDown() {
+        mClientTransport.disconnect();
+        mClient.destroy();
+        mServer.destroy();
+    }
+
+    @Test
+    public void clientFrameReachesServer() throws Exception {
+        byte[] frame = frame(2000, 1);
+        mClient.write(frame);
+
+        assertArrayEquals(frame, mServerFrames.poll(1, TimeUnit.SECONDS));
+        assertEquals(9, mClientTransport.writeCount());
+    }
+
+    @Test
+    public void serverFrameReachesClient() throws Exception {
+        byte[] frame = frame(2000, 2);
+        mServer.write(frame);
+
+        assertArrayEquals(frame, mClientFrames.poll(1, TimeUnit.SECONDS));
+        assertEquals(9, mServerTransport.writeCount());
+    }
+
+    @Test
+    public void disconnectReachesServer() throws Exception {
+        mClientTransport.disconnect();
+        Thread.sleep(100);
+
+        assertFalse(mServerTransport.isConnected());
+    }
+
+    private static void connect(final terry.bluesync.client.ble.LoopbackTransport client,
+                                final terry.bluesync.server.ble.LoopbackTransport server) {
+        final terry.bluesync.client.ble.LoopbackTransport.Peer clientPeer = client.asPeer();
+        final terry.bluesync.server.ble.LoopbackTransport.Peer serverPeer = server.asPeer();
+
+        client.connect(new terry.bluesync.client.ble.LoopbackTransport.Peer() {
+            @Override
+            public void receive(byte[] value) {
+                serverPeer.receive(value);
+            }
+
+            @Override
+            public void disconnected() {
+                serverPeer.disconnected();
+            }
+        });
+        server.connect(new terry.bluesync.server.ble.LoopbackTransport.Peer() {
+            @Override
+            public void receive(byte[] value) {
+                clientPeer.receive(value);
+            }
+
+            @Override
+            public void disconnected() {
+                clientPeer.disconnected();
+            }
+        });
+    }
+
+    private static byte[] frame(int length, int seqId) {
+        byte[] frame = new byte[length];
+        new Random(seqId).nextBytes(frame);
+        frame[0] = (byte) 0xFE;
+        frame[1] = 0x01;
+        frame[2] = (byte) (length >> 8);
+        frame[3] = (byte) length;
+        frame[4] = 0;
+        frame[5] = 0x01;
+        frame[6] = (byte) (seqId >> 8);
+        frame[7] = (byte) seqId;
+        return frame;
+    }
+}